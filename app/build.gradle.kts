@@ -1,3 +1,25 @@
+import groovy.json.JsonOutput
+import groovy.json.JsonSlurper
+import java.awt.RenderingHints
+import java.awt.image.BufferedImage
+import java.io.DataOutputStream
+import java.math.BigDecimal
+import java.math.BigInteger
+import javax.imageio.IIOImage
+import javax.imageio.ImageIO
+import javax.imageio.ImageWriteParam
+import javax.imageio.stream.FileImageOutputStream
+
+buildscript {
+    repositories {
+        mavenCentral()
+    }
+    dependencies {
+        // WebP encoder for the poster thumbnails, an ImageIO plugin bundling native libwebp
+        classpath(libs.webp.imageio)
+    }
+}
+
 plugins {
     alias(libs.plugins.android.application)
 }
@@ -13,7 +35,10 @@ android {
         versionCode = 1
         versionName = "1.0"
 
-        testInstrumentationRunner = "androidx.test.runner.AndroidJUnitRunner"
+        // AndroidJUnitRunner that also holds the CPU clocks steady while MovieRowBenchmark runs
+        testInstrumentationRunner = "androidx.benchmark.junit4.AndroidBenchmarkRunner"
+        // Row benchmarks run in the debuggable test build, numbers compare rows against each other
+        testInstrumentationRunnerArguments["androidx.benchmark.suppressErrors"] = "DEBUGGABLE,EMULATOR"
     }
 
     buildTypes {
@@ -29,6 +54,351 @@ android {
         sourceCompatibility = JavaVersion.VERSION_11
         targetCompatibility = JavaVersion.VERSION_11
     }
+    androidResources {
+        // The compiled catalog is memory-mapped, which needs it stored uncompressed
+        noCompress += "bin"
+        // The JSON catalog is memory-mapped too when it has to be parsed
+        noCompress += "json"
+        // Already compressed, deflating the poster originals again only costs time when reading them
+        noCompress += "webp"
+    }
+}
+
+/**
+ * Validates movies.json and compiles it into the binary catalog read by BinaryCatalog.
+ * Field checks and error messages mirror JsonUtils.parseMovieFromJson, so the
+ * compiled records carry the same error flags the runtime parser would set.
+ */
+abstract class CompileMovieCatalogTask : DefaultTask() {
+    @get:InputFile
+    @get:PathSensitive(PathSensitivity.RELATIVE)
+    abstract val catalogJson: RegularFileProperty
+
+    @get:OutputDirectory
+    abstract val outputDir: DirectoryProperty
+
+    private class Record(
+        val id: Long, val title: Int, val year: Int, val genre: Int,
+        val poster: Int, val yearErrorMsg: Int, val flags: Int
+    )
+
+    @TaskAction
+    fun compile() {
+        val source = catalogJson.get().asFile
+        val root = JsonSlurper().parse(source, "UTF-8")
+        if (root !is List<*>) {
+            throw GradleException("${source.name} must contain a JSON array of movies")
+        }
+
+        val strings = LinkedHashMap<String, Int>()
+        fun intern(value: String?): Int =
+            if (value == null) NO_STRING else strings.getOrPut(value) { strings.size }
+
+        val records = ArrayList<Record>()
+        var skipped = 0
+        var withErrors = 0
+        root.forEachIndexed { index, element ->
+            val number = index + 1
+            if (element !is Map<*, *> || element.isEmpty()) {
+                logger.warn("${source.name}: movie #$number is not a movie object, skipped")
+                skipped++
+                return@forEachIndexed
+            }
+
+            val title = if (element["title"] != null) jsonString(element["title"]) else null
+            val titleError = title == null || title.trim().isEmpty()
+
+            var year: Int? = null
+            var yearErrorMsg = ""
+            val rawYear = element["year"]
+            if (!element.containsKey("year")) {
+                yearErrorMsg = "Year field is missing"
+            } else if (rawYear is String) {
+                try {
+                    year = Integer.parseInt(rawYear)
+                    if (year <= 0) {
+                        yearErrorMsg = "Year is negative: $year"
+                    }
+                } catch (e: NumberFormatException) {
+                    yearErrorMsg = "Year is not a valid number: $rawYear"
+                }
+            } else if (rawYear is BigDecimal || rawYear is BigInteger) {
+                // org.json reads these as Double
+                val doubleYear = (rawYear as Number).toDouble()
+                yearErrorMsg = "Year is a decimal: $doubleYear"
+                year = doubleYear.toInt()
+            } else if (rawYear is Number && rawYear.toLong() in Int.MIN_VALUE..Int.MAX_VALUE) {
+                year = rawYear.toInt()
+                if (year <= 0) {
+                    yearErrorMsg = "Year is negative: $year"
+                }
+            } else {
+                // Same as FieldCoercion: out-of-range integers, null, booleans and containers
+                yearErrorMsg = "Year is not a valid number: ${jsonString(rawYear)}"
+            }
+            val yearError = yearErrorMsg.isNotEmpty()
+
+            val genre = if (element["genre"] != null) jsonString(element["genre"]) else null
+            val poster = if (element["poster"] != null) jsonString(element["poster"]) else null
+            val posterError = poster == null || poster.trim().isEmpty()
+
+            // Same as ValidationEngine.movieId: positive explicit ids, otherwise the negated record number
+            val rawId = element["id"]
+            val explicitId = when (rawId) {
+                is Number -> rawId.toLong()
+                is String -> rawId.trim().toDoubleOrNull()?.toLong() ?: 0L
+                else -> 0L
+            }
+            val id = if (explicitId > 0) explicitId else -number.toLong()
+
+            var flags = 0
+            if (titleError) flags = flags or FLAG_TITLE_ERROR
+            if (yearError) flags = flags or FLAG_YEAR_ERROR
+            if (genre == null) flags = flags or FLAG_GENRE_ERROR
+            if (posterError) flags = flags or FLAG_POSTER_ERROR
+            if (flags != 0) withErrors++
+
+            records.add(Record(id, intern(title), year ?: NO_YEAR, intern(genre),
+                intern(poster), intern(yearErrorMsg), flags))
+        }
+
+        val encoded = strings.keys.map { it.toByteArray(Charsets.UTF_8) }
+        val recordsOffset = HEADER_SIZE
+        val stringOffsetsOffset = recordsOffset + records.size * RECORD_SIZE
+        var stringDataOffset = stringOffsetsOffset + (encoded.size + 1) * 4
+
+        val output = outputDir.get().file(CATALOG_NAME).asFile
+        output.parentFile.mkdirs()
+        DataOutputStream(output.outputStream().buffered()).use { out ->
+            out.writeInt(MAGIC)
+            out.writeInt(VERSION)
+            out.writeInt(root.size)
+            out.writeInt(skipped)
+            out.writeInt(records.size)
+            out.writeInt(encoded.size)
+            out.writeInt(recordsOffset)
+            out.writeInt(stringOffsetsOffset)
+            for (record in records) {
+                out.writeLong(record.id)
+                out.writeInt(record.title)
+                out.writeInt(record.year)
+                out.writeInt(record.genre)
+                out.writeInt(record.poster)
+                out.writeInt(record.yearErrorMsg)
+                out.writeInt(record.flags)
+            }
+            for (bytes in encoded) {
+                out.writeInt(stringDataOffset)
+                stringDataOffset += bytes.size
+            }
+            out.writeInt(stringDataOffset)
+            for (bytes in encoded) {
+                out.write(bytes)
+            }
+        }
+
+        logger.lifecycle("${source.name}: compiled ${records.size} movies, $withErrors with data errors, " +
+                "$skipped skipped, ${strings.size} distinct strings")
+    }
+
+    /** Same coercion as org.json's getString */
+    private fun jsonString(value: Any?): String = when (value) {
+        is BigDecimal, is BigInteger -> (value as Number).toDouble().toString()
+        is Map<*, *>, is List<*> -> JsonOutput.toJson(value)
+        else -> value.toString()
+    }
+
+    companion object {
+        // Must match BinaryCatalog
+        const val CATALOG_NAME = "movies.bin"
+        const val MAGIC = 0x4D434154
+        const val VERSION = 1
+        const val HEADER_SIZE = 32
+        const val RECORD_SIZE = 32
+        const val NO_STRING = -1
+        const val NO_YEAR = Int.MIN_VALUE
+        const val FLAG_TITLE_ERROR = 1
+        const val FLAG_YEAR_ERROR = 1 shl 1
+        const val FLAG_GENRE_ERROR = 1 shl 2
+        const val FLAG_POSTER_ERROR = 1 shl 3
+    }
+}
+
+/**
+ * Turns the full-size poster sources into what the app ships: a WebP thumbnail per density
+ * bucket, sized to fit the poster slot of item_movie.xml so rows decode small images
+ * without downsampling, and a lossless WebP copy of each original under assets/posters/
+ * for views that need the full image. The sources live outside res/, so the APK carries
+ * each poster once as that lossless copy and otherwise only as thumbnails.
+ */
+@CacheableTask
+abstract class GeneratePosterThumbnailsTask : DefaultTask() {
+    @get:InputDirectory
+    @get:PathSensitive(PathSensitivity.RELATIVE)
+    abstract val posterDir: DirectoryProperty
+
+    @get:Input
+    abstract val slotWidthDp: Property<Int>
+
+    @get:Input
+    abstract val slotHeightDp: Property<Int>
+
+    /** Lossy WebP quality of the thumbnails, 0 to 1 */
+    @get:Input
+    abstract val quality: Property<Float>
+
+    @get:OutputDirectory
+    abstract val resDir: DirectoryProperty
+
+    @get:OutputDirectory
+    abstract val assetsDir: DirectoryProperty
+
+    @TaskAction
+    fun generate() {
+        registerImageIoPlugins()
+        val res = resDir.get().asFile
+        val originals = assetsDir.get().file(ORIGINALS_DIR).asFile
+        res.deleteRecursively()
+        originals.deleteRecursively()
+        res.mkdirs()
+        originals.mkdirs()
+
+        val sources = posterDir.get().asFile.listFiles { file -> file.extension.lowercase() in SOURCE_EXTENSIONS }
+            ?.sortedBy { it.name } ?: emptyList()
+        var sourceBytes = 0L
+        var thumbnailBytes = 0L
+        var originalBytes = 0L
+        for (source in sources) {
+            val image = ImageIO.read(source)
+                ?: throw GradleException("${source.name} is not a readable image")
+            val name = source.nameWithoutExtension
+            if (!RESOURCE_NAME.matches(name)) {
+                throw GradleException("${source.name}: poster names must be valid resource names")
+            }
+            sourceBytes += source.length()
+
+            for ((bucket, scale) in DENSITIES) {
+                val thumbnail = fitInto(image, Math.round(slotWidthDp.get() * scale),
+                    Math.round(slotHeightDp.get() * scale))
+                val output = File(res, "drawable-$bucket/$name.webp")
+                output.parentFile.mkdirs()
+                writeWebP(thumbnail, output, lossless = false)
+                thumbnailBytes += output.length()
+            }
+            val original = File(originals, "$name.webp")
+            writeWebP(toRgb(image), original, lossless = true)
+            originalBytes += original.length()
+        }
+
+        logger.lifecycle("Posters: ${sources.size} sources (${sourceBytes / 1024} KB) -> " +
+                "${DENSITIES.size} density buckets of thumbnails (${thumbnailBytes / 1024} KB) " +
+                "and lossless originals (${originalBytes / 1024} KB)")
+    }
+
+    /**
+     * Scale an image to fit inside the box, keeping its aspect ratio like the slot's fitCenter.
+     * Never scales up, and halves in steps first so large sources do not alias.
+     */
+    private fun fitInto(image: BufferedImage, maxWidth: Int, maxHeight: Int): BufferedImage {
+        val scale = minOf(1.0, maxWidth.toDouble() / image.width, maxHeight.toDouble() / image.height)
+        val width = maxOf(1, Math.round(image.width * scale).toInt())
+        val height = maxOf(1, Math.round(image.height * scale).toInt())
+        var current = toRgb(image)
+        while (current.width / 2 >= width && current.height / 2 >= height) {
+            current = resize(current, current.width / 2, current.height / 2)
+        }
+        return if (current.width == width && current.height == height) current else resize(current, width, height)
+    }
+
+    private fun resize(image: BufferedImage, width: Int, height: Int): BufferedImage {
+        val resized = BufferedImage(width, height, BufferedImage.TYPE_INT_RGB)
+        val graphics = resized.createGraphics()
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC)
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY)
+            graphics.drawImage(image, 0, 0, width, height, null)
+        } finally {
+            graphics.dispose()
+        }
+        return resized
+    }
+
+    /** Posters are opaque, drop any alpha channel so the encoder does not store one */
+    private fun toRgb(image: BufferedImage): BufferedImage =
+        if (image.type == BufferedImage.TYPE_INT_RGB) image else resize(image, image.width, image.height)
+
+    private fun writeWebP(image: BufferedImage, output: File, lossless: Boolean) {
+        val writer = ImageIO.getImageWritersByMIMEType("image/webp").asSequence().firstOrNull()
+            ?: throw GradleException("No WebP ImageIO writer on the build classpath")
+        try {
+            val param = writer.defaultWriteParam
+            param.compressionMode = ImageWriteParam.MODE_EXPLICIT
+            param.compressionType = param.compressionTypes.first {
+                it.equals(if (lossless) "Lossless" else "Lossy", ignoreCase = true)
+            }
+            if (!lossless) {
+                param.compressionQuality = quality.get()
+            }
+            output.delete()
+            FileImageOutputStream(output).use { stream ->
+                writer.output = stream
+                writer.write(null, IIOImage(image, null, null), param)
+            }
+        } finally {
+            writer.dispose()
+        }
+    }
+
+    /** ImageIO only scans the context class loader, which does not see the buildscript classpath */
+    private fun registerImageIoPlugins() {
+        val thread = Thread.currentThread()
+        val previous = thread.contextClassLoader
+        thread.contextClassLoader = javaClass.classLoader
+        try {
+            ImageIO.scanForPlugins()
+        } finally {
+            thread.contextClassLoader = previous
+        }
+    }
+
+    companion object {
+        const val ORIGINALS_DIR = "posters"
+        val SOURCE_EXTENSIONS = setOf("png", "jpg", "jpeg")
+        val RESOURCE_NAME = Regex("[a-z][a-z0-9_]*")
+        // Android density buckets and their scale from dp to pixels
+        val DENSITIES = linkedMapOf(
+            "mdpi" to 1.0f, "hdpi" to 1.5f, "xhdpi" to 2.0f, "xxhdpi" to 3.0f, "xxxhdpi" to 4.0f
+        )
+    }
+}
+
+val generatePosterThumbnails = tasks.register<GeneratePosterThumbnailsTask>("generatePosterThumbnails") {
+    posterDir.set(layout.projectDirectory.dir("src/main/posters"))
+    // Must match poster_width and poster_height in res/values/dimens.xml
+    slotWidthDp.set(100)
+    slotHeightDp.set(150)
+    quality.set(0.8f)
+    resDir.set(layout.buildDirectory.dir("generated/posters/res"))
+    assetsDir.set(layout.buildDirectory.dir("generated/posters/assets"))
+}
+
+val compileMovieCatalog = tasks.register<CompileMovieCatalogTask>("compileMovieCatalog") {
+    catalogJson.set(layout.projectDirectory.file("src/main/assets/movies.json"))
+    outputDir.set(layout.buildDirectory.dir("generated/catalog/assets"))
+}
+
+androidComponents {
+    onVariants { variant ->
+        variant.sources.assets?.addGeneratedSourceDirectory(
+            compileMovieCatalog, CompileMovieCatalogTask::outputDir
+        )
+        variant.sources.res?.addGeneratedSourceDirectory(
+            generatePosterThumbnails, GeneratePosterThumbnailsTask::resDir
+        )
+        variant.sources.assets?.addGeneratedSourceDirectory(
+            generatePosterThumbnails, GeneratePosterThumbnailsTask::assetsDir
+        )
+    }
 }
 
 dependencies {
@@ -37,7 +407,11 @@ dependencies {
     implementation(libs.material)
     implementation(libs.activity)
     implementation(libs.constraintlayout)
+    implementation(libs.recyclerview)
+    implementation(libs.cardview)
+    implementation(libs.lifecycle.viewmodel)
     testImplementation(libs.junit)
     androidTestImplementation(libs.ext.junit)
     androidTestImplementation(libs.espresso.core)
+    androidTestImplementation(libs.benchmark.junit4)
 }
\ No newline at end of file
@@ -0,0 +1,112 @@
+package com.example.myapplication;
+
+import android.content.Context;
+import android.view.ContextThemeWrapper;
+import android.view.LayoutInflater;
+import android.view.View;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+import androidx.test.annotation.UiThreadTest;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Cost of creating, binding and laying out one movie row, for the inflated item_movie.xml
+ * card and the custom-drawn MovieRowView. Run on a device with
+ * ./gradlew :app:connectedAndroidTest -Pandroid.testInstrumentationRunnerArguments.class=com.example.myapplication.MovieRowBenchmark
+ */
+@RunWith(AndroidJUnit4.class)
+public class MovieRowBenchmark {
+    private static final String[] TITLES = {"The Matrix", "The Lord of the Rings: The Return of the King"};
+    private static final String[] YEARS = {"Year: 1999", "Year: 2003"};
+    private static final String[] GENRES = {"Genre: Sci-Fi", "Genre: Adventure"};
+    private static final int BLACK = 0xFF000000;
+
+    @Rule
+    public BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+    private Context context;
+    private RecyclerView parent;
+    private int widthSpec;
+    private int heightSpec;
+
+    @Before
+    public void setUp() {
+        context = new ContextThemeWrapper(InstrumentationRegistry.getInstrumentation().getTargetContext(),
+                R.style.Theme_MovieDatabase);
+        parent = new RecyclerView(context);
+        parent.setLayoutManager(new LinearLayoutManager(context));
+        // Full-width row of a vertical list, free to take the height it needs
+        widthSpec = View.MeasureSpec.makeMeasureSpec(context.getResources().getDisplayMetrics().widthPixels,
+                View.MeasureSpec.EXACTLY);
+        heightSpec = View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED);
+    }
+
+    private void measureAndLayout(View row) {
+        row.measure(widthSpec, heightSpec);
+        row.layout(0, 0, row.getMeasuredWidth(), row.getMeasuredHeight());
+    }
+
+    @Test
+    @UiThreadTest
+    public void createInflatedRow() {
+        LayoutInflater inflater = LayoutInflater.from(context);
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            MovieAdapter.MovieViewHolder holder = new MovieAdapter.MovieViewHolder(
+                    inflater.inflate(R.layout.item_movie, parent, false));
+            measureAndLayout(holder.itemView);
+        }
+    }
+
+    @Test
+    @UiThreadTest
+    public void createFlatRow() {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            MovieAdapter.FlatMovieViewHolder holder = MovieAdapter.FlatMovieViewHolder.create(parent);
+            measureAndLayout(holder.itemView);
+        }
+    }
+
+    @Test
+    @UiThreadTest
+    public void rebindInflatedRow() {
+        MovieAdapter.MovieViewHolder holder = new MovieAdapter.MovieViewHolder(
+                LayoutInflater.from(context).inflate(R.layout.item_movie, parent, false));
+        BenchmarkState state = benchmarkRule.getState();
+        int i = 0;
+        while (state.keepRunning()) {
+            // A recycled row showing another movie
+            int movie = i++ & 1;
+            holder.textViewTitle.setText(TITLES[movie]);
+            holder.textViewTitle.setTextColor(BLACK);
+            holder.textViewYear.setText(YEARS[movie]);
+            holder.textViewYear.setTextColor(BLACK);
+            holder.textViewGenre.setText(GENRES[movie]);
+            holder.textViewGenre.setTextColor(BLACK);
+            measureAndLayout(holder.itemView);
+        }
+    }
+
+    @Test
+    @UiThreadTest
+    public void rebindFlatRow() {
+        MovieAdapter.FlatMovieViewHolder holder = MovieAdapter.FlatMovieViewHolder.create(parent);
+        BenchmarkState state = benchmarkRule.getState();
+        int i = 0;
+        while (state.keepRunning()) {
+            int movie = i++ & 1;
+            holder.row.setText(TITLES[movie], BLACK, YEARS[movie], BLACK, GENRES[movie], BLACK);
+            measureAndLayout(holder.itemView);
+        }
+    }
+}
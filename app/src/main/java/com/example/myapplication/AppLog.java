@@ -0,0 +1,77 @@
+package com.example.myapplication;
+
+import android.util.Log;
+
+/**
+ * Level-gated logging for hot paths. Messages are only concatenated after the level
+ * check passes, and the fixed-arity overloads avoid varargs arrays and boxing,
+ * so a disabled call allocates nothing.
+ */
+public final class AppLog {
+    // Lowest android.util.Log priority that is written, DEBUG and VERBOSE are off by default
+    private static volatile int minLevel = Log.INFO;
+
+    private AppLog() {
+    }
+
+    /**
+     * Set the lowest priority that is written
+     * @param level One of the android.util.Log priority constants
+     */
+    public static void setLevel(int level) {
+        minLevel = level;
+    }
+
+    public static boolean isLoggable(int level) {
+        return level >= minLevel;
+    }
+
+    public static void d(String tag, String message) {
+        if (isLoggable(Log.DEBUG)) {
+            Log.d(tag, message);
+        }
+    }
+
+    public static void d(String tag, String message, Object arg) {
+        if (isLoggable(Log.DEBUG)) {
+            Log.d(tag, message + arg);
+        }
+    }
+
+    public static void d(String tag, String message, Object arg1, String separator, long arg2) {
+        if (isLoggable(Log.DEBUG)) {
+            Log.d(tag, message + arg1 + separator + arg2);
+        }
+    }
+
+    public static void i(String tag, String message, long arg, String suffix) {
+        if (isLoggable(Log.INFO)) {
+            Log.i(tag, message + arg + suffix);
+        }
+    }
+
+    public static void i(String tag, String message, long arg1, String separator, long arg2, String suffix) {
+        if (isLoggable(Log.INFO)) {
+            Log.i(tag, message + arg1 + separator + arg2 + suffix);
+        }
+    }
+
+    public static void i(String tag, String message, long arg1, String separator1, long arg2, String separator2,
+                         long arg3) {
+        if (isLoggable(Log.INFO)) {
+            Log.i(tag, message + arg1 + separator1 + arg2 + separator2 + arg3);
+        }
+    }
+
+    public static void w(String tag, String message, Object arg) {
+        if (isLoggable(Log.WARN)) {
+            Log.w(tag, message + arg);
+        }
+    }
+
+    public static void e(String tag, String message, Object arg) {
+        if (isLoggable(Log.ERROR)) {
+            Log.e(tag, message + arg);
+        }
+    }
+}
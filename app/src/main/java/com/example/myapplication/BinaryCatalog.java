@@ -0,0 +1,353 @@
+package com.example.myapplication;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.util.Log;
+
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reader for the binary movie catalog compiled from movies.json at build time
+ * (see compileMovieCatalog in app/build.gradle.kts). The asset is stored uncompressed
+ * and memory-mapped; records are fixed width and already carry the error flags,
+ * so reading a movie needs no text parsing.
+ *
+ * Layout, big-endian:
+ * header   magic, version, total records, skipped records, movie count,
+ *          string count, records offset, string offsets offset (8 ints)
+ * records  id (long), title, year, genre, poster, year error message, flags (6 ints)
+ * strings  string count + 1 offsets into the data, then UTF-8 data
+ * String fields hold a string table index, or -1 for null; a missing year is Integer.MIN_VALUE.
+ * The same layout is written at run time by Writer, for catalogs parsed on the device.
+ */
+public class BinaryCatalog {
+    private static final String TAG = "BinaryCatalog";
+    public static final String FILE_NAME = "movies.bin";
+
+    static final int MAGIC = 0x4D434154; // "MCAT"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 32;
+    static final int RECORD_SIZE = 32;
+    static final int NO_STRING = -1;
+    static final int NO_YEAR = Integer.MIN_VALUE;
+    private static final int STRING_CACHE_SIZE = 1024;
+
+    static final int FLAG_TITLE_ERROR = 1;
+    static final int FLAG_YEAR_ERROR = 1 << 1;
+    static final int FLAG_GENRE_ERROR = 1 << 2;
+    static final int FLAG_POSTER_ERROR = 1 << 3;
+    static final int ERROR_FLAGS = FLAG_TITLE_ERROR | FLAG_YEAR_ERROR | FLAG_GENRE_ERROR | FLAG_POSTER_ERROR;
+
+    private final ByteBuffer buffer;
+    private final int totalRecords;
+    private final int skippedRecords;
+    private final int movieCount;
+    private final int stringCount;
+    private final int recordsOffset;
+    private final int stringOffsetsOffset;
+    // Small direct-mapped cache of decoded strings, bounded so memory stays flat for large catalogs
+    private final int[] cachedIndexes = new int[STRING_CACHE_SIZE];
+    private final String[] cachedStrings = new String[STRING_CACHE_SIZE];
+
+    /**
+     * Open the compiled catalog from the assets folder
+     * @param context Context
+     * @return Catalog, or null when the asset is missing or unreadable and JSON should be used instead
+     */
+    public static BinaryCatalog open(Context context) {
+        try (AssetFileDescriptor descriptor = context.getAssets().openFd(FILE_NAME);
+             FileInputStream inputStream = descriptor.createInputStream()) {
+            FileChannel channel = inputStream.getChannel();
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY,
+                    descriptor.getStartOffset(), descriptor.getLength());
+            return new BinaryCatalog(buffer);
+        } catch (FileNotFoundException e) {
+            Log.i(TAG, "No compiled catalog, falling back to JSON");
+        } catch (IOException | IllegalArgumentException e) {
+            Log.e(TAG, "Cannot read compiled catalog: " + e.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * Constructor
+     * @param buffer Catalog bytes
+     * @throws IllegalArgumentException Not a catalog of a supported version
+     */
+    BinaryCatalog(ByteBuffer buffer) {
+        this.buffer = buffer.order(ByteOrder.BIG_ENDIAN);
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IllegalArgumentException("Not a movie catalog");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IllegalArgumentException("Unsupported catalog version " + buffer.getInt(4));
+        }
+        totalRecords = buffer.getInt(8);
+        skippedRecords = buffer.getInt(12);
+        movieCount = buffer.getInt(16);
+        stringCount = buffer.getInt(20);
+        recordsOffset = buffer.getInt(24);
+        stringOffsetsOffset = buffer.getInt(28);
+        if ((long) recordsOffset + (long) movieCount * RECORD_SIZE > buffer.capacity()
+                || (long) stringOffsetsOffset + (stringCount + 1L) * 4 > buffer.capacity()) {
+            throw new IllegalArgumentException("Truncated movie catalog");
+        }
+        Arrays.fill(cachedIndexes, NO_STRING);
+    }
+
+    /**
+     * Number of movies in the catalog
+     */
+    public int size() {
+        return movieCount;
+    }
+
+    /**
+     * Record accounting from the build-time compilation
+     */
+    public JsonUtils.LoadStats getStats() {
+        return new JsonUtils.LoadStats(totalRecords, movieCount, skippedRecords);
+    }
+
+    /**
+     * Read one movie
+     * @param index Movie index, 0-based
+     * @return Movie object
+     */
+    public Movie get(int index) {
+        if (index < 0 || index >= movieCount) {
+            throw new IndexOutOfBoundsException("Movie " + index + " of " + movieCount);
+        }
+        int offset = recordsOffset + index * RECORD_SIZE;
+        long id = buffer.getLong(offset);
+        int year = buffer.getInt(offset + 12);
+        int flags = getFlags(index);
+
+        Movie movie = new Movie(string(buffer.getInt(offset + 8)),
+                year == NO_YEAR ? null : year,
+                string(buffer.getInt(offset + 16)),
+                string(buffer.getInt(offset + 20)));
+        movie.setId(id);
+        movie.setHasTitleError((flags & FLAG_TITLE_ERROR) != 0);
+        movie.setHasYearError((flags & FLAG_YEAR_ERROR) != 0);
+        movie.setYearErrorMsg(string(buffer.getInt(offset + 24)));
+        movie.setHasGenreError((flags & FLAG_GENRE_ERROR) != 0);
+        movie.setHasPosterError((flags & FLAG_POSTER_ERROR) != 0);
+        return movie;
+    }
+
+    /**
+     * @return Checksum of the catalog's bytes, identifies it for CatalogDatabase imports
+     */
+    long checksum() {
+        return CatalogSnapshot.checksum(buffer);
+    }
+
+    /**
+     * Read the id of one movie without building it
+     * @param index Movie index, 0-based
+     * @return Movie id
+     */
+    long getId(int index) {
+        return buffer.getLong(recordsOffset + index * RECORD_SIZE);
+    }
+
+    /**
+     * Read the title of one movie without building it
+     * @param index Movie index, 0-based
+     * @return Title, or null
+     */
+    String getTitle(int index) {
+        return string(buffer.getInt(recordsOffset + index * RECORD_SIZE + 8));
+    }
+
+    /**
+     * Read the year of one movie without building it
+     * @param index Movie index, 0-based
+     * @return Year, or NO_YEAR
+     */
+    int getYear(int index) {
+        return buffer.getInt(recordsOffset + index * RECORD_SIZE + 12);
+    }
+
+    /**
+     * Read the genre of one movie without building it
+     * @param index Movie index, 0-based
+     * @return Genre, or null when the record has none
+     */
+    String getGenre(int index) {
+        return string(buffer.getInt(recordsOffset + index * RECORD_SIZE + 16));
+    }
+
+    /**
+     * Read the error flags of one movie without building it
+     * @param index Movie index, 0-based
+     * @return Bitmask of FLAG_* values
+     */
+    int getFlags(int index) {
+        return buffer.getInt(recordsOffset + index * RECORD_SIZE + 28);
+    }
+
+    /**
+     * Error flags of a parsed movie, as stored in a record
+     * @param movie Movie
+     * @return Bitmask of FLAG_* values
+     */
+    static int flagsOf(Movie movie) {
+        int flags = 0;
+        if (movie.hasTitleError()) {
+            flags |= FLAG_TITLE_ERROR;
+        }
+        if (movie.hasYearError()) {
+            flags |= FLAG_YEAR_ERROR;
+        }
+        if (movie.hasGenreError()) {
+            flags |= FLAG_GENRE_ERROR;
+        }
+        if (movie.hasPosterError()) {
+            flags |= FLAG_POSTER_ERROR;
+        }
+        return flags;
+    }
+
+    /**
+     * Hand every movie to the consumer in catalog order
+     * @param consumer Receives movies, may throw CancellationException to stop
+     * @return Record accounting
+     */
+    public JsonUtils.LoadStats streamMovies(JsonUtils.MovieConsumer consumer) {
+        for (int i = 0; i < movieCount; i++) {
+            consumer.accept(get(i));
+        }
+        AppLog.i(TAG, "Movie data loading complete: Total ", totalRecords, ", Successful ", movieCount,
+                ", Skipped ", skippedRecords);
+        return getStats();
+    }
+
+    private String string(int index) {
+        if (index == NO_STRING) {
+            return null;
+        }
+        int slot = index & (STRING_CACHE_SIZE - 1);
+        synchronized (cachedIndexes) {
+            if (cachedIndexes[slot] == index) {
+                return cachedStrings[slot];
+            }
+        }
+        int start = buffer.getInt(stringOffsetsOffset + index * 4);
+        int end = buffer.getInt(stringOffsetsOffset + (index + 1) * 4);
+        byte[] bytes = new byte[end - start];
+        ByteBuffer view = buffer.duplicate();
+        view.position(start);
+        view.get(bytes);
+        String value = new String(bytes, StandardCharsets.UTF_8);
+        synchronized (cachedIndexes) {
+            cachedIndexes[slot] = index;
+            cachedStrings[slot] = value;
+        }
+        return value;
+    }
+
+    /**
+     * Builds a catalog from parsed movies in the layout read by BinaryCatalog. Records are
+     * held in memory as 32 bytes each until written, strings once each.
+     */
+    static class Writer {
+        private final Map<String, Integer> stringIds = new HashMap<>();
+        private final List<byte[]> strings = new ArrayList<>();
+        private long[] ids = new long[256];
+        // Title, year, genre, poster, year error message and flags of each record
+        private int[] fields = new int[256 * 6];
+        private int count;
+
+        /**
+         * Append a movie, with its error flags and year error message
+         * @param movie Parsed movie
+         */
+        void add(Movie movie) {
+            if (count == ids.length) {
+                ids = Arrays.copyOf(ids, count * 2);
+                fields = Arrays.copyOf(fields, count * 2 * 6);
+            }
+            int flags = flagsOf(movie);
+            ids[count] = movie.getId();
+            int base = count * 6;
+            fields[base] = intern(movie.getTitle());
+            fields[base + 1] = movie.getYearValue();
+            // A genre error shows a default genre, the catalog keeps it missing like the compiled one
+            fields[base + 2] = intern(movie.hasGenreError() ? null : movie.getGenre());
+            fields[base + 3] = intern(movie.getPosterResource());
+            fields[base + 4] = intern(movie.getYearErrorMsg());
+            fields[base + 5] = flags;
+            count++;
+        }
+
+        int size() {
+            return count;
+        }
+
+        private int intern(String value) {
+            if (value == null) {
+                return NO_STRING;
+            }
+            Integer id = stringIds.get(value);
+            if (id == null) {
+                id = strings.size();
+                strings.add(value.getBytes(StandardCharsets.UTF_8));
+                stringIds.put(value, id);
+            }
+            return id;
+        }
+
+        /**
+         * Write the catalog
+         * @param output Destination, not closed
+         * @param stats Record accounting of the load that produced the movies
+         * @throws IOException Writing failed
+         */
+        void writeTo(OutputStream output, JsonUtils.LoadStats stats) throws IOException {
+            int recordsOffset = HEADER_SIZE;
+            int stringOffsetsOffset = recordsOffset + count * RECORD_SIZE;
+            int stringDataOffset = stringOffsetsOffset + (strings.size() + 1) * 4;
+
+            DataOutputStream out = new DataOutputStream(output);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(stats.getTotal());
+            out.writeInt(stats.getSkipped());
+            out.writeInt(count);
+            out.writeInt(strings.size());
+            out.writeInt(recordsOffset);
+            out.writeInt(stringOffsetsOffset);
+            for (int i = 0; i < count; i++) {
+                out.writeLong(ids[i]);
+                for (int field = i * 6; field < i * 6 + 6; field++) {
+                    out.writeInt(fields[field]);
+                }
+            }
+            for (byte[] bytes : strings) {
+                out.writeInt(stringDataOffset);
+                stringDataOffset += bytes.length;
+            }
+            out.writeInt(stringDataOffset);
+            for (byte[] bytes : strings) {
+                out.write(bytes);
+            }
+            out.flush();
+        }
+    }
+}
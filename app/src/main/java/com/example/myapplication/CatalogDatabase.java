@@ -0,0 +1,397 @@
+package com.example.myapplication;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+import android.util.Log;
+
+import java.io.Closeable;
+import java.util.concurrent.CancellationException;
+
+/**
+ * SQLite copy of the movie catalog, for filtered queries over catalogs too large to
+ * filter in memory. Movies are imported from the compiled rows of the catalog the list
+ * shows, so the JSON is never parsed a second time, in batched transactions;
+ * the import records its progress, so an import interrupted part way resumes where it
+ * stopped, and importing the same catalog again does nothing. Catalog deltas are applied
+ * by movie id on top of the import.
+ * Queries are read through a cursor that only holds a window of rows in memory.
+ */
+public class CatalogDatabase extends SQLiteOpenHelper {
+    private static final String TAG = "CatalogDatabase";
+    private static final String DATABASE_NAME = "catalog.db";
+    // Bump when the schema changes, the catalog is then imported again
+    private static final int DATABASE_VERSION = 3;
+    // Rows per transaction, large enough to amortize the journal sync
+    static final int IMPORT_BATCH_SIZE = 500;
+
+    static final String TABLE_MOVIES = "movies";
+    // Catalog position, 0-based, also the import progress key
+    static final String COLUMN_POSITION = "position";
+    static final String COLUMN_ID = "movie_id";
+    static final String COLUMN_TITLE = "title";
+    // NULL when the movie has no year
+    static final String COLUMN_YEAR = "year";
+    // NULL when the genre failed validation, like BinaryCatalog
+    static final String COLUMN_GENRE = "genre";
+    static final String COLUMN_POSTER = "poster";
+    static final String COLUMN_YEAR_ERROR_MSG = "year_error_msg";
+    // BinaryCatalog.FLAG_* bitmask
+    static final String COLUMN_FLAGS = "flags";
+
+    private static final String TABLE_IMPORT = "import_state";
+
+    private static CatalogDatabase instance;
+
+    /**
+     * Get the shared database
+     * @param context Context, only the application context is retained
+     * @return Database helper
+     */
+    public static synchronized CatalogDatabase getInstance(Context context) {
+        if (instance == null) {
+            instance = new CatalogDatabase(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private CatalogDatabase(Context context) {
+        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+        // Queries for the list keep running while an import writes
+        setWriteAheadLoggingEnabled(true);
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_MOVIES + " ("
+                + COLUMN_POSITION + " INTEGER PRIMARY KEY, "
+                + COLUMN_ID + " INTEGER NOT NULL, "
+                + COLUMN_TITLE + " TEXT, "
+                + COLUMN_YEAR + " INTEGER, "
+                + COLUMN_GENRE + " TEXT COLLATE NOCASE, "
+                + COLUMN_POSTER + " TEXT, "
+                + COLUMN_YEAR_ERROR_MSG + " TEXT, "
+                + COLUMN_FLAGS + " INTEGER NOT NULL)");
+        // Genre, then allowed flag combinations, then a year range, each seek narrows the next
+        db.execSQL("CREATE INDEX movies_genre ON " + TABLE_MOVIES
+                + " (" + COLUMN_GENRE + ", " + COLUMN_FLAGS + ", " + COLUMN_YEAR + ")");
+        db.execSQL("CREATE INDEX movies_year ON " + TABLE_MOVIES + " (" + COLUMN_YEAR + ")");
+        db.execSQL("CREATE INDEX movies_flags ON " + TABLE_MOVIES
+                + " (" + COLUMN_FLAGS + ", " + COLUMN_YEAR + ")");
+        // Deltas find their movies by id
+        db.execSQL("CREATE INDEX movies_id ON " + TABLE_MOVIES + " (" + COLUMN_ID + ")");
+        // A single row: which catalog is imported, and how far
+        db.execSQL("CREATE TABLE " + TABLE_IMPORT + " ("
+                + "id INTEGER PRIMARY KEY CHECK (id = 0), "
+                + "checksum INTEGER NOT NULL, "
+                + "imported INTEGER NOT NULL, "
+                + "complete INTEGER NOT NULL)");
+        db.execSQL("INSERT INTO " + TABLE_IMPORT + " VALUES (0, -1, 0, 0)");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        // Only a copy of the catalog, import it again
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_MOVIES);
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_IMPORT);
+        onCreate(db);
+    }
+
+    /**
+     * Check whether a catalog is completely imported
+     * @param checksum Checksum of the catalog
+     * @return true when importCatalog would have nothing to do
+     */
+    public synchronized boolean isImported(long checksum) {
+        try (Cursor state = getReadableDatabase().rawQuery(
+                "SELECT 1 FROM " + TABLE_IMPORT + " WHERE checksum = ? AND complete = 1",
+                new String[]{Long.toString(checksum)})) {
+            return state.moveToFirst();
+        }
+    }
+
+    /**
+     * Check whether the last import finished, so queries see the whole catalog. Waits for
+     * an import in progress; call on a background thread.
+     * @return false before any catalog was completely imported
+     */
+    public synchronized boolean isImportComplete() {
+        try (Cursor state = getReadableDatabase().rawQuery(
+                "SELECT 1 FROM " + TABLE_IMPORT + " WHERE complete = 1", null)) {
+            return state.moveToFirst();
+        }
+    }
+
+    /**
+     * Import a catalog unless it is imported already. An import of the same catalog that
+     * was interrupted continues after the last committed batch; a different catalog
+     * replaces the previous one. Call on a background thread, interrupting it stops the
+     * import at the next movie.
+     * @param rows Compiled catalog, or a snapshot of a parsed one
+     * @param checksum Checksum identifying the catalog, see CatalogSnapshot.checksum
+     * @return true when movies were imported, false when the catalog was up to date
+     */
+    public synchronized boolean importCatalog(BinaryCatalog rows, long checksum) {
+        SQLiteDatabase db = getWritableDatabase();
+        int resumeAt = 0;
+        try (Cursor state = db.rawQuery("SELECT checksum, imported, complete FROM " + TABLE_IMPORT, null)) {
+            if (state.moveToFirst() && state.getLong(0) == checksum) {
+                if (state.getInt(2) != 0) {
+                    return false;
+                }
+                resumeAt = state.getInt(1);
+            }
+        }
+        if (resumeAt == 0) {
+            db.beginTransaction();
+            try {
+                db.delete(TABLE_MOVIES, null, null);
+                updateState(db, checksum, 0, false);
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+        } else {
+            Log.i(TAG, "Resuming catalog import at movie " + resumeAt);
+        }
+
+        long importStart = System.nanoTime();
+        Importer importer = new Importer(db, checksum, resumeAt);
+        try {
+            for (int position = resumeAt; position < rows.size(); position++) {
+                importer.add(rows.get(position));
+            }
+            importer.finish();
+        } finally {
+            // Rolls back the batch in progress when the import failed or was cancelled
+            importer.close();
+        }
+        Log.i(TAG, "Imported " + (importer.position - resumeAt) + " movies in "
+                + (System.nanoTime() - importStart) / 1000000 + " ms");
+        return true;
+    }
+
+    /**
+     * Apply a catalog delta to the imported catalog by movie id: an upsert replaces the
+     * movies with its id, or is added after the last position, and a removal deletes them.
+     * Applying the same delta again changes nothing. Call on a background thread.
+     * @param delta Parsed delta
+     * @return false when no import is complete, the delta is then left to a later load
+     */
+    public synchronized boolean applyDelta(CatalogDelta delta) {
+        if (!isImportComplete()) {
+            // An import still to resume would overwrite the changed rows
+            Log.w(TAG, "Catalog not imported yet, delta not applied");
+            return false;
+        }
+        SQLiteDatabase db = getWritableDatabase();
+        SQLiteStatement update = db.compileStatement("UPDATE " + TABLE_MOVIES + " SET "
+                + COLUMN_TITLE + " = ?, " + COLUMN_YEAR + " = ?, " + COLUMN_GENRE + " = ?, "
+                + COLUMN_POSTER + " = ?, " + COLUMN_YEAR_ERROR_MSG + " = ?, " + COLUMN_FLAGS + " = ?"
+                + " WHERE " + COLUMN_ID + " = ?");
+        SQLiteStatement insert = db.compileStatement("INSERT INTO " + TABLE_MOVIES + " VALUES ("
+                + "(SELECT COALESCE(MAX(" + COLUMN_POSITION + "), -1) + 1 FROM " + TABLE_MOVIES + "), "
+                + "?, ?, ?, ?, ?, ?, ?)");
+        SQLiteStatement remove = db.compileStatement("DELETE FROM " + TABLE_MOVIES + " WHERE " + COLUMN_ID + " = ?");
+        db.beginTransactionNonExclusive();
+        try {
+            // Upserts first, so a removal of the same id wins as it does in the list
+            for (Movie movie : delta.getUpserts()) {
+                update.clearBindings();
+                bindColumns(update, 1, movie);
+                update.bindLong(7, movie.getId());
+                if (update.executeUpdateDelete() == 0) {
+                    insert.clearBindings();
+                    insert.bindLong(1, movie.getId());
+                    bindColumns(insert, 2, movie);
+                    insert.executeInsert();
+                }
+            }
+            for (long id : delta.getRemovals()) {
+                remove.bindLong(1, id);
+                remove.executeUpdateDelete();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            update.close();
+            insert.close();
+            remove.close();
+        }
+        return true;
+    }
+
+    /**
+     * Bind the columns after the movie id, from title to flags, in table order
+     * @param statement Statement with cleared bindings
+     * @param index Placeholder of the title
+     * @param movie Movie
+     */
+    private static void bindColumns(SQLiteStatement statement, int index, Movie movie) {
+        bindString(statement, index, movie.getTitle());
+        if (movie.getYearValue() != MovieStore.NO_YEAR) {
+            statement.bindLong(index + 1, movie.getYearValue());
+        }
+        bindString(statement, index + 2, movie.hasGenreError() ? null : movie.getGenre());
+        bindString(statement, index + 3, movie.getPosterResource());
+        bindString(statement, index + 4, movie.getYearErrorMsg());
+        statement.bindLong(index + 5, BinaryCatalog.flagsOf(movie));
+    }
+
+    private static void bindString(SQLiteStatement statement, int index, String value) {
+        if (value != null) {
+            statement.bindString(index, value);
+        }
+    }
+
+    private static void updateState(SQLiteDatabase db, long checksum, int imported, boolean complete) {
+        db.execSQL("UPDATE " + TABLE_IMPORT + " SET checksum = ?, imported = ?, complete = ?",
+                new Object[]{checksum, imported, complete ? 1 : 0});
+    }
+
+    /**
+     * Run a query over the imported catalog. Call on a background thread, the first
+     * window of rows is read here.
+     * @param query Filter, movies are returned in catalog order
+     * @return Matching movies, to be shown through a PagedMovieList and closed when replaced
+     */
+    public QueryResults query(CatalogQuery query) {
+        long queryStart = System.nanoTime();
+        Cursor cursor = getReadableDatabase().rawQuery("SELECT " + COLUMN_ID + ", " + COLUMN_TITLE + ", "
+                + COLUMN_YEAR + ", " + COLUMN_GENRE + ", " + COLUMN_POSTER + ", " + COLUMN_YEAR_ERROR_MSG + ", "
+                + COLUMN_FLAGS + " FROM " + TABLE_MOVIES
+                + (query.getSelection() != null ? " WHERE " + query.getSelection() : "")
+                + " ORDER BY " + COLUMN_POSITION, query.getSelectionArgs());
+        QueryResults results = new QueryResults(cursor);
+        if (AppLog.isLoggable(Log.DEBUG)) {
+            AppLog.d(TAG, query + " matched " + results.size() + " movies in "
+                    + (System.nanoTime() - queryStart) / 1000000 + " ms");
+        }
+        return results;
+    }
+
+    /**
+     * Writes catalog rows with one prepared statement, committing every IMPORT_BATCH_SIZE
+     * movies together with the import progress
+     */
+    private static class Importer implements Closeable {
+        private final SQLiteDatabase db;
+        private final long checksum;
+        private final SQLiteStatement insert;
+        private int position;
+        private boolean inTransaction;
+
+        Importer(SQLiteDatabase db, long checksum, int resumeAt) {
+            this.db = db;
+            this.checksum = checksum;
+            this.position = resumeAt;
+            // REPLACE keeps a replayed batch from failing on rows it wrote before
+            this.insert = db.compileStatement("INSERT OR REPLACE INTO " + TABLE_MOVIES + " VALUES (?, ?, ?, ?, ?, ?, ?, ?)");
+        }
+
+        /**
+         * Write the movie at the next catalog position
+         */
+        void add(Movie movie) {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new CancellationException();
+            }
+            if (!inTransaction) {
+                db.beginTransactionNonExclusive();
+                inTransaction = true;
+            }
+            insert.clearBindings();
+            insert.bindLong(1, position);
+            insert.bindLong(2, movie.getId());
+            bindColumns(insert, 3, movie);
+            insert.executeInsert();
+            position++;
+            if (position % IMPORT_BATCH_SIZE == 0) {
+                commit(false);
+            }
+        }
+
+        void finish() {
+            if (!inTransaction) {
+                db.beginTransactionNonExclusive();
+                inTransaction = true;
+            }
+            commit(true);
+        }
+
+        private void commit(boolean complete) {
+            updateState(db, checksum, position, complete);
+            db.setTransactionSuccessful();
+            db.endTransaction();
+            inTransaction = false;
+        }
+
+        @Override
+        public void close() {
+            if (inTransaction) {
+                db.endTransaction();
+                inTransaction = false;
+            }
+            insert.close();
+        }
+    }
+
+    /**
+     * Movies matching a query, read from the cursor as PagedMovieList pages them in.
+     * The cursor keeps only a window of rows in memory.
+     */
+    public static class QueryResults implements PagedMovieList.PageSource, Closeable {
+        private final Cursor cursor;
+        private final int count;
+
+        QueryResults(Cursor cursor) {
+            this.cursor = cursor;
+            // Runs the query and fills the first window
+            this.count = cursor.getCount();
+        }
+
+        @Override
+        public int size() {
+            return count;
+        }
+
+        @Override
+        public synchronized Movie get(int index) {
+            if (cursor.isClosed()) {
+                // Replaced by newer results while a page was loading, the page is never shown
+                return null;
+            }
+            if (!cursor.moveToPosition(index)) {
+                throw new IndexOutOfBoundsException("Movie " + index + " of " + count);
+            }
+            int flags = cursor.getInt(6);
+            Movie movie = new Movie(cursor.getString(1),
+                    cursor.isNull(2) ? null : cursor.getInt(2),
+                    cursor.getString(3),
+                    cursor.getString(4));
+            movie.setId(cursor.getLong(0));
+            movie.setHasTitleError((flags & BinaryCatalog.FLAG_TITLE_ERROR) != 0);
+            movie.setHasYearError((flags & BinaryCatalog.FLAG_YEAR_ERROR) != 0);
+            movie.setYearErrorMsg(cursor.getString(5));
+            movie.setHasGenreError((flags & BinaryCatalog.FLAG_GENRE_ERROR) != 0);
+            movie.setHasPosterError((flags & BinaryCatalog.FLAG_POSTER_ERROR) != 0);
+            return movie;
+        }
+
+        /**
+         * Results never change in place, a new query replaces the whole list, so the row
+         * number is a stable id and the cursor is not touched on the main thread
+         */
+        @Override
+        public long getId(int index) {
+            return index;
+        }
+
+        @Override
+        public synchronized void close() {
+            cursor.close();
+        }
+    }
+}
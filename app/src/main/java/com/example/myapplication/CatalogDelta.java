@@ -0,0 +1,496 @@
+package com.example.myapplication;
+
+import android.util.JsonReader;
+import android.util.JsonToken;
+import android.util.Log;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Changes to a loaded catalog, keyed by movie id: movies to add or update, and ids to
+ * remove. Only the records in the delta are validated. Applying it reads the catalog's ids
+ * once, in bulk, to find their rows, and removals shift the rows after them; everything
+ * else, in the catalog, the search index, the sort keys and the list, touches only the
+ * rows in the delta. A handful of changes costs a scan of the ids rather than a reload.
+ * A parsed catalog is changed in its MovieStore, a compiled one through the CatalogOverlay
+ * its paged list reads.
+ *
+ * Document: {"upsert": [movie records, each with an "id"], "remove": [ids]}
+ * An upserted id already in the catalog updates that movie in place, an unknown id is
+ * appended. A removed id wins over an upsert of the same id. Ids of either kind that
+ * are not positive integers, see ValidationEngine.explicitId, are skipped and reported.
+ */
+public class CatalogDelta {
+    private static final String TAG = "CatalogDelta";
+    // Action of an id that is removed rather than upserted
+    private static final int REMOVE = -2;
+    // Catalog ids read at once while looking for the rows of a delta
+    private static final int ID_CHUNK = 1024;
+
+    private final List<Movie> upserts;
+    private final long[] removals;
+    private final ValidationReport report;
+    private final LoadDiagnostics diagnostics;
+
+    CatalogDelta(List<Movie> upserts, long[] removals, ValidationReport report) {
+        this(upserts, removals, report, null);
+    }
+
+    /**
+     * Constructor
+     * @param upserts Validated movies to add or update, with their ids set
+     * @param removals Ids of movies to remove
+     * @param report Validation outcome of the upserts, may be null
+     * @param diagnostics Problems found in the document, may be null
+     */
+    CatalogDelta(List<Movie> upserts, long[] removals, ValidationReport report, LoadDiagnostics diagnostics) {
+        this.upserts = upserts;
+        this.removals = removals;
+        this.report = report;
+        this.diagnostics = diagnostics;
+    }
+
+    /**
+     * Read and validate a delta document
+     * @param inputStream UTF-8 encoded delta document
+     * @param engine Validation rules applied to each upserted record
+     * @return Delta, records that cannot be used are skipped and reported like a catalog load
+     * @throws IOException Reading or JSON syntax exception
+     */
+    public static CatalogDelta parse(InputStream inputStream, ValidationEngine engine) throws IOException {
+        List<Movie> upserts = new ArrayList<>();
+        long[] removals = new long[16];
+        int removalCount = 0;
+        ValidationReport report = engine.newReport();
+        LoadDiagnostics diagnostics = new LoadDiagnostics();
+        int skipped = 0;
+
+        JsonReader reader = new JsonReader(new BufferedReader(
+                new InputStreamReader(inputStream, StandardCharsets.UTF_8)));
+        reader.setLenient(true);
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if ("upsert".equals(name)) {
+                reader.beginArray();
+                int number = 0;
+                while (reader.hasNext()) {
+                    number++;
+                    if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+                        reader.skipValue();
+                        diagnostics.add(LoadDiagnostics.KIND_NOT_AN_OBJECT, number, null);
+                        skipped++;
+                        continue;
+                    }
+                    try {
+                        JSONObject record = JsonUtils.readObject(reader);
+                        if (!record.has("id")) {
+                            // Without an id there is nothing to match it against
+                            diagnostics.add(LoadDiagnostics.KIND_MISSING_ID, number, null);
+                            skipped++;
+                            continue;
+                        }
+                        if (ValidationEngine.explicitId(record.opt("id")) == ValidationEngine.NO_EXPLICIT_ID) {
+                            // Catalog movies without a usable id cannot be targeted, see ValidationEngine.movieId
+                            diagnostics.add(LoadDiagnostics.KIND_INVALID_ID, number, diagnostics.isSampling(
+                                    LoadDiagnostics.KIND_INVALID_ID) ? "Not a positive id: " + record.opt("id") : null);
+                            skipped++;
+                            continue;
+                        }
+                        upserts.add(engine.validate(record, number, report, diagnostics));
+                    } catch (JSONException | IllegalArgumentException e) {
+                        diagnostics.add(LoadDiagnostics.KIND_INVALID_DATA, number, e.getMessage());
+                        skipped++;
+                    }
+                }
+                reader.endArray();
+            } else if ("remove".equals(name)) {
+                reader.beginArray();
+                int number = 0;
+                while (reader.hasNext()) {
+                    number++;
+                    Object rawId = readId(reader);
+                    long id = ValidationEngine.explicitId(rawId);
+                    if (id == ValidationEngine.NO_EXPLICIT_ID) {
+                        // Like an upsert's, no catalog movie can have it
+                        diagnostics.add(LoadDiagnostics.KIND_INVALID_ID, number, rawId != null
+                                && diagnostics.isSampling(LoadDiagnostics.KIND_INVALID_ID)
+                                ? "Not a positive id: " + rawId : null);
+                        skipped++;
+                        continue;
+                    }
+                    if (removalCount == removals.length) {
+                        removals = Arrays.copyOf(removals, removalCount * 2);
+                    }
+                    removals[removalCount++] = id;
+                }
+                reader.endArray();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        int total = upserts.size() + removalCount + skipped;
+        diagnostics.logSummary("delta", new JsonUtils.LoadStats(total, total - skipped, skipped));
+        return new CatalogDelta(upserts, Arrays.copyOf(removals, removalCount), report, diagnostics);
+    }
+
+    /**
+     * Read a removed id the way org.json reads an upserted one, for ValidationEngine.explicitId
+     * @return Long for an integer, the text of other numbers and of strings, null for other values
+     */
+    private static Object readId(JsonReader reader) throws IOException {
+        JsonToken token = reader.peek();
+        if (token != JsonToken.NUMBER && token != JsonToken.STRING) {
+            reader.skipValue();
+            return null;
+        }
+        String text = reader.nextString();
+        if (token == JsonToken.NUMBER) {
+            try {
+                return Long.parseLong(text);
+            } catch (NumberFormatException e) {
+                // A decimal or an exponent, truncated by explicitId
+            }
+        }
+        return text;
+    }
+
+    public int getUpsertCount() {
+        return upserts.size();
+    }
+
+    public int getRemovalCount() {
+        return removals.length;
+    }
+
+    /**
+     * Validation outcome of the upserted records, indexes are positions in the upsert list
+     */
+    public ValidationReport getValidationReport() {
+        return report;
+    }
+
+    /**
+     * Problems found in the document; upsert record numbers count from 1 in the upsert
+     * array, removal numbers in the remove array
+     */
+    public LoadDiagnostics getDiagnostics() {
+        return diagnostics;
+    }
+
+    /**
+     * Movies to add or update, in document order; a later upsert of an id wins
+     */
+    List<Movie> getUpserts() {
+        return upserts;
+    }
+
+    /**
+     * Ids of movies to remove, winning over upserts of the same id
+     */
+    long[] getRemovals() {
+        return removals;
+    }
+
+    /**
+     * Rows of a loaded catalog a delta changes in place, numbered by catalog position
+     */
+    interface Rows {
+        int size();
+
+        /**
+         * Read the ids of a range of rows
+         * @param start First row
+         * @param end Row after the last one
+         * @param ids Receives the ids from index 0
+         */
+        void getIds(int start, int end, long[] ids);
+
+        /**
+         * Movie at a row, only read before the row is changed
+         */
+        Movie get(int row);
+
+        void set(int row, Movie movie);
+
+        /**
+         * @param rows Ascending positions
+         */
+        void removeRows(int[] rows);
+
+        /**
+         * Append a movie after the last row
+         */
+        void append(Movie movie);
+    }
+
+    /**
+     * Rows of a parsed catalog, changed in its store
+     */
+    static Rows rowsOf(final MovieStore store) {
+        return new Rows() {
+            @Override
+            public int size() {
+                return store.size();
+            }
+
+            @Override
+            public void getIds(int start, int end, long[] ids) {
+                store.getIds(start, end, ids, 0);
+            }
+
+            @Override
+            public Movie get(int row) {
+                return store.get(row);
+            }
+
+            @Override
+            public void set(int row, Movie movie) {
+                store.set(row, movie);
+            }
+
+            @Override
+            public void removeRows(int[] rows) {
+                store.removeRows(rows);
+            }
+
+            @Override
+            public void append(Movie movie) {
+                store.add(movie);
+            }
+        };
+    }
+
+    /**
+     * Apply the delta to a loaded catalog and the indexes built over it. Call on the main
+     * thread once loading has finished, the store is read there.
+     * @param store Catalog, rows are catalog positions
+     * @param searchIndex Search index over the same positions
+     * @param sorter Sort keys of the same positions
+     * @return Positions that changed, to notify the list with
+     */
+    public Result applyTo(MovieStore store, MovieSearchIndex searchIndex, MovieSorter sorter) {
+        return applyTo(rowsOf(store), searchIndex, sorter);
+    }
+
+    /**
+     * Apply the delta to the rows of a loaded catalog, see applyTo(MovieStore, ...)
+     * @param store Catalog rows, see CatalogHolder.getDeltaRows
+     * @param searchIndex Search index over the same positions, or null while the catalog is
+     *                    not indexed; it is then indexed from the changed rows
+     * @param sorter Sort keys of the same positions, null exactly when searchIndex is
+     * @return Positions that changed, to notify the list with
+     */
+    Result applyTo(Rows store, MovieSearchIndex searchIndex, MovieSorter sorter) {
+        long applyStart = System.nanoTime();
+        // Upserts first, so a removal of the same id replaces it; the last upsert of an id wins
+        IdTable actions = new IdTable(upserts.size() + removals.length);
+        for (int i = 0; i < upserts.size(); i++) {
+            actions.put(upserts.get(i).getId(), i);
+        }
+        for (long id : removals) {
+            actions.put(id, REMOVE);
+        }
+
+        // One pass over the ids finds every touched row, read a chunk at a time rather than
+        // through a call per row
+        int[] removed = new int[Math.min(removals.length, store.size())];
+        int removedCount = 0;
+        int[] changed = new int[Math.min(upserts.size(), store.size())];
+        int changedCount = 0;
+        boolean[] matched = new boolean[upserts.size()];
+        int size = store.size();
+        long[] ids = new long[Math.min(ID_CHUNK, size)];
+        for (int row = 0; row < size; row++) {
+            int chunkRow = row % ID_CHUNK;
+            if (chunkRow == 0) {
+                store.getIds(row, Math.min(size, row + ID_CHUNK), ids);
+            }
+            int action = actions.get(ids[chunkRow]);
+            if (action == IdTable.ABSENT) {
+                continue;
+            }
+            if (action == REMOVE) {
+                if (removedCount == removed.length) {
+                    removed = Arrays.copyOf(removed, removedCount * 2 + 1);
+                }
+                removed[removedCount++] = row;
+                continue;
+            }
+            if (changedCount == changed.length) {
+                changed = Arrays.copyOf(changed, changedCount * 2 + 1);
+            }
+            changed[changedCount++] = row;
+            matched[action] = true;
+            update(store, searchIndex, sorter, row, upserts.get(action));
+        }
+
+        removed = Arrays.copyOf(removed, removedCount);
+        store.removeRows(removed);
+        if (searchIndex != null) {
+            searchIndex.removeRows(removed);
+            sorter.removeRows(removed);
+        }
+        // Changed rows are numbered after the removals, like the list the adapter will show
+        changed = Arrays.copyOf(changed, changedCount);
+        int below = 0;
+        for (int i = 0; i < changed.length; i++) {
+            while (below < removed.length && removed[below] < changed[i]) {
+                below++;
+            }
+            changed[i] -= below;
+        }
+
+        int insertedStart = store.size();
+        for (int i = 0; i < upserts.size(); i++) {
+            Movie movie = upserts.get(i);
+            if (!matched[i] && actions.get(movie.getId()) == i) {
+                int row = store.size();
+                store.append(movie);
+                if (searchIndex != null) {
+                    String genre = movie.hasGenreError() ? null : movie.getGenre();
+                    searchIndex.add(row, movie.getTitle(), genre);
+                    sorter.add(movie.getTitle(), movie.hasTitleError(), movie.getYearValue(), movie.hasYearError(),
+                            genre);
+                }
+            }
+        }
+
+        Result result = new Result(removed, changed, insertedStart, store.size() - insertedStart);
+        Metrics.DELTA.recordSince(applyStart);
+        if (AppLog.isLoggable(Log.DEBUG)) {
+            AppLog.d(TAG, "Applied delta: " + changed.length + " updated, " + removed.length
+                    + " removed, " + result.getInsertedCount() + " added");
+        }
+        return result;
+    }
+
+    private static void update(Rows store, MovieSearchIndex searchIndex, MovieSorter sorter, int row,
+                               Movie movie) {
+        if (searchIndex == null) {
+            store.set(row, movie);
+            return;
+        }
+        Movie old = store.get(row);
+        String oldTitle = old.getTitle();
+        String oldGenre = old.hasGenreError() ? null : old.getGenre();
+        store.set(row, movie);
+        String genre = movie.hasGenreError() ? null : movie.getGenre();
+        searchIndex.update(row, oldTitle, oldGenre, movie.getTitle(), genre);
+        sorter.set(row, movie.getTitle(), movie.hasTitleError(), movie.getYearValue(), movie.hasYearError(), genre);
+    }
+
+    /**
+     * Catalog positions a delta changed
+     */
+    public static class Result {
+        private final int[] removedRows;
+        private final int[] changedRows;
+        private final int insertedStart;
+        private final int insertedCount;
+
+        Result(int[] removedRows, int[] changedRows, int insertedStart, int insertedCount) {
+            this.removedRows = removedRows;
+            this.changedRows = changedRows;
+            this.insertedStart = insertedStart;
+            this.insertedCount = insertedCount;
+        }
+
+        /**
+         * @return Removed positions, ascending, numbered as before the delta
+         */
+        public int[] getRemovedRows() {
+            return removedRows;
+        }
+
+        /**
+         * @return Updated positions, ascending, numbered after the removals
+         */
+        public int[] getChangedRows() {
+            return changedRows;
+        }
+
+        /**
+         * @return First appended position
+         */
+        public int getInsertedStart() {
+            return insertedStart;
+        }
+
+        public int getInsertedCount() {
+            return insertedCount;
+        }
+    }
+
+    /**
+     * Small open-addressing map from movie id to an int, sized for the ids of one delta.
+     * Probed once per catalog row, nearly always for an absent id, so a bit filter in front
+     * of it answers most probes without touching the table, and ids are never boxed.
+     */
+    private static class IdTable {
+        static final int ABSENT = -1;
+
+        private final long[] keys;
+        private final int[] values;
+        private final boolean[] used;
+        private final int mask;
+        private final long[] filter;
+        private final int filterShift;
+
+        IdTable(int expected) {
+            int capacity = Integer.highestOneBit(Math.max(4, expected * 2)) * 2;
+            keys = new long[capacity];
+            values = new int[capacity];
+            used = new boolean[capacity];
+            mask = capacity - 1;
+            // About 64 filter bits per id keeps false positives well under one percent
+            int filterBits = Integer.highestOneBit(Math.max(64, expected * 64)) * 2;
+            filter = new long[filterBits >>> 6];
+            filterShift = 64 - Integer.numberOfTrailingZeros(filterBits);
+        }
+
+        void put(long key, int value) {
+            long h = hash(key);
+            filter[(int) (h >>> filterShift) >>> 6] |= 1L << (h >>> filterShift);
+            int i = slot(key, h);
+            keys[i] = key;
+            values[i] = value;
+            used[i] = true;
+        }
+
+        /**
+         * @return Value, or ABSENT
+         */
+        int get(long key) {
+            long h = hash(key);
+            if ((filter[(int) (h >>> filterShift) >>> 6] & 1L << (h >>> filterShift)) == 0) {
+                return ABSENT;
+            }
+            int i = slot(key, h);
+            return used[i] ? values[i] : ABSENT;
+        }
+
+        private static long hash(long key) {
+            return key * 0x9E3779B97F4A7C15L;
+        }
+
+        private int slot(long key, long h) {
+            int i = (int) (h ^ (h >>> 32)) & mask;
+            while (used[i] && keys[i] != key) {
+                i = (i + 1) & mask;
+            }
+            return i;
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package com.example.myapplication;
+
+import android.content.Context;
+
+import androidx.lifecycle.ViewModel;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Loaded catalog kept across configuration changes. MainActivity instances come and go
+ * on rotation, night mode or locale changes; this holder keeps the movies, the search
+ * index and sort keys, and a load that is still running, and hands them to whichever
+ * activity is attached. Recreating the activity then does no catalog work. The load is
+ * only cancelled when the activity finishes for good. Main thread only.
+ */
+public class CatalogHolder extends ViewModel implements MovieLoader.Callback {
+    // The only copy of the catalog, shown directly by each activity's adapter. Column-wise, to
+    // keep large catalogs compact; replaced by a paged list for compiled catalogs
+    private List<Movie> movies = new MovieStore();
+    // Load of the catalog, kept once finished to build the index of a compiled catalog on demand
+    private MovieLoader movieLoader;
+    private MovieSearchIndex searchIndex;
+    private MovieSorter sorter;
+    private boolean loaded;
+
+    // Attached activity, null between one activity's destruction and the next one's creation
+    private MovieLoader.Callback listener;
+    // Outcome reached while no activity was attached, delivered to the next one
+    private MovieLoader.Summary undeliveredSummary;
+    private RuntimeException undeliveredFailure;
+    // Deltas not applied yet, they arrived with no activity attached or while the index was built
+    private final List<CatalogDelta> deferredDeltas = new ArrayList<>();
+
+    // What the last activity showed, reused by the next one instead of being recomputed
+    private int sortOrder = MovieSorter.ORDER_CATALOG;
+    private MovieSorter.Sections sortedOrder;
+    private MovieDisplayModels displayModels;
+    // Movies with validation errors are left out through a database query
+    private boolean errorsHidden;
+
+    /**
+     * Start loading the catalog, unless it is loaded or a load is already running
+     * @param context Context, only the application context is retained
+     */
+    public void load(Context context) {
+        if (movieLoader != null) {
+            return;
+        }
+        movieLoader = new MovieLoader(context, this);
+        searchIndex = movieLoader.getSearchIndex();
+        sorter = movieLoader.getSorter();
+        movieLoader.start();
+    }
+
+    /**
+     * Receive the loading progress from now on, including an outcome that arrived while
+     * no activity was attached
+     * @param callback Activity's callback
+     */
+    public void attach(MovieLoader.Callback callback) {
+        listener = callback;
+        if (undeliveredSummary != null) {
+            MovieLoader.Summary summary = undeliveredSummary;
+            undeliveredSummary = null;
+            callback.onLoadComplete(summary);
+        } else if (undeliveredFailure != null) {
+            RuntimeException failure = undeliveredFailure;
+            undeliveredFailure = null;
+            callback.onLoadFailed(failure);
+        }
+    }
+
+    /**
+     * Stop delivering to the activity being destroyed, the load carries on
+     */
+    public void detach() {
+        listener = null;
+    }
+
+    /**
+     * @return Movies loaded so far, shown as they are by every activity's adapter
+     */
+    public List<Movie> getMovies() {
+        return movies;
+    }
+
+    /**
+     * @return true when search and sort can run now; otherwise their index is being built
+     *         and onIndexReady follows, see MovieLoader.requestIndex
+     */
+    public boolean requestIndex() {
+        return movieLoader != null && movieLoader.requestIndex();
+    }
+
+    /**
+     * @return false while a compiled catalog has no search index and sort keys yet
+     */
+    public boolean isIndexed() {
+        return movieLoader == null || movieLoader.isIndexed();
+    }
+
+    /**
+     * @return true while the index is built from the catalog rows, which must not change meanwhile
+     */
+    public boolean isIndexing() {
+        return movieLoader != null && movieLoader.isIndexing();
+    }
+
+    /**
+     * Rows a delta can change of the loaded catalog
+     * @return The movie store of a parsed catalog, or the overlay a compiled catalog's paged list reads
+     */
+    public CatalogDelta.Rows getDeltaRows() {
+        if (movies instanceof MovieStore) {
+            return CatalogDelta.rowsOf((MovieStore) movies);
+        }
+        return (CatalogDelta.Rows) ((PagedMovieList) movies).getSource();
+    }
+
+    /**
+     * Keep a delta to apply once the catalog can change, see takeDeferredDeltas
+     */
+    public void deferDelta(CatalogDelta delta) {
+        deferredDeltas.add(delta);
+    }
+
+    /**
+     * @return Deltas kept by deferDelta, in arrival order; the holder forgets them
+     */
+    public List<CatalogDelta> takeDeferredDeltas() {
+        List<CatalogDelta> deltas = new ArrayList<>(deferredDeltas);
+        deferredDeltas.clear();
+        return deltas;
+    }
+
+    /**
+     * @return Search index, null before the first load started
+     */
+    public MovieSearchIndex getSearchIndex() {
+        return searchIndex;
+    }
+
+    /**
+     * @return Sort keys, null before the first load started
+     */
+    public MovieSorter getSorter() {
+        return sorter;
+    }
+
+    /**
+     * @return true while the catalog is loading
+     */
+    public boolean isLoading() {
+        return movieLoader != null && !loaded;
+    }
+
+    public int getSortOrder() {
+        return sortOrder;
+    }
+
+    public void setSortOrder(int sortOrder) {
+        this.sortOrder = sortOrder;
+    }
+
+    public boolean isErrorsHidden() {
+        return errorsHidden;
+    }
+
+    public void setErrorsHidden(boolean errorsHidden) {
+        this.errorsHidden = errorsHidden;
+    }
+
+    /**
+     * Keep what an activity computed for the catalog, for the activity that replaces it
+     * @param sortedOrder Sorted rows of the sort order, or null
+     * @param displayModels Display text of the list positions last bound, or null
+     */
+    public void retain(MovieSorter.Sections sortedOrder, MovieDisplayModels displayModels) {
+        this.sortedOrder = sortedOrder;
+        this.displayModels = displayModels;
+    }
+
+    /**
+     * @return Sorted rows the last activity showed, or null
+     */
+    public MovieSorter.Sections getSortedOrder() {
+        return sortedOrder;
+    }
+
+    /**
+     * @return Display models the last activity bound from, possibly for another configuration, or null
+     */
+    public MovieDisplayModels getDisplayModels() {
+        return displayModels;
+    }
+
+    @Override
+    public void onMoviesLoaded(List<Movie> batch) {
+        movies.addAll(batch);
+        if (listener != null) {
+            // The activity's adapter shows the rows just appended
+            listener.onMoviesLoaded(batch);
+        }
+    }
+
+    @Override
+    public void onPagedCatalogReady(PagedMovieList pagedMovies) {
+        movies = pagedMovies;
+        if (listener != null) {
+            listener.onPagedCatalogReady(pagedMovies);
+        }
+    }
+
+    @Override
+    public void onLoadComplete(MovieLoader.Summary summary) {
+        loaded = true;
+        if (listener != null) {
+            listener.onLoadComplete(summary);
+        } else {
+            undeliveredSummary = summary;
+        }
+    }
+
+    @Override
+    public void onLoadFailed(RuntimeException e) {
+        // Movies delivered before the failure stay; recreating the activity does not retry
+        loaded = true;
+        if (listener != null) {
+            listener.onLoadFailed(e);
+        } else {
+            undeliveredFailure = e;
+        }
+    }
+
+    @Override
+    public void onIndexReady() {
+        // An activity attached later searches and sorts with the complete index directly
+        if (listener != null) {
+            listener.onIndexReady();
+        }
+    }
+
+    @Override
+    public void onDeltaReady(CatalogDelta delta) {
+        if (listener != null) {
+            listener.onDeltaReady(delta);
+        } else {
+            // Applied by the next activity, together with its adapter
+            deferDelta(delta);
+        }
+    }
+
+    @Override
+    protected void onCleared() {
+        // The activity finished for good, its results have nowhere to go
+        if (movieLoader != null) {
+            movieLoader.cancel();
+            movieLoader = null;
+        }
+        listener = null;
+    }
+}
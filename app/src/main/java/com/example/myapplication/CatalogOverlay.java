@@ -0,0 +1,184 @@
+package com.example.myapplication;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Compiled catalog with the changes of catalog deltas laid over it. The mapped rows stay
+ * read-only: removed rows are skipped through the sorted list of their positions, updated
+ * movies are looked up by id, and added movies follow the remaining rows in a MovieStore.
+ * A delta costs memory for the movies it touches, not for the catalog.
+ * Pages are read on PagedMovieList's thread while deltas are applied on the main thread,
+ * so every access is synchronized; PagedMovieList.refresh() picks up the changes.
+ */
+public class CatalogOverlay implements PagedMovieList.PageSource, CatalogDelta.Rows {
+    private static final int[] NO_ROWS = new int[0];
+
+    private final BinaryCatalog base;
+    // Positions of removed base rows, ascending
+    private int[] removed = NO_ROWS;
+    // Updated base movies by movie id
+    private final Map<Long, Movie> changed = new HashMap<>();
+    private final MovieStore added = new MovieStore();
+
+    /**
+     * Constructor
+     * @param base Compiled catalog, or a snapshot of a parsed one
+     */
+    public CatalogOverlay(BinaryCatalog base) {
+        this.base = base;
+    }
+
+    @Override
+    public synchronized int size() {
+        return base.size() - removed.length + added.size();
+    }
+
+    /**
+     * @param index Catalog position
+     * @return Movie, or null when a delta removed the position while its page was loading
+     */
+    @Override
+    public synchronized Movie get(int index) {
+        if (index >= size()) {
+            return null;
+        }
+        int baseRows = base.size() - removed.length;
+        if (index >= baseRows) {
+            // A view would follow its row when added movies are removed, pages keep a copy
+            return added.get(index - baseRows).detachedCopy();
+        }
+        int position = basePosition(index);
+        Movie movie = changed.isEmpty() ? null : changed.get(base.getId(position));
+        return movie != null ? movie : base.get(position);
+    }
+
+    @Override
+    public synchronized long getId(int index) {
+        int baseRows = base.size() - removed.length;
+        return index >= baseRows ? added.getId(index - baseRows) : base.getId(basePosition(index));
+    }
+
+    @Override
+    public synchronized void getIds(int start, int end, long[] ids) {
+        int baseRows = base.size() - removed.length;
+        int row = start;
+        if (row < Math.min(end, baseRows)) {
+            // Step over the removed positions instead of searching for each row's position
+            int position = basePosition(row);
+            int skipped = position - row;
+            for (; row < Math.min(end, baseRows); row++, position++) {
+                while (skipped < removed.length && removed[skipped] == position) {
+                    position++;
+                    skipped++;
+                }
+                ids[row - start] = base.getId(position);
+            }
+        }
+        if (row < end) {
+            added.getIds(row - baseRows, end - baseRows, ids, row - start);
+        }
+    }
+
+    @Override
+    public synchronized void set(int row, Movie movie) {
+        int baseRows = base.size() - removed.length;
+        if (row >= baseRows) {
+            added.set(row - baseRows, movie);
+        } else {
+            changed.put(base.getId(basePosition(row)), movie);
+        }
+    }
+
+    @Override
+    public synchronized void removeRows(int[] rows) {
+        int baseRows = base.size() - removed.length;
+        int baseCount = 0;
+        while (baseCount < rows.length && rows[baseCount] < baseRows) {
+            baseCount++;
+        }
+        if (baseCount < rows.length) {
+            int[] addedRows = new int[rows.length - baseCount];
+            for (int i = 0; i < addedRows.length; i++) {
+                addedRows[i] = rows[baseCount + i] - baseRows;
+            }
+            added.removeRows(addedRows);
+        }
+        if (baseCount == 0) {
+            return;
+        }
+        // Both ascending, merged into the new list of removed positions
+        int[] merged = new int[removed.length + baseCount];
+        int from = 0;
+        int to = 0;
+        for (int i = 0; i < baseCount; i++) {
+            int position = basePosition(rows[i]);
+            changed.remove(base.getId(position));
+            while (from < removed.length && removed[from] < position) {
+                merged[to++] = removed[from++];
+            }
+            merged[to++] = position;
+        }
+        while (from < removed.length) {
+            merged[to++] = removed[from++];
+        }
+        removed = merged;
+    }
+
+    @Override
+    public synchronized void append(Movie movie) {
+        added.add(movie);
+    }
+
+    /**
+     * Add the rows in a range to a search index and sort keys that hold every row before
+     * it. Rows no delta touched are read from the compiled catalog without building movies.
+     * @param start First catalog position
+     * @param end Position after the last one
+     * @param searchIndex Search index to add to
+     * @param sorter Sort keys to add to
+     */
+    synchronized void index(int start, int end, MovieSearchIndex searchIndex, MovieSorter sorter) {
+        int baseRows = base.size() - removed.length;
+        for (int row = start; row < end; row++) {
+            Movie movie;
+            if (row < baseRows) {
+                int position = basePosition(row);
+                movie = changed.isEmpty() ? null : changed.get(base.getId(position));
+                if (movie == null) {
+                    int flags = base.getFlags(position);
+                    String title = base.getTitle(position);
+                    String genre = (flags & BinaryCatalog.FLAG_GENRE_ERROR) != 0 ? null : base.getGenre(position);
+                    searchIndex.add(row, title, genre);
+                    sorter.add(title, (flags & BinaryCatalog.FLAG_TITLE_ERROR) != 0, base.getYear(position),
+                            (flags & BinaryCatalog.FLAG_YEAR_ERROR) != 0, genre);
+                    continue;
+                }
+            } else {
+                movie = added.get(row - baseRows);
+            }
+            String genre = movie.hasGenreError() ? null : movie.getGenre();
+            searchIndex.add(row, movie.getTitle(), genre);
+            sorter.add(movie.getTitle(), movie.hasTitleError(), movie.getYearValue(), movie.hasYearError(), genre);
+        }
+    }
+
+    /**
+     * Position in the compiled catalog of a catalog position before the added movies
+     */
+    private int basePosition(int index) {
+        // removed[j] - j never decreases; the first j where it passes index is the number
+        // of removed rows before the position
+        int low = 0;
+        int high = removed.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (removed[mid] - mid > index) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return index + low;
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.myapplication;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Filter over the catalog database, such as "Sci-Fi between 1990 and 2010 without errors".
+ * Every condition maps to a column covered by an index of CatalogDatabase, so results
+ * are found without scanning the catalog.
+ */
+public class CatalogQuery {
+    private String genre;
+    private int minYear = Integer.MIN_VALUE;
+    private int maxYear = Integer.MAX_VALUE;
+    private int excludedFlags;
+
+    /**
+     * Only movies of a genre, compared ignoring ASCII case like the genre index
+     * @param genre Genre name
+     * @return This query
+     */
+    public CatalogQuery genre(String genre) {
+        this.genre = genre;
+        return this;
+    }
+
+    /**
+     * Only movies released in a range of years; movies without a year never match
+     * @param from First year, inclusive
+     * @param to Last year, inclusive
+     * @return This query
+     */
+    public CatalogQuery yearBetween(int from, int to) {
+        this.minYear = from;
+        this.maxYear = to;
+        return this;
+    }
+
+    /**
+     * Leave out movies with any validation error
+     * @return This query
+     */
+    public CatalogQuery withoutErrors() {
+        return withoutFlags(BinaryCatalog.ERROR_FLAGS);
+    }
+
+    /**
+     * Leave out movies with any of the given errors
+     * @param flags BinaryCatalog.FLAG_* bitmask
+     * @return This query
+     */
+    public CatalogQuery withoutFlags(int flags) {
+        this.excludedFlags |= flags;
+        return this;
+    }
+
+    private boolean hasYearRange() {
+        return minYear != Integer.MIN_VALUE || maxYear != Integer.MAX_VALUE;
+    }
+
+    /**
+     * WHERE clause of the query, with ? placeholders for getSelectionArgs
+     * @return Clause, or null to match every movie
+     */
+    String getSelection() {
+        List<String> conditions = new ArrayList<>(4);
+        if (genre != null) {
+            conditions.add(CatalogDatabase.COLUMN_GENRE + " = ?");
+        }
+        if (excludedFlags != 0) {
+            // Flag combinations without the excluded bits, an IN list the flags index can seek
+            StringBuilder allowed = new StringBuilder(CatalogDatabase.COLUMN_FLAGS).append(" IN (");
+            boolean first = true;
+            for (int flags = 0; flags <= BinaryCatalog.ERROR_FLAGS; flags++) {
+                if ((flags & excludedFlags) == 0) {
+                    allowed.append(first ? "" : ", ").append(flags);
+                    first = false;
+                }
+            }
+            conditions.add(allowed.append(')').toString());
+        }
+        if (hasYearRange()) {
+            conditions.add(CatalogDatabase.COLUMN_YEAR + " BETWEEN ? AND ?");
+        }
+        return conditions.isEmpty() ? null : String.join(" AND ", conditions);
+    }
+
+    /**
+     * Arguments for the placeholders of getSelection, in order
+     */
+    String[] getSelectionArgs() {
+        List<String> args = new ArrayList<>(3);
+        if (genre != null) {
+            args.add(genre);
+        }
+        if (hasYearRange()) {
+            args.add(Integer.toString(minYear));
+            args.add(Integer.toString(maxYear));
+        }
+        return args.toArray(new String[0]);
+    }
+
+    @Override
+    public String toString() {
+        return "CatalogQuery{genre=" + genre + ", years=" + minYear + ".." + maxYear
+                + ", excludedFlags=" + excludedFlags + "}";
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.myapplication;
+
+import android.util.Log;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+
+/**
+ * On-disk snapshot of a catalog parsed on the device, so the next start can map it
+ * instead of parsing the JSON again. The snapshot is a BinaryCatalog behind a short
+ * header holding the schema version and a checksum of the JSON it was built from;
+ * a snapshot whose key does not match is ignored and rebuilt.
+ *
+ * Header, big-endian: magic, schema version (ints), source checksum (long)
+ */
+final class CatalogSnapshot {
+    private static final String TAG = "CatalogSnapshot";
+    static final String FILE_NAME = "catalog-snapshot.bin";
+
+    static final int MAGIC = 0x4D534E50; // "MSNP"
+    // Bump when validation or the record layout changes, snapshots of older builds are then rebuilt
+    static final int SCHEMA_VERSION = 2;
+    static final int HEADER_SIZE = 16;
+
+    private CatalogSnapshot() {
+    }
+
+    /**
+     * Checksum of a catalog's source, part of the snapshot key
+     * @param json Raw catalog
+     * @return CRC-32 of the bytes
+     */
+    static long checksum(byte[] json) {
+        CRC32 crc = new CRC32();
+        crc.update(json, 0, json.length);
+        return crc.getValue();
+    }
+
+    /**
+     * Checksum of a mapped source, equal to checksum(byte[]) of the same bytes
+     * @param source Bytes from 0 to the buffer's limit
+     * @return CRC-32 of the bytes
+     */
+    static long checksum(ByteBuffer source) {
+        CRC32 crc = new CRC32();
+        // CRC32.update(ByteBuffer) needs API 26, feed it through a small array instead
+        byte[] chunk = new byte[64 * 1024];
+        ByteBuffer view = source.duplicate();
+        view.position(0);
+        while (view.hasRemaining()) {
+            int length = Math.min(chunk.length, view.remaining());
+            view.get(chunk, 0, length);
+            crc.update(chunk, 0, length);
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * Checksum of a streamed source, equal to checksum(byte[]) of the same bytes
+     * @param source Stream, read to its end
+     * @return CRC-32 of the bytes
+     * @throws IOException Reading exception
+     */
+    static long checksum(InputStream source) throws IOException {
+        CRC32 crc = new CRC32();
+        byte[] chunk = new byte[64 * 1024];
+        int read;
+        while ((read = source.read(chunk)) != -1) {
+            crc.update(chunk, 0, read);
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * Map the snapshot of a catalog
+     * @param directory Directory holding the snapshot
+     * @param checksum Checksum of the current catalog source
+     * @return Catalog, or null when there is no snapshot or it was built from another source or schema
+     */
+    static BinaryCatalog open(File directory, long checksum) {
+        File file = new File(directory, FILE_NAME);
+        if (!file.isFile()) {
+            return null;
+        }
+        try (FileInputStream input = new FileInputStream(file)) {
+            FileChannel channel = input.getChannel();
+            long length = channel.size();
+            if (length < HEADER_SIZE) {
+                throw new IllegalArgumentException("Truncated snapshot");
+            }
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE)
+                    .order(ByteOrder.BIG_ENDIAN);
+            if (header.getInt(0) != MAGIC) {
+                throw new IllegalArgumentException("Not a catalog snapshot");
+            }
+            if (header.getInt(4) != SCHEMA_VERSION || header.getLong(8) != checksum) {
+                AppLog.d(TAG, "Snapshot is stale, rebuilding: ", file);
+                return null;
+            }
+            // One mapping of the whole catalog, records are paged in by the OS as they are read
+            return new BinaryCatalog(channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE, length - HEADER_SIZE));
+        } catch (IOException | IllegalArgumentException e) {
+            Log.e(TAG, "Cannot read catalog snapshot, rebuilding: " + e.getMessage());
+            if (!file.delete()) {
+                Log.e(TAG, "Cannot delete catalog snapshot " + file);
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Write the snapshot of a parsed catalog, replacing any previous one. Written to a
+     * temporary file first so a crash part way never leaves a truncated snapshot.
+     * @param directory Directory holding the snapshot
+     * @param checksum Checksum of the catalog source
+     * @param catalog Parsed movies
+     * @param stats Record accounting of the parse
+     * @return true when the snapshot was written
+     */
+    static boolean write(File directory, long checksum, BinaryCatalog.Writer catalog, JsonUtils.LoadStats stats) {
+        File file = new File(directory, FILE_NAME);
+        File temporary = new File(directory, FILE_NAME + ".tmp");
+        try {
+            try (FileOutputStream fileOutput = new FileOutputStream(temporary)) {
+                OutputStream output = new BufferedOutputStream(fileOutput, 64 * 1024);
+                DataOutputStream header = new DataOutputStream(output);
+                header.writeInt(MAGIC);
+                header.writeInt(SCHEMA_VERSION);
+                header.writeLong(checksum);
+                catalog.writeTo(output, stats);
+                output.flush();
+                fileOutput.getFD().sync();
+            }
+            if (!temporary.renameTo(file)) {
+                throw new IOException("Cannot rename " + temporary + " to " + file);
+            }
+            return true;
+        } catch (IOException e) {
+            Log.e(TAG, "Cannot write catalog snapshot: " + e.getMessage());
+            temporary.delete();
+            return false;
+        }
+    }
+}
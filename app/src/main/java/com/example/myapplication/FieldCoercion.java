@@ -0,0 +1,128 @@
+package com.example.myapplication;
+
+/**
+ * Classifies raw catalog field values, as produced by JsonUtils.readObject, in a single
+ * inspection of the value. Dirty values are a result code rather than an exception:
+ * nothing is thrown, allocated or formatted, and callers build a message from the code
+ * and the raw value only when one is actually read.
+ * Results pack the code and the coerced value into a long, read them with code() and value().
+ */
+public final class FieldCoercion {
+    // Result codes
+    // Integral number
+    public static final int OK = 0;
+    // String holding an integer, such as "2014"; usable as it is
+    public static final int STRING_NUMBER = 1;
+    // Number with a fraction or exponent, the value is its integer part
+    public static final int DECIMAL = 2;
+    // Integer below zero, from a number or a string
+    public static final int NEGATIVE = 3;
+    // Anything else: words, empty strings, out-of-range integers, null, booleans, objects
+    public static final int NON_NUMERIC = 4;
+    // Field absent from the record
+    public static final int MISSING = 5;
+
+    private static final String[] NAMES = {
+            "ok", "string-number", "decimal", "negative", "non-numeric", "missing"};
+
+    private FieldCoercion() {
+    }
+
+    /**
+     * Coerce a value to an int
+     * @param value Raw value from JSONObject.opt, null when the field is absent
+     * @return Packed result; value() is 0 for NON_NUMERIC and MISSING
+     */
+    public static long toInt(Object value) {
+        if (value == null) {
+            return result(MISSING, 0);
+        }
+        if (value instanceof Integer) {
+            int number = (Integer) value;
+            return result(number < 0 ? NEGATIVE : OK, number);
+        }
+        if (value instanceof String) {
+            return parseInt((String) value);
+        }
+        if (value instanceof Double || value instanceof Float) {
+            return result(DECIMAL, (int) ((Number) value).doubleValue());
+        }
+        if (value instanceof Long || value instanceof Short || value instanceof Byte) {
+            long number = ((Number) value).longValue();
+            if (number < Integer.MIN_VALUE || number > Integer.MAX_VALUE) {
+                return result(NON_NUMERIC, 0);
+            }
+            return result(number < 0 ? NEGATIVE : OK, (int) number);
+        }
+        return result(NON_NUMERIC, 0);
+    }
+
+    /**
+     * Accepts what Integer.parseInt accepts, without its exception: an optional sign
+     * followed by decimal digits, within the int range
+     */
+    private static long parseInt(String text) {
+        int length = text.length();
+        if (length == 0) {
+            return result(NON_NUMERIC, 0);
+        }
+        boolean negative = false;
+        int i = 0;
+        char first = text.charAt(0);
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            if (length == 1) {
+                return result(NON_NUMERIC, 0);
+            }
+            i = 1;
+        }
+        // One more in magnitude below zero, so Integer.MIN_VALUE is accepted
+        long limit = negative ? -(long) Integer.MIN_VALUE : Integer.MAX_VALUE;
+        long magnitude = 0;
+        for (; i < length; i++) {
+            int digit = Character.digit(text.charAt(i), 10);
+            if (digit < 0) {
+                return result(NON_NUMERIC, 0);
+            }
+            magnitude = magnitude * 10 + digit;
+            if (magnitude > limit) {
+                return result(NON_NUMERIC, 0);
+            }
+        }
+        int number = (int) (negative ? -magnitude : magnitude);
+        return result(negative && number != 0 ? NEGATIVE : STRING_NUMBER, number);
+    }
+
+    private static long result(int code, int value) {
+        return ((long) code << 32) | (value & 0xFFFFFFFFL);
+    }
+
+    /**
+     * @return Result code of a packed result
+     */
+    public static int code(long result) {
+        return (int) (result >>> 32);
+    }
+
+    /**
+     * @return Coerced value of a packed result
+     */
+    public static int value(long result) {
+        return (int) result;
+    }
+
+    /**
+     * @return Whether the result carries a usable number, possibly one a rule rejects
+     */
+    public static boolean hasValue(long result) {
+        int code = code(result);
+        return code != NON_NUMERIC && code != MISSING;
+    }
+
+    /**
+     * @return Short name of a result code, for logs and reports
+     */
+    public static String describe(int code) {
+        return code >= 0 && code < NAMES.length ? NAMES[code] : "unknown";
+    }
+}
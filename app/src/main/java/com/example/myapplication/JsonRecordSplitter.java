@@ -0,0 +1,192 @@
+package com.example.myapplication;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Splits a JSON array of records into byte ranges that each hold whole records, so the
+ * ranges can be parsed independently. Only the array structure is scanned, records are
+ * not tokenized. Layouts the scan cannot split safely, such as comments or lenient
+ * separators, are reported as unsplittable and left to the sequential parser.
+ * The catalog is read through a ByteBuffer, so a memory-mapped asset is split where it
+ * lies instead of being copied onto the heap first.
+ */
+final class JsonRecordSplitter {
+
+    /**
+     * A run of consecutive records
+     */
+    static final class Chunk {
+        // Byte range in the source, records separated by commas, without the enclosing brackets
+        final int start;
+        final int end;
+        // 1-based number of the first record in the whole catalog
+        final int firstNumber;
+        final int recordCount;
+
+        Chunk(int start, int end, int firstNumber, int recordCount) {
+            this.start = start;
+            this.end = end;
+            this.firstNumber = firstNumber;
+            this.recordCount = recordCount;
+        }
+    }
+
+    private JsonRecordSplitter() {
+    }
+
+    /**
+     * Split a catalog into roughly equal-sized chunks of whole records
+     * @param json UTF-8 encoded JSON array
+     * @param targetChunks Desired number of chunks
+     * @return Chunks in catalog order, or null when the layout cannot be split safely
+     */
+    static List<Chunk> split(byte[] json, int targetChunks) {
+        return split(ByteBuffer.wrap(json), targetChunks);
+    }
+
+    /**
+     * Split a catalog into roughly equal-sized chunks of whole records
+     * @param json UTF-8 encoded JSON array, from index 0 to the buffer's limit
+     * @param targetChunks Desired number of chunks
+     * @return Chunks in catalog order, with indexes into the buffer, or null when the layout
+     *         cannot be split safely
+     */
+    static List<Chunk> split(ByteBuffer json, int targetChunks) {
+        int length = json.limit();
+        int[] starts = new int[64];
+        int[] ends = new int[64];
+        int count = 0;
+
+        int i = skipWhitespace(json, 0);
+        if (i >= length || json.get(i) != '[') {
+            return null;
+        }
+        int depth = 1;
+        int recordStart = -1;
+        byte previous = '[';
+        for (i++; i < length; i++) {
+            byte b = json.get(i);
+            if (isWhitespace(b)) {
+                continue;
+            }
+            if (depth == 1 && recordStart == -1) {
+                if (b == ',' || b == ']') {
+                    // Empty element, lenient parsing turns it into null
+                    if (b == ']' && previous == '[') {
+                        break;
+                    }
+                    return null;
+                }
+                recordStart = i;
+            }
+            switch (b) {
+                case '"':
+                case '\'':
+                    if (!isDelimiter(previous)) {
+                        // Quote inside an unquoted literal
+                        return null;
+                    }
+                    i = skipString(json, i);
+                    if (i < 0) {
+                        return null;
+                    }
+                    break;
+                case '{':
+                case '[':
+                    depth++;
+                    break;
+                case '}':
+                case ']':
+                    depth--;
+                    if (depth == 0) {
+                        if (count == starts.length) {
+                            starts = Arrays.copyOf(starts, count * 2);
+                            ends = Arrays.copyOf(ends, count * 2);
+                        }
+                        starts[count] = recordStart;
+                        ends[count++] = i;
+                        return toChunks(starts, ends, count, targetChunks);
+                    }
+                    break;
+                case ',':
+                    if (depth == 1) {
+                        if (count == starts.length) {
+                            starts = Arrays.copyOf(starts, count * 2);
+                            ends = Arrays.copyOf(ends, count * 2);
+                        }
+                        starts[count] = recordStart;
+                        ends[count++] = i;
+                        recordStart = -1;
+                    }
+                    break;
+                case '/':
+                case '#':
+                case ';':
+                case '\\':
+                    // Comments and lenient separators could hide or fake record boundaries
+                    return null;
+                default:
+                    break;
+            }
+            previous = json.get(i);
+        }
+        if (i < length) {
+            // Stopped at the end of an empty array
+            return new ArrayList<>();
+        }
+        // Unterminated, the sequential parser reports the error
+        return null;
+    }
+
+    private static List<Chunk> toChunks(int[] starts, int[] ends, int count, int targetChunks) {
+        targetChunks = Math.max(1, targetChunks);
+        List<Chunk> chunks = new ArrayList<>(targetChunks);
+        long totalBytes = ends[count - 1] - starts[0];
+        int first = 0;
+        for (int record = 0; record < count; record++) {
+            boolean last = record == count - 1;
+            // Close the chunk once the next record starts past the chunk's share of the bytes
+            if (last || (long) (starts[record + 1] - starts[0]) * targetChunks >= (chunks.size() + 1) * totalBytes) {
+                chunks.add(new Chunk(starts[first], ends[record], first + 1, record - first + 1));
+                first = record + 1;
+            }
+        }
+        return chunks;
+    }
+
+    /**
+     * @return Index of the closing quote, or -1 when the string is not terminated
+     */
+    private static int skipString(ByteBuffer json, int open) {
+        byte quote = json.get(open);
+        for (int i = open + 1; i < json.limit(); i++) {
+            byte b = json.get(i);
+            if (b == '\\') {
+                i++;
+            } else if (b == quote) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int skipWhitespace(ByteBuffer json, int from) {
+        int i = from;
+        while (i < json.limit() && isWhitespace(json.get(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\n' || b == '\r' || b == '\t' || b == '\f';
+    }
+
+    private static boolean isDelimiter(byte b) {
+        return b == '[' || b == '{' || b == ',' || b == ':' || b == '"' || b == '\''
+                || b == '=' || b == '>';
+    }
+}
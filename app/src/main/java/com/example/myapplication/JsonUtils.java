@@ -1,18 +1,41 @@
 package com.example.myapplication;
 
 import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.util.JsonReader;
+import android.util.JsonToken;
 import android.util.Log;
+import android.util.MalformedJsonException;
 
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * JSON utility class for reading and parsing movie data from the assets folder
@@ -21,191 +44,648 @@ public class JsonUtils {
     private static final String TAG = "JsonUtils";
     private static final String FILE_NAME = "movies.json";
 
+    private static final int PARALLELISM = Runtime.getRuntime().availableProcessors();
+    // More chunks than threads, so a chunk full of slow records does not hold up the others
+    private static final int CHUNKS_PER_THREAD = 4;
+    // Below this the thread handoff costs more than it saves
+    private static final int MIN_PARALLEL_BYTES = 256 * 1024;
+    private static final byte[] ARRAY_OPEN = {'['};
+    private static final byte[] ARRAY_CLOSE = {']'};
+
+    private static ExecutorService parseExecutor;
+
+    /**
+     * Callback receiving each movie as soon as it has been parsed,
+     * may throw CancellationException to stop the load
+     */
+    public interface MovieConsumer {
+        void accept(Movie movie);
+    }
+
+    /**
+     * Record accounting for a single catalog load
+     */
+    public static class LoadStats {
+        private final int total;
+        private final int successful;
+        private final int skipped;
+        private final ValidationReport validationReport;
+        private final LoadDiagnostics diagnostics;
+
+        LoadStats(int total, int successful, int skipped) {
+            this(total, successful, skipped, null, null);
+        }
+
+        LoadStats(int total, int successful, int skipped, ValidationReport validationReport,
+                  LoadDiagnostics diagnostics) {
+            this.total = total;
+            this.successful = successful;
+            this.skipped = skipped;
+            this.validationReport = validationReport;
+            this.diagnostics = diagnostics;
+        }
+
+        public int getTotal() {
+            return total;
+        }
+
+        public int getSuccessful() {
+            return successful;
+        }
+
+        public int getSkipped() {
+            return skipped;
+        }
+
+        /**
+         * @return Validation outcome of the loaded movies, or null when the records were
+         *         not validated during this load
+         */
+        public ValidationReport getValidationReport() {
+            return validationReport;
+        }
+
+        /**
+         * @return Counts and samples of the problems found, or null when the records were
+         *         not validated during this load
+         */
+        public LoadDiagnostics getDiagnostics() {
+            return diagnostics;
+        }
+    }
+
     /**
      * Load movie data from the assets folder
      * @param context Context
      * @return List of movies
      */
     public static List<Movie> loadMoviesFromJson(Context context) {
-        List<Movie> movies = new ArrayList<>();
+        final MovieStore movies = new MovieStore();
+        streamMovies(context, movies::add);
+        return movies;
+    }
+
+    /**
+     * Stream movie data from the assets folder, handing each movie to the consumer as soon
+     * as its record has been parsed. Only one record is held in memory at a time.
+     * @param context Context
+     * @param consumer Receives parsed movies in catalog order
+     * @return Record accounting for the load
+     */
+    public static LoadStats streamMovies(Context context, MovieConsumer consumer) {
+        return streamMovies(context, consumer, ValidationEngine.getDefault());
+    }
+
+    /**
+     * Stream movie data from the assets folder, validating with the given rules
+     * @param context Context
+     * @param consumer Receives parsed movies in catalog order
+     * @param engine Validation rules applied to each record
+     * @return Record accounting and validation report for the load
+     */
+    public static LoadStats streamMovies(Context context, MovieConsumer consumer, ValidationEngine engine) {
+        try (InputStream inputStream = context.getAssets().open(FILE_NAME)) {
+            return streamMovies(inputStream, consumer, engine);
+        } catch (CancellationException e) {
+            // Consumer stopped the load, not a data problem
+            throw e;
+        } catch (MalformedJsonException | IllegalStateException e) {
+            // Handle JSON parsing exception; movies before the error have already been delivered
+            Log.e(TAG, "JSON format error: " + e.getMessage());
+            throw new RuntimeException("JSON format error", e);
+        } catch (IOException e) {
+            // Handle file reading exception
+            Log.e(TAG, "Cannot read movie data file: " + e.getMessage());
+            throw new RuntimeException("Cannot read movie data file", e);
+        }
+    }
+
+    /**
+     * Stream movie data from a JSON array using a pull parser
+     * @param inputStream UTF-8 encoded JSON array of movie objects
+     * @param consumer Receives parsed movies in catalog order
+     * @return Record accounting for the load
+     * @throws IOException Reading or JSON syntax exception
+     */
+    public static LoadStats streamMovies(InputStream inputStream, MovieConsumer consumer) throws IOException {
+        return streamMovies(inputStream, consumer, ValidationEngine.getDefault());
+    }
+
+    /**
+     * Stream movie data from a JSON array using a pull parser
+     * @param inputStream UTF-8 encoded JSON array of movie objects
+     * @param consumer Receives parsed movies in catalog order
+     * @param engine Validation rules applied to each record
+     * @return Record accounting and validation report for the load
+     * @throws IOException Reading or JSON syntax exception
+     */
+    public static LoadStats streamMovies(InputStream inputStream, MovieConsumer consumer, ValidationEngine engine)
+            throws IOException {
+        LoadStats stats = parseRecords(inputStream, 1, consumer, engine, new LoadDiagnostics());
+        stats.getDiagnostics().logSummary("catalog", stats);
+        return stats;
+    }
+
+    /**
+     * Stream movie data from a remote catalog, falling back to the bundled asset when
+     * the server cannot be reached and no copy of an earlier download is cached
+     * @param context Context
+     * @param source Remote catalog
+     * @param consumer Receives parsed movies in catalog order
+     * @return Record accounting for the load
+     */
+    public static LoadStats streamMovies(Context context, RemoteCatalogSource source, MovieConsumer consumer) {
+        RemoteCatalogSource.Response response;
+        try {
+            response = source.open();
+        } catch (IOException e) {
+            // Nothing was delivered yet, so the asset can take over
+            Log.w(TAG, "Remote catalog unavailable, using the bundled catalog: " + e.getMessage());
+            return streamMovies(context, consumer);
+        }
+        try (RemoteCatalogSource.Response body = response) {
+            return streamMovies(body, consumer, ValidationEngine.getDefault());
+        } catch (IOException e) {
+            Log.e(TAG, "Cannot close remote catalog: " + e.getMessage());
+            throw new RuntimeException("Cannot read remote catalog", e);
+        }
+    }
+
+    /**
+     * Stream movie data from an opened remote catalog. The body goes straight into the
+     * pull parser as it is downloaded, and is kept as the cached copy once it parsed.
+     * @param response Opened catalog, not closed here
+     * @param consumer Receives parsed movies in catalog order
+     * @param engine Validation rules applied to each record
+     * @return Record accounting and validation report for the load
+     */
+    public static LoadStats streamMovies(RemoteCatalogSource.Response response, MovieConsumer consumer,
+                                         ValidationEngine engine) {
+        try {
+            LoadStats stats = streamMovies(response.getBody(), consumer, engine);
+            response.commit();
+            return stats;
+        } catch (CancellationException e) {
+            // Consumer stopped the load, not a data problem
+            throw e;
+        } catch (MalformedJsonException | IllegalStateException e) {
+            // Handle JSON parsing exception; movies before the error have already been delivered
+            Log.e(TAG, "JSON format error: " + e.getMessage());
+            throw new RuntimeException("JSON format error", e);
+        } catch (IOException e) {
+            // Connection dropped part way, movies before it have already been delivered
+            Log.e(TAG, "Cannot read remote catalog: " + e.getMessage());
+            throw new RuntimeException("Cannot read remote catalog", e);
+        }
+    }
+
+    /**
+     * Load movie data from the assets folder, parsing on all cores
+     * @param context Context
+     * @return List of movies, in catalog order
+     */
+    public static List<Movie> loadMoviesFromJsonParallel(Context context) {
+        final MovieStore movies = new MovieStore();
+        streamMoviesParallel(context, movies::add);
+        return movies;
+    }
+
+    /**
+     * Stream movie data from the assets folder, parsing record-aligned chunks of the file on
+     * all cores. Movies are handed to the consumer in catalog order on the calling thread,
+     * a chunk at a time, and record numbers in the log match the sequential parser.
+     * @param context Context
+     * @param consumer Receives parsed movies in catalog order
+     * @return Record accounting for the load, identical to streamMovies
+     */
+    public static LoadStats streamMoviesParallel(Context context, MovieConsumer consumer) {
+        return streamMoviesParallel(context, consumer, ValidationEngine.getDefault());
+    }
+
+    /**
+     * Stream movie data from the assets folder in parallel, validating with the given rules
+     * @param context Context
+     * @param consumer Receives parsed movies in catalog order
+     * @param engine Validation rules applied to each record, must be safe to call from several threads
+     * @return Record accounting and validation report for the load
+     */
+    public static LoadStats streamMoviesParallel(Context context, MovieConsumer consumer, ValidationEngine engine) {
+        ByteBuffer json = mapCatalog(context);
+        if (json == null) {
+            return streamMovies(context, consumer, engine);
+        }
+        return streamMoviesParallel(json, consumer, engine);
+    }
+
+    /**
+     * Map the raw catalog from the assets folder. The file is not copied onto the heap,
+     * parser threads read their chunks from the mapping and the OS pages it in and out.
+     * @param context Context
+     * @return UTF-8 encoded JSON array of movie objects, or null when the asset is stored
+     *         compressed and can only be streamed
+     */
+    public static ByteBuffer mapCatalog(Context context) {
+        try (AssetFileDescriptor descriptor = context.getAssets().openFd(FILE_NAME);
+             FileInputStream inputStream = descriptor.createInputStream()) {
+            return inputStream.getChannel().map(FileChannel.MapMode.READ_ONLY,
+                    descriptor.getStartOffset(), descriptor.getLength());
+        } catch (FileNotFoundException e) {
+            // Also thrown for a missing asset, which streaming then reports
+            Log.w(TAG, "Movie data file cannot be mapped, streaming it: " + e.getMessage());
+            return null;
+        } catch (IOException e) {
+            // Handle file reading exception
+            Log.e(TAG, "Cannot read movie data file: " + e.getMessage());
+            throw new RuntimeException("Cannot read movie data file", e);
+        }
+    }
+
+    /**
+     * Checksum of the catalog in the assets folder, read as a stream, for a catalog that
+     * cannot be mapped
+     * @param context Context
+     * @return CRC-32 of the file, see CatalogSnapshot.checksum
+     */
+    static long streamChecksum(Context context) {
+        try (InputStream inputStream = context.getAssets().open(FILE_NAME)) {
+            return CatalogSnapshot.checksum(inputStream);
+        } catch (IOException e) {
+            // Handle file reading exception
+            Log.e(TAG, "Cannot read movie data file: " + e.getMessage());
+            throw new RuntimeException("Cannot read movie data file", e);
+        }
+    }
+
+    /**
+     * Stream movie data from catalog bytes already in memory, parsing on all cores
+     * @param json UTF-8 encoded JSON array of movie objects
+     * @param consumer Receives parsed movies in catalog order
+     * @param engine Validation rules applied to each record, must be safe to call from several threads
+     * @return Record accounting and validation report for the load
+     */
+    public static LoadStats streamMoviesParallel(byte[] json, MovieConsumer consumer, ValidationEngine engine) {
+        return streamMoviesParallel(ByteBuffer.wrap(json), consumer, engine);
+    }
+
+    /**
+     * Stream movie data from a mapped or in-memory catalog, parsing on all cores
+     * @param json UTF-8 encoded JSON array of movie objects, from index 0 to the buffer's limit
+     * @param consumer Receives parsed movies in catalog order
+     * @param engine Validation rules applied to each record, must be safe to call from several threads
+     * @return Record accounting and validation report for the load
+     */
+    public static LoadStats streamMoviesParallel(ByteBuffer json, MovieConsumer consumer, ValidationEngine engine) {
+        try {
+            return streamMoviesParallel(json, consumer, PARALLELISM, engine);
+        } catch (CancellationException e) {
+            // Consumer stopped the load, not a data problem
+            throw e;
+        } catch (MalformedJsonException | IllegalStateException e) {
+            // Handle JSON parsing exception; movies before the error have already been delivered
+            Log.e(TAG, "JSON format error: " + e.getMessage());
+            throw new RuntimeException("JSON format error", e);
+        } catch (IOException e) {
+            // Handle file reading exception
+            Log.e(TAG, "Cannot read movie data file: " + e.getMessage());
+            throw new RuntimeException("Cannot read movie data file", e);
+        }
+    }
+
+    /**
+     * Parse a catalog in parallel. Small catalogs, and layouts that cannot be split at
+     * record boundaries, are parsed sequentially.
+     * @param json UTF-8 encoded JSON array of movie objects
+     * @param consumer Receives parsed movies in catalog order
+     * @param parallelism Number of chunks parsed at the same time
+     * @param engine Validation rules applied to each record
+     * @return Record accounting and validation report for the load
+     * @throws IOException Reading or JSON syntax exception
+     */
+    static LoadStats streamMoviesParallel(byte[] json, MovieConsumer consumer, int parallelism,
+                                          ValidationEngine engine) throws IOException {
+        return streamMoviesParallel(ByteBuffer.wrap(json), consumer, parallelism, engine);
+    }
+
+    /**
+     * Parse a mapped or in-memory catalog in parallel, see streamMoviesParallel(byte[], ...)
+     * @param json UTF-8 encoded JSON array of movie objects, from index 0 to the buffer's limit
+     */
+    static LoadStats streamMoviesParallel(ByteBuffer json, MovieConsumer consumer, int parallelism,
+                                          ValidationEngine engine) throws IOException {
+        List<JsonRecordSplitter.Chunk> chunks = parallelism > 1 && json.limit() >= MIN_PARALLEL_BYTES
+                ? JsonRecordSplitter.split(json, parallelism * CHUNKS_PER_THREAD) : null;
+        if (chunks == null || chunks.size() < 2) {
+            return streamMovies(new BufferInputStream(json, 0, json.limit()), consumer, engine);
+        }
+
+        ExecutorService executor = parseExecutor();
+        List<Future<ChunkResult>> futures = new ArrayList<>(chunks.size());
+        int total = 0;
+        int successful = 0;
+        int skipped = 0;
+        ValidationReport report = engine.newReport();
+        LoadDiagnostics diagnostics = new LoadDiagnostics();
+        try {
+            for (JsonRecordSplitter.Chunk chunk : chunks) {
+                futures.add(executor.submit(new ChunkTask(json, chunk, engine)));
+            }
+            // Deliver in catalog order; later chunks keep parsing while earlier ones are consumed
+            for (int i = 0; i < futures.size(); i++) {
+                ChunkResult result = await(futures.get(i));
+                futures.set(i, null);
+                for (int row = 0; row < result.movies.size(); row++) {
+                    consumer.accept(result.movies.get(row));
+                }
+                total += result.stats.getTotal();
+                successful += result.stats.getSuccessful();
+                skipped += result.stats.getSkipped();
+                report.append(result.stats.getValidationReport());
+                diagnostics.append(result.stats.getDiagnostics());
+            }
+        } finally {
+            // Only non-null when the load failed or was cancelled part way
+            for (Future<ChunkResult> future : futures) {
+                if (future != null) {
+                    future.cancel(true);
+                }
+            }
+        }
+
+        LoadStats stats = new LoadStats(total, successful, skipped, report, diagnostics);
+        diagnostics.logSummary("catalog", stats);
+        return stats;
+    }
+
+    private static ChunkResult await(Future<ChunkResult> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while parsing");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new RuntimeException(cause);
+        }
+    }
+
+    private static synchronized ExecutorService parseExecutor() {
+        if (parseExecutor == null) {
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(PARALLELISM, PARALLELISM, 30, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                        private final AtomicInteger count = new AtomicInteger();
+
+                        @Override
+                        public Thread newThread(Runnable runnable) {
+                            Thread thread = new Thread(runnable, "JsonParse-" + count.incrementAndGet());
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
+            executor.allowCoreThreadTimeOut(true);
+            parseExecutor = executor;
+        }
+        return parseExecutor;
+    }
+
+    /**
+     * Reads a range of a buffer in place. Each stream reads through its own view, so the
+     * chunks of one mapping can be read on several threads.
+     */
+    private static class BufferInputStream extends InputStream {
+        private final ByteBuffer view;
+
+        BufferInputStream(ByteBuffer buffer, int start, int end) {
+            view = buffer.duplicate();
+            view.limit(end);
+            view.position(start);
+        }
+
+        @Override
+        public int read() {
+            return view.hasRemaining() ? view.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+            if (!view.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(length, view.remaining());
+            view.get(bytes, offset, count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return view.remaining();
+        }
+    }
+
+    /**
+     * Parses one chunk of records on a worker thread, appending its movies to a column
+     * store that holds them until the chunks before it have been delivered
+     */
+    private static class ChunkTask implements Callable<ChunkResult> {
+        private final ByteBuffer json;
+        private final JsonRecordSplitter.Chunk chunk;
+        private final ValidationEngine engine;
+
+        ChunkTask(ByteBuffer json, JsonRecordSplitter.Chunk chunk, ValidationEngine engine) {
+            this.json = json;
+            this.chunk = chunk;
+            this.engine = engine;
+        }
+
+        @Override
+        public ChunkResult call() throws IOException {
+            final MovieStore movies = new MovieStore(chunk.recordCount);
+            // Re-wrap the records in brackets so the chunk reads as a JSON array of its own
+            InputStream records = new SequenceInputStream(Collections.enumeration(Arrays.asList(
+                    new ByteArrayInputStream(ARRAY_OPEN),
+                    new BufferInputStream(json, chunk.start, chunk.end),
+                    new ByteArrayInputStream(ARRAY_CLOSE))));
+            LoadStats stats = parseRecords(records, chunk.firstNumber, new MovieConsumer() {
+                @Override
+                public void accept(Movie movie) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        throw new CancellationException("Parsing cancelled");
+                    }
+                    movies.add(movie);
+                }
+            }, engine, new LoadDiagnostics(false));
+            return new ChunkResult(movies, stats);
+        }
+    }
+
+    private static class ChunkResult {
+        final MovieStore movies;
+        final LoadStats stats;
+
+        ChunkResult(MovieStore movies, LoadStats stats) {
+            this.movies = movies;
+            this.stats = stats;
+        }
+    }
+
+    /**
+     * Parse the records of one JSON array
+     * @param inputStream UTF-8 encoded JSON array of movie objects
+     * @param firstNumber 1-based catalog number of the array's first record
+     * @param consumer Receives parsed movies in array order
+     * @param engine Validation rules applied to each record
+     * @param diagnostics Receives the array's problems; a silent one for parallel chunks
+     * @return Record accounting, validation report and diagnostics for the array
+     * @throws IOException Reading or JSON syntax exception
+     */
+    private static LoadStats parseRecords(InputStream inputStream, int firstNumber, MovieConsumer consumer,
+                                          ValidationEngine engine, LoadDiagnostics diagnostics)
+            throws IOException {
         int totalMovies = 0;
+        int successfulMovies = 0;
         int skippedMovies = 0;
+        ValidationReport report = engine.newReport();
+        // Counted locally and published once, parallel chunks would contend on every record
+        long parseStart = System.nanoTime();
+
+        JsonReader reader = new JsonReader(new BufferedReader(
+                new InputStreamReader(inputStream, StandardCharsets.UTF_8)));
+        // Match the tolerance of org.json's tokenizer
+        reader.setLenient(true);
 
         try {
-            // Read JSON file content
-            String jsonString = readJsonFromAssets(context, FILE_NAME);
+            reader.beginArray();
+            while (reader.hasNext()) {
+                int number = firstNumber + totalMovies;
+                totalMovies++;
 
-            // Parse JSON data
-            JSONArray jsonArray = new JSONArray(jsonString);
-            totalMovies = jsonArray.length();
+                if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+                    // Same outcome as JSONArray.getJSONObject on a non-object element
+                    reader.skipValue();
+                    diagnostics.add(LoadDiagnostics.KIND_NOT_AN_OBJECT, number, null);
+                    skippedMovies++;
+                    continue;
+                }
 
-            // Iterate through JSON array
-            for (int i = 0; i < jsonArray.length(); i++) {
                 try {
-                    JSONObject jsonObject = jsonArray.getJSONObject(i);
+                    JSONObject jsonObject = readObject(reader);
                     // Check if it's an empty object (no properties)
                     if (jsonObject.length() == 0) {
-                        Log.e(TAG, "Movie #" + (i + 1) + " is an empty object");
+                        diagnostics.add(LoadDiagnostics.KIND_EMPTY_OBJECT, number, null);
                         skippedMovies++;
                         continue;
                     }
 
-                    Movie movie = parseMovieFromJson(jsonObject);
-                    if (movie != null) {
-                        movies.add(movie);
-                    }
+                    Movie movie = engine.validate(jsonObject, number, report, diagnostics);
+                    consumer.accept(movie);
+                    successfulMovies++;
                 } catch (JSONException e) {
                     // Handle single movie parsing exception
-                    Log.e(TAG, "Error parsing movie #" + (i + 1) + ": " + e.getMessage());
+                    diagnostics.add(LoadDiagnostics.KIND_UNREADABLE, number, e.getMessage());
                     skippedMovies++;
                 } catch (IllegalArgumentException e) {
                     // Handle movie data validation exception
-                    Log.e(TAG, "Movie #" + (i + 1) + " has invalid data: " + e.getMessage());
+                    diagnostics.add(LoadDiagnostics.KIND_INVALID_DATA, number, e.getMessage());
                     skippedMovies++;
                 }
             }
-            Log.i(TAG, "Movie data loading complete: Total " + totalMovies + ", Successful " + movies.size() 
-                   + ", Skipped " + skippedMovies);
-        } catch (IOException e) {
-            // Handle file reading exception
-            Log.e(TAG, "Cannot read movie data file: " + e.getMessage());
-            throw new RuntimeException("Cannot read movie data file", e);
-        } catch (JSONException e) {
-            // Handle JSON parsing exception
-            Log.e(TAG, "JSON format error: " + e.getMessage());
-            throw new RuntimeException("JSON format error", e);
+            reader.endArray();
+        } finally {
+            Metrics.PARSE.recordSince(parseStart);
+            Metrics.MOVIES_PARSED.add(successfulMovies);
+            Metrics.RECORDS_SKIPPED.add(skippedMovies);
         }
-
-        return movies;
+        return new LoadStats(totalMovies, successfulMovies, skippedMovies, report, diagnostics);
     }
 
     /**
-     * Parse movie data from JSON object
-     * @param jsonObject JSON object
-     * @return Movie object
-     * @throws JSONException JSON parsing exception
+     * Read the object at the reader's position into a JSONObject holding the same value types
+     * org.json would produce, so record validation behaves identically to DOM parsing
+     * @param reader Reader positioned at BEGIN_OBJECT
+     * @return Parsed object
+     * @throws IOException Reading or JSON syntax exception
+     * @throws JSONException Value cannot be stored in a JSONObject
      */
-    private static Movie parseMovieFromJson(JSONObject jsonObject) throws JSONException {
-        // Get field values and track errors
-        String title = null;
-        boolean titleError = false;
-        
-        if (jsonObject.has("title") && !jsonObject.isNull("title")) {
-            title = jsonObject.getString("title");
-            // Validate title is not empty
-            if (title.trim().isEmpty()) {
-                Log.e(TAG, "Title is an empty string");
-                titleError = true;
-            }
-        } else {
-            // Title is null or missing, record error
-            Log.e(TAG, "Movie title is null or missing");
-            titleError = true;
+    static JSONObject readObject(JsonReader reader) throws IOException, JSONException {
+        JSONObject jsonObject = new JSONObject();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            jsonObject.put(name, readValue(reader));
         }
+        reader.endObject();
+        return jsonObject;
+    }
 
-        // Process year field, detect but don't automatically fix errors
-        Integer year = null;
-        boolean yearError = false;
-        String yearErrorMsg = "";
-        
-        try {
-            if (jsonObject.has("year")) {
-                if (jsonObject.get("year") instanceof String) {
-                    try {
-                        year = Integer.parseInt(jsonObject.getString("year"));
-                        if (year <= 0) {
-                            yearError = true;
-                            yearErrorMsg = "Year is negative: " + year;
-                            Log.e(TAG, yearErrorMsg);
-                        }
-                    } catch (NumberFormatException e) {
-                        yearError = true;
-                        yearErrorMsg = "Year is not a valid number: " + jsonObject.getString("year");
-                        Log.e(TAG, yearErrorMsg);
-                    }
-                } else if (jsonObject.get("year") instanceof Double) {
-                    Double doubleYear = jsonObject.getDouble("year");
-                    yearError = true;
-                    yearErrorMsg = "Year is a decimal: " + doubleYear;
-                    Log.e(TAG, yearErrorMsg);
-                    year = doubleYear.intValue(); // Still save integer part for display
-                } else {
-                    year = jsonObject.getInt("year");
-                    if (year <= 0) {
-                        yearError = true;
-                        yearErrorMsg = "Year is negative: " + year;
-                        Log.e(TAG, yearErrorMsg);
-                    }
-                }
-            } else {
-                yearError = true;
-                yearErrorMsg = "Year field is missing";
-                Log.e(TAG, yearErrorMsg);
-            }
-        } catch (Exception e) {
-            yearError = true;
-            yearErrorMsg = "Error parsing year: " + e.getMessage();
-            Log.e(TAG, yearErrorMsg);
-        }
-
-        // Get genre - record errors but don't automatically fix
-        String genre = null;
-        boolean genreError = false;
-        
-        if (jsonObject.has("genre") && !jsonObject.isNull("genre")) {
-            genre = jsonObject.getString("genre");
-        } else {
-            genreError = true;
-            Log.e(TAG, "Movie genre is missing");
-        }
-
-        // Get poster resource ID
-        String posterResource = null;
-        boolean posterError = false;
-        
-        if (jsonObject.has("poster") && !jsonObject.isNull("poster")) {
-            posterResource = jsonObject.getString("poster");
-            // Check if poster is empty string
-            if (posterResource.trim().isEmpty()) {
-                posterError = true;
-                Log.e(TAG, "Poster resource is an empty string");
-            }
-        } else {
-            posterError = true;
-            Log.e(TAG, "Poster resource is missing or null");
+    private static JSONArray readArray(JsonReader reader) throws IOException, JSONException {
+        JSONArray jsonArray = new JSONArray();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            jsonArray.put(readValue(reader));
         }
+        reader.endArray();
+        return jsonArray;
+    }
 
-        // Create movie object - create regardless of errors, let UI layer handle display
-        Movie movie = new Movie(title, year, genre, posterResource);
-        
-        // Set error flags to help UI layer display
-        movie.setHasTitleError(titleError);
-        movie.setHasYearError(yearError);
-        movie.setYearErrorMsg(yearErrorMsg);
-        movie.setHasGenreError(genreError);
-        movie.setHasPosterError(posterError);
-        
-        return movie;
+    private static Object readValue(JsonReader reader) throws IOException, JSONException {
+        switch (reader.peek()) {
+            case BEGIN_OBJECT:
+                return readObject(reader);
+            case BEGIN_ARRAY:
+                return readArray(reader);
+            case BOOLEAN:
+                return reader.nextBoolean();
+            case NULL:
+                reader.nextNull();
+                return JSONObject.NULL;
+            case NUMBER:
+                return readNumber(reader.nextString());
+            default:
+                return reader.nextString();
+        }
     }
 
     /**
-     * Read JSON file content from assets folder
-     * @param context Context
-     * @param fileName File name
-     * @return JSON string
-     * @throws IOException File reading exception
-     */
-    private static String readJsonFromAssets(Context context, String fileName) throws IOException {
-        StringBuilder stringBuilder = new StringBuilder();
-
-        try (InputStream inputStream = context.getAssets().open(fileName);
-             BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(inputStream))) {
-            String line;
-            while ((line = bufferedReader.readLine()) != null) {
-                stringBuilder.append(line);
+     * Convert a number literal the way org.json does: Integer or Long for integral
+     * literals, Double for anything with a fraction or exponent
+     */
+    private static Object readNumber(String literal) {
+        if (literal.indexOf('.') == -1 && literal.indexOf('e') == -1 && literal.indexOf('E') == -1) {
+            try {
+                long longValue = Long.parseLong(literal);
+                if (longValue <= Integer.MAX_VALUE && longValue >= Integer.MIN_VALUE) {
+                    return (int) longValue;
+                }
+                return longValue;
+            } catch (NumberFormatException e) {
+                // Too large for a long, fall through to double
             }
         }
+        try {
+            return Double.valueOf(literal);
+        } catch (NumberFormatException e) {
+            return literal;
+        }
+    }
 
-        return stringBuilder.toString();
+    /**
+     * Parse movie data from JSON object with the built-in rules, package-private so the
+     * JVM benchmarks can measure it
+     * @param jsonObject JSON object
+     * @param number 1-based record number in the catalog, the id when the record has none
+     * @return Movie object
+     * @throws JSONException JSON parsing exception
+     */
+    static Movie parseMovieFromJson(JSONObject jsonObject, int number) throws JSONException {
+        return ValidationEngine.getDefault().validate(jsonObject, number, null, null);
     }
-}
\ No newline at end of file
+}
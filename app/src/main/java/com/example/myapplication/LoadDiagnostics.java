@@ -0,0 +1,303 @@
+package com.example.myapplication;
+
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Problems found in a catalog load, counted per kind instead of logged per record. The
+ * first SAMPLES_PER_KIND records of each kind are kept with their record numbers and
+ * messages, and written to the log in catalog order, within a process-wide rate limit.
+ * Once the load ends, a single summary line is logged with the counts and the sampled
+ * record numbers.
+ * Not thread-safe. Parallel loads fill one silent instance per chunk and append them in
+ * order to the load's instance, the same way ValidationReport does; that instance writes
+ * the samples it takes over, so the log shows the first problems of the catalog rather
+ * than those of whichever chunk finished first.
+ */
+public class LoadDiagnostics {
+    private static final String TAG = "LoadDiagnostics";
+
+    // Kinds
+    // Records that were skipped
+    // Array element that is not a JSON object
+    public static final int KIND_NOT_AN_OBJECT = 0;
+    // Object without any fields
+    public static final int KIND_EMPTY_OBJECT = 1;
+    // Object whose values could not be read
+    public static final int KIND_UNREADABLE = 2;
+    // Object with data the movie rejects
+    public static final int KIND_INVALID_DATA = 3;
+    // Delta upsert without an id
+    public static final int KIND_MISSING_ID = 4;
+    // Delta removal whose id is not a number, or upsert whose id is not a positive integer
+    public static final int KIND_INVALID_ID = 5;
+    // Movies loaded with a field error, in ValidationEngine's built-in rule order
+    public static final int KIND_TITLE = 6;
+    public static final int KIND_YEAR = 7;
+    public static final int KIND_GENRE = 8;
+    public static final int KIND_POSTER = 9;
+    // Movies failing a rule added to the engine
+    public static final int KIND_OTHER_RULE = 10;
+    static final int KIND_COUNT = 11;
+
+    // Records kept per kind
+    public static final int SAMPLES_PER_KIND = 5;
+
+    private static final String[] NAMES = {
+            "not_an_object", "empty_object", "unreadable", "invalid_data", "missing_id", "invalid_id",
+            "title", "year", "genre", "poster", "other_rule"};
+    // Message of a sample recorded without one
+    private static final String[] DESCRIPTIONS = {
+            "element is not a JSON object", "empty object", "unreadable record", "invalid data",
+            "no id", "id is not a number", "title is missing or empty", "invalid year",
+            "genre is missing", "poster is missing or empty", "failed a validation rule"};
+
+    // Sample lines written per second across all loads, after a burst of EMIT_BURST
+    private static final int EMIT_PER_SECOND = 10;
+    private static final int EMIT_BURST = 20;
+    private static final Object emitLock = new Object();
+    private static double emitTokens = EMIT_BURST;
+    private static long emitRefillNanos;
+
+    // Whether samples are written to the log, false for the instances of parallel chunks
+    private final boolean emitting;
+    private final int[] counts = new int[KIND_COUNT];
+    private final int[][] sampleNumbers = new int[KIND_COUNT][];
+    private final String[][] sampleMessages = new String[KIND_COUNT][];
+    private int suppressed;
+
+    /**
+     * Sample of one record with a problem
+     */
+    public static class Sample {
+        private final int kind;
+        private final int recordNumber;
+        private final String message;
+
+        Sample(int kind, int recordNumber, String message) {
+            this.kind = kind;
+            this.recordNumber = recordNumber;
+            this.message = message;
+        }
+
+        public int getKind() {
+            return kind;
+        }
+
+        /**
+         * @return 1-based record number in the catalog or delta; the row number for compiled catalogs
+         */
+        public int getRecordNumber() {
+            return recordNumber;
+        }
+
+        public String getMessage() {
+            return message != null ? message : DESCRIPTIONS[kind];
+        }
+
+        @Override
+        public String toString() {
+            return "#" + recordNumber + " " + NAMES[kind] + ": " + getMessage();
+        }
+    }
+
+    /**
+     * Create diagnostics that write their samples to the log
+     */
+    public LoadDiagnostics() {
+        this(true);
+    }
+
+    /**
+     * Constructor
+     * @param emitting false to keep samples silent until the instance is appended to an emitting one
+     */
+    LoadDiagnostics(boolean emitting) {
+        this.emitting = emitting;
+    }
+
+    /**
+     * @return Whether the next problem of the kind is sampled; build its message only then
+     */
+    public boolean isSampling(int kind) {
+        return counts[kind] < SAMPLES_PER_KIND;
+    }
+
+    /**
+     * Count a problem, and sample it while the kind has fewer than SAMPLES_PER_KIND samples
+     * @param kind One of the KIND constants
+     * @param recordNumber 1-based record number
+     * @param message Details, may be null; only read when isSampling(kind)
+     */
+    public void add(int kind, int recordNumber, String message) {
+        int count = counts[kind]++;
+        if (count >= SAMPLES_PER_KIND) {
+            return;
+        }
+        addSample(kind, count, recordNumber, message);
+        emit(kind, recordNumber, message);
+    }
+
+    /**
+     * Write a sample line, unless this instance is silent or the rate limit is exhausted
+     */
+    private void emit(int kind, int recordNumber, String message) {
+        if (!emitting || !AppLog.isLoggable(Log.WARN)) {
+            return;
+        }
+        if (tryEmit()) {
+            Log.w(TAG, "Record #" + recordNumber + " " + NAMES[kind] + ": "
+                    + (message != null ? message : DESCRIPTIONS[kind]));
+        } else {
+            suppressed++;
+        }
+    }
+
+    private void addSample(int kind, int index, int recordNumber, String message) {
+        if (sampleNumbers[kind] == null) {
+            sampleNumbers[kind] = new int[SAMPLES_PER_KIND];
+            sampleMessages[kind] = new String[SAMPLES_PER_KIND];
+        }
+        sampleNumbers[kind][index] = recordNumber;
+        sampleMessages[kind][index] = message;
+    }
+
+    /**
+     * Append the problems of the records that follow this instance's records; samples
+     * stay the first ones in catalog order, and the ones taken over are written now
+     */
+    void append(LoadDiagnostics other) {
+        for (int kind = 0; kind < KIND_COUNT; kind++) {
+            int sampled = Math.min(counts[kind], SAMPLES_PER_KIND);
+            int taken = Math.min(other.counts[kind], SAMPLES_PER_KIND - sampled);
+            for (int i = 0; i < taken; i++) {
+                addSample(kind, sampled + i, other.sampleNumbers[kind][i], other.sampleMessages[kind][i]);
+                emit(kind, other.sampleNumbers[kind][i], other.sampleMessages[kind][i]);
+            }
+            counts[kind] += other.counts[kind];
+        }
+        suppressed += other.suppressed;
+    }
+
+    /**
+     * Take a token from the shared rate limit
+     */
+    private static boolean tryEmit() {
+        synchronized (emitLock) {
+            long now = System.nanoTime();
+            if (emitRefillNanos != 0) {
+                emitTokens = Math.min(EMIT_BURST, emitTokens + (now - emitRefillNanos) * EMIT_PER_SECOND / 1e9);
+            }
+            emitRefillNanos = now;
+            if (emitTokens < 1) {
+                return false;
+            }
+            emitTokens--;
+            return true;
+        }
+    }
+
+    /**
+     * @param kind One of the KIND constants
+     * @return Number of records with the problem
+     */
+    public int getCount(int kind) {
+        return counts[kind];
+    }
+
+    /**
+     * @return Movies loaded with field or rule errors, counted once per failed rule
+     */
+    public int getErrorCount() {
+        int total = 0;
+        for (int kind = KIND_TITLE; kind <= KIND_OTHER_RULE; kind++) {
+            total += counts[kind];
+        }
+        return total;
+    }
+
+    /**
+     * @return Records skipped, by any skip kind
+     */
+    public int getSkippedCount() {
+        int total = 0;
+        for (int kind = KIND_NOT_AN_OBJECT; kind <= KIND_INVALID_ID; kind++) {
+            total += counts[kind];
+        }
+        return total;
+    }
+
+    /**
+     * @param kind One of the KIND constants
+     * @return Sampled records of the kind, in catalog order
+     */
+    public List<Sample> getSamples(int kind) {
+        int sampled = Math.min(counts[kind], SAMPLES_PER_KIND);
+        if (sampled == 0) {
+            return Collections.emptyList();
+        }
+        List<Sample> samples = new ArrayList<>(sampled);
+        for (int i = 0; i < sampled; i++) {
+            samples.add(new Sample(kind, sampleNumbers[kind][i], sampleMessages[kind][i]));
+        }
+        return samples;
+    }
+
+    /**
+     * @return Sample lines dropped by the rate limit
+     */
+    public int getSuppressedCount() {
+        return suppressed;
+    }
+
+    /**
+     * @return Short name of a kind, for logs and reports
+     */
+    public static String getName(int kind) {
+        return kind >= 0 && kind < KIND_COUNT ? NAMES[kind] : "unknown";
+    }
+
+    /**
+     * Write the one summary line of a load
+     * @param source What was loaded, such as "catalog" or "delta"
+     * @param stats Record accounting of the load
+     */
+    void logSummary(String source, JsonUtils.LoadStats stats) {
+        if (AppLog.isLoggable(Log.INFO)) {
+            Log.i(TAG, "Loaded " + source + ": total=" + stats.getTotal() + ", successful="
+                    + stats.getSuccessful() + ", skipped=" + stats.getSkipped() + ", " + this);
+        }
+    }
+
+    /**
+     * Counts of the kinds that occurred, each with its sampled record numbers
+     */
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder("errors=").append(getErrorCount()).append(" {");
+        boolean first = true;
+        for (int kind = 0; kind < KIND_COUNT; kind++) {
+            if (counts[kind] == 0) {
+                continue;
+            }
+            if (!first) {
+                text.append(", ");
+            }
+            first = false;
+            text.append(NAMES[kind]).append('=').append(counts[kind]).append(" [");
+            int sampled = Math.min(counts[kind], SAMPLES_PER_KIND);
+            for (int i = 0; i < sampled; i++) {
+                text.append(i > 0 ? ", #" : "#").append(sampleNumbers[kind][i]);
+            }
+            text.append(counts[kind] > sampled ? ", ...]" : "]");
+        }
+        text.append('}');
+        if (suppressed > 0) {
+            text.append(", suppressed=").append(suppressed);
+        }
+        return text.toString();
+    }
+}
@@ -1,41 +1,60 @@
 package com.example.myapplication;
 
+import android.app.ActivityManager;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.text.Editable;
+import android.text.TextWatcher;
 import android.util.Log;
+import android.view.Menu;
+import android.view.MenuItem;
 import android.view.View;
+import android.widget.EditText;
 import android.widget.Toast;
 
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.lifecycle.ViewModelProvider;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.google.android.material.snackbar.Snackbar;
 
 import java.io.FileNotFoundException;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
 
 /**
  * Main activity class, displays movie list, handles movie data loading and error scenarios
  */
 public class MainActivity extends AppCompatActivity {
+    // Runs catalog database queries, which read their first rows before returning
+    private static final Executor QUERY_EXECUTOR = Executors.newSingleThreadExecutor();
 
     private RecyclerView movieRecyclerView;
     private MovieAdapter adapter;
-    private List<Movie> movies;
+    private PosterPrefetcher posterPrefetcher;
+    // Catalog and running load, kept across recreation of this activity
+    private CatalogHolder catalog;
+    private String searchQuery = "";
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    // Incremented for every filter change, query results of an older one are dropped
+    private int filterGeneration;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_main);
 
-        // Initialize movie list
-        movies = new ArrayList<>();
+        // Movies loaded by an earlier instance of this activity, or an empty catalog
+        catalog = new ViewModelProvider(this).get(CatalogHolder.class);
 
         // Set up RecyclerView
         setupRecyclerView();
+        setupSearch();
 
-        // Load movie data
+        // Load movie data off the main thread, or pick up the load already running
         loadMovieData();
     }
 
@@ -45,81 +64,359 @@ public class MainActivity extends AppCompatActivity {
     private void setupRecyclerView() {
         movieRecyclerView = findViewById(R.id.recyclerView);
         movieRecyclerView.setLayoutManager(new LinearLayoutManager(this));
-        adapter = new MovieAdapter(this, movies);
+        adapter = new MovieAdapter(this, catalog.getMovies());
+        if (catalog.getMovies() instanceof PagedMovieList) {
+            adapter.showPagedMovies((PagedMovieList) catalog.getMovies());
+        }
+        // Recreated: show the sorted order and text the previous instance computed. The list
+        // has its rows before the first layout, so the RecyclerView restores the scroll position.
+        adapter.restore(catalog.getSortedOrder(), catalog.getDisplayModels());
+        if (!catalog.isLoading() && catalog.getSortOrder() != MovieSorter.ORDER_CATALOG
+                && catalog.getSortedOrder() == null) {
+            // The previous instance was destroyed before its sort finished
+            applySortOrder(catalog.getSortOrder());
+        }
+        // Low-end devices get the custom-drawn rows, cheaper to create and lay out than the card layout
+        ActivityManager activityManager = (ActivityManager) getSystemService(ACTIVITY_SERVICE);
+        adapter.setFlatRows(activityManager != null && activityManager.isLowRamDevice());
         movieRecyclerView.setAdapter(adapter);
+        if (catalog.isErrorsHidden()) {
+            // Query results belonged to the previous instance's adapter, run the query again
+            applyErrorFilter(true);
+        }
+        // Decode posters of the rows about to scroll in, so flings do not show placeholders
+        posterPrefetcher = new PosterPrefetcher(PosterLoader.getInstance(this));
+        movieRecyclerView.addOnScrollListener(posterPrefetcher);
     }
 
     /**
-     * Load movie data from JSON file
+     * Filter the list as the user types, using the index built while the catalog loads or on first use
      */
-    private void loadMovieData() {
-        try {
-            // Try to load movie data
-            movies = JsonUtils.loadMoviesFromJson(this);
-
-            // Check if there's valid movie data
-            if (movies.isEmpty()) {
-                showError(getString(R.string.no_movies_available));
-            } else {
-                // Count detected errors
-                int totalErrorsDetected = 0;
-                int titleErrorCount = 0;
-                int yearErrorCount = 0;
-                int genreErrorCount = 0;
-                int posterErrorCount = 0;
-                
-                for (Movie movie : movies) {
-                    // Check various errors
-                    if (movie.hasTitleError()) {
-                        titleErrorCount++;
-                        totalErrorsDetected++;
-                    }
-                    if (movie.hasYearError()) {
-                        yearErrorCount++;
-                        totalErrorsDetected++;
-                    }
-                    if (movie.hasGenreError()) {
-                        genreErrorCount++;
-                        totalErrorsDetected++;
-                    }
-                    if (movie.hasPosterError()) {
-                        posterErrorCount++;
-                        totalErrorsDetected++;
+    private void setupSearch() {
+        EditText searchField = findViewById(R.id.searchField);
+        searchField.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                applySearch(s.toString());
+            }
+        });
+    }
+
+    /**
+     * Show the movies matching a query, or every movie for an empty query
+     * @param query Search text
+     */
+    private void applySearch(String query) {
+        searchQuery = query.trim();
+        if (catalog.isErrorsHidden()) {
+            // Searches catalog positions, applied when the filter is turned off
+            return;
+        }
+        if (searchQuery.isEmpty() || catalog.getSearchIndex() == null) {
+            adapter.clearSearchResults();
+        } else if (!catalog.requestIndex()) {
+            // Every movie stays listed until the index is built, onIndexReady searches then
+            adapter.clearSearchResults();
+        } else {
+            adapter.showSearchResults(catalog.getSearchIndex().search(searchQuery));
+        }
+    }
+
+    @Override
+    public boolean onCreateOptionsMenu(Menu menu) {
+        getMenuInflater().inflate(R.menu.menu_main, menu);
+        // Kept from before a recreation
+        int checked;
+        switch (catalog.getSortOrder()) {
+            case MovieSorter.ORDER_TITLE:
+                checked = R.id.sort_title;
+                break;
+            case MovieSorter.ORDER_YEAR:
+                checked = R.id.sort_year;
+                break;
+            case MovieSorter.ORDER_GENRE:
+                checked = R.id.sort_genre;
+                break;
+            default:
+                checked = R.id.sort_catalog;
+                break;
+        }
+        menu.findItem(checked).setChecked(true);
+        menu.findItem(R.id.hide_errors).setChecked(catalog.isErrorsHidden());
+        return true;
+    }
+
+    @Override
+    public boolean onPrepareOptionsMenu(Menu menu) {
+        // Queries read the catalog database, which is imported once the catalog has loaded
+        menu.findItem(R.id.hide_errors).setEnabled(!catalog.isLoading());
+        return super.onPrepareOptionsMenu(menu);
+    }
+
+    @Override
+    public boolean onOptionsItemSelected(MenuItem item) {
+        int id = item.getItemId();
+        int order;
+        if (id == R.id.hide_errors) {
+            item.setChecked(!item.isChecked());
+            applyErrorFilter(item.isChecked());
+            return true;
+        } else if (id == R.id.sort_catalog) {
+            order = MovieSorter.ORDER_CATALOG;
+        } else if (id == R.id.sort_title) {
+            order = MovieSorter.ORDER_TITLE;
+        } else if (id == R.id.sort_year) {
+            order = MovieSorter.ORDER_YEAR;
+        } else if (id == R.id.sort_genre) {
+            order = MovieSorter.ORDER_GENRE;
+        } else {
+            return super.onOptionsItemSelected(item);
+        }
+        item.setChecked(true);
+        applySortOrder(order);
+        return true;
+    }
+
+    /**
+     * Reorder the list, sorting runs in the background
+     * @param order One of the MovieSorter.ORDER_* values
+     */
+    private void applySortOrder(int order) {
+        catalog.setSortOrder(order);
+        if (catalog.getSorter() == null || catalog.isErrorsHidden()) {
+            // Sorts catalog positions, applied when the filter is turned off
+            return;
+        }
+        // The sort keys of a compiled catalog are built on the first sort, onIndexReady sorts then
+        if (order == MovieSorter.ORDER_CATALOG || catalog.requestIndex()) {
+            adapter.showOrder(catalog.getSorter(), order);
+        }
+    }
+
+    /**
+     * Show only the movies without validation errors, found by a database query, or the
+     * whole catalog again with its search and sort order
+     * @param hidden true to leave out movies with errors
+     */
+    private void applyErrorFilter(boolean hidden) {
+        catalog.setErrorsHidden(hidden);
+        final int generation = ++filterGeneration;
+        if (!hidden) {
+            adapter.showCatalog(catalog.getMovies());
+            if (!searchQuery.isEmpty()) {
+                applySearch(searchQuery);
+            }
+            if (catalog.getSortOrder() != MovieSorter.ORDER_CATALOG) {
+                applySortOrder(catalog.getSortOrder());
+            }
+            return;
+        }
+        final CatalogDatabase database = CatalogDatabase.getInstance(this);
+        QUERY_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                CatalogDatabase.QueryResults results = null;
+                try {
+                    if (database.isImportComplete()) {
+                        results = database.query(new CatalogQuery().withoutErrors());
                     }
+                } catch (RuntimeException e) {
+                    Log.e("MainActivity", "Cannot query the catalog database: " + e.getMessage());
                 }
-                
-                // Display success message, including error detection information
-                String message;
-                if (totalErrorsDetected > 0) {
-                    message = getString(R.string.movies_loaded_with_errors, 
-                            movies.size(), totalErrorsDetected);
-                    
-                    // Add title error count information
-                    if (titleErrorCount > 0) {
-                        message += "\n" + getString(R.string.title_inferred_count, titleErrorCount);
+                final CatalogDatabase.QueryResults shown = results;
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (generation != filterGeneration || isDestroyed()) {
+                            // Turned off again, or the activity is gone
+                            if (shown != null) {
+                                shown.close();
+                            }
+                            return;
+                        }
+                        if (shown == null) {
+                            catalog.setErrorsHidden(false);
+                            invalidateOptionsMenu();
+                            showError(getString(R.string.filter_unavailable));
+                            return;
+                        }
+                        adapter.showQueryResults(shown);
                     }
+                });
+            }
+        });
+    }
+
+    /**
+     * Apply a delta document to the loaded catalog in place, without reloading it. A
+     * compiled catalog is changed through its overlay; while its index is being built the
+     * delta waits for onIndexReady.
+     * @param delta Parsed and validated changes
+     * @return false when the catalog cannot be changed in place, it is still loading
+     */
+    boolean applyCatalogDelta(CatalogDelta delta) {
+        if (catalog.isLoading()) {
+            Log.w("MainActivity", "Catalog cannot take a delta now, it is still loading");
+            return false;
+        }
+        if (catalog.isIndexing()) {
+            catalog.deferDelta(delta);
+            return true;
+        }
+        // An unindexed catalog is indexed later from the changed rows
+        boolean indexed = catalog.isIndexed();
+        CatalogDelta.Result result = delta.applyTo(catalog.getDeltaRows(), indexed ? catalog.getSearchIndex() : null,
+                indexed ? catalog.getSorter() : null);
+        if (catalog.getMovies() instanceof PagedMovieList) {
+            ((PagedMovieList) catalog.getMovies()).refresh();
+        }
+        if (catalog.isErrorsHidden()) {
+            // The loader applied the delta to the database too, query it again
+            applyErrorFilter(true);
+            return true;
+        }
+        adapter.applyDelta(result);
+        if (!searchQuery.isEmpty()) {
+            applySearch(searchQuery);
+        }
+        if (catalog.getSortOrder() != MovieSorter.ORDER_CATALOG) {
+            applySortOrder(catalog.getSortOrder());
+        }
+        return true;
+    }
+
+    @Override
+    protected void onDestroy() {
+        // A running load carries on for the next instance, and is cancelled by the holder when
+        // this activity finishes for good
+        catalog.detach();
+        catalog.retain(adapter.getOrder(), adapter.getDisplayModels());
+        // Queries still running are dropped, the next instance runs its own
+        ++filterGeneration;
+        adapter.closeQueryResults();
+        // The poster loader outlives the activity, drop prefetches for rows nobody will see
+        movieRecyclerView.removeOnScrollListener(posterPrefetcher);
+        posterPrefetcher.cancelAll();
+        super.onDestroy();
+    }
 
-                    // Log detected errors
-                    Log.i("MainActivity", "Detected errors: Title errors " + titleErrorCount + 
-                            ", Year errors " + yearErrorCount + ", Genre errors " + 
-                            genreErrorCount + ", Poster errors " + posterErrorCount);
+    /**
+     * Load movie data from JSON file in the background, movies appear as they are parsed.
+     * A recreated activity attaches to the load already running, or to the loaded catalog.
+     */
+    private void loadMovieData() {
+        catalog.attach(new MovieLoader.Callback() {
+            @Override
+            public void onMoviesLoaded(List<Movie> batch) {
+                adapter.onMoviesAppended(batch.size());
+                if (!searchQuery.isEmpty()) {
+                    // Include matches from the new batch
+                    applySearch(searchQuery);
+                }
+            }
+
+            @Override
+            public void onPagedCatalogReady(PagedMovieList pagedMovies) {
+                adapter.showPagedMovies(pagedMovies);
+            }
+
+            @Override
+            public void onLoadComplete(MovieLoader.Summary summary) {
+                // The filter can query the catalog now
+                invalidateOptionsMenu();
+                if (!searchQuery.isEmpty()) {
+                    // The index is complete now
+                    applySearch(searchQuery);
+                }
+                if (catalog.getSortOrder() != MovieSorter.ORDER_CATALOG) {
+                    // Sorted while loading, include the movies that arrived since
+                    applySortOrder(catalog.getSortOrder());
+                }
+                showLoadSummary(summary);
+            }
+
+            @Override
+            public void onIndexReady() {
+                applyDeferredDeltas();
+                // Search and sort asked for while the index was being built
+                if (!searchQuery.isEmpty()) {
+                    applySearch(searchQuery);
+                }
+                if (catalog.getSortOrder() != MovieSorter.ORDER_CATALOG) {
+                    applySortOrder(catalog.getSortOrder());
+                }
+            }
+
+            @Override
+            public void onDeltaReady(CatalogDelta delta) {
+                applyCatalogDelta(delta);
+            }
+
+            @Override
+            public void onLoadFailed(RuntimeException e) {
+                // Handle exceptions
+                if (e.getCause() instanceof FileNotFoundException) {
+                    showError(getString(R.string.error_file_not_found));
                 } else {
-                    message = getString(R.string.movies_loaded, movies.size());
+                    showError(getString(R.string.error_loading_data) + ": " + e.getMessage());
                 }
-                
-                Toast.makeText(this, message, Toast.LENGTH_LONG).show();
-                
-                // Update adapter
-                adapter.updateMovies(movies);
             }
-        } catch (RuntimeException e) {
-            // Handle exceptions
-            if (e.getCause() instanceof FileNotFoundException) {
-                showError(getString(R.string.error_file_not_found));
-            } else {
-                showError(getString(R.string.error_loading_data) + ": " + e.getMessage());
+        });
+        catalog.load(this);
+        // Delivered while no activity was attached
+        applyDeferredDeltas();
+    }
+
+    /**
+     * Apply the deltas the catalog kept, unless its index is still being built
+     */
+    private void applyDeferredDeltas() {
+        if (catalog.isIndexing()) {
+            return;
+        }
+        for (CatalogDelta delta : catalog.takeDeferredDeltas()) {
+            applyCatalogDelta(delta);
+        }
+    }
+
+    /**
+     * Show the result of a completed load, including error detection information
+     * @param summary Counts and diagnostics accumulated while loading
+     */
+    private void showLoadSummary(MovieLoader.Summary summary) {
+        // Check if there's valid movie data
+        if (summary.getMovieCount() == 0) {
+            showError(getString(R.string.no_movies_available));
+            return;
+        }
+
+        // Display success message, including error detection information; the per-kind
+        // counts were already logged in the load's diagnostics summary
+        LoadDiagnostics diagnostics = summary.getDiagnostics();
+        int totalErrorsDetected = diagnostics.getErrorCount();
+        String message;
+        if (totalErrorsDetected > 0) {
+            message = getString(R.string.movies_loaded_with_errors,
+                    summary.getMovieCount(), totalErrorsDetected);
+
+            // Add title error count information
+            int titleErrors = diagnostics.getCount(LoadDiagnostics.KIND_TITLE);
+            if (titleErrors > 0) {
+                message += "\n" + getString(R.string.title_inferred_count, titleErrors);
             }
+        } else {
+            message = getString(R.string.movies_loaded, summary.getMovieCount());
         }
+
+        Toast.makeText(this, message, Toast.LENGTH_LONG).show();
     }
 
     /**
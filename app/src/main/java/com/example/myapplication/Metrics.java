@@ -0,0 +1,317 @@
+package com.example.myapplication;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free counters and latency histograms for the catalog and scrolling hot paths.
+ * Recording never allocates; snapshot() copies the current values for tests or a debug screen.
+ */
+public final class Metrics {
+
+    // Latency histograms, values in nanoseconds
+    // Parsing one array of records: a chunk of a split catalog, or a whole one
+    public static final Histogram PARSE = new Histogram("parse");
+    public static final Histogram BIND = new Histogram("bind");
+    public static final Histogram POSTER_RESOLVE = new Histogram("poster_resolve");
+    public static final Histogram POSTER_DECODE = new Histogram("poster_decode");
+    public static final Histogram SEARCH = new Histogram("search");
+    public static final Histogram SORT = new Histogram("sort");
+    // From starting a catalog load until its first movies are handed to the UI
+    public static final Histogram CATALOG_READY = new Histogram("catalog_ready");
+    // Applying a delta document to the loaded catalog
+    public static final Histogram DELTA = new Histogram("delta");
+
+    // Counters
+    public static final Counter MOVIES_PARSED = new Counter("movies_parsed");
+    public static final Counter RECORDS_SKIPPED = new Counter("records_skipped");
+    public static final Counter POSTER_CACHE_HITS = new Counter("poster_cache_hits");
+    public static final Counter POSTER_CACHE_MISSES = new Counter("poster_cache_misses");
+    public static final Counter POSTER_BITMAP_HITS = new Counter("poster_bitmap_hits");
+
+    private static final Histogram[] HISTOGRAMS = {PARSE, BIND, POSTER_RESOLVE, POSTER_DECODE, SEARCH, SORT,
+            CATALOG_READY, DELTA};
+    private static final Counter[] COUNTERS = {
+            MOVIES_PARSED, RECORDS_SKIPPED, POSTER_CACHE_HITS, POSTER_CACHE_MISSES, POSTER_BITMAP_HITS};
+
+    private Metrics() {
+    }
+
+    /**
+     * Copy the current value of every counter and histogram
+     */
+    public static Snapshot snapshot() {
+        List<CounterSnapshot> counters = new ArrayList<>(COUNTERS.length);
+        for (Counter counter : COUNTERS) {
+            counters.add(new CounterSnapshot(counter.name, counter.get()));
+        }
+        List<HistogramSnapshot> histograms = new ArrayList<>(HISTOGRAMS.length);
+        for (Histogram histogram : HISTOGRAMS) {
+            histograms.add(histogram.snapshot());
+        }
+        return new Snapshot(counters, histograms);
+    }
+
+    /**
+     * Clear all counters and histograms
+     */
+    public static void reset() {
+        for (Counter counter : COUNTERS) {
+            counter.reset();
+        }
+        for (Histogram histogram : HISTOGRAMS) {
+            histogram.reset();
+        }
+    }
+
+    /**
+     * Monotonic event counter
+     */
+    public static final class Counter {
+        private final String name;
+        private final AtomicLong value = new AtomicLong();
+
+        Counter(String name) {
+            this.name = name;
+        }
+
+        public void increment() {
+            value.incrementAndGet();
+        }
+
+        public void add(long delta) {
+            value.addAndGet(delta);
+        }
+
+        public long get() {
+            return value.get();
+        }
+
+        void reset() {
+            value.set(0);
+        }
+    }
+
+    /**
+     * Histogram with power-of-two buckets: bucket i counts values in [2^i, 2^(i+1)),
+     * bucket 0 also counts zero
+     */
+    public static final class Histogram {
+        static final int BUCKETS = 48;
+
+        private final String name;
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong sum = new AtomicLong();
+        private final AtomicLong max = new AtomicLong();
+
+        Histogram(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Record one value
+         * @param nanos Latency in nanoseconds
+         */
+        public void record(long nanos) {
+            if (nanos < 0) {
+                nanos = 0;
+            }
+            int bucket = nanos == 0 ? 0 : 63 - Long.numberOfLeadingZeros(nanos);
+            buckets.incrementAndGet(Math.min(bucket, BUCKETS - 1));
+            count.incrementAndGet();
+            sum.addAndGet(nanos);
+            long current;
+            while (nanos > (current = max.get())) {
+                if (max.compareAndSet(current, nanos)) {
+                    break;
+                }
+            }
+        }
+
+        /**
+         * Record the time elapsed since a System.nanoTime() reading
+         * @param startNanos Start time from System.nanoTime()
+         */
+        public void recordSince(long startNanos) {
+            record(System.nanoTime() - startNanos);
+        }
+
+        HistogramSnapshot snapshot() {
+            long[] copy = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++) {
+                copy[i] = buckets.get(i);
+            }
+            return new HistogramSnapshot(name, count.get(), sum.get(), max.get(), copy);
+        }
+
+        void reset() {
+            for (int i = 0; i < BUCKETS; i++) {
+                buckets.set(i, 0);
+            }
+            count.set(0);
+            sum.set(0);
+            max.set(0);
+        }
+    }
+
+    /**
+     * Counter value at snapshot time
+     */
+    public static final class CounterSnapshot {
+        private final String name;
+        private final long value;
+
+        CounterSnapshot(String name, long value) {
+            this.name = name;
+            this.value = value;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getValue() {
+            return value;
+        }
+    }
+
+    /**
+     * Histogram values at snapshot time
+     */
+    public static final class HistogramSnapshot {
+        private final String name;
+        private final long count;
+        private final long sumNanos;
+        private final long maxNanos;
+        private final long[] buckets;
+
+        HistogramSnapshot(String name, long count, long sumNanos, long maxNanos, long[] buckets) {
+            this.name = name;
+            this.count = count;
+            this.sumNanos = sumNanos;
+            this.maxNanos = maxNanos;
+            this.buckets = buckets;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getMaxNanos() {
+            return maxNanos;
+        }
+
+        public long getMeanNanos() {
+            return count == 0 ? 0 : sumNanos / count;
+        }
+
+        /**
+         * Upper bound of the bucket containing the given percentile
+         * @param percentile Percentile between 0 and 100
+         * @return Latency in nanoseconds, never above the recorded maximum
+         */
+        public long getPercentileNanos(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(count * percentile / 100.0);
+            long seen = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                seen += buckets[i];
+                if (seen >= rank && seen > 0) {
+                    return Math.min(maxNanos, (1L << (i + 1)) - 1);
+                }
+            }
+            return maxNanos;
+        }
+    }
+
+    /**
+     * All metric values at one point in time
+     */
+    public static final class Snapshot {
+        private final List<CounterSnapshot> counters;
+        private final List<HistogramSnapshot> histograms;
+
+        Snapshot(List<CounterSnapshot> counters, List<HistogramSnapshot> histograms) {
+            this.counters = Collections.unmodifiableList(counters);
+            this.histograms = Collections.unmodifiableList(histograms);
+        }
+
+        public List<CounterSnapshot> getCounters() {
+            return counters;
+        }
+
+        public List<HistogramSnapshot> getHistograms() {
+            return histograms;
+        }
+
+        public long getCounter(String name) {
+            for (CounterSnapshot counter : counters) {
+                if (counter.getName().equals(name)) {
+                    return counter.getValue();
+                }
+            }
+            throw new IllegalArgumentException("Unknown counter " + name);
+        }
+
+        public HistogramSnapshot getHistogram(String name) {
+            for (HistogramSnapshot histogram : histograms) {
+                if (histogram.getName().equals(name)) {
+                    return histogram;
+                }
+            }
+            throw new IllegalArgumentException("Unknown histogram " + name);
+        }
+
+        /**
+         * Export as a JSON object, latencies in nanoseconds
+         */
+        public String toJson() {
+            StringBuilder json = new StringBuilder("{\"counters\":{");
+            for (int i = 0; i < counters.size(); i++) {
+                CounterSnapshot counter = counters.get(i);
+                json.append(i == 0 ? "" : ",")
+                        .append('"').append(counter.getName()).append("\":").append(counter.getValue());
+            }
+            json.append("},\"histograms\":{");
+            for (int i = 0; i < histograms.size(); i++) {
+                HistogramSnapshot histogram = histograms.get(i);
+                json.append(i == 0 ? "" : ",")
+                        .append('"').append(histogram.getName()).append("\":{")
+                        .append("\"count\":").append(histogram.getCount())
+                        .append(",\"mean\":").append(histogram.getMeanNanos())
+                        .append(",\"p50\":").append(histogram.getPercentileNanos(50))
+                        .append(",\"p90\":").append(histogram.getPercentileNanos(90))
+                        .append(",\"p99\":").append(histogram.getPercentileNanos(99))
+                        .append(",\"max\":").append(histogram.getMaxNanos())
+                        .append('}');
+            }
+            return json.append("}}").toString();
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder text = new StringBuilder();
+            for (CounterSnapshot counter : counters) {
+                text.append(counter.getName()).append('=').append(counter.getValue()).append('\n');
+            }
+            for (HistogramSnapshot histogram : histograms) {
+                text.append(String.format(Locale.US, "%s: n=%d mean=%.1fus p50=%.1fus p99=%.1fus max=%.1fus%n",
+                        histogram.getName(), histogram.getCount(),
+                        histogram.getMeanNanos() / 1000.0, histogram.getPercentileNanos(50) / 1000.0,
+                        histogram.getPercentileNanos(99) / 1000.0, histogram.getMaxNanos() / 1000.0));
+            }
+            return text.toString();
+        }
+    }
+}
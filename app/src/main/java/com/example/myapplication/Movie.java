@@ -4,19 +4,24 @@ package com.example.myapplication;
 /**
  * Movie model class
  * Contains basic movie information: title, year, genre and poster resource ID
+ * A movie is either a lightweight view over one row of a MovieStore, or, when created
+ * with a constructor, a standalone movie that keeps the same values in its own fields
+ * until a store copies them into a row.
  */
 public class Movie {
+    // Backing row of a view, null for a standalone movie
+    private final MovieStore store;
+    private final int row;
+
+    // Values of a standalone movie, encoded as in a MovieStore row
+    private long id;
     private String title;
-    private Integer year;
+    private int year = MovieStore.NO_YEAR;
     private String genre;
     private String posterResource;
-    
-    // Error flags
-    private boolean hasTitleError;
-    private boolean hasYearError;
-    private String yearErrorMsg;
-    private boolean hasGenreError;
-    private boolean hasPosterError;
+    // Error flags and year error kind
+    private int flags;
+    private Object yearErrorDetail;
 
     /**
      * Movie class constructor
@@ -26,122 +31,279 @@ public class Movie {
      * @param posterResource Movie poster resource ID
      */
     public Movie(String title, Integer year, String genre, String posterResource) {
+        this();
+
         // Initialize fields
         this.title = title;
-        this.year = year;
-        this.genre = genre;
+        this.year = year != null ? year : MovieStore.NO_YEAR;
         this.posterResource = posterResource; // Poster resource can be null, use default placeholder
-        
+
         // Initialize error flags
-        this.hasTitleError = (title == null || title.trim().isEmpty());
-        this.hasYearError = (year == null);
-        this.yearErrorMsg = "";
-        this.hasGenreError = (genre == null);
-        this.hasPosterError = (posterResource == null);
+        setFlag(MovieStore.FLAG_TITLE_ERROR, title == null || title.trim().isEmpty());
+        setFlag(MovieStore.FLAG_YEAR_ERROR, year == null);
+        setFlag(MovieStore.FLAG_GENRE_ERROR, genre == null);
+        setFlag(MovieStore.FLAG_POSTER_ERROR, posterResource == null);
 
         // Set default genre if null
-        if (this.genre == null) {
-            this.genre = "Unknown Genre";
+        this.genre = genre != null ? genre : "Unknown Genre";
+    }
+
+    /**
+     * Empty movie with no fields or error flags set, filled in by the validation rules
+     */
+    Movie() {
+        this.store = null;
+        this.row = -1;
+    }
+
+    /**
+     * View over an existing store row
+     * @param store Backing store
+     * @param row Row index
+     */
+    Movie(MovieStore store, int row) {
+        this.store = store;
+        this.row = row;
+    }
+
+    boolean isBackedBy(MovieStore store, int row) {
+        return this.store == store && this.row == row;
+    }
+
+    /**
+     * Copy this movie's values into a standalone movie
+     */
+    Movie detachedCopy() {
+        Movie copy = new Movie();
+        copy.id = getId();
+        copy.title = getTitle();
+        copy.year = getYearValue();
+        copy.genre = getGenre();
+        copy.posterResource = getPosterResource();
+        copy.flags = store != null ? store.getFlags(row) : flags;
+        copy.yearErrorDetail = store != null ? store.getYearErrorDetail(row) : yearErrorDetail;
+        return copy;
+    }
+
+    private boolean hasFlag(int flag) {
+        return store != null ? store.hasFlag(row, flag) : (flags & flag) != 0;
+    }
+
+    private void setFlag(int flag, boolean value) {
+        if (store != null) {
+            store.setFlag(row, flag, value);
+        } else {
+            flags = value ? flags | flag : flags & ~flag;
         }
     }
 
     // Getter methods
+
+    /**
+     * Stable identity of the movie across catalog reloads
+     */
+    public long getId() {
+        return store != null ? store.getId(row) : id;
+    }
+
     public String getTitle() {
-        return title;
+        return store != null ? store.getTitle(row) : title;
     }
 
     public Integer getYear() {
-        return year;
+        int year = getYearValue();
+        return year != MovieStore.NO_YEAR ? year : null;
+    }
+
+    /**
+     * Primitive year, avoids boxing on hot paths
+     * @return Year, or MovieStore.NO_YEAR when there is none
+     */
+    public int getYearValue() {
+        return store != null ? store.getYear(row) : year;
     }
 
     public String getGenre() {
-        return genre;
+        return store != null ? store.getGenre(row) : genre;
     }
 
     public String getPosterResource() {
-        return posterResource;
+        return store != null ? store.getPosterResource(row) : posterResource;
     }
     
     // Error flag getter methods
     public boolean hasTitleError() {
-        return hasTitleError;
+        return hasFlag(MovieStore.FLAG_TITLE_ERROR);
     }
     
     public boolean hasYearError() {
-        return hasYearError;
+        return hasFlag(MovieStore.FLAG_YEAR_ERROR);
     }
     
     public String getYearErrorMsg() {
-        return yearErrorMsg;
+        if (store != null) {
+            return store.getYearErrorMsg(row);
+        }
+        return MovieStore.yearErrorMessage(MovieStore.yearErrorKind(flags), year, yearErrorDetail);
     }
     
     public boolean hasGenreError() {
-        return hasGenreError;
+        return hasFlag(MovieStore.FLAG_GENRE_ERROR);
     }
     
     public boolean hasPosterError() {
-        return hasPosterError;
+        return hasFlag(MovieStore.FLAG_POSTER_ERROR);
     }
 
     // Setter methods
+    public void setId(long id) {
+        if (store != null) {
+            store.setId(row, id);
+        } else {
+            this.id = id;
+        }
+    }
+
     public void setTitle(String title) {
-        this.title = title;
-        this.hasTitleError = (title == null || title.trim().isEmpty());
+        if (store != null) {
+            store.setTitle(row, title);
+        } else {
+            this.title = title;
+        }
+        setFlag(MovieStore.FLAG_TITLE_ERROR, title == null || title.trim().isEmpty());
     }
 
     public void setYear(Integer year) {
-        this.year = year;
-        this.hasYearError = (year == null);
+        setYearValue(year != null ? year : MovieStore.NO_YEAR);
+        setFlag(MovieStore.FLAG_YEAR_ERROR, year == null);
+    }
+
+    private void setYearValue(int year) {
+        if (store != null) {
+            store.setYear(row, year);
+        } else if (MovieStore.yearErrorKind(flags) == MovieStore.YEAR_MSG_NEGATIVE) {
+            // The message was derived from the old year, keep its text
+            String message = getYearErrorMsg();
+            this.year = year;
+            setYearErrorMsg(message);
+        } else {
+            this.year = year;
+        }
     }
 
     public void setGenre(String genre) {
-        this.genre = genre;
         // Set to default if null, but still mark as error
-        if (genre == null) {
-            this.genre = "Unknown Genre";
-            this.hasGenreError = true;
+        String value = genre != null ? genre : "Unknown Genre";
+        if (store != null) {
+            store.setGenre(row, value);
         } else {
-            this.hasGenreError = false;
+            this.genre = value;
         }
+        setFlag(MovieStore.FLAG_GENRE_ERROR, genre == null);
     }
 
     public void setPosterResource(String posterResource) {
-        this.posterResource = posterResource;
-        this.hasPosterError = (posterResource == null);
+        if (store != null) {
+            store.setPosterResource(row, posterResource);
+        } else {
+            this.posterResource = posterResource;
+        }
+        setFlag(MovieStore.FLAG_POSTER_ERROR, posterResource == null);
     }
     
     // Error flag setter methods
     public void setHasTitleError(boolean hasTitleError) {
-        this.hasTitleError = hasTitleError;
+        setFlag(MovieStore.FLAG_TITLE_ERROR, hasTitleError);
     }
     
     public void setHasYearError(boolean hasYearError) {
-        this.hasYearError = hasYearError;
+        setFlag(MovieStore.FLAG_YEAR_ERROR, hasYearError);
     }
     
     public void setYearErrorMsg(String yearErrorMsg) {
-        this.yearErrorMsg = yearErrorMsg;
+        if (store != null) {
+            store.setYearErrorMsg(row, yearErrorMsg);
+            return;
+        }
+        int kind = MovieStore.yearErrorKind(yearErrorMsg, year);
+        flags = MovieStore.withYearErrorKind(flags, kind);
+        yearErrorDetail = MovieStore.yearErrorDetail(yearErrorMsg, kind);
+    }
+
+    /**
+     * Set the year and its error without boxing it or building the message
+     * @param year Year, or MovieStore.NO_YEAR
+     * @param errorKind One of the MovieStore.YEAR_MSG_* kinds, YEAR_MSG_NONE for a valid year
+     * @param errorDetail Raw value the message quotes, see MovieStore.setYearError
+     */
+    void setYear(int year, int errorKind, Object errorDetail) {
+        setFlag(MovieStore.FLAG_YEAR_ERROR, errorKind != MovieStore.YEAR_MSG_NONE);
+        if (store != null) {
+            store.setYear(row, year);
+            store.setYearError(row, errorKind, errorDetail);
+        } else {
+            this.year = year;
+            flags = MovieStore.withYearErrorKind(flags, errorKind);
+            yearErrorDetail = errorDetail;
+        }
+    }
+
+    /**
+     * Copy the year error kind and detail to a store row, without building the message
+     */
+    void copyYearErrorTo(MovieStore target, int targetRow) {
+        if (store != null) {
+            target.setYearError(targetRow, store.getYearErrorKind(row), store.getYearErrorDetail(row));
+        } else {
+            target.setYearError(targetRow, MovieStore.yearErrorKind(flags), yearErrorDetail);
+        }
     }
     
     public void setHasGenreError(boolean hasGenreError) {
-        this.hasGenreError = hasGenreError;
+        setFlag(MovieStore.FLAG_GENRE_ERROR, hasGenreError);
     }
     
     public void setHasPosterError(boolean hasPosterError) {
-        this.hasPosterError = hasPosterError;
+        setFlag(MovieStore.FLAG_POSTER_ERROR, hasPosterError);
+    }
+
+    /**
+     * Check whether two movies would display identically, used together with getId()
+     * to compute incremental list updates
+     * @param other Movie to compare with
+     * @return true if all displayed fields and error flags are equal
+     */
+    public boolean hasSameContent(Movie other) {
+        if (other == null) {
+            return false;
+        }
+        return hasTitleError() == other.hasTitleError()
+                && hasYearError() == other.hasYearError()
+                && hasGenreError() == other.hasGenreError()
+                && hasPosterError() == other.hasPosterError()
+                && getYearValue() == other.getYearValue()
+                && equalOrNull(getTitle(), other.getTitle())
+                && equalOrNull(getGenre(), other.getGenre())
+                && equalOrNull(getPosterResource(), other.getPosterResource())
+                && equalOrNull(getYearErrorMsg(), other.getYearErrorMsg());
+    }
+
+    private static boolean equalOrNull(Object a, Object b) {
+        return a == null ? b == null : a.equals(b);
     }
 
     @Override
     public String toString() {
         return "Movie{" +
-                "title='" + title + '\'' +
-                ", year=" + year +
-                ", genre='" + genre + '\'' +
-                ", posterResource='" + posterResource + '\'' +
-                ", hasTitleError=" + hasTitleError +
-                ", hasYearError=" + hasYearError +
-                ", hasGenreError=" + hasGenreError +
-                ", hasPosterError=" + hasPosterError +
+                "id=" + getId() +
+                ", title='" + getTitle() + '\'' +
+                ", year=" + getYear() +
+                ", genre='" + getGenre() + '\'' +
+                ", posterResource='" + getPosterResource() + '\'' +
+                ", hasTitleError=" + hasTitleError() +
+                ", hasYearError=" + hasYearError() +
+                ", hasGenreError=" + hasGenreError() +
+                ", hasPosterError=" + hasPosterError() +
                 '}';
     }
-}
\ No newline at end of file
+}
@@ -1,7 +1,9 @@
 package com.example.myapplication;
 
 import android.content.Context;
-import android.util.Log;
+import android.content.res.ColorStateList;
+import android.os.Handler;
+import android.os.Looper;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -9,215 +11,724 @@ import android.widget.ImageView;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
 
 /**
- * Movie adapter class, used to display movie data in RecyclerView
+ * Movie adapter class, used to display movie data in RecyclerView.
+ * Movies are shown in catalog order, or in a sorted order with section header rows.
  */
-public class MovieAdapter extends RecyclerView.Adapter<MovieAdapter.MovieViewHolder> {
+public class MovieAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
+
+    static final int VIEW_TYPE_MOVIE = 0;
+    static final int VIEW_TYPE_HEADER = 1;
+    // Same movie row drawn by a single MovieRowView instead of the inflated card layout
+    static final int VIEW_TYPE_MOVIE_FLAT = 2;
+
+    // List diffs and sorts run here, one at a time, so the main thread only dispatches the result
+    private static final Executor DIFF_EXECUTOR = Executors.newSingleThreadExecutor();
+    // List positions with display models at a time, centred on the positions being bound
+    private static final int MODEL_WINDOW = 256;
+    // Binding this close to the end of the models' range builds the next range ahead of the scroll
+    private static final int MODEL_MARGIN = MODEL_WINDOW / 4;
 
     private Context context;
+    // Movies shown, owned by the caller: the catalog CatalogHolder keeps, or a paged catalog
     private List<Movie> movies;
+    private final PosterResolver posterResolver;
+    private final PosterLoader posterLoader;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    // Incremented by every updateMovies call, only the latest diff is applied
+    private int updateGeneration;
+    // Incremented whenever the current list changes
+    private int listVersion;
+    // Incremented by every sort request, only the latest sort is shown
+    private int orderGeneration;
+    // Current sort order, null keeps the catalog order
+    private MovieSorter.Sections order;
+    // Catalog positions shown while a search is active, null shows every movie
+    private int[] searchRows;
+    // What the list shows: order and search combined, null shows every movie in catalog order
+    private MovieSorter.Sections display;
+    // Set while showing a paged catalog
+    private PagedMovieList pagedMovies;
+    // Set while showing the results of a database query, closed when replaced
+    private CatalogDatabase.QueryResults queryResults;
+    // Precomputed text of the list positions around the ones being bound, null while none is ready
+    private MovieDisplayModels displayModels;
+    // Incremented whenever the models stop matching the list, only the latest build is kept
+    private int modelsGeneration;
+    // List positions of the models being built, an empty range when none are
+    private int pendingModelsStart;
+    private int pendingModelsEnd;
+    // Strings and colours of the current configuration, resolved once instead of on every bind
+    private MovieDisplayModels.Labels labels;
+    private ColorStateList textColors;
+    private ColorStateList errorColors;
+    private ColorStateList loadingColors;
+    private String loadingText;
+    private String unknownYearSection;
+    private String unknownGenreSection;
+    // Movie rows use MovieRowView instead of item_movie.xml
+    private boolean flatRows;
 
     /**
      * Constructor
      * @param context Context
-     * @param movies Movie list
+     * @param movies Movie list, shown as it is; its owner appends to it and calls onMoviesAppended
      */
     public MovieAdapter(Context context, List<Movie> movies) {
         this.context = context;
         this.movies = movies;
+        this.posterResolver = PosterResolver.getInstance(context);
+        this.posterLoader = PosterLoader.getInstance(context);
+        resolveLabels();
+        setHasStableIds(true);
+    }
+
+    @SuppressWarnings("deprecation")
+    private void resolveLabels() {
+        labels = new MovieDisplayModels.Labels(context.getResources());
+        textColors = ColorStateList.valueOf(labels.getTextColor());
+        errorColors = ColorStateList.valueOf(labels.getErrorColor());
+        loadingColors = ColorStateList.valueOf(context.getResources().getColor(android.R.color.darker_gray));
+        loadingText = context.getString(R.string.movie_loading);
+        unknownYearSection = context.getString(R.string.section_unknown_year);
+        unknownGenreSection = context.getString(R.string.section_unknown_genre);
+    }
+
+    /**
+     * Choose how movie rows are built, existing rows are replaced
+     * @param flatRows true for the custom-drawn MovieRowView, false for the inflated item_movie.xml
+     */
+    public void setFlatRows(boolean flatRows) {
+        if (this.flatRows != flatRows) {
+            this.flatRows = flatRows;
+            notifyDataSetChanged();
+        }
     }
 
-    @NonNull
     @Override
-    public MovieViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
-        View view = LayoutInflater.from(parent.getContext())
-                .inflate(R.layout.item_movie, parent, false);
-        return new MovieViewHolder(view);
+    public int getItemViewType(int position) {
+        if (display != null && display.isHeader(position)) {
+            return VIEW_TYPE_HEADER;
+        }
+        return flatRows ? VIEW_TYPE_MOVIE_FLAT : VIEW_TYPE_MOVIE;
     }
 
+    @NonNull
     @Override
-    public void onBindViewHolder(@NonNull MovieViewHolder holder, int position) {
-        Movie movie = movies.get(position);
+    public RecyclerView.ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        if (viewType == VIEW_TYPE_MOVIE_FLAT) {
+            return FlatMovieViewHolder.create(parent);
+        }
+        LayoutInflater inflater = LayoutInflater.from(parent.getContext());
+        if (viewType == VIEW_TYPE_HEADER) {
+            return new HeaderViewHolder(inflater.inflate(R.layout.item_section_header, parent, false));
+        }
+        return new MovieViewHolder(inflater.inflate(R.layout.item_movie, parent, false));
+    }
 
-        // Set movie title, show error message if there's an error
-        if (movie.hasTitleError()) {
-            holder.textViewTitle.setText(context.getString(R.string.title_placeholder));
-            holder.textViewTitle.setTextColor(context.getResources().getColor(android.R.color.holo_red_dark));
+    @Override
+    public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position) {
+        if (holder instanceof HeaderViewHolder) {
+            bindHeader((HeaderViewHolder) holder, position);
         } else {
-            holder.textViewTitle.setText(movie.getTitle());
-            holder.textViewTitle.setTextColor(context.getResources().getColor(android.R.color.black));
+            bindMovie(holder, position);
         }
+    }
 
-        // Set movie year, show error message if there's an error
-        if (movie.hasYearError()) {
-            if (movie.getYear() != null) {
-                // Has year but format error (like negative or decimal)
-                holder.textViewYear.setText(context.getString(R.string.year_error_format, movie.getYear()));
-            } else {
-                // Complete parsing failure
-                holder.textViewYear.setText(context.getString(R.string.year_error));
-            }
-            holder.textViewYear.setTextColor(context.getResources().getColor(android.R.color.holo_red_dark));
-        } else if (movie.getYear() != null) {
-            holder.textViewYear.setText(context.getString(R.string.year_label, movie.getYear()));
-            holder.textViewYear.setTextColor(context.getResources().getColor(android.R.color.black));
-        } else {
-            holder.textViewYear.setText(context.getString(R.string.year_placeholder));
-            holder.textViewYear.setTextColor(context.getResources().getColor(android.R.color.holo_red_dark));
+    private void bindHeader(HeaderViewHolder holder, int position) {
+        String title = display.getSectionTitle(position);
+        if (title == null) {
+            // Bucket of the movies whose year or genre failed validation
+            title = display.getOrder() == MovieSorter.ORDER_YEAR ? unknownYearSection : unknownGenreSection;
         }
+        holder.textViewSection.setText(title);
+    }
 
-        // Set movie genre, show error message if there's an error
-        if (movie.hasGenreError() || movie.getGenre() == null) {
-            holder.textViewGenre.setText(context.getString(R.string.genre_error));
-            holder.textViewGenre.setTextColor(context.getResources().getColor(android.R.color.holo_red_dark));
-        } else {
-            holder.textViewGenre.setText(context.getString(R.string.genre_label, movie.getGenre()));
-            holder.textViewGenre.setTextColor(context.getResources().getColor(android.R.color.black));
+    private void bindMovie(RecyclerView.ViewHolder holder, int position) {
+        long bindStart = System.nanoTime();
+        int row = display != null ? display.getRow(position) : position;
+        MovieDisplayModels models = displayModels;
+        int slot = models != null ? models.slot(position, row) : -1;
+        prepareModels(position, slot);
+        if (slot >= 0) {
+            // Everything was formatted and resolved in the background, only assign it
+            bindText(holder, models.getTitle(slot), models.getYear(slot), models.getGenre(slot),
+                    models.getErrors(slot));
+            showPoster(holder, models.getPosterId(slot));
+            Metrics.BIND.recordSince(bindStart);
+            return;
         }
 
-        // Set movie poster, enhanced poster loading logic
-        loadMoviePoster(holder.imageViewPoster, movie);
+        Movie movie = movieAt(position);
+        if (movie == null) {
+            // Page still loading, show a placeholder row until it arrives
+            bindPlaceholder(holder);
+            Metrics.BIND.recordSince(bindStart);
+            return;
+        }
+
+        // No model yet, while its range is built or for paged catalogs; labels are still formatted only once
+        bindText(holder, labels.titleText(movie), labels.yearText(movie), labels.genreText(movie),
+                labels.errorFields(movie));
+        showPoster(holder, posterResolver.getPosterId(movie));
+        Metrics.BIND.recordSince(bindStart);
     }
 
     /**
-     * Enhanced poster loading logic, try multiple ways to match movie posters
-     * @param imageView ImageView to display the poster
-     * @param movie Movie object
+     * Show the three text lines of a movie row, fields in errors get the error colour
      */
-    private void loadMoviePoster(ImageView imageView, Movie movie) {
-        // If no movie object, display placeholder directly
-        if (movie == null) {
-            Log.d("MovieAdapter", "Movie object is null, using placeholder");
-            imageView.setImageResource(R.drawable.placeholder_poster);
+    private void bindText(RecyclerView.ViewHolder holder, String title, String year, String genre, int errors) {
+        boolean titleError = (errors & MovieDisplayModels.ERROR_TITLE) != 0;
+        boolean yearError = (errors & MovieDisplayModels.ERROR_YEAR) != 0;
+        boolean genreError = (errors & MovieDisplayModels.ERROR_GENRE) != 0;
+        if (holder instanceof FlatMovieViewHolder) {
+            int textColor = labels.getTextColor();
+            int errorColor = labels.getErrorColor();
+            ((FlatMovieViewHolder) holder).row.setText(title, titleError ? errorColor : textColor,
+                    year, yearError ? errorColor : textColor, genre, genreError ? errorColor : textColor);
             return;
         }
-        
-        // Log movie information being loaded
-        Log.d("MovieAdapter", "Trying to load movie poster: " + 
-              (movie.getTitle() != null ? movie.getTitle() : "[No title]") + 
-              ", posterResource: " + movie.getPosterResource());
-        
-        // If poster resource is null or movie has poster error, display placeholder
-        if (movie.getPosterResource() == null || movie.hasPosterError()) {
-            Log.d("MovieAdapter", "Movie poster resource is null or has error for: " + 
-                  (movie.getTitle() != null ? movie.getTitle() : "[No title]") + ", using placeholder");
-            imageView.setImageResource(R.drawable.placeholder_poster);
+        MovieViewHolder views = (MovieViewHolder) holder;
+        views.textViewTitle.setText(title);
+        views.textViewTitle.setTextColor(titleError ? errorColors : textColors);
+        views.textViewYear.setText(year);
+        views.textViewYear.setTextColor(yearError ? errorColors : textColors);
+        views.textViewGenre.setText(genre);
+        views.textViewGenre.setTextColor(genreError ? errorColors : textColors);
+    }
+
+    private void bindPlaceholder(RecyclerView.ViewHolder holder) {
+        if (holder instanceof FlatMovieViewHolder) {
+            MovieRowView row = ((FlatMovieViewHolder) holder).row;
+            row.setText(loadingText, loadingColors.getDefaultColor(), null, 0, null, 0);
+            posterLoader.cancel(row);
+            row.setPosterResource(R.drawable.placeholder_poster);
             return;
         }
-        
-        // Try direct mapping for other known movies with poster resource
-        String resourceName = null;
-        
-        if ("interstellar_poster".equals(movie.getPosterResource())) {
-            Log.d("MovieAdapter", "Using direct mapping for Interstellar");
-            resourceName = "interstellar";
-        } else if ("matrix_poster".equals(movie.getPosterResource())) {
-            Log.d("MovieAdapter", "Using direct mapping for The Matrix");
-            resourceName = "thematrix";
-        } else if ("inception_poster".equals(movie.getPosterResource())) {
-            Log.d("MovieAdapter", "Using direct mapping for Inception");
-            resourceName = "inception";
-        } else if ("dark_knight_poster".equals(movie.getPosterResource())) {
-            Log.d("MovieAdapter", "Using direct mapping for Dark Knight");
-            resourceName = "dark_knight";
-        } else if ("pulp_fiction_poster".equals(movie.getPosterResource())) {
-            Log.d("MovieAdapter", "Using direct mapping for Pulp Fiction");
-            resourceName = "pulpfiction";
-        } else if ("avatar_poster".equals(movie.getPosterResource())) {
-            Log.d("MovieAdapter", "Using direct mapping for Avatar");
-            resourceName = "avatar";
-        } else if ("titanic_poster".equals(movie.getPosterResource())) {
-            Log.d("MovieAdapter", "Using direct mapping for Titanic");
-            resourceName = "titanic";
-        } else if ("godfather_poster".equals(movie.getPosterResource())) {
-            Log.d("MovieAdapter", "Using direct mapping for Godfather");
-            resourceName = "thegodfather";
-        }
-        
-        // If we found a direct mapping, try to load it
-        if (resourceName != null) {
-            int resourceId = context.getResources().getIdentifier(
-                    resourceName, "drawable", context.getPackageName());
-            if (resourceId != 0) {
-                imageView.setImageResource(resourceId);
-                return;
-            }
-        }
-        
-        // For other posters or fallback approach, try multiple ways to load the image
-        int resourceId = 0;
-        
-        try {
-            // Method 1: Try using posterResource attribute directly
-            resourceId = context.getResources().getIdentifier(
-                    movie.getPosterResource(), "drawable", context.getPackageName());
-            Log.d("MovieAdapter", "Method 1: Trying to load " + movie.getPosterResource() + ", result: " + (resourceId != 0 ? "success" : "failure"));
-            
-            // Method 2: Try converting posterResource to lowercase without _poster suffix
-            if (resourceId == 0 && movie.getPosterResource().endsWith("_poster")) {
-                String strippedName = movie.getPosterResource().replace("_poster", "").toLowerCase();
-                resourceId = context.getResources().getIdentifier(
-                        strippedName, "drawable", context.getPackageName());
-                Log.d("MovieAdapter", "Method 2: Trying to load " + strippedName + ", result: " + (resourceId != 0 ? "success" : "failure"));
-            }
-            
-            // Method 3: Try other common transformations of the poster name
-            if (resourceId == 0) {
-                // Try removing possible file extensions and prefixes/suffixes
-                String cleanName = movie.getPosterResource()
-                        .replace("_poster", "")
-                        .replace(".png", "")
-                        .replace(".jpg", "");
-                resourceId = context.getResources().getIdentifier(
-                        cleanName, "drawable", context.getPackageName());
-                Log.d("MovieAdapter", "Method 3: Trying to load cleaned name " + cleanName + ", result: " + (resourceId != 0 ? "success" : "failure"));
-                
-                // If that doesn't work, try with "the" prefix for known movies
-                if (resourceId == 0) {
-                    String withThePrefix = "the" + cleanName;
-                    resourceId = context.getResources().getIdentifier(
-                            withThePrefix, "drawable", context.getPackageName());
-                    Log.d("MovieAdapter", "Method 3.1: Trying with 'the' prefix: " + withThePrefix + ", result: " + (resourceId != 0 ? "success" : "failure"));
-                }
-            }
-            
-            // Set poster image
-            if (resourceId != 0) {
-                Log.d("MovieAdapter", "Successfully found resource ID: " + resourceId + " for movie: " + 
-                     (movie.getTitle() != null ? movie.getTitle() : "[No title]"));
-                imageView.setImageResource(resourceId);
+        MovieViewHolder views = (MovieViewHolder) holder;
+        views.textViewTitle.setText(loadingText);
+        views.textViewTitle.setTextColor(loadingColors);
+        views.textViewYear.setText(null);
+        views.textViewGenre.setText(null);
+        posterLoader.cancel(views.imageViewPoster);
+        views.imageViewPoster.setImageResource(R.drawable.placeholder_poster);
+    }
+
+    /**
+     * Poster loading logic, the drawable id was resolved once when the catalog loaded
+     * and the image is decoded in the background at the poster slot size
+     * @param holder Movie row
+     * @param resourceId Poster drawable id, or PosterResolver.NOT_FOUND
+     */
+    private void showPoster(RecyclerView.ViewHolder holder, int resourceId) {
+        if (holder instanceof FlatMovieViewHolder) {
+            MovieRowView row = ((FlatMovieViewHolder) holder).row;
+            if (resourceId != PosterResolver.NOT_FOUND) {
+                posterLoader.load(resourceId, row);
             } else {
-                // All attempts failed, use placeholder
-                Log.w("MovieAdapter", "Cannot find poster resource for movie: " + 
-                     (movie.getTitle() != null ? movie.getTitle() : "[No title]") + ", using placeholder");
-                imageView.setImageResource(R.drawable.placeholder_poster);
+                posterLoader.cancel(row);
+                row.setPosterResource(R.drawable.placeholder_poster);
             }
-        } catch (Exception e) {
-            // Exception handling, log and use placeholder
-            Log.e("MovieAdapter", "Failed to load poster: " + e.getMessage() + " for movie: " + 
-                 (movie.getTitle() != null ? movie.getTitle() : "[No title]"));
+            return;
+        }
+        ImageView imageView = ((MovieViewHolder) holder).imageViewPoster;
+        if (resourceId != PosterResolver.NOT_FOUND) {
+            posterLoader.load(resourceId, imageView);
+        } else {
+            posterLoader.cancel(imageView);
             imageView.setImageResource(R.drawable.placeholder_poster);
         }
     }
 
+    /**
+     * Poster a position will show once bound, for prefetching. Main thread only.
+     * @param position Adapter position
+     * @return Drawable id, or PosterResolver.NOT_FOUND for headers, placeholders and
+     *         paged rows not in memory, which are left for the bind to resolve
+     */
+    int getPosterIdAt(int position) {
+        if (position < 0 || position >= getItemCount() || getItemViewType(position) == VIEW_TYPE_HEADER) {
+            return PosterResolver.NOT_FOUND;
+        }
+        int row = display != null ? display.getRow(position) : position;
+        MovieDisplayModels models = displayModels;
+        int slot = models != null ? models.slot(position, row) : -1;
+        if (slot >= 0) {
+            return models.getPosterId(slot);
+        }
+        if (pagedMovies != null) {
+            // Reading the row could fault in a page on the main thread
+            return PosterResolver.NOT_FOUND;
+        }
+        return posterResolver.getPosterId(movies.get(row));
+    }
+
+    @Override
+    public void onViewRecycled(@NonNull RecyclerView.ViewHolder holder) {
+        // Drop the pending decode for a row that scrolled away
+        if (holder instanceof MovieViewHolder) {
+            posterLoader.cancel(((MovieViewHolder) holder).imageViewPoster);
+        } else if (holder instanceof FlatMovieViewHolder) {
+            posterLoader.cancel(((FlatMovieViewHolder) holder).row);
+        }
+    }
+
     @Override
     public int getItemCount() {
+        if (display != null) {
+            return display.size();
+        }
         return movies != null ? movies.size() : 0;
     }
 
+    @Override
+    public long getItemId(int position) {
+        if (display != null && display.isHeader(position)) {
+            // Catalog ids are never this low
+            return Long.MIN_VALUE + display.getSection(position);
+        }
+        int row = display != null ? display.getRow(position) : position;
+        if (pagedMovies != null) {
+            // Known before the row's page arrives, and reading it does not move the page window
+            return pagedMovies.getId(row);
+        }
+        // Read the id column directly, binds happen while scrolling and should not allocate
+        return ((MovieStore) movies).getId(row);
+    }
+
+    private Movie movieAt(int position) {
+        if (display == null) {
+            return movies.get(position);
+        }
+        int row = display.getRow(position);
+        // Sorted and filtered rows are scattered over the catalog, paging them would evict on every read
+        return pagedMovies != null ? pagedMovies.getDirect(row) : movies.get(row);
+    }
+
+    /**
+     * Show only the given catalog positions, as returned by MovieSearchIndex
+     * @param rows Ascending catalog positions; positions not loaded yet are left out
+     */
+    public void showSearchResults(int[] rows) {
+        searchRows = rows;
+        refreshDisplay();
+    }
+
+    /**
+     * Show every movie again after a search
+     */
+    public void clearSearchResults() {
+        if (searchRows == null) {
+            return;
+        }
+        searchRows = null;
+        refreshDisplay();
+    }
+
+    /**
+     * Sort the list in the background and show it once sorted. Search results stay
+     * filtered and follow the new order.
+     * @param sorter Sort keys of the catalog
+     * @param sortOrder One of the MovieSorter.ORDER_* values
+     */
+    public void showOrder(final MovieSorter sorter, final int sortOrder) {
+        final int generation = ++orderGeneration;
+        if (sortOrder == MovieSorter.ORDER_CATALOG) {
+            order = null;
+            refreshDisplay();
+            return;
+        }
+        DIFF_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                final MovieSorter.Sections sections = sorter.sort(sortOrder);
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (generation != orderGeneration) {
+                            // A newer order superseded this one
+                            return;
+                        }
+                        order = sections;
+                        refreshDisplay();
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * @return Sorted rows currently shown, null in catalog order
+     */
+    MovieSorter.Sections getOrder() {
+        return order;
+    }
+
+    /**
+     * Show what a previous adapter computed for the same catalog, instead of sorting and
+     * formatting it again; used when the activity is recreated
+     * @param sortedOrder Sorted rows from getOrder(), or null for catalog order
+     * @param models Display models from getDisplayModels(), used only when built for the current configuration
+     */
+    void restore(MovieSorter.Sections sortedOrder, MovieDisplayModels models) {
+        ++orderGeneration;
+        order = sortedOrder;
+        refreshDisplay();
+        // Built for the same list positions, as the list shows the same order
+        if (models != null && pagedMovies == null
+                && models.getLabels().isCurrent(context.getResources().getConfiguration())) {
+            displayModels = models;
+        }
+    }
+
+    /**
+     * Combine the sort order and the search filter into what the list shows
+     */
+    private void refreshDisplay() {
+        int loaded = movies.size();
+        if (order != null) {
+            display = order.filter(searchRows, loaded);
+        } else if (searchRows != null) {
+            int end = insertionPoint(searchRows, loaded);
+            display = MovieSorter.Sections.of(Arrays.copyOf(searchRows, end));
+        } else {
+            display = null;
+        }
+        listVersion++;
+        // Positions show other movies now, rows bound next build the models of their range
+        invalidateDisplayModels();
+        notifyDataSetChanged();
+    }
+
+    /**
+     * Show a paged catalog, rows are rebound as their pages finish loading
+     * @param pagedMovies Paged movie list
+     */
+    public void showPagedMovies(PagedMovieList pagedMovies) {
+        closeQueryResults();
+        showPaged(pagedMovies);
+    }
+
     /**
-     * Update movie list data
-     * @param movies New movie list
+     * Show the movies matching a database query, read from its cursor a page at a time.
+     * Searching and sorting apply to catalog positions and are reset.
+     * @param results Query results, closed when the list shows something else
      */
-    public void updateMovies(List<Movie> movies) {
+    public void showQueryResults(CatalogDatabase.QueryResults results) {
+        closeQueryResults();
+        queryResults = results;
+        showPaged(new PagedMovieList(results));
+    }
+
+    /**
+     * Show the whole catalog again after query results, in catalog order without a search
+     * @param movies Catalog, shown as it is
+     */
+    public void showCatalog(List<Movie> movies) {
+        if (movies instanceof PagedMovieList) {
+            showPagedMovies((PagedMovieList) movies);
+            return;
+        }
+        closeQueryResults();
+        // Query rows are unrelated to catalog rows, there is nothing to diff
+        ++updateGeneration;
+        ++orderGeneration;
         this.movies = movies;
+        pagedMovies = null;
+        searchRows = null;
+        order = null;
+        display = null;
+        listVersion++;
+        invalidateDisplayModels();
         notifyDataSetChanged();
     }
 
+    /**
+     * Close the query results shown, if any; the list must not be bound afterwards
+     */
+    void closeQueryResults() {
+        if (queryResults != null) {
+            queryResults.close();
+            queryResults = null;
+        }
+    }
+
+    private void showPaged(PagedMovieList pagedMovies) {
+        // Paged catalogs are read a page at a time, their rows are formatted as they bind
+        invalidateDisplayModels();
+        ++updateGeneration;
+        listVersion++;
+        ++orderGeneration;
+        this.movies = pagedMovies;
+        this.pagedMovies = pagedMovies;
+        searchRows = null;
+        order = null;
+        display = null;
+        pagedMovies.setListener(new PagedMovieList.Listener() {
+            @Override
+            public void onPageLoaded(int start, int count) {
+                // Sorted and filtered views read movies directly and never wait for pages
+                if (display == null) {
+                    notifyItemRangeChanged(start, count);
+                }
+            }
+        });
+        notifyDataSetChanged();
+    }
+
+    /**
+     * Update movie list data. The difference to the current list is computed in the
+     * background and dispatched as granular insert, remove, move and change notifications.
+     * @param movies New movie list, shown as it is. Its owner may append to a MovieStore and
+     *               call onMoviesAppended; other lists must not change afterwards.
+     */
+    public void updateMovies(final List<Movie> movies) {
+        ++orderGeneration;
+        searchRows = null;
+        order = null;
+        if (display != null) {
+            display = null;
+            listVersion++;
+            notifyDataSetChanged();
+        }
+        pagedMovies = null;
+        closeQueryResults();
+        final int generation = ++updateGeneration;
+        final int version = listVersion;
+
+        // Nothing to compare against, no need for a diff
+        if (this.movies == null || this.movies.isEmpty() || movies.isEmpty()) {
+            int oldSize = getItemCount();
+            this.movies = movies;
+            listVersion++;
+            invalidateDisplayModels();
+            if (oldSize > 0) {
+                notifyItemRangeRemoved(0, oldSize);
+            }
+            if (!movies.isEmpty()) {
+                notifyItemRangeInserted(0, movies.size());
+            }
+            return;
+        }
+
+        // Batches can be appended to the stores while diffing, the diff reads their rows as
+        // they are now; a list that changed meanwhile is diffed again
+        final List<Movie> oldMovies = readable(this.movies);
+        final List<Movie> newMovies = readable(movies);
+        DIFF_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                final DiffUtil.DiffResult result = DiffUtil.calculateDiff(new MovieDiffCallback(oldMovies, newMovies));
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        release(oldMovies);
+                        release(newMovies);
+                        if (generation != updateGeneration) {
+                            // A newer update superseded this one
+                            return;
+                        }
+                        if (version != listVersion || newMovies.size() != movies.size()) {
+                            // Movies were appended while diffing, diff against the current list
+                            updateMovies(movies);
+                            return;
+                        }
+                        MovieAdapter.this.movies = movies;
+                        listVersion++;
+                        invalidateDisplayModels();
+                        result.dispatchUpdatesTo(MovieAdapter.this);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Show movies the list's owner appended to its end
+     * @param count Number of movies appended
+     */
+    public void onMoviesAppended(int count) {
+        listVersion++;
+        if (display == null) {
+            notifyItemRangeInserted(movies.size() - count, count);
+        }
+    }
+
+    /**
+     * Show the changes of a delta already applied to the catalog. In catalog order only the
+     * affected positions are notified; a sorted or filtered list keeps its rows in range
+     * until the caller sorts or searches again.
+     * @param result Positions the delta changed
+     */
+    public void applyDelta(CatalogDelta.Result result) {
+        // Any diff still running compares against the list before the delta
+        ++updateGeneration;
+        listVersion++;
+        // A window being built read the catalog before the delta, the current one follows it
+        ++modelsGeneration;
+        pendingModelsStart = pendingModelsEnd = 0;
+        if (displayModels != null) {
+            displayModels.applyDelta(movies, result, display == null, posterResolver);
+        }
+        if (display != null) {
+            refreshDisplay();
+            return;
+        }
+        int[] removed = result.getRemovedRows();
+        // From the end, so each position is still numbered as before the delta
+        for (int i = removed.length - 1; i >= 0; i--) {
+            notifyItemRemoved(removed[i]);
+        }
+        for (int row : result.getChangedRows()) {
+            notifyItemChanged(row);
+        }
+        if (result.getInsertedCount() > 0) {
+            notifyItemRangeInserted(result.getInsertedStart(), result.getInsertedCount());
+        }
+    }
+
+    /**
+     * Build the models of the positions around one being bound in the background, unless
+     * the current or pending ones cover it with MODEL_MARGIN positions to scroll either way
+     * @param position List position being bound
+     * @param slot Its slot in the current models, -1 when they have none for it
+     */
+    private void prepareModels(int position, int slot) {
+        if (pagedMovies != null) {
+            // Paged catalogs are read a page at a time, their rows are formatted as they bind
+            return;
+        }
+        int itemCount = getItemCount();
+        MovieDisplayModels models = displayModels;
+        if ((slot >= 0 && covers(models.getStart(), models.getEnd(), position, itemCount))
+                || covers(pendingModelsStart, pendingModelsEnd, position, itemCount)) {
+            return;
+        }
+        final int start = Math.max(0, Math.min(position - MODEL_WINDOW / 2, itemCount - MODEL_WINDOW));
+        final int end = Math.min(itemCount, start + MODEL_WINDOW);
+        pendingModelsStart = start;
+        pendingModelsEnd = end;
+        final int generation = modelsGeneration;
+        // Batches appended meanwhile are past the range's rows, deltas invalidate the build
+        final List<Movie> catalog = readable(movies);
+        final MovieSorter.Sections shown = display;
+        final MovieDisplayModels.Labels current = labels;
+        DIFF_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                final MovieDisplayModels built = MovieDisplayModels.build(catalog, shown, start, end, current,
+                        posterResolver);
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        release(catalog);
+                        if (generation != modelsGeneration) {
+                            return;
+                        }
+                        displayModels = built;
+                        if (pendingModelsStart == start && pendingModelsEnd == end) {
+                            pendingModelsStart = pendingModelsEnd = 0;
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    private static boolean covers(int start, int end, int position, int itemCount) {
+        return position >= start && position < end
+                && (position - start >= MODEL_MARGIN || start == 0)
+                && (end - position > MODEL_MARGIN || end >= itemCount);
+    }
+
+    /**
+     * @return Models currently used for binding, null while none are ready
+     */
+    MovieDisplayModels getDisplayModels() {
+        return displayModels;
+    }
+
+    private void invalidateDisplayModels() {
+        ++modelsGeneration;
+        displayModels = null;
+        pendingModelsStart = pendingModelsEnd = 0;
+    }
+
+    /**
+     * @return The list's rows as they are now, for reading in the background; a store's
+     *         snapshot takes no copy, other lists do not change while shown
+     */
+    private static List<Movie> readable(List<Movie> movies) {
+        return movies instanceof MovieStore ? ((MovieStore) movies).snapshot() : movies;
+    }
+
+    /**
+     * Let a store skip copying its rows when they next change, once a snapshot of it is read
+     */
+    private static void release(List<Movie> movies) {
+        if (movies instanceof MovieStore) {
+            ((MovieStore) movies).release();
+        }
+    }
+
+    private static int insertionPoint(int[] rows, int row) {
+        int index = Arrays.binarySearch(rows, row);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    /**
+     * Compares movie lists by stable id for identity and by displayed content for changes
+     */
+    static class MovieDiffCallback extends DiffUtil.Callback {
+        private final List<Movie> oldMovies;
+        private final List<Movie> newMovies;
+
+        MovieDiffCallback(List<Movie> oldMovies, List<Movie> newMovies) {
+            this.oldMovies = oldMovies;
+            this.newMovies = newMovies;
+        }
+
+        @Override
+        public int getOldListSize() {
+            return oldMovies.size();
+        }
+
+        @Override
+        public int getNewListSize() {
+            return newMovies.size();
+        }
+
+        @Override
+        public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+            return oldMovies.get(oldItemPosition).getId() == newMovies.get(newItemPosition).getId();
+        }
+
+        @Override
+        public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+            return oldMovies.get(oldItemPosition).hasSameContent(newMovies.get(newItemPosition));
+        }
+    }
+
+    /**
+     * Section header ViewHolder, shows the year or genre of the movies below it
+     */
+    static class HeaderViewHolder extends RecyclerView.ViewHolder {
+        TextView textViewSection;
+
+        public HeaderViewHolder(@NonNull View itemView) {
+            super(itemView);
+            textViewSection = itemView.findViewById(R.id.textViewSection);
+        }
+    }
+
     /**
      * Movie ViewHolder class, holds views in list items
      */
@@ -235,4 +746,27 @@ public class MovieAdapter extends RecyclerView.Adapter<MovieAdapter.MovieViewHol
             textViewGenre = itemView.findViewById(R.id.textViewGenre);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Movie row ViewHolder for the custom-drawn row, nothing is inflated or looked up
+     */
+    static class FlatMovieViewHolder extends RecyclerView.ViewHolder {
+        final MovieRowView row;
+
+        FlatMovieViewHolder(@NonNull MovieRowView row) {
+            super(row);
+            this.row = row;
+        }
+
+        static FlatMovieViewHolder create(ViewGroup parent) {
+            MovieRowView row = new MovieRowView(parent.getContext());
+            // Same margins as the card of item_movie.xml
+            int margin = parent.getResources().getDimensionPixelSize(R.dimen.movie_row_margin);
+            RecyclerView.LayoutParams params = new RecyclerView.LayoutParams(
+                    ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.WRAP_CONTENT);
+            params.setMargins(margin, margin, margin, margin);
+            row.setLayoutParams(params);
+            return new FlatMovieViewHolder(row);
+        }
+    }
+}
@@ -0,0 +1,329 @@
+package com.example.myapplication;
+
+import android.content.res.Configuration;
+import android.content.res.Resources;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * What a range of list positions shows: the final text of each movie's title, year and
+ * genre, which of them are errors, and its poster drawable. Computed in the background
+ * for the positions around the ones being bound, so binding a row only assigns values,
+ * and memory stays proportional to the range rather than the catalog. Year and genre
+ * labels repeat across the catalog; each distinct label is formatted once and shared.
+ * Models are built for one configuration and must be rebuilt when its locale changes.
+ */
+public class MovieDisplayModels {
+    // Fields shown in the error colour
+    static final int ERROR_TITLE = 1;
+    static final int ERROR_YEAR = 1 << 1;
+    static final int ERROR_GENRE = 1 << 2;
+
+    // Catalog position of a slot without a movie, a header or a row not loaded yet
+    private static final int NO_ROW = -1;
+
+    private final Labels labels;
+    private int start;
+    // Catalog position each slot was built from, a slot only serves the position it was built for
+    private final int[] rows;
+    private final String[] titles;
+    private final String[] years;
+    private final String[] genres;
+    private final int[] posterIds;
+    private final byte[] errors;
+
+    private MovieDisplayModels(Labels labels, int start, int size) {
+        this.labels = labels;
+        this.start = start;
+        rows = new int[size];
+        titles = new String[size];
+        years = new String[size];
+        genres = new String[size];
+        posterIds = new int[size];
+        errors = new byte[size];
+    }
+
+    /**
+     * Compute the models of a range of list positions, on a background thread
+     * @param movies Catalog, not modified while building
+     * @param display Catalog positions of the list positions, null when they are the same
+     * @param start First list position
+     * @param end Position after the last one
+     * @param labels Labels of the current configuration
+     * @param posterResolver Poster name resolution
+     * @return Models of positions start to end - 1
+     */
+    static MovieDisplayModels build(List<Movie> movies, MovieSorter.Sections display, int start, int end,
+                                    Labels labels, PosterResolver posterResolver) {
+        MovieDisplayModels models = new MovieDisplayModels(labels, start, end - start);
+        int loaded = movies.size();
+        for (int slot = 0; slot < models.rows.length; slot++) {
+            int position = start + slot;
+            int row = display == null ? position : display.isHeader(position) ? NO_ROW : display.getRow(position);
+            if (row == NO_ROW || row >= loaded) {
+                models.rows[slot] = NO_ROW;
+                continue;
+            }
+            models.rows[slot] = row;
+            models.set(slot, movies.get(row), posterResolver);
+        }
+        return models;
+    }
+
+    private void set(int slot, Movie movie, PosterResolver posterResolver) {
+        titles[slot] = labels.titleText(movie);
+        years[slot] = labels.yearText(movie);
+        genres[slot] = labels.genreText(movie);
+        posterIds[slot] = posterResolver.getPosterId(movie);
+        errors[slot] = (byte) labels.errorFields(movie);
+    }
+
+    /**
+     * Follow a delta applied to the catalog, on the main thread: slots of removed movies are
+     * dropped, the others renumbered, and those of updated movies formatted again. In
+     * catalog order the remaining slots close up behind their rows; in other orders a slot
+     * whose movie moved to another position stops matching it.
+     * @param movies Catalog after the delta
+     * @param result Positions the delta changed
+     * @param catalogOrder true when list positions are catalog positions
+     * @param posterResolver Poster name resolution
+     */
+    void applyDelta(List<Movie> movies, CatalogDelta.Result result, boolean catalogOrder,
+                    PosterResolver posterResolver) {
+        int[] removed = result.getRemovedRows();
+        if (removed.length > 0) {
+            for (int slot = 0; slot < rows.length; slot++) {
+                if (rows[slot] != NO_ROW) {
+                    int found = Arrays.binarySearch(removed, rows[slot]);
+                    // Not found, -found - 1 removed rows are before it
+                    rows[slot] = found >= 0 ? NO_ROW : rows[slot] + found + 1;
+                }
+            }
+            if (catalogOrder) {
+                int kept = 0;
+                for (int slot = 0; slot < rows.length; slot++) {
+                    if (rows[slot] != NO_ROW) {
+                        move(slot, kept++);
+                    }
+                }
+                Arrays.fill(rows, kept, rows.length, NO_ROW);
+                int found = Arrays.binarySearch(removed, start);
+                start -= found >= 0 ? found : -found - 1;
+            }
+        }
+        int[] changed = result.getChangedRows();
+        if (changed.length > 0) {
+            for (int slot = 0; slot < rows.length; slot++) {
+                if (rows[slot] != NO_ROW && Arrays.binarySearch(changed, rows[slot]) >= 0) {
+                    set(slot, movies.get(rows[slot]), posterResolver);
+                }
+            }
+        }
+    }
+
+    private void move(int from, int to) {
+        if (from != to) {
+            rows[to] = rows[from];
+            titles[to] = titles[from];
+            years[to] = years[from];
+            genres[to] = genres[from];
+            posterIds[to] = posterIds[from];
+            errors[to] = errors[from];
+        }
+    }
+
+    /**
+     * @param position List position
+     * @param row Catalog position the list position shows now
+     * @return Slot of the position's model, or -1 when the range has none for that movie
+     */
+    int slot(int position, int row) {
+        int slot = position - start;
+        return slot >= 0 && slot < rows.length && rows[slot] == row ? slot : -1;
+    }
+
+    /**
+     * @return First list position of the range
+     */
+    int getStart() {
+        return start;
+    }
+
+    /**
+     * @return Position after the last one of the range
+     */
+    int getEnd() {
+        return start + rows.length;
+    }
+
+    public Labels getLabels() {
+        return labels;
+    }
+
+    String getTitle(int slot) {
+        return titles[slot];
+    }
+
+    String getYear(int slot) {
+        return years[slot];
+    }
+
+    String getGenre(int slot) {
+        return genres[slot];
+    }
+
+    int getPosterId(int slot) {
+        return posterIds[slot];
+    }
+
+    /**
+     * @return ERROR_* bits of the fields to show in the error colour
+     */
+    int getErrors(int slot) {
+        return errors[slot];
+    }
+
+    /**
+     * Display strings and colours of one configuration. Distinct year and genre labels are
+     * formatted on first use and kept, so formatting a whole catalog formats each one once.
+     * Thread-safe, models are built in the background while rows bind on the main thread.
+     */
+    public static class Labels {
+        // Years from 0 to this are labelled through an array, others are rare enough to format each time
+        private static final int MAX_INDEXED_YEAR = 4095;
+
+        private final Locale locale;
+        private final int uiMode;
+        private final String titlePlaceholder;
+        private final String yearPlaceholder;
+        private final String yearError;
+        private final String genreError;
+        private final String yearFormat;
+        private final String yearErrorFormat;
+        private final String genreFormat;
+        private final int textColor;
+        private final int errorColor;
+
+        private final String[] yearLabels = new String[MAX_INDEXED_YEAR + 1];
+        private final Map<Integer, String> yearErrorLabels = new HashMap<>();
+        private final Map<String, String> genreLabels = new HashMap<>();
+
+        /**
+         * Resolve the strings and colours of the resources' current configuration
+         * @param resources Resources
+         */
+        @SuppressWarnings("deprecation")
+        public Labels(Resources resources) {
+            this(resources.getConfiguration().locale, resources.getConfiguration().uiMode,
+                    resources.getString(R.string.title_placeholder),
+                    resources.getString(R.string.year_placeholder),
+                    resources.getString(R.string.year_error),
+                    resources.getString(R.string.genre_error),
+                    resources.getString(R.string.year_label),
+                    resources.getString(R.string.year_error_format),
+                    resources.getString(R.string.genre_label),
+                    resources.getColor(android.R.color.black),
+                    resources.getColor(android.R.color.holo_red_dark));
+        }
+
+        Labels(Locale locale, int uiMode, String titlePlaceholder, String yearPlaceholder, String yearError,
+               String genreError, String yearFormat, String yearErrorFormat, String genreFormat,
+               int textColor, int errorColor) {
+            this.locale = locale;
+            this.uiMode = uiMode;
+            this.titlePlaceholder = titlePlaceholder;
+            this.yearPlaceholder = yearPlaceholder;
+            this.yearError = yearError;
+            this.genreError = genreError;
+            this.yearFormat = yearFormat;
+            this.yearErrorFormat = yearErrorFormat;
+            this.genreFormat = genreFormat;
+            this.textColor = textColor;
+            this.errorColor = errorColor;
+        }
+
+        /**
+         * @return false when the configuration changed in a way that changes the labels or colours
+         */
+        @SuppressWarnings("deprecation")
+        public boolean isCurrent(Configuration configuration) {
+            return locale.equals(configuration.locale) && uiMode == configuration.uiMode;
+        }
+
+        public int getTextColor() {
+            return textColor;
+        }
+
+        public int getErrorColor() {
+            return errorColor;
+        }
+
+        String titleText(Movie movie) {
+            return movie.hasTitleError() ? titlePlaceholder : movie.getTitle();
+        }
+
+        String yearText(Movie movie) {
+            int year = movie.getYearValue();
+            if (movie.hasYearError()) {
+                // A year with a format error, like a negative or decimal one, still shows its value
+                return year != MovieStore.NO_YEAR ? yearErrorLabel(year) : yearError;
+            }
+            return year != MovieStore.NO_YEAR ? yearLabel(year) : yearPlaceholder;
+        }
+
+        String genreText(Movie movie) {
+            if (movie.hasGenreError() || movie.getGenre() == null) {
+                return genreError;
+            }
+            return genreLabel(movie.getGenre());
+        }
+
+        int errorFields(Movie movie) {
+            int fields = 0;
+            if (movie.hasTitleError()) {
+                fields |= ERROR_TITLE;
+            }
+            if (movie.hasYearError() || movie.getYearValue() == MovieStore.NO_YEAR) {
+                fields |= ERROR_YEAR;
+            }
+            if (movie.hasGenreError() || movie.getGenre() == null) {
+                fields |= ERROR_GENRE;
+            }
+            return fields;
+        }
+
+        private synchronized String yearLabel(int year) {
+            if (year < 0 || year > MAX_INDEXED_YEAR) {
+                return String.format(locale, yearFormat, year);
+            }
+            String label = yearLabels[year];
+            if (label == null) {
+                label = String.format(locale, yearFormat, year);
+                yearLabels[year] = label;
+            }
+            return label;
+        }
+
+        private synchronized String yearErrorLabel(int year) {
+            String label = yearErrorLabels.get(year);
+            if (label == null) {
+                label = String.format(locale, yearErrorFormat, year);
+                yearErrorLabels.put(year, label);
+            }
+            return label;
+        }
+
+        private synchronized String genreLabel(String genre) {
+            String label = genreLabels.get(genre);
+            if (label == null) {
+                label = String.format(locale, genreFormat, genre);
+                genreLabels.put(genre, label);
+            }
+            return label;
+        }
+    }
+}
@@ -0,0 +1,632 @@
+package com.example.myapplication;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Asynchronous movie catalog loader, parses the catalog on a background thread
+ * and delivers movies to the main thread in batches while loading continues
+ */
+public class MovieLoader {
+    private static final String TAG = "MovieLoader";
+
+    // The first batch only needs to fill one screen, later batches amortize main thread posts
+    private static final int FIRST_BATCH_SIZE = 12;
+    private static final int BATCH_SIZE = 256;
+    // Rows indexed per lock of the catalog overlay
+    private static final int INDEX_RANGE = 4096;
+    // Cache subdirectory of the last downloaded delta, apart from the remote catalog's copy
+    private static final String DELTA_DIRECTORY = "catalog-delta";
+
+    // Small bounded pool shared by all loaders; extra requests are rejected rather than queued forever
+    private static final ThreadPoolExecutor EXECUTOR = new ThreadPoolExecutor(
+            1, 2, 30, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(4), new LoaderThreadFactory());
+
+    static {
+        EXECUTOR.allowCoreThreadTimeOut(true);
+    }
+
+    // Indexes compiled catalogs on first use, on its own thread so a database import still
+    // running on the loader does not delay the first search
+    private static final Executor INDEX_EXECUTOR = Executors.newSingleThreadExecutor(new LoaderThreadFactory());
+
+    /**
+     * Receives loading progress on the main thread
+     */
+    public interface Callback {
+        /**
+         * A batch of parsed movies, in catalog order
+         */
+        void onMoviesLoaded(List<Movie> batch);
+
+        /**
+         * The catalog supports random access and is shown as a paged list instead of batches
+         */
+        void onPagedCatalogReady(PagedMovieList movies);
+
+        /**
+         * Loading finished, called once after the last batch
+         */
+        void onLoadComplete(Summary summary);
+
+        /**
+         * Loading failed, movies delivered before the failure remain valid
+         */
+        void onLoadFailed(RuntimeException e);
+
+        /**
+         * The search index and sort keys asked for by requestIndex() are complete
+         */
+        void onIndexReady();
+
+        /**
+         * Changes published since the catalog, already applied to the database, to apply
+         * to the loaded catalog; called after onLoadComplete
+         */
+        void onDeltaReady(CatalogDelta delta);
+    }
+
+    /**
+     * Record accounting, validation outcome and diagnostics of a load; the error counts
+     * are read from the diagnostics
+     */
+    public static class Summary {
+        private final JsonUtils.LoadStats stats;
+        private final ValidationReport report;
+        private final LoadDiagnostics diagnostics;
+
+        Summary(JsonUtils.LoadStats stats, ValidationReport report, LoadDiagnostics diagnostics) {
+            this.stats = stats;
+            this.report = report;
+            this.diagnostics = diagnostics;
+        }
+
+        public int getMovieCount() {
+            return stats.getSuccessful();
+        }
+
+        public JsonUtils.LoadStats getStats() {
+            return stats;
+        }
+
+        public ValidationReport getValidationReport() {
+            return report;
+        }
+
+        public LoadDiagnostics getDiagnostics() {
+            return diagnostics;
+        }
+
+        public int getTitleErrorCount() {
+            return diagnostics.getCount(LoadDiagnostics.KIND_TITLE);
+        }
+
+        public int getYearErrorCount() {
+            return diagnostics.getCount(LoadDiagnostics.KIND_YEAR);
+        }
+
+        public int getGenreErrorCount() {
+            return diagnostics.getCount(LoadDiagnostics.KIND_GENRE);
+        }
+
+        public int getPosterErrorCount() {
+            return diagnostics.getCount(LoadDiagnostics.KIND_POSTER);
+        }
+
+        public int getTotalErrorCount() {
+            return diagnostics.getErrorCount();
+        }
+    }
+
+    private final Context context;
+    private final PosterResolver posterResolver;
+    private final MovieSearchIndex searchIndex = new MovieSearchIndex();
+    private final MovieSorter sorter = new MovieSorter();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private volatile Callback callback;
+    private volatile boolean cancelled;
+    // Compiled catalog whose search index and sort keys are not built yet, null once they are
+    private volatile CatalogOverlay unindexedCatalog;
+    // requestIndex() started building them, main thread only
+    private boolean indexing;
+    private Future<?> future;
+    private long startTime;
+
+    /**
+     * Constructor
+     * @param context Context, only the application context is retained
+     * @param callback Receives progress on the main thread
+     */
+    public MovieLoader(Context context, Callback callback) {
+        this.context = context.getApplicationContext();
+        this.posterResolver = PosterResolver.getInstance(context);
+        this.callback = callback;
+    }
+
+    /**
+     * Search index over the movies loaded so far, filled in as a parsed catalog loads, or
+     * after requestIndex() for a compiled catalog
+     * @return Search index, rows are catalog positions
+     */
+    public MovieSearchIndex getSearchIndex() {
+        return searchIndex;
+    }
+
+    /**
+     * Sort keys of the movies loaded so far, filled in as a parsed catalog loads, or after
+     * requestIndex() for a compiled catalog
+     * @return Sorter, rows are catalog positions
+     */
+    public MovieSorter getSorter() {
+        return sorter;
+    }
+
+    /**
+     * Make sure search and sort can run. A parsed catalog is indexed while it loads; a
+     * compiled catalog is only indexed the first time it is searched or sorted, since most
+     * starts do neither, and Callback.onIndexReady follows once it is. Main thread only.
+     * @return true when the search index and sort keys are complete
+     */
+    public boolean requestIndex() {
+        final CatalogOverlay catalog = unindexedCatalog;
+        if (catalog == null) {
+            return true;
+        }
+        if (!indexing) {
+            indexing = true;
+            INDEX_EXECUTOR.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        index(catalog);
+                    } catch (CancellationException e) {
+                        Log.i(TAG, "Catalog indexing cancelled");
+                        return;
+                    }
+                    mainHandler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            unindexedCatalog = null;
+                            indexing = false;
+                            Callback target = callback;
+                            if (!cancelled && target != null) {
+                                target.onIndexReady();
+                            }
+                        }
+                    });
+                }
+            });
+        }
+        return false;
+    }
+
+    /**
+     * @return false while a compiled catalog has no search index and sort keys, a delta
+     *         then changes its rows only and they are indexed with the change
+     */
+    public boolean isIndexed() {
+        return unindexedCatalog == null;
+    }
+
+    /**
+     * @return true while requestIndex() is building the index from the catalog rows,
+     *         which must not change until onIndexReady. Main thread only.
+     */
+    public boolean isIndexing() {
+        return indexing;
+    }
+
+    /**
+     * Build the search index and sort keys of a compiled catalog, on the index thread
+     * @param catalog Compiled catalog with its deltas, none of its rows indexed yet
+     */
+    private void index(CatalogOverlay catalog) {
+        long start = System.nanoTime();
+        int size = catalog.size();
+        // In ranges, so page loads are not held up for the whole catalog
+        for (int row = 0; row < size; row += INDEX_RANGE) {
+            if (cancelled) {
+                throw new CancellationException();
+            }
+            catalog.index(row, Math.min(size, row + INDEX_RANGE), searchIndex, sorter);
+        }
+        AppLog.i(TAG, "Indexed ", size, " movies in ", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+                " ms");
+    }
+
+    /**
+     * Start loading in the background
+     */
+    public void start() {
+        startTime = System.nanoTime();
+        try {
+            future = EXECUTOR.submit(new Runnable() {
+                @Override
+                public void run() {
+                    load();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            Log.e(TAG, "Loader queue is full: " + e.getMessage());
+            deliverFailure(new RuntimeException("Too many pending catalog loads", e));
+        }
+    }
+
+    /**
+     * Stop loading and drop any results not yet delivered, safe to call more than once
+     */
+    public void cancel() {
+        cancelled = true;
+        callback = null;
+        if (future != null) {
+            future.cancel(true);
+        }
+        mainHandler.removeCallbacksAndMessages(null);
+    }
+
+    private void load() {
+        try {
+            loadCatalog();
+            loadDelta();
+        } catch (CancellationException e) {
+            Log.i(TAG, "Movie data loading cancelled");
+        } catch (RuntimeException e) {
+            deliverFailure(e);
+        }
+    }
+
+    /**
+     * Load the catalog and import it into the database
+     */
+    private void loadCatalog() {
+        // A configured server has the current catalog, the bundled one is only a fallback
+        RemoteCatalogSource remote = remoteCatalog();
+        if (remote != null && loadRemote(remote)) {
+            return;
+        }
+        // Prefer the catalog compiled at build time, then a snapshot of an earlier parse,
+        // and parse the JSON only when neither matches it
+        BinaryCatalog catalog = BinaryCatalog.open(context);
+        if (catalog != null) {
+            deliverSummary(loadPaged(catalog));
+            importIntoDatabase(catalog, catalog.checksum());
+            return;
+        }
+        // Parser threads split the mapped asset in place; a compressed asset is streamed instead
+        ByteBuffer json = JsonUtils.mapCatalog(context);
+        long checksum = json != null ? CatalogSnapshot.checksum(json) : JsonUtils.streamChecksum(context);
+        File snapshotDirectory = context.getCacheDir();
+        BinaryCatalog snapshot = CatalogSnapshot.open(snapshotDirectory, checksum);
+        if (snapshot != null) {
+            AppLog.i(TAG, "Loading catalog snapshot of ", snapshot.size(), " movies");
+            deliverSummary(loadPaged(snapshot));
+            importIntoDatabase(snapshot, checksum);
+            return;
+        }
+
+        BinaryCatalog.Writer snapshotWriter = new BinaryCatalog.Writer();
+        BatchingConsumer consumer = new BatchingConsumer(snapshotWriter);
+        JsonUtils.LoadStats stats = json != null
+                ? JsonUtils.streamMoviesParallel(json, consumer, ValidationEngine.getDefault())
+                : JsonUtils.streamMovies(context, consumer, ValidationEngine.getDefault());
+        consumer.flush();
+        deliverSummary(new Summary(stats, stats.getValidationReport(), stats.getDiagnostics()));
+
+        importIntoDatabase(writeSnapshot(checksum, snapshotWriter, stats), checksum);
+    }
+
+    /**
+     * Fetch the changes published since the catalog, when a delta URL is configured. They
+     * are applied to the database here and handed to the UI for the catalog on screen;
+     * the delta is fetched again on every load, so both start from the catalog each time.
+     */
+    private void loadDelta() {
+        String url = context.getString(R.string.catalog_delta_url);
+        if (url.isEmpty() || cancelled) {
+            return;
+        }
+        File directory = new File(context.getCacheDir(), DELTA_DIRECTORY);
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            Log.e(TAG, "Cannot create " + directory);
+            return;
+        }
+        final CatalogDelta delta;
+        try (RemoteCatalogSource.Response response = new RemoteCatalogSource(new URL(url), directory).open()) {
+            delta = CatalogDelta.parse(response.getBody(), ValidationEngine.getDefault());
+            response.commit();
+        } catch (IOException | IllegalStateException e) {
+            // Not a delta document, or unreachable without a copy; the catalog stays as loaded
+            Log.w(TAG, "Catalog delta unavailable: " + e.getMessage());
+            return;
+        }
+        try {
+            CatalogDatabase.getInstance(context).applyDelta(delta);
+        } catch (CancellationException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            // Queries miss the changes, the list still gets them
+            Log.e(TAG, "Cannot apply catalog delta to the database: " + e.getMessage());
+        }
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                Callback target = callback;
+                if (!cancelled && target != null) {
+                    target.onDeltaReady(delta);
+                }
+            }
+        });
+    }
+
+    /**
+     * Remote catalog configured for the app
+     * @return Source, or null when no catalog URL is configured and the bundled catalog is used
+     */
+    private RemoteCatalogSource remoteCatalog() {
+        String url = context.getString(R.string.catalog_url);
+        if (url.isEmpty()) {
+            return null;
+        }
+        try {
+            return new RemoteCatalogSource(new URL(url), context.getCacheDir());
+        } catch (MalformedURLException e) {
+            throw new RuntimeException("Invalid catalog URL " + url, e);
+        }
+    }
+
+    /**
+     * Load the catalog from the server, or from the copy of the last download when it is
+     * unchanged or the server is unreachable
+     * @param remote Remote catalog
+     * @return false when neither is available and the bundled catalog should be loaded
+     */
+    private boolean loadRemote(RemoteCatalogSource remote) {
+        RemoteCatalogSource.Response response;
+        try {
+            response = remote.open();
+        } catch (IOException e) {
+            Log.w(TAG, "Remote catalog unavailable, using the bundled catalog: " + e.getMessage());
+            return false;
+        }
+        try (RemoteCatalogSource.Response body = response) {
+            if (body.getSource() == RemoteCatalogSource.SOURCE_OFFLINE) {
+                Log.w(TAG, "Remote catalog unavailable, using the last download: " + body.getFailure().getMessage());
+            }
+            if (body.getSource() != RemoteCatalogSource.SOURCE_NETWORK) {
+                // Unchanged since the last download, which was most likely snapshotted
+                BinaryCatalog snapshot = CatalogSnapshot.open(context.getCacheDir(), body.getChecksum());
+                if (snapshot != null) {
+                    deliverSummary(loadPaged(snapshot));
+                    importIntoDatabase(snapshot, body.getChecksum());
+                    return true;
+                }
+            }
+
+            // Parsed as it downloads, a single stream cannot be split across cores
+            BinaryCatalog.Writer snapshotWriter = new BinaryCatalog.Writer();
+            BatchingConsumer consumer = new BatchingConsumer(snapshotWriter);
+            JsonUtils.LoadStats stats = JsonUtils.streamMovies(body, consumer, ValidationEngine.getDefault());
+            consumer.flush();
+            deliverSummary(new Summary(stats, stats.getValidationReport(), stats.getDiagnostics()));
+            importIntoDatabase(writeSnapshot(body.getChecksum(), snapshotWriter, stats), body.getChecksum());
+        } catch (IOException e) {
+            Log.e(TAG, "Cannot close remote catalog: " + e.getMessage());
+        }
+        return true;
+    }
+
+    /**
+     * Write the snapshot of a parsed catalog. The movies are on screen already, the
+     * snapshot speeds up the next start and feeds the database import.
+     * @return The written snapshot, or null when it was not written
+     */
+    private BinaryCatalog writeSnapshot(long checksum, BinaryCatalog.Writer snapshotWriter, JsonUtils.LoadStats stats) {
+        if (cancelled || !CatalogSnapshot.write(context.getCacheDir(), checksum, snapshotWriter, stats)) {
+            return null;
+        }
+        AppLog.i(TAG, "Wrote catalog snapshot of ", snapshotWriter.size(), " movies");
+        return CatalogSnapshot.open(context.getCacheDir(), checksum);
+    }
+
+    /**
+     * Bring the queryable copy of the catalog up to date, after the movies are on screen.
+     * Only the first start with a new catalog imports, an interrupted import resumes.
+     * @param rows Compiled rows of the catalog on screen, null when there are none to import from
+     * @param checksum Checksum identifying the catalog
+     */
+    private void importIntoDatabase(BinaryCatalog rows, long checksum) {
+        if (cancelled) {
+            return;
+        }
+        if (rows == null) {
+            Log.w(TAG, "No catalog snapshot, the database is imported on a later start");
+            return;
+        }
+        try {
+            CatalogDatabase.getInstance(context).importCatalog(rows, checksum);
+        } catch (CancellationException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            // Queries are unavailable, the list itself loaded fine
+            Log.e(TAG, "Cannot import catalog into the database: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Hand a random-access catalog to the UI as a paged list, only the error flags are scanned here
+     * @param catalog Compiled catalog
+     * @return Load summary
+     */
+    private Summary loadPaged(final BinaryCatalog catalog) {
+        // Read through an overlay, so catalog deltas can change the mapped rows
+        final CatalogOverlay overlay = new CatalogOverlay(catalog) {
+            @Override
+            public Movie get(int index) {
+                Movie movie = super.get(index);
+                if (movie != null) {
+                    // Resolve the drawable here so binding the row is only a cache lookup
+                    posterResolver.getPosterId(movie);
+                }
+                return movie;
+            }
+        };
+        final PagedMovieList movies = new PagedMovieList(overlay);
+        unindexedCatalog = overlay;
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                Callback target = callback;
+                if (!cancelled && target != null) {
+                    recordCatalogReady();
+                    target.onPagedCatalogReady(movies);
+                }
+            }
+        });
+
+        // Records were validated when the catalog was compiled, rebuild the report and
+        // diagnostics from their flags; skipped records were not kept, so only their count is known
+        ValidationReport report = ValidationEngine.getDefault().newReport();
+        LoadDiagnostics diagnostics = new LoadDiagnostics();
+        for (int i = 0; i < catalog.size(); i++) {
+            if (cancelled) {
+                throw new CancellationException();
+            }
+            int flags = catalog.getFlags(i);
+            int failures = flags & BinaryCatalog.ERROR_FLAGS;
+            report.add(failures);
+            while (failures != 0) {
+                int rule = Integer.numberOfTrailingZeros(failures);
+                failures &= failures - 1;
+                diagnostics.add(LoadDiagnostics.KIND_TITLE + rule, i + 1, null);
+            }
+        }
+        JsonUtils.LoadStats stats = catalog.getStats();
+        diagnostics.logSummary("compiled catalog", stats);
+        return new Summary(stats, report, diagnostics);
+    }
+
+    private void deliverSummary(final Summary summary) {
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                Callback target = callback;
+                if (!cancelled && target != null) {
+                    target.onLoadComplete(summary);
+                }
+            }
+        });
+    }
+
+    /**
+     * Record how long the first movies took to reach the UI since start()
+     */
+    private void recordCatalogReady() {
+        Metrics.CATALOG_READY.recordSince(startTime);
+    }
+
+    private void deliverFailure(final RuntimeException e) {
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                Callback target = callback;
+                if (!cancelled && target != null) {
+                    target.onLoadFailed(e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Collects parsed movies into batches, indexes them for search and sorting and
+     * copies them into the snapshot of the catalog
+     */
+    private class BatchingConsumer implements JsonUtils.MovieConsumer {
+        private final BinaryCatalog.Writer snapshotWriter;
+        // Column-wise, the parsed movies are copied in and the standalone ones dropped
+        private MovieStore batch = new MovieStore(FIRST_BATCH_SIZE);
+        private int batchLimit = FIRST_BATCH_SIZE;
+        private int row;
+        private boolean delivered;
+
+        BatchingConsumer(BinaryCatalog.Writer snapshotWriter) {
+            this.snapshotWriter = snapshotWriter;
+        }
+
+        @Override
+        public void accept(Movie movie) {
+            if (cancelled || Thread.currentThread().isInterrupted()) {
+                throw new CancellationException();
+            }
+            if (!movie.hasPosterError()) {
+                // Resolve the drawable here so binding the row is only a cache lookup
+                posterResolver.getPosterId(movie);
+            }
+            String genre = movie.hasGenreError() ? null : movie.getGenre();
+            searchIndex.add(row++, movie.getTitle(), genre);
+            sorter.add(movie.getTitle(), movie.hasTitleError(), movie.getYearValue(), movie.hasYearError(), genre);
+            snapshotWriter.add(movie);
+            batch.add(movie);
+            if (batch.size() >= batchLimit) {
+                flush();
+                batchLimit = BATCH_SIZE;
+            }
+        }
+
+        void flush() {
+            if (batch.isEmpty()) {
+                return;
+            }
+            final List<Movie> movies = batch;
+            final boolean first = !delivered;
+            delivered = true;
+            batch = new MovieStore(BATCH_SIZE);
+            mainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    Callback target = callback;
+                    if (!cancelled && target != null) {
+                        if (first) {
+                            recordCatalogReady();
+                        }
+                        target.onMoviesLoaded(movies);
+                    }
+                }
+            });
+        }
+    }
+
+    private static class LoaderThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(final Runnable runnable) {
+            return new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                    runnable.run();
+                }
+            }, "MovieLoader-" + count.incrementAndGet());
+        }
+    }
+}
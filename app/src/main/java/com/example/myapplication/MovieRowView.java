@@ -0,0 +1,244 @@
+package com.example.myapplication;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Outline;
+import android.graphics.Paint;
+import android.graphics.RectF;
+import android.graphics.Typeface;
+import android.graphics.drawable.Drawable;
+import android.text.TextPaint;
+import android.text.TextUtils;
+import android.view.View;
+import android.view.ViewOutlineProvider;
+import android.view.accessibility.AccessibilityNodeInfo;
+
+/**
+ * Movie row drawn by a single view: the poster and the title, year and genre lines of
+ * item_movie.xml on a rounded card, without inflating or laying out child views.
+ * Every row has the same height for a given configuration, so measuring does not
+ * depend on the movie. Lines that do not fit the width are ellipsized.
+ */
+public class MovieRowView extends View implements PosterLoader.Target {
+    private final int padding;
+    private final int posterWidth;
+    private final int posterHeight;
+    private final int lineSpacing;
+    private final float cornerRadius;
+
+    private final Paint cardPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint posterBackgroundPaint = new Paint();
+    private final Paint bitmapPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    private final TextPaint titlePaint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+    private final TextPaint yearPaint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+    private final TextPaint genrePaint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+    // Baselines of the three lines, from the top of the view
+    private final float titleBaseline;
+    private final float yearBaseline;
+    private final float genreBaseline;
+    private final int rowHeight;
+
+    private final RectF cardBounds = new RectF();
+    private final RectF posterBounds = new RectF();
+    private final Drawable placeholder;
+
+    private CharSequence title;
+    private CharSequence year;
+    private CharSequence genre;
+    // Lines as drawn, ellipsized to the text width when the text or the width changes
+    private CharSequence titleLine;
+    private CharSequence yearLine;
+    private CharSequence genreLine;
+    private boolean linesFitted;
+
+    private Bitmap posterBitmap;
+    private Drawable posterDrawable;
+    private int posterResourceId;
+
+    public MovieRowView(Context context) {
+        super(context);
+        Resources resources = context.getResources();
+        padding = resources.getDimensionPixelSize(R.dimen.movie_row_padding);
+        posterWidth = resources.getDimensionPixelSize(R.dimen.poster_width);
+        posterHeight = resources.getDimensionPixelSize(R.dimen.poster_height);
+        lineSpacing = resources.getDimensionPixelSize(R.dimen.movie_row_line_spacing);
+        cornerRadius = resources.getDimension(R.dimen.movie_row_corner_radius);
+
+        cardPaint.setColor(context.getColor(R.color.movie_row_background));
+        posterBackgroundPaint.setColor(context.getColor(android.R.color.darker_gray));
+        titlePaint.setTextSize(resources.getDimension(R.dimen.movie_row_title_size));
+        titlePaint.setTypeface(Typeface.DEFAULT_BOLD);
+        yearPaint.setTextSize(resources.getDimension(R.dimen.movie_row_detail_size));
+        genrePaint.setTextSize(resources.getDimension(R.dimen.movie_row_detail_size));
+
+        // Lines are stacked like the TextViews of item_movie.xml, font padding included
+        Paint.FontMetrics title = titlePaint.getFontMetrics();
+        Paint.FontMetrics detail = yearPaint.getFontMetrics();
+        titleBaseline = padding - title.top;
+        yearBaseline = padding + (title.bottom - title.top) + lineSpacing - detail.top;
+        genreBaseline = yearBaseline + detail.bottom + lineSpacing - detail.top;
+        int textHeight = (int) Math.ceil(genreBaseline + detail.bottom) - padding;
+        rowHeight = padding + Math.max(posterHeight, textHeight) + padding;
+
+        placeholder = context.getDrawable(R.drawable.placeholder_poster);
+        posterDrawable = placeholder;
+        posterResourceId = R.drawable.placeholder_poster;
+        fitPoster();
+
+        // The card's shadow comes from the outline, no extra view or drawable needed
+        setElevation(resources.getDimension(R.dimen.movie_row_elevation));
+        setOutlineProvider(new ViewOutlineProvider() {
+            @Override
+            public void getOutline(View view, Outline outline) {
+                outline.setRoundRect(0, 0, view.getWidth(), view.getHeight(), cornerRadius);
+            }
+        });
+    }
+
+    /**
+     * Set the three lines and their colours
+     * @param title Title line
+     * @param titleColor Title colour
+     * @param year Year line
+     * @param yearColor Year colour
+     * @param genre Genre line
+     * @param genreColor Genre colour
+     */
+    public void setText(CharSequence title, int titleColor, CharSequence year, int yearColor,
+                        CharSequence genre, int genreColor) {
+        this.title = title;
+        this.year = year;
+        this.genre = genre;
+        titlePaint.setColor(titleColor);
+        yearPaint.setColor(yearColor);
+        genrePaint.setColor(genreColor);
+        linesFitted = false;
+        invalidate();
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        // Fixed height, so no text is measured here
+        setMeasuredDimension(getDefaultSize(getSuggestedMinimumWidth(), widthMeasureSpec),
+                resolveSize(rowHeight, heightMeasureSpec));
+    }
+
+    @Override
+    protected void onSizeChanged(int width, int height, int oldWidth, int oldHeight) {
+        cardBounds.set(0, 0, width, height);
+        linesFitted = false;
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        canvas.drawRoundRect(cardBounds, cornerRadius, cornerRadius, cardPaint);
+
+        canvas.drawRect(padding, padding, padding + posterWidth, padding + posterHeight, posterBackgroundPaint);
+        if (posterBitmap != null) {
+            canvas.drawBitmap(posterBitmap, null, posterBounds, bitmapPaint);
+        } else if (posterDrawable != null) {
+            posterDrawable.draw(canvas);
+        }
+
+        if (!linesFitted) {
+            fitLines();
+        }
+        float textLeft = padding + posterWidth + padding;
+        drawLine(canvas, titleLine, textLeft, titleBaseline, titlePaint);
+        drawLine(canvas, yearLine, textLeft, yearBaseline, yearPaint);
+        drawLine(canvas, genreLine, textLeft, genreBaseline, genrePaint);
+    }
+
+    private static void drawLine(Canvas canvas, CharSequence line, float x, float baseline, Paint paint) {
+        if (line != null) {
+            canvas.drawText(line, 0, line.length(), x, baseline, paint);
+        }
+    }
+
+    /**
+     * Ellipsize lines wider than the text column; lines that fit are drawn as they are
+     */
+    private void fitLines() {
+        float width = getWidth() - (padding + posterWidth + padding) - padding;
+        titleLine = fit(title, titlePaint, width);
+        yearLine = fit(year, yearPaint, width);
+        genreLine = fit(genre, genrePaint, width);
+        linesFitted = true;
+    }
+
+    private static CharSequence fit(CharSequence text, TextPaint paint, float width) {
+        if (text == null || width <= 0 || paint.measureText(text, 0, text.length()) <= width) {
+            return text;
+        }
+        return TextUtils.ellipsize(text, paint, width, TextUtils.TruncateAt.END);
+    }
+
+    @Override
+    public View getPosterView() {
+        return this;
+    }
+
+    @Override
+    public void setPosterBitmap(Bitmap bitmap) {
+        posterBitmap = bitmap;
+        posterDrawable = null;
+        posterResourceId = 0;
+        fitPoster();
+        invalidate();
+    }
+
+    @Override
+    public void setPosterResource(int resourceId) {
+        posterBitmap = null;
+        if (resourceId != posterResourceId) {
+            // The placeholder is shown on every recycle, keep it instead of loading it again
+            posterDrawable = resourceId == R.drawable.placeholder_poster
+                    ? placeholder : getContext().getDrawable(resourceId);
+            posterResourceId = resourceId;
+        }
+        fitPoster();
+        invalidate();
+    }
+
+    /**
+     * Scale the poster into its slot keeping its aspect ratio, centred like fitCenter
+     */
+    private void fitPoster() {
+        float imageWidth;
+        float imageHeight;
+        if (posterBitmap != null) {
+            imageWidth = posterBitmap.getWidth();
+            imageHeight = posterBitmap.getHeight();
+        } else if (posterDrawable != null && posterDrawable.getIntrinsicWidth() > 0
+                && posterDrawable.getIntrinsicHeight() > 0) {
+            imageWidth = posterDrawable.getIntrinsicWidth();
+            imageHeight = posterDrawable.getIntrinsicHeight();
+        } else {
+            imageWidth = posterWidth;
+            imageHeight = posterHeight;
+        }
+        float scale = Math.min(posterWidth / imageWidth, posterHeight / imageHeight);
+        float left = padding + (posterWidth - imageWidth * scale) / 2;
+        float top = padding + (posterHeight - imageHeight * scale) / 2;
+        posterBounds.set(left, top, left + imageWidth * scale, top + imageHeight * scale);
+        if (posterDrawable != null) {
+            posterDrawable.setBounds((int) posterBounds.left, (int) posterBounds.top,
+                    (int) posterBounds.right, (int) posterBounds.bottom);
+        }
+    }
+
+    @Override
+    public void onInitializeAccessibilityNodeInfo(AccessibilityNodeInfo info) {
+        super.onInitializeAccessibilityNodeInfo(info);
+        // Read out like the separate text views, built only when accessibility asks
+        StringBuilder text = new StringBuilder();
+        for (CharSequence line : new CharSequence[]{title, year, genre}) {
+            if (!TextUtils.isEmpty(line)) {
+                text.append(text.length() > 0 ? ", " : "").append(line);
+            }
+        }
+        info.setText(text);
+    }
+}
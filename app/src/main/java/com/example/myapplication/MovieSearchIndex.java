@@ -0,0 +1,489 @@
+package com.example.myapplication;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Inverted index over movie titles and genres for search-as-you-type. Rows are catalog
+ * positions, added in ascending order while the catalog loads, and results are sorted
+ * int arrays of rows that MovieAdapter can show directly.
+ * Each distinct title word gets one posting list of the rows using it, so memory grows by
+ * one int per title word. Query words are matched against the word dictionary, not the
+ * rows, through a trigram index over the dictionary: short query words match word starts,
+ * longer ones match anywhere in a word. Genres are matched exactly, ignoring case.
+ * Thread-safe: a loader thread can add rows while the main thread searches. update() and
+ * removeRows() rewrite row lists in place, so they must not run while a search is in progress
+ * on another thread; delta updates apply them on the main thread, where searches run.
+ */
+public class MovieSearchIndex {
+    private static final char PAD = ' ';
+    private static final int[] NO_ROWS = new int[0];
+    private static final int INITIAL_ROWS = 4;
+
+    // Word dictionary
+    private final Map<String, Integer> wordIds = new HashMap<>();
+    private String[] words = new String[256];
+    private RowList[] wordRows = new RowList[256];
+    private int wordCount;
+
+    // Gram of a dictionary word -> ids of the words containing it
+    private final GramTable grams = new GramTable();
+    private RowList[] gramWords = new RowList[256];
+    private int gramCount;
+
+    private final Map<String, RowList> genreRows = new HashMap<>();
+
+    private int rowCount;
+
+    /**
+     * Index one movie
+     * @param row Catalog position, greater than any row added before
+     * @param title Movie title, may be null
+     * @param genre Movie genre, may be null
+     */
+    public synchronized void add(int row, String title, String genre) {
+        if (row < rowCount) {
+            throw new IllegalArgumentException("Rows must be added in ascending order: " + row);
+        }
+        rowCount = row + 1;
+
+        if (title != null) {
+            for (String word : words(title)) {
+                Integer id = wordIds.get(word);
+                if (id == null) {
+                    id = addWord(word);
+                }
+                // Rows only grow, so a repeated word in the same title is the last entry
+                RowList rows = wordRows[id];
+                if (rows.size == 0 || rows.rows[rows.size - 1] != row) {
+                    rows.add(row);
+                }
+            }
+        }
+
+        if (genre != null) {
+            String key = normalize(genre);
+            RowList rows = genreRows.get(key);
+            if (rows == null) {
+                rows = new RowList();
+                genreRows.put(key, rows);
+            }
+            rows.add(row);
+        }
+    }
+
+    /**
+     * Re-index a movie whose title or genre changed, leaving its position as it is
+     * @param row Catalog position, already indexed
+     * @param oldTitle Title it was indexed with, may be null
+     * @param oldGenre Genre it was indexed with, may be null
+     * @param title New title, may be null
+     * @param genre New genre, may be null
+     */
+    public synchronized void update(int row, String oldTitle, String oldGenre, String title, String genre) {
+        List<String> newWords = title != null ? words(title) : Collections.<String>emptyList();
+        if (oldTitle != null) {
+            for (String word : words(oldTitle)) {
+                Integer id = wordIds.get(word);
+                // Words the title keeps stay listed, common words have long lists to shift
+                if (id != null && !newWords.contains(word)) {
+                    wordRows[id].remove(row);
+                }
+            }
+        }
+        if (oldGenre != null) {
+            RowList rows = genreRows.get(normalize(oldGenre));
+            if (rows != null) {
+                rows.remove(row);
+            }
+        }
+
+        for (String word : newWords) {
+            Integer id = wordIds.get(word);
+            if (id == null) {
+                id = addWord(word);
+            }
+            wordRows[id].insert(row);
+        }
+        if (genre != null) {
+            String key = normalize(genre);
+            RowList rows = genreRows.get(key);
+            if (rows == null) {
+                rows = new RowList();
+                genreRows.put(key, rows);
+            }
+            rows.insert(row);
+        }
+    }
+
+    /**
+     * Drop removed catalog positions and renumber the ones after them, in one pass over the lists
+     * @param removed Catalog positions, ascending and distinct
+     */
+    public synchronized void removeRows(int[] removed) {
+        if (removed.length == 0) {
+            return;
+        }
+        for (int id = 0; id < wordCount; id++) {
+            wordRows[id].removeRows(removed);
+        }
+        for (RowList rows : genreRows.values()) {
+            rows.removeRows(removed);
+        }
+        rowCount -= removed.length;
+    }
+
+    /**
+     * @return Number of catalog positions covered so far
+     */
+    public synchronized int size() {
+        return rowCount;
+    }
+
+    /**
+     * @return Number of distinct title words
+     */
+    public synchronized int wordCount() {
+        return wordCount;
+    }
+
+    /**
+     * Find movies whose title contains every word of the query, or whose genre equals it
+     * @param query Search text
+     * @return Matching rows, ascending
+     */
+    public int[] search(String query) {
+        long searchStart = System.nanoTime();
+        List<String> tokens = words(query);
+        if (tokens.isEmpty()) {
+            return NO_ROWS;
+        }
+
+        // Row lists are append-only, so lists captured under the lock stay valid after it is released
+        List<List<Posting>> tokenPostings = new ArrayList<>(tokens.size());
+        Posting genreMatches;
+        int rows;
+        synchronized (this) {
+            rows = rowCount;
+            for (String token : tokens) {
+                tokenPostings.add(matchingWordRows(token));
+            }
+            RowList genre = genreRows.get(normalize(query));
+            genreMatches = genre != null ? new Posting(genre.rows, genre.size) : null;
+        }
+
+        // Rows using any matching word, for every query word
+        long[] matches = null;
+        for (List<Posting> postings : tokenPostings) {
+            long[] tokenMatches = new long[(rows + 63) >>> 6];
+            for (Posting posting : postings) {
+                posting.markIn(tokenMatches);
+            }
+            if (matches == null) {
+                matches = tokenMatches;
+            } else {
+                for (int i = 0; i < matches.length; i++) {
+                    matches[i] &= tokenMatches[i];
+                }
+            }
+        }
+        if (genreMatches != null) {
+            genreMatches.markIn(matches);
+        }
+
+        int[] result = toRows(matches);
+        Metrics.SEARCH.recordSince(searchStart);
+        return result;
+    }
+
+    /**
+     * Rows of an exact genre, ignoring case
+     * @param genre Genre name
+     * @return Matching rows, ascending
+     */
+    public synchronized int[] searchGenre(String genre) {
+        RowList rows = genreRows.get(normalize(genre));
+        return rows != null ? Arrays.copyOf(rows.rows, rows.size) : NO_ROWS;
+    }
+
+    private int addWord(String word) {
+        int id = wordCount++;
+        if (id == words.length) {
+            words = Arrays.copyOf(words, id * 2);
+            wordRows = Arrays.copyOf(wordRows, id * 2);
+        }
+        words[id] = word;
+        wordRows[id] = new RowList();
+        wordIds.put(word, id);
+
+        gramWords(gram(PAD, PAD, word.charAt(0))).add(id);
+        if (word.length() > 1) {
+            gramWords(gram(PAD, word.charAt(0), word.charAt(1))).add(id);
+        }
+        for (int i = 0; i + 3 <= word.length(); i++) {
+            RowList ids = gramWords(gram(word.charAt(i), word.charAt(i + 1), word.charAt(i + 2)));
+            // A word repeating a trigram, such as "lalala", is listed once
+            if (ids.size == 0 || ids.rows[ids.size - 1] != id) {
+                ids.add(id);
+            }
+        }
+        return id;
+    }
+
+    private RowList gramWords(long key) {
+        int slot = grams.get(key);
+        if (slot < 0) {
+            slot = gramCount++;
+            grams.put(key, slot);
+            if (slot == gramWords.length) {
+                gramWords = Arrays.copyOf(gramWords, slot * 2);
+            }
+            gramWords[slot] = new RowList();
+        }
+        return gramWords[slot];
+    }
+
+    /**
+     * Row lists of the dictionary words matching one query word
+     */
+    private List<Posting> matchingWordRows(String token) {
+        List<Posting> postings = new ArrayList<>();
+        for (int id : candidateWords(token)) {
+            String word = words[id];
+            if (token.length() < 3 ? word.startsWith(token) : word.contains(token)) {
+                postings.add(new Posting(wordRows[id].rows, wordRows[id].size));
+            }
+        }
+        return postings;
+    }
+
+    /**
+     * Words containing every gram of the query word. Trigrams alone do not prove the word
+     * contains the query, so callers still compare the text.
+     */
+    private int[] candidateWords(String token) {
+        if (token.length() < 3) {
+            long key = token.length() == 1 ? gram(PAD, PAD, token.charAt(0)) : gram(PAD, token.charAt(0), token.charAt(1));
+            return wordIdsFor(key);
+        }
+        int[] candidates = null;
+        for (int i = 0; i + 3 <= token.length() && (candidates == null || candidates.length > 0); i++) {
+            int[] ids = wordIdsFor(gram(token.charAt(i), token.charAt(i + 1), token.charAt(i + 2)));
+            candidates = candidates == null ? ids : intersect(candidates, ids);
+        }
+        return candidates;
+    }
+
+    private int[] wordIdsFor(long key) {
+        int slot = grams.get(key);
+        return slot < 0 ? NO_ROWS : Arrays.copyOf(gramWords[slot].rows, gramWords[slot].size);
+    }
+
+    private static int[] intersect(int[] a, int[] b) {
+        int[] result = new int[Math.min(a.length, b.length)];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                result[size++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    private static int[] toRows(long[] bits) {
+        int count = 0;
+        for (long word : bits) {
+            count += Long.bitCount(word);
+        }
+        int[] rows = new int[count];
+        int size = 0;
+        for (int i = 0; i < bits.length; i++) {
+            long word = bits[i];
+            while (word != 0) {
+                rows[size++] = (i << 6) + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Lowercase letter and digit runs of a text
+     */
+    static List<String> words(String text) {
+        List<String> words = new ArrayList<>();
+        String lower = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= lower.length(); i++) {
+            boolean wordChar = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+            if (wordChar && start == -1) {
+                start = i;
+            } else if (!wordChar && start != -1) {
+                words.add(lower.substring(start, i));
+                start = -1;
+            }
+        }
+        return words;
+    }
+
+    private static String normalize(String text) {
+        return text.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static long gram(char a, char b, char c) {
+        return ((long) a << 32) | ((long) b << 16) | c;
+    }
+
+    /**
+     * Sorted rows captured from a RowList; only the first size entries are valid
+     */
+    private static class Posting {
+        final int[] rows;
+        final int size;
+
+        Posting(int[] rows, int size) {
+            this.rows = rows;
+            this.size = size;
+        }
+
+        void markIn(long[] bits) {
+            for (int i = 0; i < size; i++) {
+                bits[rows[i] >>> 6] |= 1L << rows[i];
+            }
+        }
+    }
+
+    /**
+     * Growable ascending int list
+     */
+    private static class RowList {
+        int[] rows = new int[INITIAL_ROWS];
+        int size;
+
+        void add(int row) {
+            if (size == rows.length) {
+                rows = Arrays.copyOf(rows, size + (size >> 1) + 1);
+            }
+            rows[size++] = row;
+        }
+
+        /**
+         * Add a row anywhere in the list, unless it is listed already
+         */
+        void insert(int row) {
+            int index = Arrays.binarySearch(rows, 0, size, row);
+            if (index >= 0) {
+                return;
+            }
+            index = -index - 1;
+            if (size == rows.length) {
+                rows = Arrays.copyOf(rows, size + (size >> 1) + 1);
+            }
+            System.arraycopy(rows, index, rows, index + 1, size - index);
+            rows[index] = row;
+            size++;
+        }
+
+        void remove(int row) {
+            int index = Arrays.binarySearch(rows, 0, size, row);
+            if (index >= 0) {
+                System.arraycopy(rows, index + 1, rows, index, size - index - 1);
+                size--;
+            }
+        }
+
+        /**
+         * Drop removed rows and move the ones after them down, both lists being ascending
+         */
+        void removeRows(int[] removed) {
+            // Rows before the first removed one keep their numbers
+            int start = Arrays.binarySearch(rows, 0, size, removed[0]);
+            if (start < 0) {
+                start = -start - 1;
+            }
+            int kept = start;
+            int below = 0;
+            for (int i = start; i < size; i++) {
+                int row = rows[i];
+                while (below < removed.length && removed[below] < row) {
+                    below++;
+                }
+                if (below < removed.length && removed[below] == row) {
+                    continue;
+                }
+                rows[kept++] = row - below;
+            }
+            size = kept;
+        }
+    }
+
+    /**
+     * Open-addressing map from packed gram to slot, avoids boxing while indexing.
+     * Grams always contain a non-zero character, so 0 marks an empty entry.
+     */
+    private static class GramTable {
+        private long[] keys = new long[512];
+        private int[] slots = new int[512];
+        private int size;
+
+        int get(long key) {
+            int mask = keys.length - 1;
+            for (int i = hash(key) & mask; ; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    return slots[i];
+                }
+                if (keys[i] == 0) {
+                    return -1;
+                }
+            }
+        }
+
+        void put(long key, int slot) {
+            if ((size + 1) * 4 > keys.length * 3) {
+                resize();
+            }
+            insert(keys, slots, key, slot);
+            size++;
+        }
+
+        private void resize() {
+            long[] oldKeys = keys;
+            int[] oldSlots = slots;
+            keys = new long[oldKeys.length * 2];
+            slots = new int[oldKeys.length * 2];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) {
+                    insert(keys, slots, oldKeys[i], oldSlots[i]);
+                }
+            }
+        }
+
+        private static void insert(long[] keys, int[] slots, long key, int slot) {
+            int mask = keys.length - 1;
+            int i = hash(key) & mask;
+            while (keys[i] != 0) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = key;
+            slots[i] = slot;
+        }
+
+        private static int hash(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+}
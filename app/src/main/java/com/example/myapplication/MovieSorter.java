@@ -0,0 +1,551 @@
+package com.example.myapplication;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Orders the catalog by title, year or genre. Sort keys are computed once per movie while
+ * the catalog loads: a long packing the first letters of the normalized title, the int
+ * year and an int genre id. Sorting is a radix sort over those primitives, so switching
+ * the order of a million movies compares no objects, and each order is kept until more
+ * movies arrive. Movies with a title, year or genre error are grouped in a final bucket
+ * of the order that uses the broken field.
+ * Thread-safe: a loader thread can add keys while a background thread sorts. A sort that
+ * overlaps set() or removeRows() may return a mixed order, which is not cached; callers
+ * sort again after changing keys.
+ */
+public class MovieSorter {
+    public static final int ORDER_CATALOG = 0;
+    public static final int ORDER_TITLE = 1;
+    public static final int ORDER_YEAR = 2;
+    public static final int ORDER_GENRE = 3;
+    private static final int ORDER_COUNT = 4;
+
+    // Title keys are base-38 digits: separator, 10 digits, 26 letters, any other letter
+    private static final int TITLE_RADIX = 38;
+    static final int TITLE_KEY_CHARS = 12;
+    private static final int CODE_SEPARATOR = 0;
+    private static final int CODE_DIGIT = 1;
+    private static final int CODE_LETTER = 11;
+    private static final int CODE_OTHER = 37;
+    // Above every real key, which stays below 38^12
+    static final long NO_TITLE_KEY = Long.MAX_VALUE;
+    private static final int ERROR_BUCKET = Integer.MAX_VALUE;
+    private static final int NO_GENRE = -1;
+    private static final String[] ARTICLES = {"the ", "an ", "a "};
+
+    // Small enough for the digit counts and write positions to stay in cache
+    private static final int RADIX_BITS = 11;
+    private static final int RADIX_MASK = (1 << RADIX_BITS) - 1;
+    private static final String[] NO_TITLES = new String[0];
+
+    private long[] titleKeys = new long[256];
+    private int[] years = new int[256];
+    private int[] genreIds = new int[256];
+    private int size;
+
+    private final Map<String, Integer> genreIdsByName = new HashMap<>();
+    private final List<String> genreNames = new ArrayList<>();
+
+    // Incremented whenever existing keys change, sorts started before are not cached
+    private int generation;
+    // Results for the first cachedSize rows
+    private int cachedSize = -1;
+    private int[] titleOrder;
+    private final Sections[] cached = new Sections[ORDER_COUNT];
+
+    /**
+     * Add the sort keys of the next catalog position
+     * @param title Movie title, may be null
+     * @param titleError The title is missing or blank
+     * @param year Year, or MovieStore.NO_YEAR
+     * @param yearError The year failed validation
+     * @param genre Movie genre, null when it failed validation
+     */
+    public synchronized void add(String title, boolean titleError, int year, boolean yearError, String genre) {
+        if (size == titleKeys.length) {
+            int capacity = size * 2;
+            titleKeys = Arrays.copyOf(titleKeys, capacity);
+            years = Arrays.copyOf(years, capacity);
+            genreIds = Arrays.copyOf(genreIds, capacity);
+        }
+        setKeys(size++, title, titleError, year, yearError, genre);
+    }
+
+    /**
+     * Replace the sort keys of a catalog position whose movie changed
+     * @param row Catalog position, already added
+     * @param title Movie title, may be null
+     * @param titleError The title is missing or blank
+     * @param year Year, or MovieStore.NO_YEAR
+     * @param yearError The year failed validation
+     * @param genre Movie genre, null when it failed validation
+     */
+    public synchronized void set(int row, String title, boolean titleError, int year, boolean yearError,
+                                 String genre) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row " + row + " of " + size);
+        }
+        setKeys(row, title, titleError, year, yearError, genre);
+        invalidate();
+    }
+
+    private void setKeys(int row, String title, boolean titleError, int year, boolean yearError, String genre) {
+        titleKeys[row] = titleError || title == null ? NO_TITLE_KEY : titleKey(title);
+        // Keys must not be negative, an unflagged negative year is treated as broken too
+        years[row] = yearError || year < 0 ? ERROR_BUCKET : year;
+        genreIds[row] = genre == null ? NO_GENRE : genreId(genre);
+    }
+
+    /**
+     * Drop the keys of removed catalog positions, the positions after them move down
+     * @param removed Catalog positions, ascending and distinct
+     */
+    public synchronized void removeRows(int[] removed) {
+        if (removed.length == 0) {
+            return;
+        }
+        for (int k = 0; k < removed.length; k++) {
+            int from = removed[k] + 1;
+            int to = k + 1 < removed.length ? removed[k + 1] : size;
+            int target = from - (k + 1);
+            System.arraycopy(titleKeys, from, titleKeys, target, to - from);
+            System.arraycopy(years, from, years, target, to - from);
+            System.arraycopy(genreIds, from, genreIds, target, to - from);
+        }
+        size -= removed.length;
+        invalidate();
+    }
+
+    /**
+     * @return Number of catalog positions with sort keys
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Drop the cached orders, the next sort of each order recomputes it
+     */
+    synchronized void invalidate() {
+        generation++;
+        cachedSize = -1;
+        titleOrder = null;
+        Arrays.fill(cached, null);
+    }
+
+    private int genreId(String genre) {
+        Integer id = genreIdsByName.get(genre);
+        if (id == null) {
+            id = genreNames.size();
+            genreNames.add(genre);
+            genreIdsByName.put(genre, id);
+        }
+        return id;
+    }
+
+    /**
+     * Order the catalog positions added so far. Slow for a large catalog the first time an
+     * order is asked for, call it off the main thread.
+     * @param order One of the ORDER_* values other than ORDER_CATALOG
+     * @return Catalog positions in display order, with section headers for years and genres
+     */
+    public Sections sort(int order) {
+        if (order <= ORDER_CATALOG || order >= ORDER_COUNT) {
+            throw new IllegalArgumentException("Unknown sort order: " + order);
+        }
+        long sortStart = System.nanoTime();
+
+        // Key arrays are appended to while loading, the first rows entries captured here do not change;
+        // set() and removeRows() bump the generation so an overlapping sort is not cached
+        long[] titles;
+        int[] yearKeys;
+        int[] genres;
+        String[] names;
+        int[] byTitle;
+        int rows;
+        int sortGeneration;
+        synchronized (this) {
+            if (cachedSize == size && cached[order] != null) {
+                return cached[order];
+            }
+            rows = size;
+            sortGeneration = generation;
+            titles = titleKeys;
+            yearKeys = years;
+            genres = genreIds;
+            names = genreNames.toArray(new String[0]);
+            byTitle = cachedSize == size ? titleOrder : null;
+        }
+
+        if (byTitle == null) {
+            byTitle = sortRows(titles, null, rows);
+        }
+
+        Sections sections;
+        if (order == ORDER_TITLE) {
+            sections = new Sections(order, byTitle, NO_TITLES, rows);
+        } else {
+            // Stable sort of the title order by group keeps movies of a group ordered by title
+            int[] groups = order == ORDER_YEAR ? yearKeys : genreRanks(genres, names, rows);
+            int[] sorted = sortRows(groupKeys(groups, rows), byTitle, rows);
+            sections = order == ORDER_YEAR ? yearSections(sorted, groups) : genreSections(sorted, groups, genres, names);
+        }
+
+        synchronized (this) {
+            if (size == rows && generation == sortGeneration) {
+                if (cachedSize != rows) {
+                    Arrays.fill(cached, null);
+                    cachedSize = rows;
+                }
+                titleOrder = byTitle;
+                cached[order] = sections;
+            }
+        }
+        Metrics.SORT.recordSince(sortStart);
+        return sections;
+    }
+
+    /**
+     * Sort keys of groups, with the error bucket moved just after the largest group so
+     * the keys need as few radix digits as possible
+     */
+    private static long[] groupKeys(int[] groups, int rows) {
+        int maxGroup = 0;
+        for (int i = 0; i < rows; i++) {
+            if (groups[i] != ERROR_BUCKET) {
+                maxGroup = Math.max(maxGroup, groups[i]);
+            }
+        }
+        long[] keys = new long[rows];
+        for (int i = 0; i < rows; i++) {
+            keys[i] = groups[i] == ERROR_BUCKET ? maxGroup + 1L : groups[i];
+        }
+        return keys;
+    }
+
+    /**
+     * Position of each row's genre in alphabetical genre order, genre errors last
+     */
+    private static int[] genreRanks(int[] genres, String[] names, int rows) {
+        // Genres are few, sorting their names as objects is cheap
+        String[] sorted = names.clone();
+        Arrays.sort(sorted, String.CASE_INSENSITIVE_ORDER);
+        Map<String, Integer> rankOfName = new HashMap<>();
+        int rank = -1;
+        for (int i = 0; i < sorted.length; i++) {
+            // Genres differing only in case share a section
+            if (i == 0 || String.CASE_INSENSITIVE_ORDER.compare(sorted[i - 1], sorted[i]) != 0) {
+                rank++;
+            }
+            rankOfName.put(sorted[i], rank);
+        }
+        int[] rankOfId = new int[names.length];
+        for (int id = 0; id < names.length; id++) {
+            rankOfId[id] = rankOfName.get(names[id]);
+        }
+        int[] ranks = new int[rows];
+        for (int i = 0; i < rows; i++) {
+            ranks[i] = genres[i] == NO_GENRE ? ERROR_BUCKET : rankOfId[genres[i]];
+        }
+        return ranks;
+    }
+
+    private static Sections yearSections(int[] sorted, int[] years) {
+        SectionBuilder builder = new SectionBuilder(sorted.length);
+        for (int row : sorted) {
+            int year = years[row];
+            if (builder.startsGroup(year)) {
+                builder.addHeader(year == ERROR_BUCKET ? null : String.valueOf(year));
+            }
+            builder.addRow(row);
+        }
+        return builder.build(ORDER_YEAR);
+    }
+
+    private static Sections genreSections(int[] sorted, int[] ranks, int[] genres, String[] names) {
+        SectionBuilder builder = new SectionBuilder(sorted.length);
+        for (int row : sorted) {
+            if (builder.startsGroup(ranks[row])) {
+                builder.addHeader(genres[row] == NO_GENRE ? null : names[genres[row]]);
+            }
+            builder.addRow(row);
+        }
+        return builder.build(ORDER_GENRE);
+    }
+
+    /**
+     * Stable LSD radix sort of row numbers by non-negative keys. Keys travel with their
+     * rows so each pass reads sequentially, and only the digits in use are sorted.
+     * @param keys Key of each row
+     * @param order Rows in their current order, null for ascending
+     * @param count Number of rows
+     * @return Rows ordered by key, equal keys in their current order
+     */
+    static int[] sortRows(long[] keys, int[] order, int count) {
+        int[] rows = new int[count];
+        long[] rowKeys = new long[count];
+        long allBits = 0;
+        for (int i = 0; i < count; i++) {
+            int row = order != null ? order[i] : i;
+            rows[i] = row;
+            rowKeys[i] = keys[row];
+            allBits |= keys[row];
+        }
+        int keyBits = Long.SIZE - Long.numberOfLeadingZeros(allBits);
+        if (count < 2 || keyBits == 0) {
+            return rows;
+        }
+
+        int[] rowBuffer = new int[count];
+        long[] keyBuffer = new long[count];
+        int[] offsets = new int[1 << RADIX_BITS];
+        for (int shift = 0; shift < keyBits; shift += RADIX_BITS) {
+            Arrays.fill(offsets, 0);
+            for (int i = 0; i < count; i++) {
+                offsets[(int) (rowKeys[i] >>> shift) & RADIX_MASK]++;
+            }
+            // Every key has the same digit, this pass would not move anything
+            if (offsets[(int) (rowKeys[0] >>> shift) & RADIX_MASK] == count) {
+                continue;
+            }
+            int start = 0;
+            for (int digit = 0; digit < offsets.length; digit++) {
+                int digitCount = offsets[digit];
+                offsets[digit] = start;
+                start += digitCount;
+            }
+            for (int i = 0; i < count; i++) {
+                int target = offsets[(int) (rowKeys[i] >>> shift) & RADIX_MASK]++;
+                rowBuffer[target] = rows[i];
+                keyBuffer[target] = rowKeys[i];
+            }
+            int[] swapRows = rows;
+            rows = rowBuffer;
+            rowBuffer = swapRows;
+            long[] swapKeys = rowKeys;
+            rowKeys = keyBuffer;
+            keyBuffer = swapKeys;
+        }
+        return rows;
+    }
+
+    /**
+     * Collation key of a title: its first TITLE_KEY_CHARS letters and digits after folding
+     * case and accents and dropping a leading English article, with each run of other
+     * characters collapsed to one separator that sorts before every letter
+     * @param title Movie title
+     * @return Key, comparing like the normalized title prefix
+     */
+    static long titleKey(String title) {
+        String folded = Normalizer.normalize(title, Normalizer.Form.NFD).toLowerCase(Locale.ROOT);
+        int start = 0;
+        while (start < folded.length() && !Character.isLetterOrDigit(folded.charAt(start))) {
+            start++;
+        }
+        for (String article : ARTICLES) {
+            if (folded.startsWith(article, start) && start + article.length() < folded.length()) {
+                start += article.length();
+                break;
+            }
+        }
+
+        long key = 0;
+        int chars = 0;
+        boolean separator = false;
+        for (int i = start; i < folded.length() && chars < TITLE_KEY_CHARS; i++) {
+            char c = folded.charAt(i);
+            int code;
+            if (c >= 'a' && c <= 'z') {
+                code = CODE_LETTER + c - 'a';
+            } else if (c >= '0' && c <= '9') {
+                code = CODE_DIGIT + c - '0';
+            } else if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                // Accent split off by the normalization
+                continue;
+            } else if (Character.isLetterOrDigit(c)) {
+                code = CODE_OTHER;
+            } else {
+                separator = chars > 0;
+                continue;
+            }
+            if (separator) {
+                key = key * TITLE_RADIX + CODE_SEPARATOR;
+                separator = false;
+                if (++chars == TITLE_KEY_CHARS) {
+                    break;
+                }
+            }
+            key = key * TITLE_RADIX + code;
+            chars++;
+        }
+        for (; chars < TITLE_KEY_CHARS; chars++) {
+            key *= TITLE_RADIX;
+        }
+        return key;
+    }
+
+    /**
+     * Catalog positions in display order, interleaved with section headers.
+     * Immutable, safe to share between threads.
+     */
+    public static class Sections {
+        private final int order;
+        // Catalog positions, or -(section + 1) for a section header
+        private final int[] items;
+        private final String[] sectionTitles;
+        // Every catalog position in items is below it
+        private final int rowLimit;
+
+        Sections(int order, int[] items, String[] sectionTitles, int rowLimit) {
+            this.order = order;
+            this.items = items;
+            this.sectionTitles = sectionTitles;
+            this.rowLimit = rowLimit;
+        }
+
+        /**
+         * Show catalog positions as they are, without headers
+         * @param rows Catalog positions
+         * @return Sections with the catalog order
+         */
+        static Sections of(int[] rows) {
+            return new Sections(ORDER_CATALOG, rows, NO_TITLES, rows.length > 0 ? rows[rows.length - 1] + 1 : 0);
+        }
+
+        /**
+         * @return The ORDER_* value that produced these sections
+         */
+        public int getOrder() {
+            return order;
+        }
+
+        /**
+         * @return Number of movies and headers
+         */
+        public int size() {
+            return items.length;
+        }
+
+        public boolean isHeader(int position) {
+            return items[position] < 0;
+        }
+
+        /**
+         * @param position Position of a movie
+         * @return Catalog position of the movie
+         */
+        public int getRow(int position) {
+            return items[position];
+        }
+
+        /**
+         * @param position Position of a header
+         * @return Index of the section, in display order
+         */
+        public int getSection(int position) {
+            return -items[position] - 1;
+        }
+
+        /**
+         * @param position Position of a header
+         * @return Year or genre of the section, null for the bucket of movies with errors
+         */
+        public String getSectionTitle(int position) {
+            return sectionTitles[getSection(position)];
+        }
+
+        /**
+         * Keep only some catalog positions, dropping headers left without movies
+         * @param rows Ascending catalog positions to keep, null keeps all
+         * @param rowLimit Catalog positions from here on are dropped
+         * @return Filtered sections in the same order
+         */
+        Sections filter(int[] rows, int rowLimit) {
+            if (rows == null && this.rowLimit <= rowLimit) {
+                // Nothing to drop, as when a recreated activity shows the order it had
+                return this;
+            }
+            long[] kept = null;
+            if (rows != null) {
+                kept = new long[(rowLimit + 63) >>> 6];
+                for (int row : rows) {
+                    if (row < rowLimit) {
+                        kept[row >>> 6] |= 1L << row;
+                    }
+                }
+            }
+            int[] filtered = new int[items.length];
+            int count = 0;
+            int pendingHeader = 0;
+            for (int item : items) {
+                if (item < 0) {
+                    pendingHeader = item;
+                } else if (item < rowLimit && (kept == null || (kept[item >>> 6] & (1L << item)) != 0)) {
+                    if (pendingHeader != 0) {
+                        filtered[count++] = pendingHeader;
+                        pendingHeader = 0;
+                    }
+                    filtered[count++] = item;
+                }
+            }
+            return new Sections(order, count == items.length ? items : Arrays.copyOf(filtered, count), sectionTitles,
+                    Math.min(this.rowLimit, rowLimit));
+        }
+    }
+
+    /**
+     * Interleaves a header before each run of rows sharing a group
+     */
+    private static class SectionBuilder {
+        private final int rows;
+        private int[] items;
+        private final List<String> titles = new ArrayList<>();
+        private int count;
+        private boolean started;
+        private int currentGroup;
+
+        SectionBuilder(int rows) {
+            this.rows = rows;
+            // Sections are few compared to movies, grown when there are more
+            items = new int[rows + 64];
+        }
+
+        /**
+         * @return true when the row of this group is the first of a new section
+         */
+        boolean startsGroup(int group) {
+            if (started && group == currentGroup) {
+                return false;
+            }
+            started = true;
+            currentGroup = group;
+            return true;
+        }
+
+        void addHeader(String title) {
+            titles.add(title);
+            append(-titles.size());
+        }
+
+        void addRow(int row) {
+            append(row);
+        }
+
+        private void append(int item) {
+            if (count == items.length) {
+                items = Arrays.copyOf(items, count + (count >> 1) + 1);
+            }
+            items[count++] = item;
+        }
+
+        Sections build(int order) {
+            return new Sections(order, Arrays.copyOf(items, count), titles.toArray(new String[0]), rows);
+        }
+    }
+}
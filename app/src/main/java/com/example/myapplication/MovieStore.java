@@ -0,0 +1,582 @@
+package com.example.myapplication;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Column-oriented movie storage. Each movie is a row across primitive arrays:
+ * an int year with a sentinel for "no year", an error flag bitmask, and interned
+ * genre and poster ids. Year error messages are kept as a kind code and only
+ * built when asked for. Movie objects are lightweight views over a row, created on get().
+ */
+public class MovieStore extends AbstractList<Movie> {
+    static final int NO_YEAR = Integer.MIN_VALUE;
+    static final int NO_STRING = -1;
+
+    // Error flag bits
+    static final int FLAG_TITLE_ERROR = 1;
+    static final int FLAG_YEAR_ERROR = 1 << 1;
+    static final int FLAG_GENRE_ERROR = 1 << 2;
+    static final int FLAG_POSTER_ERROR = 1 << 3;
+
+    // Year error message kinds, stored in the flag bits above the error flags
+    static final int YEAR_MSG_NONE = 0;
+    static final int YEAR_MSG_MISSING = 1;
+    static final int YEAR_MSG_NEGATIVE = 2;
+    static final int YEAR_MSG_DECIMAL = 3;
+    static final int YEAR_MSG_NOT_A_NUMBER = 4;
+    static final int YEAR_MSG_OTHER = 5;
+    private static final int YEAR_MSG_SHIFT = 4;
+    private static final int YEAR_MSG_MASK = 0x7 << YEAR_MSG_SHIFT;
+
+    // Message text, stored once per kind; kinds with a detail append it to the prefix
+    static final String MSG_YEAR_MISSING = "Year field is missing";
+    static final String MSG_YEAR_NEGATIVE = "Year is negative: ";
+    static final String MSG_YEAR_DECIMAL = "Year is a decimal: ";
+    static final String MSG_YEAR_NOT_A_NUMBER = "Year is not a valid number: ";
+
+    private static final int MIN_CAPACITY = 1;
+    private static final int[] NO_ROWS = new int[0];
+    private static final Object[] NO_DETAILS = new Object[0];
+
+    // Genres and posters repeat across the catalog, each store keeps one copy of each and
+    // releases them together with its rows
+    private final StringPool genres;
+    private final StringPool posters;
+
+    private int size;
+    private long[] ids;
+    private String[] titles;
+    private int[] years;
+    private byte[] flags;
+    private int[] genreIds;
+    private int[] posterIds;
+
+    // Year error details that cannot be rebuilt from the row, such as the original text
+    // of a non-numeric year. Kept as the raw catalog value, turned into text only when a
+    // message is read. Sparse, sorted by row.
+    private int[] detailRows = NO_ROWS;
+    private Object[] details = NO_DETAILS;
+    private int detailCount;
+
+    // Snapshots sharing the columns and not released yet, and the rows they cover; those rows
+    // are copied out before they change. Incremented generation drops every earlier snapshot.
+    private int snapshots;
+    private int sharedRows;
+    private int shareGeneration;
+    // Set on snapshots: the store they read, and its share generation when they were taken
+    private final MovieStore source;
+    private int sourceGeneration;
+
+    /**
+     * Create an empty store
+     */
+    public MovieStore() {
+        this(16);
+    }
+
+    /**
+     * Create an empty store
+     * @param capacity Initial number of rows
+     */
+    public MovieStore(int capacity) {
+        this(capacity, new StringPool(), new StringPool());
+    }
+
+    private MovieStore(int capacity, StringPool genres, StringPool posters) {
+        this.genres = genres;
+        this.posters = posters;
+        this.source = null;
+        capacity = Math.max(MIN_CAPACITY, capacity);
+        ids = new long[capacity];
+        titles = new String[capacity];
+        years = new int[capacity];
+        flags = new byte[capacity];
+        genreIds = new int[capacity];
+        posterIds = new int[capacity];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get a view of one row
+     * @param index Row index
+     * @return Movie backed by this store
+     */
+    @Override
+    public Movie get(int index) {
+        checkIndex(index);
+        return new Movie(this, index);
+    }
+
+    /**
+     * Append a copy of a movie's values
+     * @param movie Movie to copy
+     * @return true
+     */
+    @Override
+    public boolean add(Movie movie) {
+        int row = appendRow();
+        copyRow(movie, row);
+        modCount++;
+        return true;
+    }
+
+    /**
+     * Replace a row with a copy of a movie's values
+     * @param index Row index
+     * @param movie Movie to copy
+     * @return Detached copy of the previous values
+     */
+    @Override
+    public Movie set(int index, Movie movie) {
+        checkIndex(index);
+        beforeChange(index);
+        Movie previous = new Movie(this, index).detachedCopy();
+        copyRow(movie, index);
+        return previous;
+    }
+
+    /**
+     * The rows as they are now, for reading on another thread while this store keeps
+     * changing. Nothing is copied: the snapshot shares the columns, and this store copies
+     * them only if it changes one of the snapshot's rows before release() is called;
+     * appending never does. The string pools are shared too, they only ever grow.
+     * Take, release and change on one thread; read the snapshot on any.
+     * @return Read-only store of the current rows
+     */
+    MovieStore snapshot() {
+        snapshots++;
+        sharedRows = Math.max(sharedRows, size);
+        return new MovieStore(this);
+    }
+
+    private MovieStore(MovieStore source) {
+        this.source = source;
+        sourceGeneration = source.shareGeneration;
+        genres = source.genres;
+        posters = source.posters;
+        size = source.size;
+        ids = source.ids;
+        titles = source.titles;
+        years = source.years;
+        flags = source.flags;
+        genreIds = source.genreIds;
+        posterIds = source.posterIds;
+        detailRows = source.detailRows;
+        details = source.details;
+        detailCount = source.detailCount;
+    }
+
+    /**
+     * Tell the store a snapshot was taken from that it is no longer read, so changes to
+     * its rows stop copying the columns. Does nothing on other stores or when called twice.
+     */
+    void release() {
+        if (source != null && sourceGeneration == source.shareGeneration && --source.snapshots == 0) {
+            source.sharedRows = 0;
+        }
+        sourceGeneration = -1;
+    }
+
+    /**
+     * Copy the columns out from under the snapshots before a row they cover changes
+     */
+    private void beforeChange(int row) {
+        if (source != null) {
+            throw new UnsupportedOperationException("Snapshots are read-only");
+        }
+        if (row >= sharedRows) {
+            return;
+        }
+        ids = ids.clone();
+        titles = titles.clone();
+        years = years.clone();
+        flags = flags.clone();
+        genreIds = genreIds.clone();
+        posterIds = posterIds.clone();
+        detailRows = detailRows.clone();
+        details = details.clone();
+        snapshots = 0;
+        sharedRows = 0;
+        shareGeneration++;
+    }
+
+    /**
+     * Add an empty row
+     * @return Index of the new row
+     */
+    int appendRow() {
+        // Only throws on snapshots, rows from size on are never shared
+        beforeChange(size);
+        if (size == ids.length) {
+            grow();
+        }
+        int row = size++;
+        ids[row] = 0;
+        titles[row] = null;
+        years[row] = NO_YEAR;
+        flags[row] = 0;
+        genreIds[row] = NO_STRING;
+        posterIds[row] = NO_STRING;
+        return row;
+    }
+
+    private void copyRow(Movie movie, int row) {
+        if (movie.isBackedBy(this, row)) {
+            return;
+        }
+        ids[row] = movie.getId();
+        titles[row] = movie.getTitle();
+        Integer year = movie.getYear();
+        years[row] = year != null ? year : NO_YEAR;
+        genreIds[row] = genres.intern(movie.getGenre());
+        posterIds[row] = posters.intern(movie.getPosterResource());
+        int rowFlags = 0;
+        if (movie.hasTitleError()) {
+            rowFlags |= FLAG_TITLE_ERROR;
+        }
+        if (movie.hasYearError()) {
+            rowFlags |= FLAG_YEAR_ERROR;
+        }
+        if (movie.hasGenreError()) {
+            rowFlags |= FLAG_GENRE_ERROR;
+        }
+        if (movie.hasPosterError()) {
+            rowFlags |= FLAG_POSTER_ERROR;
+        }
+        flags[row] = (byte) rowFlags;
+        movie.copyYearErrorTo(this, row);
+    }
+
+    /**
+     * Remove rows in one pass, moving the rows after each removed one down
+     * @param removed Row indexes, ascending and distinct
+     */
+    void removeRows(int[] removed) {
+        if (removed.length == 0) {
+            return;
+        }
+        // Rows from the first removed one on move
+        beforeChange(removed[0]);
+        for (int k = 0; k < removed.length; k++) {
+            checkIndex(removed[k]);
+            // Rows between this removed row and the next move down by the rows removed so far
+            int from = removed[k] + 1;
+            int to = k + 1 < removed.length ? removed[k + 1] : size;
+            int length = to - from;
+            int target = from - (k + 1);
+            System.arraycopy(ids, from, ids, target, length);
+            System.arraycopy(titles, from, titles, target, length);
+            System.arraycopy(years, from, years, target, length);
+            System.arraycopy(flags, from, flags, target, length);
+            System.arraycopy(genreIds, from, genreIds, target, length);
+            System.arraycopy(posterIds, from, posterIds, target, length);
+        }
+        int newSize = size - removed.length;
+        Arrays.fill(titles, newSize, size, null);
+        size = newSize;
+
+        // Renumber the sparse details the same way, they are few
+        int kept = 0;
+        for (int i = 0; i < detailCount; i++) {
+            int index = Arrays.binarySearch(removed, detailRows[i]);
+            if (index >= 0) {
+                continue;
+            }
+            detailRows[kept] = detailRows[i] - (-index - 1);
+            details[kept] = details[i];
+            kept++;
+        }
+        Arrays.fill(details, kept, detailCount, null);
+        detailCount = kept;
+        modCount++;
+    }
+
+    private void grow() {
+        int capacity = ids.length + (ids.length >> 1) + 1;
+        ids = Arrays.copyOf(ids, capacity);
+        titles = Arrays.copyOf(titles, capacity);
+        years = Arrays.copyOf(years, capacity);
+        flags = Arrays.copyOf(flags, capacity);
+        genreIds = Arrays.copyOf(genreIds, capacity);
+        posterIds = Arrays.copyOf(posterIds, capacity);
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Movie " + index + " of " + size);
+        }
+    }
+
+    // Row accessors used by Movie
+
+    long getId(int row) {
+        return ids[row];
+    }
+
+    /**
+     * Copy the ids of a range of rows, see CatalogDelta.Rows.getIds
+     * @param offset Index in into of the first id
+     */
+    void getIds(int start, int end, long[] into, int offset) {
+        System.arraycopy(ids, start, into, offset, end - start);
+    }
+
+    void setId(int row, long id) {
+        beforeChange(row);
+        ids[row] = id;
+    }
+
+    String getTitle(int row) {
+        return titles[row];
+    }
+
+    void setTitle(int row, String title) {
+        beforeChange(row);
+        titles[row] = title;
+    }
+
+    /**
+     * @return Year, or NO_YEAR
+     */
+    int getYear(int row) {
+        return years[row];
+    }
+
+    void setYear(int row, int year) {
+        beforeChange(row);
+        if (getYearErrorKind(row) == YEAR_MSG_NEGATIVE) {
+            // The message was derived from the old year, keep its text
+            String message = getYearErrorMsg(row);
+            years[row] = year;
+            setYearErrorMsg(row, message);
+            return;
+        }
+        years[row] = year;
+    }
+
+    String getGenre(int row) {
+        return genres.get(genreIds[row]);
+    }
+
+    void setGenre(int row, String genre) {
+        beforeChange(row);
+        genreIds[row] = genres.intern(genre);
+    }
+
+    String getPosterResource(int row) {
+        return posters.get(posterIds[row]);
+    }
+
+    void setPosterResource(int row, String posterResource) {
+        beforeChange(row);
+        posterIds[row] = posters.intern(posterResource);
+    }
+
+    /**
+     * @return Error flags and year error kind of a row
+     */
+    int getFlags(int row) {
+        return flags[row] & 0xFF;
+    }
+
+    boolean hasFlag(int row, int flag) {
+        return (flags[row] & flag) != 0;
+    }
+
+    void setFlag(int row, int flag, boolean value) {
+        beforeChange(row);
+        flags[row] = (byte) (value ? flags[row] | flag : flags[row] & ~flag);
+    }
+
+    /**
+     * Build the year error message for a row
+     */
+    String getYearErrorMsg(int row) {
+        return yearErrorMessage(getYearErrorKind(row), years[row], getYearErrorDetail(row));
+    }
+
+    /**
+     * Store a year error message as its kind, keeping only the part that cannot be rebuilt
+     */
+    void setYearErrorMsg(int row, String message) {
+        int kind = yearErrorKind(message, years[row]);
+        setYearError(row, kind, yearErrorDetail(message, kind));
+    }
+
+    /**
+     * Store a year error as its kind and raw detail, without building its message
+     * @param kind One of the YEAR_MSG_* kinds
+     * @param detail Raw value the message quotes, for YEAR_MSG_DECIMAL, YEAR_MSG_NOT_A_NUMBER
+     *               and YEAR_MSG_OTHER; null otherwise
+     */
+    void setYearError(int row, int kind, Object detail) {
+        beforeChange(row);
+        flags[row] = (byte) withYearErrorKind(flags[row], kind);
+        setDetail(row, detail);
+    }
+
+    /**
+     * @return YEAR_MSG_* kind of a row's year error
+     */
+    int getYearErrorKind(int row) {
+        return yearErrorKind(flags[row]);
+    }
+
+    /**
+     * @return Raw detail of a row's year error, or null
+     */
+    Object getYearErrorDetail(int row) {
+        int index = Arrays.binarySearch(detailRows, 0, detailCount, row);
+        return index >= 0 ? details[index] : null;
+    }
+
+    private void setDetail(int row, Object detail) {
+        int index = Arrays.binarySearch(detailRows, 0, detailCount, row);
+        if (index >= 0) {
+            if (detail != null) {
+                details[index] = detail;
+            } else {
+                System.arraycopy(detailRows, index + 1, detailRows, index, detailCount - index - 1);
+                System.arraycopy(details, index + 1, details, index, detailCount - index - 1);
+                details[--detailCount] = null;
+            }
+            return;
+        }
+        if (detail == null) {
+            return;
+        }
+        int insertAt = -index - 1;
+        if (detailCount == detailRows.length) {
+            int capacity = detailRows.length + (detailRows.length >> 1) + 4;
+            detailRows = Arrays.copyOf(detailRows, capacity);
+            details = Arrays.copyOf(details, capacity);
+        }
+        // Rows are usually appended in order, making this a plain append
+        System.arraycopy(detailRows, insertAt, detailRows, insertAt + 1, detailCount - insertAt);
+        System.arraycopy(details, insertAt, details, insertAt + 1, detailCount - insertAt);
+        detailRows[insertAt] = row;
+        details[insertAt] = detail;
+        detailCount++;
+    }
+
+    // Year error encoding, shared with standalone movies that keep a row's values in fields
+
+    /**
+     * @return YEAR_MSG_* kind stored in a row's flags
+     */
+    static int yearErrorKind(int rowFlags) {
+        return (rowFlags & YEAR_MSG_MASK) >> YEAR_MSG_SHIFT;
+    }
+
+    /**
+     * @return Row flags with the year error kind replaced
+     */
+    static int withYearErrorKind(int rowFlags, int kind) {
+        return (rowFlags & ~YEAR_MSG_MASK) | (kind << YEAR_MSG_SHIFT);
+    }
+
+    /**
+     * Build a year error message from its kind
+     * @param year Year of the row, quoted by YEAR_MSG_NEGATIVE
+     * @param detail Raw value quoted by the kinds that keep one, or null
+     */
+    static String yearErrorMessage(int kind, int year, Object detail) {
+        String text = detail != null ? String.valueOf(detail) : "";
+        switch (kind) {
+            case YEAR_MSG_NONE:
+                return "";
+            case YEAR_MSG_MISSING:
+                return MSG_YEAR_MISSING;
+            case YEAR_MSG_NEGATIVE:
+                return MSG_YEAR_NEGATIVE + year;
+            case YEAR_MSG_DECIMAL:
+                return MSG_YEAR_DECIMAL + text;
+            case YEAR_MSG_NOT_A_NUMBER:
+                return MSG_YEAR_NOT_A_NUMBER + text;
+            default:
+                return text;
+        }
+    }
+
+    /**
+     * @return YEAR_MSG_* kind that rebuilds a year error message for a row with the year
+     */
+    static int yearErrorKind(String message, int year) {
+        if (message == null || message.isEmpty()) {
+            return YEAR_MSG_NONE;
+        } else if (MSG_YEAR_MISSING.equals(message)) {
+            return YEAR_MSG_MISSING;
+        } else if (message.equals(MSG_YEAR_NEGATIVE + year)) {
+            return YEAR_MSG_NEGATIVE;
+        } else if (message.startsWith(MSG_YEAR_DECIMAL)) {
+            return YEAR_MSG_DECIMAL;
+        } else if (message.startsWith(MSG_YEAR_NOT_A_NUMBER)) {
+            return YEAR_MSG_NOT_A_NUMBER;
+        }
+        return YEAR_MSG_OTHER;
+    }
+
+    /**
+     * @return Part of a year error message that its kind cannot rebuild, or null
+     */
+    static String yearErrorDetail(String message, int kind) {
+        switch (kind) {
+            case YEAR_MSG_DECIMAL:
+                return message.substring(MSG_YEAR_DECIMAL.length());
+            case YEAR_MSG_NOT_A_NUMBER:
+                return message.substring(MSG_YEAR_NOT_A_NUMBER.length());
+            case YEAR_MSG_OTHER:
+                return message;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Thread-safe string interning table mapping each distinct string to a small int id.
+     * Lookups of known strings take no lock, so parser threads do not contend on it.
+     */
+    static class StringPool {
+        private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+        // Replaced or re-published on every add, readers see every id handed out before their read
+        private volatile String[] strings = new String[16];
+        private int size;
+
+        int intern(String value) {
+            if (value == null) {
+                return NO_STRING;
+            }
+            Integer id = ids.get(value);
+            return id != null ? id : add(value);
+        }
+
+        private synchronized int add(String value) {
+            Integer id = ids.get(value);
+            if (id != null) {
+                return id;
+            }
+            String[] current = strings;
+            if (size == current.length) {
+                current = Arrays.copyOf(current, size * 2);
+            }
+            current[size] = value;
+            strings = current;
+            ids.put(value, size);
+            return size++;
+        }
+
+        String get(int id) {
+            return id == NO_STRING ? null : strings[id];
+        }
+
+        synchronized int size() {
+            return size;
+        }
+    }
+}
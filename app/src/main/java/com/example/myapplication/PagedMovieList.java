@@ -0,0 +1,216 @@
+package com.example.myapplication;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.util.SparseArray;
+import android.util.SparseBooleanArray;
+
+import java.util.AbstractList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Windowed view of a large movie catalog. Movies are loaded in fixed-size pages on demand
+ * around the positions being read, and pages far from them are evicted, so resident
+ * memory does not grow with the catalog size.
+ * get() returns null for positions whose page is still loading; callers show a placeholder
+ * and are told through the Listener when the page arrives. Main thread only.
+ */
+public class PagedMovieList extends AbstractList<Movie> {
+    static final int PAGE_SIZE = 50;
+    // Pages kept resident on each side of the most recently read page
+    static final int WINDOW_PAGES = 3;
+
+    // Page loads are cheap record reads, one thread keeps them in request order
+    private static final ExecutorService PAGE_EXECUTOR = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(final Runnable runnable) {
+            return new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                    runnable.run();
+                }
+            }, "PagedMovieList");
+        }
+    });
+
+    /**
+     * Random access to the backing catalog, get() is called on a background thread
+     */
+    public interface PageSource {
+        int size();
+
+        Movie get(int index);
+
+        /**
+         * Stable id of a movie without building it, called on the main thread for positions
+         * whose page may not be loaded
+         */
+        long getId(int index);
+    }
+
+    /**
+     * Told on the main thread when the movies in a range become available
+     */
+    public interface Listener {
+        void onPageLoaded(int start, int count);
+    }
+
+    private final PageSource source;
+    private int size;
+    // Incremented by refresh(), pages requested before it are dropped
+    private int generation;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final SparseArray<Movie[]> pages = new SparseArray<>();
+    private final SparseBooleanArray loading = new SparseBooleanArray();
+    // Written on the main thread, read by page loads to skip pages the user has moved away from
+    private volatile int currentPage;
+    private Listener listener;
+
+    /**
+     * Constructor
+     * @param source Backing catalog
+     */
+    public PagedMovieList(PageSource source) {
+        this.source = source;
+        this.size = source.size();
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    PageSource getSource() {
+        return source;
+    }
+
+    /**
+     * Pick up changes to the source, such as a delta applied to a CatalogOverlay. Every
+     * page is read again; pages still loading are dropped when they arrive.
+     */
+    public void refresh() {
+        size = source.size();
+        generation++;
+        pages.clear();
+        loading.clear();
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get a movie, loading its page if needed
+     * @param index Position in the catalog
+     * @return Movie, or null while its page is loading
+     */
+    @Override
+    public Movie get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Movie " + index + " of " + size);
+        }
+        int page = index / PAGE_SIZE;
+        currentPage = page;
+
+        // Keep the neighbouring pages ready so scrolling doesn't hit placeholders
+        requestPage(page - 1);
+        requestPage(page + 1);
+
+        Movie[] movies = pages.get(page);
+        if (movies == null) {
+            requestPage(page);
+            return null;
+        }
+        return movies[index - page * PAGE_SIZE];
+    }
+
+    /**
+     * Read a movie straight from the source, bypassing the page window. For scattered
+     * access, such as a sorted or filtered view, where paging would evict on every read.
+     * @param index Position in the catalog
+     * @return Movie
+     */
+    public Movie getDirect(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Movie " + index + " of " + size);
+        }
+        return source.get(index);
+    }
+
+    /**
+     * Read a movie's id from the source. Unlike get(), it is known before the page arrives
+     * and leaves the page window where it is.
+     * @param index Position in the catalog
+     * @return Stable id
+     */
+    public long getId(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Movie " + index + " of " + size);
+        }
+        return source.getId(index);
+    }
+
+    /**
+     * Number of pages currently held in memory
+     */
+    public int residentPageCount() {
+        return pages.size();
+    }
+
+    private void requestPage(final int page) {
+        if (page < 0 || page * PAGE_SIZE >= size || pages.get(page) != null || loading.get(page)) {
+            return;
+        }
+        loading.put(page, true);
+        final int requested = generation;
+        final int pageSize = Math.min(PAGE_SIZE, size - page * PAGE_SIZE);
+        PAGE_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                final Movie[] movies = Math.abs(page - currentPage) > WINDOW_PAGES ? null : loadPage(page, pageSize);
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (requested == generation) {
+                            onPageLoaded(page, movies);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    private Movie[] loadPage(int page, int pageSize) {
+        int start = page * PAGE_SIZE;
+        Movie[] movies = new Movie[pageSize];
+        for (int i = 0; i < movies.length; i++) {
+            movies[i] = source.get(start + i);
+        }
+        return movies;
+    }
+
+    private void onPageLoaded(int page, Movie[] movies) {
+        loading.delete(page);
+        if (movies == null) {
+            // Skipped because the user scrolled away before it started
+            return;
+        }
+        pages.put(page, movies);
+        evictDistantPages();
+        if (listener != null) {
+            listener.onPageLoaded(page * PAGE_SIZE, movies.length);
+        }
+    }
+
+    private void evictDistantPages() {
+        for (int i = pages.size() - 1; i >= 0; i--) {
+            if (Math.abs(pages.keyAt(i) - currentPage) > WINDOW_PAGES) {
+                pages.removeAt(i);
+            }
+        }
+    }
+}
@@ -0,0 +1,533 @@
+package com.example.myapplication;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.util.LruCache;
+import android.view.View;
+import android.widget.ImageView;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Poster image pipeline. Decodes poster drawables off the main thread, downsampled to
+ * the poster slot size, keeps decoded bitmaps in a byte-bounded LRU cache and reuses
+ * the memory of evicted bitmaps for new decodes. Decodes for bound views always run
+ * before prefetches, which run nearest row first.
+ */
+public class PosterLoader {
+    private static final String TAG = "PosterLoader";
+
+    // Share of the heap the decoded poster cache may use
+    private static final int CACHE_HEAP_FRACTION = 8;
+    // Evicted bitmaps kept around for reuse
+    private static final int POOL_MAX_BYTES = 4 * 1024 * 1024;
+    private static final int BYTES_PER_PIXEL = 4;
+    // Decode queue priorities, lower runs first; prefetches add their distance in rows
+    private static final int PRIORITY_VISIBLE = 0;
+    private static final int PRIORITY_PREFETCH = 1;
+    // Decode time assumed before the first poster is decoded
+    private static final long INITIAL_DECODE_NANOS = 10_000_000L;
+
+    /**
+     * Shows posters in a view that is not an ImageView, such as a custom-drawn row
+     */
+    public interface Target {
+        /**
+         * @return View whose tag holds the request state
+         */
+        View getPosterView();
+
+        void setPosterBitmap(Bitmap bitmap);
+
+        void setPosterResource(int resourceId);
+    }
+
+    private static PosterLoader instance;
+
+    private final Resources resources;
+    private final int targetWidth;
+    private final int targetHeight;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final ThreadPoolExecutor executor;
+    private final LruCache<Integer, Bitmap> memoryCache;
+    private final BitmapPool bitmapPool = new BitmapPool(POOL_MAX_BYTES);
+    // Drawables that BitmapFactory cannot decode (vector and shape XML), set directly instead
+    private final Set<Integer> nonBitmapResources =
+            Collections.newSetFromMap(new ConcurrentHashMap<Integer, Boolean>());
+    // Queued or running prefetches by drawable id, main thread only
+    private final Map<Integer, DecodeTask> prefetches = new HashMap<>();
+    // Orders tasks submitted at the same priority
+    private final AtomicInteger taskSequence = new AtomicInteger();
+    // Moving average of decode times, read by the prefetcher to size its look-ahead
+    private volatile long averageDecodeNanos = INITIAL_DECODE_NANOS;
+
+    // Bitmaps currently shown by a view, guarded by bitmapPool
+    private final IdentityHashMap<Bitmap, Integer> displayCounts = new IdentityHashMap<>();
+    // Evicted bitmaps waiting for their last view to let go, guarded by bitmapPool
+    private final Set<Bitmap> evictedWhileDisplayed =
+            Collections.newSetFromMap(new IdentityHashMap<Bitmap, Boolean>());
+
+    /**
+     * Get the shared poster loader
+     * @param context Context
+     * @return Shared loader
+     */
+    public static synchronized PosterLoader getInstance(Context context) {
+        if (instance == null) {
+            instance = new PosterLoader(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private PosterLoader(Context context) {
+        resources = context.getResources();
+        targetWidth = resources.getDimensionPixelSize(R.dimen.poster_width);
+        targetHeight = resources.getDimensionPixelSize(R.dimen.poster_height);
+
+        int threads = Math.max(1, Math.min(2, Runtime.getRuntime().availableProcessors() - 1));
+        // Only DecodeTasks are queued, through execute(), so the queue can order them
+        executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                new PriorityBlockingQueue<Runnable>(), new DecoderThreadFactory());
+        executor.allowCoreThreadTimeOut(true);
+
+        int cacheBytes = (int) Math.min(Integer.MAX_VALUE, Runtime.getRuntime().maxMemory() / CACHE_HEAP_FRACTION);
+        memoryCache = new LruCache<Integer, Bitmap>(cacheBytes) {
+            @Override
+            protected int sizeOf(Integer key, Bitmap bitmap) {
+                return bitmap.getAllocationByteCount();
+            }
+
+            @Override
+            protected void entryRemoved(boolean evicted, Integer key, Bitmap oldValue, Bitmap newValue) {
+                if (evicted) {
+                    recycleWhenUnused(oldValue);
+                }
+            }
+        };
+    }
+
+    /**
+     * Show a poster drawable in an ImageView. Cached posters are set immediately,
+     * others show the placeholder until the background decode completes.
+     * Any earlier request for the same view is cancelled. Main thread only.
+     * @param resourceId Drawable id
+     * @param imageView Target view
+     */
+    public void load(int resourceId, ImageView imageView) {
+        Request request = requestFor(imageView);
+        if (request == null) {
+            request = new Request(new ImageViewTarget(imageView));
+            imageView.setTag(request);
+        }
+        load(resourceId, request);
+    }
+
+    /**
+     * Show a poster drawable in a custom target, like load(int, ImageView). Main thread only.
+     * @param resourceId Drawable id
+     * @param target Target, its view's tag is used for the request state
+     */
+    public void load(int resourceId, Target target) {
+        Request request = requestFor(target.getPosterView());
+        if (request == null) {
+            request = new Request(target);
+            target.getPosterView().setTag(request);
+        }
+        load(resourceId, request);
+    }
+
+    private void load(int resourceId, Request request) {
+        cancel(request);
+
+        if (nonBitmapResources.contains(resourceId)) {
+            request.target.setPosterResource(resourceId);
+            return;
+        }
+        Bitmap cached = memoryCache.get(resourceId);
+        if (cached != null) {
+            Metrics.POSTER_BITMAP_HITS.increment();
+            display(request, cached);
+            return;
+        }
+
+        request.target.setPosterResource(R.drawable.placeholder_poster);
+        DecodeTask prefetch = prefetches.get(resourceId);
+        if (prefetch != null && executor.remove(prefetch)) {
+            // Still queued, the visible decode below replaces it
+            prefetches.remove(resourceId);
+        }
+        request.task = new DecodeTask(request, request.generation, resourceId, PRIORITY_VISIBLE);
+        executor.execute(request.task);
+    }
+
+    /**
+     * Decode a poster into the cache ahead of its row being bound. Runs after every
+     * decode for a bound view, nearer rows first. Main thread only.
+     * @param resourceId Drawable id
+     * @param distance Rows between the poster's row and the visible ones, 1 for the next row
+     * @return false when there is nothing to do, the poster is cached or already being prefetched
+     */
+    public boolean prefetch(int resourceId, int distance) {
+        if (prefetches.containsKey(resourceId) || nonBitmapResources.contains(resourceId)
+                || memoryCache.get(resourceId) != null) {
+            return false;
+        }
+        DecodeTask task = new DecodeTask(null, 0, resourceId, PRIORITY_PREFETCH + Math.max(0, distance));
+        prefetches.put(resourceId, task);
+        executor.execute(task);
+        return true;
+    }
+
+    /**
+     * Drop a prefetch that has not started, when its row is no longer coming into view. Main thread only.
+     * @param resourceId Drawable id passed to prefetch
+     */
+    public void cancelPrefetch(int resourceId) {
+        DecodeTask task = prefetches.get(resourceId);
+        if (task != null && executor.remove(task)) {
+            prefetches.remove(resourceId);
+        }
+    }
+
+    /**
+     * @return Number of decoder threads
+     */
+    public int getDecoderCount() {
+        return executor.getMaximumPoolSize();
+    }
+
+    /**
+     * @return Recent average time to decode one poster, in nanoseconds
+     */
+    public long getAverageDecodeNanos() {
+        return averageDecodeNanos;
+    }
+
+    /**
+     * Cancel any pending decode for a view and release the bitmap it shows,
+     * call when the view's holder is recycled. Main thread only.
+     * @param view Target view, an ImageView or the view of a Target
+     */
+    public void cancel(View view) {
+        Request request = requestFor(view);
+        if (request != null) {
+            cancel(request);
+        }
+    }
+
+    /**
+     * @return Request state kept in the view's tag, or null before the view's first load
+     */
+    private static Request requestFor(View view) {
+        Object tag = view.getTag();
+        return tag instanceof Request ? (Request) tag : null;
+    }
+
+    private void cancel(Request request) {
+        request.generation++;
+        if (request.task != null) {
+            executor.remove(request.task);
+            request.task = null;
+        }
+        releaseDisplayed(request);
+    }
+
+    private void display(Request request, Bitmap bitmap) {
+        synchronized (bitmapPool) {
+            // Evicted between decode and delivery, take it back before a decoder reuses it
+            bitmapPool.reclaim(bitmap);
+            Integer count = displayCounts.get(bitmap);
+            displayCounts.put(bitmap, count == null ? 1 : count + 1);
+        }
+        request.displayed = bitmap;
+        request.target.setPosterBitmap(bitmap);
+    }
+
+    private void releaseDisplayed(Request request) {
+        Bitmap bitmap = request.displayed;
+        if (bitmap == null) {
+            return;
+        }
+        request.displayed = null;
+        synchronized (bitmapPool) {
+            Integer count = displayCounts.get(bitmap);
+            if (count == null || count <= 1) {
+                displayCounts.remove(bitmap);
+                if (evictedWhileDisplayed.remove(bitmap)) {
+                    bitmapPool.put(bitmap);
+                }
+            } else {
+                displayCounts.put(bitmap, count - 1);
+            }
+        }
+    }
+
+    /**
+     * Hand an evicted bitmap to the reuse pool, or defer until no view shows it
+     */
+    private void recycleWhenUnused(Bitmap bitmap) {
+        synchronized (bitmapPool) {
+            if (displayCounts.containsKey(bitmap)) {
+                evictedWhileDisplayed.add(bitmap);
+            } else {
+                bitmapPool.put(bitmap);
+            }
+        }
+    }
+
+    /**
+     * Decode a drawable at the largest power-of-two downsample that still covers the target size
+     * @return Decoded bitmap, or null when the drawable is not a bitmap
+     */
+    private Bitmap decode(int resourceId) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        // Posters are built per density bucket at the slot's size, so they normally decode at
+        // inSampleSize 1; scaling between buckets is left to the view rather than done here
+        options.inScaled = false;
+        BitmapFactory.decodeResource(resources, resourceId, options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return null;
+        }
+
+        options.inSampleSize = calculateInSampleSize(options.outWidth, options.outHeight, targetWidth, targetHeight);
+        options.inJustDecodeBounds = false;
+        options.inMutable = true;
+        options.inPreferredConfig = Bitmap.Config.ARGB_8888;
+
+        int width = (options.outWidth + options.inSampleSize - 1) / options.inSampleSize;
+        int height = (options.outHeight + options.inSampleSize - 1) / options.inSampleSize;
+        synchronized (bitmapPool) {
+            options.inBitmap = bitmapPool.take(width * height * BYTES_PER_PIXEL);
+        }
+        try {
+            return BitmapFactory.decodeResource(resources, resourceId, options);
+        } catch (IllegalArgumentException e) {
+            // Pooled bitmap was not compatible, decode into fresh memory
+            options.inBitmap = null;
+            return BitmapFactory.decodeResource(resources, resourceId, options);
+        }
+    }
+
+    static int calculateInSampleSize(int width, int height, int reqWidth, int reqHeight) {
+        int inSampleSize = 1;
+        if (reqWidth <= 0 || reqHeight <= 0) {
+            return inSampleSize;
+        }
+        while ((height / (inSampleSize * 2)) >= reqHeight && (width / (inSampleSize * 2)) >= reqWidth) {
+            inSampleSize *= 2;
+        }
+        return inSampleSize;
+    }
+
+    /**
+     * Per-view request state, kept as the view's tag and reused across binds
+     */
+    private static class Request {
+        final Target target;
+        // Incremented on every new load or cancel; a decode only delivers if it still matches
+        int generation;
+        DecodeTask task;
+        Bitmap displayed;
+
+        Request(Target target) {
+            this.target = target;
+        }
+    }
+
+    private static class ImageViewTarget implements Target {
+        private final ImageView imageView;
+
+        ImageViewTarget(ImageView imageView) {
+            this.imageView = imageView;
+        }
+
+        @Override
+        public View getPosterView() {
+            return imageView;
+        }
+
+        @Override
+        public void setPosterBitmap(Bitmap bitmap) {
+            imageView.setImageBitmap(bitmap);
+        }
+
+        @Override
+        public void setPosterResource(int resourceId) {
+            imageView.setImageResource(resourceId);
+        }
+    }
+
+    /**
+     * Decode of one poster, for a view's request or, without one, a prefetch into the cache
+     */
+    private class DecodeTask implements Runnable, Comparable<DecodeTask> {
+        private final Request request;
+        private final int generation;
+        private final int resourceId;
+        private final int priority;
+        private final int sequence;
+
+        DecodeTask(Request request, int generation, int resourceId, int priority) {
+            this.request = request;
+            this.generation = generation;
+            this.resourceId = resourceId;
+            this.priority = priority;
+            this.sequence = taskSequence.getAndIncrement();
+        }
+
+        @Override
+        public int compareTo(DecodeTask other) {
+            if (priority != other.priority) {
+                return priority < other.priority ? -1 : 1;
+            }
+            // First submitted first, with wrap-around
+            return Integer.signum(sequence - other.sequence);
+        }
+
+        @Override
+        public void run() {
+            Bitmap bitmap = memoryCache.get(resourceId);
+            if (bitmap == null && !nonBitmapResources.contains(resourceId)) {
+                long decodeStart = System.nanoTime();
+                try {
+                    bitmap = decode(resourceId);
+                } catch (RuntimeException | OutOfMemoryError e) {
+                    AppLog.e(TAG, "Failed to decode poster: ", e);
+                    if (request == null) {
+                        // Unregistered like a finished prefetch, its row decodes it again when bound
+                        mainHandler.post(new Runnable() {
+                            @Override
+                            public void run() {
+                                prefetches.remove(resourceId);
+                            }
+                        });
+                    }
+                    return;
+                }
+                long decodeNanos = System.nanoTime() - decodeStart;
+                Metrics.POSTER_DECODE.record(decodeNanos);
+                // Racy read-modify-write between decoders, a lost sample only slows the average
+                averageDecodeNanos += (decodeNanos - averageDecodeNanos) / 4;
+                if (bitmap != null) {
+                    memoryCache.put(resourceId, bitmap);
+                } else {
+                    nonBitmapResources.add(resourceId);
+                }
+            }
+
+            final Bitmap result = bitmap;
+            mainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    if (request == null) {
+                        // Prefetch, the bitmap waits in the cache for its row
+                        prefetches.remove(resourceId);
+                        return;
+                    }
+                    if (request.generation != generation) {
+                        // View was rebound or recycled while decoding
+                        return;
+                    }
+                    request.task = null;
+                    if (result != null) {
+                        display(request, result);
+                    } else {
+                        request.target.setPosterResource(resourceId);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Byte-bounded pool of mutable bitmaps whose memory can be reused through inBitmap.
+     * Callers synchronize on the pool.
+     */
+    private static class BitmapPool {
+        private final int maxBytes;
+        private final List<Bitmap> bitmaps = new ArrayList<>();
+        private int bytes;
+
+        BitmapPool(int maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+
+        void put(Bitmap bitmap) {
+            if (!bitmap.isMutable() || bitmap.isRecycled()) {
+                return;
+            }
+            int size = bitmap.getAllocationByteCount();
+            if (size > maxBytes) {
+                return;
+            }
+            while (bytes + size > maxBytes && !bitmaps.isEmpty()) {
+                bytes -= bitmaps.remove(0).getAllocationByteCount();
+            }
+            bitmaps.add(bitmap);
+            bytes += size;
+        }
+
+        void reclaim(Bitmap bitmap) {
+            for (int i = 0; i < bitmaps.size(); i++) {
+                if (bitmaps.get(i) == bitmap) {
+                    bitmaps.remove(i);
+                    bytes -= bitmap.getAllocationByteCount();
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Take the smallest pooled bitmap with at least the requested allocation, or null
+         */
+        Bitmap take(int requiredBytes) {
+            int best = -1;
+            for (int i = 0; i < bitmaps.size(); i++) {
+                int size = bitmaps.get(i).getAllocationByteCount();
+                if (size >= requiredBytes
+                        && (best == -1 || size < bitmaps.get(best).getAllocationByteCount())) {
+                    best = i;
+                }
+            }
+            if (best == -1) {
+                return null;
+            }
+            Bitmap bitmap = bitmaps.remove(best);
+            bytes -= bitmap.getAllocationByteCount();
+            return bitmap;
+        }
+    }
+
+    private static class DecoderThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(final Runnable runnable) {
+            return new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                    runnable.run();
+                }
+            }, "PosterLoader-" + count.incrementAndGet());
+        }
+    }
+}
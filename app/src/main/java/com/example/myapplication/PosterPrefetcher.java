@@ -0,0 +1,178 @@
+package com.example.myapplication;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * Decodes the posters of the rows about to scroll into view, so they are cached by the
+ * time the rows bind. Looks ahead in the scroll direction, further the faster the list
+ * moves and the slower posters decode. Prefetches for rows the list has moved past, or
+ * that fall out of the look-ahead, are dropped before they start. Attach to a
+ * RecyclerView with a LinearLayoutManager showing a MovieAdapter; main thread only.
+ */
+public class PosterPrefetcher extends RecyclerView.OnScrollListener {
+    // Rows always looked ahead, enough for a slow drag
+    static final int MIN_DEPTH = 3;
+    // Most rows looked ahead, and the most prefetches queued at once
+    static final int MAX_DEPTH = 24;
+    // Rows decoded ahead of the ones needed right now, to absorb uneven decode times
+    private static final float LEAD_FACTOR = 2f;
+    // Weight of the newest sample in the smoothed scroll speed
+    private static final float SPEED_SMOOTHING = 0.3f;
+
+    private final PosterLoader posterLoader;
+    // Drawable ids of the prefetches this prefetcher has queued
+    private final int[] pending = new int[MAX_DEPTH];
+    private int pendingCount;
+    // Drawable ids wanted by the current look-ahead, reused on every update
+    private final int[] wanted = new int[MAX_DEPTH];
+
+    // +1 scrolling towards the end of the list, -1 towards the start
+    private int direction = 1;
+    // Smoothed scroll speed in rows per second
+    private float rowsPerSecond;
+    private long lastScrollNanos;
+    // Look-ahead last planned, replanned only when it changes
+    private int plannedStart = RecyclerView.NO_POSITION;
+    private int plannedDepth;
+    private int plannedDirection;
+
+    public PosterPrefetcher(PosterLoader posterLoader) {
+        this.posterLoader = posterLoader;
+    }
+
+    @Override
+    public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+        long now = System.nanoTime();
+        if (dy != 0) {
+            int newDirection = dy > 0 ? 1 : -1;
+            if (newDirection != direction) {
+                // Turned around, the old speed says nothing about the new direction
+                direction = newDirection;
+                rowsPerSecond = 0;
+            }
+            int rowHeight = averageRowHeight(recyclerView);
+            long elapsed = now - lastScrollNanos;
+            if (rowHeight > 0 && lastScrollNanos != 0 && elapsed > 0) {
+                float sample = Math.abs(dy) * 1e9f / (rowHeight * (float) elapsed);
+                rowsPerSecond += (sample - rowsPerSecond) * SPEED_SMOOTHING;
+            }
+        }
+        lastScrollNanos = now;
+        update(recyclerView);
+    }
+
+    @Override
+    public void onScrollStateChanged(@NonNull RecyclerView recyclerView, int newState) {
+        if (newState == RecyclerView.SCROLL_STATE_IDLE) {
+            // Settled, keep the nearest rows of the last direction ready for the next scroll
+            rowsPerSecond = 0;
+            lastScrollNanos = 0;
+            update(recyclerView);
+        }
+    }
+
+    /**
+     * Drop every queued prefetch, when the list is replaced or the prefetcher detached
+     */
+    public void cancelAll() {
+        for (int i = 0; i < pendingCount; i++) {
+            posterLoader.cancelPrefetch(pending[i]);
+        }
+        pendingCount = 0;
+        plannedStart = RecyclerView.NO_POSITION;
+    }
+
+    private void update(RecyclerView recyclerView) {
+        if (!(recyclerView.getLayoutManager() instanceof LinearLayoutManager)
+                || !(recyclerView.getAdapter() instanceof MovieAdapter)) {
+            return;
+        }
+        LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
+        MovieAdapter adapter = (MovieAdapter) recyclerView.getAdapter();
+        int first = layoutManager.findFirstVisibleItemPosition();
+        int last = layoutManager.findLastVisibleItemPosition();
+        if (first == RecyclerView.NO_POSITION || last == RecyclerView.NO_POSITION) {
+            return;
+        }
+
+        int depth = prefetchDepth(rowsPerSecond, posterLoader.getAverageDecodeNanos(),
+                posterLoader.getDecoderCount());
+        // First row past the visible ones in the scroll direction
+        int start = direction > 0 ? last + 1 : first - 1;
+        if (start == plannedStart && depth == plannedDepth && direction == plannedDirection) {
+            return;
+        }
+        plannedStart = start;
+        plannedDepth = depth;
+        plannedDirection = direction;
+        plan(adapter, start, depth);
+    }
+
+    /**
+     * Queue the posters of the look-ahead rows, nearest first, and drop queued ones outside it
+     */
+    private void plan(MovieAdapter adapter, int start, int depth) {
+        int wantedCount = 0;
+        int count = adapter.getItemCount();
+        for (int distance = 1; distance <= depth; distance++) {
+            int position = start + (distance - 1) * direction;
+            if (position < 0 || position >= count) {
+                break;
+            }
+            int resourceId = adapter.getPosterIdAt(position);
+            if (resourceId == PosterResolver.NOT_FOUND || contains(wanted, wantedCount, resourceId)) {
+                continue;
+            }
+            wanted[wantedCount++] = resourceId;
+            posterLoader.prefetch(resourceId, distance);
+        }
+
+        // Rows flung past or beyond the look-ahead; ones that already started still finish into the cache
+        for (int i = 0; i < pendingCount; i++) {
+            if (!contains(wanted, wantedCount, pending[i])) {
+                posterLoader.cancelPrefetch(pending[i]);
+            }
+        }
+        System.arraycopy(wanted, 0, pending, 0, wantedCount);
+        pendingCount = wantedCount;
+    }
+
+    private static boolean contains(int[] ids, int count, int id) {
+        for (int i = 0; i < count; i++) {
+            if (ids[i] == id) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int averageRowHeight(RecyclerView recyclerView) {
+        int children = recyclerView.getChildCount();
+        return children > 0 ? recyclerView.getHeight() / children : 0;
+    }
+
+    /**
+     * Rows to look ahead: those that scroll into view while the posters ahead of them
+     * decode, with some lead, between MIN_DEPTH and MAX_DEPTH
+     * @param rowsPerSecond Scroll speed
+     * @param decodeNanos Average time to decode one poster
+     * @param decoders Posters decoded in parallel
+     * @return Look-ahead depth in rows
+     */
+    static int prefetchDepth(float rowsPerSecond, long decodeNanos, int decoders) {
+        if (rowsPerSecond <= 0 || decodeNanos <= 0) {
+            return MIN_DEPTH;
+        }
+        double decodeSeconds = decodeNanos / 1e9;
+        // Share of the decoders' throughput the scrolling uses up, at 1 or more they fall behind
+        double load = rowsPerSecond * decodeSeconds / Math.max(1, decoders);
+        if (load >= 1) {
+            return MAX_DEPTH;
+        }
+        // d rows ahead are ready in time when d = speed * (decode time + d * load / speed)
+        double rows = rowsPerSecond * decodeSeconds * LEAD_FACTOR / (1 - load);
+        return (int) Math.min(MAX_DEPTH, MIN_DEPTH + Math.ceil(rows));
+    }
+}
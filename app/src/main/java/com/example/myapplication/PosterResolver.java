@@ -0,0 +1,189 @@
+package com.example.myapplication;
+
+import android.content.Context;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resolves movie poster resource names to drawable ids.
+ * Each distinct name is resolved once, hits and misses are both cached,
+ * so binding a row costs a single map lookup.
+ */
+public class PosterResolver {
+    private static final String TAG = "PosterResolver";
+
+    /**
+     * Returned for names that do not match any drawable
+     */
+    public static final int NOT_FOUND = 0;
+
+    /**
+     * Looks up a drawable by resource name, returns NOT_FOUND when it does not exist
+     */
+    public interface IdentifierLookup {
+        int getDrawableId(String name);
+    }
+
+    /**
+     * Derives a candidate drawable name from a poster resource name,
+     * returns null when the rule does not apply
+     */
+    interface NameRule {
+        String apply(String posterResource);
+    }
+
+    // Direct mappings for known movies whose drawables don't follow the naming rules
+    private static final Map<String, String> ALIASES = new HashMap<>();
+
+    static {
+        ALIASES.put("interstellar_poster", "interstellar");
+        ALIASES.put("matrix_poster", "thematrix");
+        ALIASES.put("inception_poster", "inception");
+        ALIASES.put("dark_knight_poster", "dark_knight");
+        ALIASES.put("pulp_fiction_poster", "pulpfiction");
+        ALIASES.put("avatar_poster", "avatar");
+        ALIASES.put("titanic_poster", "titanic");
+        ALIASES.put("godfather_poster", "thegodfather");
+    }
+
+    // Fallback rules, tried in order after the alias table
+    private static final NameRule[] RULES = {
+            // Use posterResource attribute directly
+            new NameRule() {
+                @Override
+                public String apply(String posterResource) {
+                    return posterResource;
+                }
+            },
+            // Lowercase without _poster suffix
+            new NameRule() {
+                @Override
+                public String apply(String posterResource) {
+                    return posterResource.endsWith("_poster")
+                            ? posterResource.replace("_poster", "").toLowerCase() : null;
+                }
+            },
+            // Without suffix and file extensions
+            new NameRule() {
+                @Override
+                public String apply(String posterResource) {
+                    return cleanName(posterResource);
+                }
+            },
+            // With "the" prefix for known movies
+            new NameRule() {
+                @Override
+                public String apply(String posterResource) {
+                    return "the" + cleanName(posterResource);
+                }
+            }
+    };
+
+    private static PosterResolver instance;
+
+    private final IdentifierLookup lookup;
+    private final ConcurrentHashMap<String, Integer> cache = new ConcurrentHashMap<>();
+
+    /**
+     * Get the shared resolver for the application's drawables
+     * @param context Context
+     * @return Shared resolver
+     */
+    public static synchronized PosterResolver getInstance(Context context) {
+        if (instance == null) {
+            final Context appContext = context.getApplicationContext();
+            instance = new PosterResolver(new IdentifierLookup() {
+                @Override
+                public int getDrawableId(String name) {
+                    return appContext.getResources().getIdentifier(
+                            name, "drawable", appContext.getPackageName());
+                }
+            });
+        }
+        return instance;
+    }
+
+    /**
+     * Constructor
+     * @param lookup Drawable lookup by name
+     */
+    public PosterResolver(IdentifierLookup lookup) {
+        this.lookup = lookup;
+    }
+
+    /**
+     * Get the drawable id for a movie's poster, resolving and caching it on first use
+     * @param movie Movie object
+     * @return Drawable id, or NOT_FOUND when the movie should show the placeholder
+     */
+    public int getPosterId(Movie movie) {
+        if (movie == null || movie.hasPosterError() || movie.getPosterResource() == null) {
+            return NOT_FOUND;
+        }
+        return resolve(movie.getPosterResource());
+    }
+
+    /**
+     * Resolve a poster resource name, only the first call per distinct name does resource lookups
+     * @param posterResource Poster resource name from the catalog
+     * @return Drawable id, or NOT_FOUND
+     */
+    public int resolve(String posterResource) {
+        long resolveStart = System.nanoTime();
+        Integer cached = cache.get(posterResource);
+        if (cached != null) {
+            Metrics.POSTER_CACHE_HITS.increment();
+            Metrics.POSTER_RESOLVE.recordSince(resolveStart);
+            return cached;
+        }
+        int resourceId = resolveUncached(posterResource);
+        cache.put(posterResource, resourceId);
+        AppLog.d(TAG, "Resolved poster ", posterResource, " -> ", resourceId);
+        Metrics.POSTER_CACHE_MISSES.increment();
+        Metrics.POSTER_RESOLVE.recordSince(resolveStart);
+        return resourceId;
+    }
+
+    /**
+     * Number of distinct poster names resolved so far
+     */
+    public int size() {
+        return cache.size();
+    }
+
+    private int resolveUncached(String posterResource) {
+        try {
+            String alias = ALIASES.get(posterResource);
+            if (alias != null) {
+                int resourceId = lookup.getDrawableId(alias);
+                if (resourceId != NOT_FOUND) {
+                    return resourceId;
+                }
+            }
+
+            for (NameRule rule : RULES) {
+                String candidate = rule.apply(posterResource);
+                if (candidate == null) {
+                    continue;
+                }
+                int resourceId = lookup.getDrawableId(candidate);
+                if (resourceId != NOT_FOUND) {
+                    return resourceId;
+                }
+            }
+            AppLog.w(TAG, "Cannot find poster resource, using placeholder: ", posterResource);
+        } catch (RuntimeException e) {
+            AppLog.e(TAG, "Failed to resolve poster: ", posterResource);
+        }
+        return NOT_FOUND;
+    }
+
+    private static String cleanName(String posterResource) {
+        return posterResource
+                .replace("_poster", "")
+                .replace(".png", "")
+                .replace(".jpg", "");
+    }
+}
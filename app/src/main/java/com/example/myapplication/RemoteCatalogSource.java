@@ -0,0 +1,370 @@
+package com.example.myapplication;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Properties;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Movie catalog downloaded from a server. The body is decompressed and handed to the
+ * parser as it arrives, while a copy is written to the cache directory. The next request
+ * is conditional on the copy's ETag and Last-Modified date, so an unchanged catalog costs
+ * a 304 response and is read from the copy. When the server cannot be reached the copy is
+ * used as well; without one, open() fails and the caller uses the bundled asset.
+ */
+public class RemoteCatalogSource {
+    static final String CACHE_FILE = "remote-catalog.json";
+    static final String META_FILE = "remote-catalog.properties";
+
+    /**
+     * Catalog read from the response body
+     */
+    public static final int SOURCE_NETWORK = 0;
+    /**
+     * Server answered 304, catalog read from the cached copy
+     */
+    public static final int SOURCE_NOT_MODIFIED = 1;
+    /**
+     * Server unreachable or failing, catalog read from the cached copy
+     */
+    public static final int SOURCE_OFFLINE = 2;
+
+    private static final int CONNECT_TIMEOUT_MS = 10000;
+    private static final int READ_TIMEOUT_MS = 20000;
+    private static final String KEY_ETAG = "etag";
+    private static final String KEY_LAST_MODIFIED = "lastModified";
+    private static final String KEY_CHECKSUM = "checksum";
+
+    private final URL url;
+    private final File directory;
+
+    /**
+     * Constructor
+     * @param url Catalog location, serving a JSON array of movie objects
+     * @param directory Directory holding the cached copy
+     */
+    public RemoteCatalogSource(URL url, File directory) {
+        this.url = url;
+        this.directory = directory;
+    }
+
+    /**
+     * Request the catalog, conditional on the cached copy when there is one
+     * @return Response to read the catalog from, to be closed by the caller
+     * @throws IOException Server unreachable or failing and no cached copy
+     */
+    public Response open() throws IOException {
+        Properties cached = readMeta();
+        HttpURLConnection connection = null;
+        try {
+            connection = (HttpURLConnection) url.openConnection();
+            connection.setConnectTimeout(CONNECT_TIMEOUT_MS);
+            connection.setReadTimeout(READ_TIMEOUT_MS);
+            connection.setUseCaches(false);
+            // Requested explicitly, so the body is decompressed here the same way on every platform
+            connection.setRequestProperty("Accept-Encoding", "gzip");
+            if (cached != null) {
+                String etag = cached.getProperty(KEY_ETAG);
+                String lastModified = cached.getProperty(KEY_LAST_MODIFIED);
+                if (etag != null) {
+                    connection.setRequestProperty("If-None-Match", etag);
+                }
+                if (lastModified != null) {
+                    connection.setRequestProperty("If-Modified-Since", lastModified);
+                }
+            }
+
+            int status = connection.getResponseCode();
+            if (status == HttpURLConnection.HTTP_NOT_MODIFIED && cached != null) {
+                connection.disconnect();
+                return openCached(SOURCE_NOT_MODIFIED, cached, null);
+            }
+            if (status != HttpURLConnection.HTTP_OK) {
+                throw new IOException("Unexpected HTTP status " + status + " for " + url);
+            }
+            InputStream body = connection.getInputStream();
+            if ("gzip".equalsIgnoreCase(connection.getContentEncoding())) {
+                body = new GZIPInputStream(body, 8192);
+            }
+            return new Response(connection, body, connection.getHeaderField("ETag"),
+                    connection.getHeaderField("Last-Modified"));
+        } catch (IOException e) {
+            if (connection != null) {
+                connection.disconnect();
+            }
+            if (cached == null) {
+                throw e;
+            }
+            return openCached(SOURCE_OFFLINE, cached, e);
+        }
+    }
+
+    /**
+     * Read the whole cached copy, for consumers that need the catalog bytes in memory
+     * @return UTF-8 encoded JSON array of movie objects
+     * @throws IOException No cached copy, or reading failed
+     */
+    public byte[] readCached() throws IOException {
+        File file = new File(directory, CACHE_FILE);
+        byte[] bytes = new byte[(int) file.length()];
+        try (FileInputStream input = new FileInputStream(file)) {
+            int offset = 0;
+            while (offset < bytes.length) {
+                int read = input.read(bytes, offset, bytes.length - offset);
+                if (read < 0) {
+                    throw new IOException("Cached catalog was truncated");
+                }
+                offset += read;
+            }
+        }
+        return bytes;
+    }
+
+    private Response openCached(int source, Properties meta, IOException failure) throws IOException {
+        long checksum = Long.parseLong(meta.getProperty(KEY_CHECKSUM));
+        return new Response(source, new FileInputStream(new File(directory, CACHE_FILE)), checksum, failure);
+    }
+
+    /**
+     * Validators and checksum of the cached copy
+     * @return Properties, or null when there is no complete copy
+     */
+    private Properties readMeta() {
+        File metaFile = new File(directory, META_FILE);
+        if (!metaFile.isFile() || !new File(directory, CACHE_FILE).isFile()) {
+            return null;
+        }
+        Properties meta = new Properties();
+        try (FileInputStream input = new FileInputStream(metaFile)) {
+            meta.load(input);
+        } catch (IOException | IllegalArgumentException e) {
+            return null;
+        }
+        try {
+            Long.parseLong(meta.getProperty(KEY_CHECKSUM));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        return meta;
+    }
+
+    private void writeMeta(String etag, String lastModified, long checksum) throws IOException {
+        Properties meta = new Properties();
+        if (etag != null) {
+            meta.setProperty(KEY_ETAG, etag);
+        }
+        if (lastModified != null) {
+            meta.setProperty(KEY_LAST_MODIFIED, lastModified);
+        }
+        meta.setProperty(KEY_CHECKSUM, Long.toString(checksum));
+        File temporary = new File(directory, META_FILE + ".tmp");
+        try (FileOutputStream output = new FileOutputStream(temporary)) {
+            meta.store(output, null);
+            output.getFD().sync();
+        }
+        if (!temporary.renameTo(new File(directory, META_FILE))) {
+            throw new IOException("Cannot rename " + temporary);
+        }
+    }
+
+    /**
+     * Catalog body of one request. A body read from the network becomes the cached copy
+     * only once commit() is called after it parsed successfully.
+     */
+    public class Response implements Closeable {
+        private final int source;
+        private final HttpURLConnection connection;
+        private final InputStream body;
+        private final String etag;
+        private final String lastModified;
+        private final CachingInputStream caching;
+        private final IOException failure;
+        private long checksum;
+        private boolean committed;
+
+        Response(int source, InputStream cachedBody, long checksum, IOException failure) {
+            this.source = source;
+            this.connection = null;
+            this.body = cachedBody;
+            this.etag = null;
+            this.lastModified = null;
+            this.caching = null;
+            this.checksum = checksum;
+            this.failure = failure;
+        }
+
+        Response(HttpURLConnection connection, InputStream networkBody, String etag, String lastModified)
+                throws IOException {
+            this.source = SOURCE_NETWORK;
+            this.connection = connection;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.caching = new CachingInputStream(networkBody, new File(directory, CACHE_FILE + ".tmp"));
+            this.body = caching;
+            this.failure = null;
+        }
+
+        /**
+         * Where the catalog is read from, one of the SOURCE_* values
+         */
+        public int getSource() {
+            return source;
+        }
+
+        /**
+         * Why the cached copy is used, for SOURCE_OFFLINE
+         * @return Network failure, or null
+         */
+        public IOException getFailure() {
+            return failure;
+        }
+
+        /**
+         * Decompressed catalog, a UTF-8 encoded JSON array of movie objects
+         */
+        public InputStream getBody() {
+            return body;
+        }
+
+        /**
+         * CRC-32 of the catalog, as CatalogSnapshot.checksum computes it. Known up front for
+         * the cached copy, and after commit() for a body read from the network.
+         * @return Checksum
+         */
+        public long getChecksum() {
+            if (source == SOURCE_NETWORK && !committed) {
+                throw new IllegalStateException("Checksum is known once the body is committed");
+            }
+            return checksum;
+        }
+
+        /**
+         * Keep a body read from the network as the cached copy, with its validators.
+         * Reads whatever the parser left unread; does nothing for the cached copy.
+         * @throws IOException Reading or writing the copy failed
+         */
+        public void commit() throws IOException {
+            if (source != SOURCE_NETWORK || committed) {
+                return;
+            }
+            checksum = caching.finish();
+            File metaFile = new File(directory, META_FILE);
+            // Without validators the copy is never used, so a crash between the two renames is harmless
+            if (metaFile.exists() && !metaFile.delete()) {
+                throw new IOException("Cannot delete " + metaFile);
+            }
+            File cacheFile = new File(directory, CACHE_FILE);
+            if (!caching.file.renameTo(cacheFile)) {
+                throw new IOException("Cannot rename " + caching.file + " to " + cacheFile);
+            }
+            writeMeta(etag, lastModified, checksum);
+            committed = true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                body.close();
+            } finally {
+                if (connection != null) {
+                    connection.disconnect();
+                }
+                if (caching != null && !committed) {
+                    // Failed or abandoned part way, the previous copy stays in place
+                    caching.file.delete();
+                }
+            }
+        }
+    }
+
+    /**
+     * Copies everything read through it to a file, with a running checksum
+     */
+    private static class CachingInputStream extends FilterInputStream {
+        final File file;
+        private final FileOutputStream fileOutput;
+        private final OutputStream output;
+        private final CRC32 crc = new CRC32();
+        private boolean closed;
+
+        CachingInputStream(InputStream in, File file) throws IOException {
+            super(in);
+            this.file = file;
+            this.fileOutput = new FileOutputStream(file);
+            this.output = new BufferedOutputStream(fileOutput, 64 * 1024);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int value = in.read();
+            if (value >= 0) {
+                crc.update(value);
+                output.write(value);
+            }
+            return value;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = in.read(buffer, offset, length);
+            if (read > 0) {
+                crc.update(buffer, offset, read);
+                output.write(buffer, offset, read);
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long count) throws IOException {
+            // Skipped bytes still belong in the copy
+            byte[] buffer = new byte[(int) Math.min(count, 8192)];
+            int read = read(buffer, 0, buffer.length);
+            return Math.max(read, 0);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        /**
+         * Read the rest of the body and flush the copy to disk
+         * @return Checksum of the whole body
+         */
+        long finish() throws IOException {
+            // Usually only whitespace after the array is left
+            byte[] buffer = new byte[8192];
+            int read;
+            do {
+                read = read(buffer, 0, buffer.length);
+            } while (read >= 0);
+            output.flush();
+            fileOutput.getFD().sync();
+            close();
+            return crc.getValue();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                in.close();
+            } finally {
+                output.close();
+            }
+        }
+    }
+}
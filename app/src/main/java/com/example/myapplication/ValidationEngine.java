@@ -0,0 +1,289 @@
+package com.example.myapplication;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.List;
+
+/**
+ * Builds movies from catalog records, running every validation rule exactly once per
+ * record and accumulating the outcome in a ValidationReport. The built-in title, year,
+ * genre and poster rules always run first; additional rules are appended after them.
+ * Rules log nothing per record; failures are counted and sampled in LoadDiagnostics.
+ */
+public class ValidationEngine {
+    public static final String RULE_TITLE = "title";
+    public static final String RULE_YEAR = "year";
+    public static final String RULE_GENRE = "genre";
+    public static final String RULE_POSTER = "poster";
+
+    // Returned by explicitId for records whose id cannot be used
+    static final long NO_EXPLICIT_ID = 0;
+
+    // Failures are tracked as bits of a long
+    private static final int MAX_RULES = 64;
+
+    // Bit order matches the BinaryCatalog error flags, so compiled flags map onto the same report
+    private static final ValidationRule[] BUILT_IN_RULES = {
+            new TitleRule(), new YearRule(), new GenreRule(), new PosterRule()
+    };
+
+    private static final ValidationEngine DEFAULT = new ValidationEngine(null);
+
+    private final ValidationRule[] rules;
+    private final String[] ruleNames;
+
+    /**
+     * Get the engine with only the built-in rules
+     * @return Shared default engine
+     */
+    public static ValidationEngine getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Constructor
+     * @param extraRules Rules run after the built-in ones, may be null
+     */
+    public ValidationEngine(List<ValidationRule> extraRules) {
+        int extraCount = extraRules != null ? extraRules.size() : 0;
+        if (BUILT_IN_RULES.length + extraCount > MAX_RULES) {
+            throw new IllegalArgumentException("At most " + MAX_RULES + " validation rules are supported");
+        }
+        rules = new ValidationRule[BUILT_IN_RULES.length + extraCount];
+        System.arraycopy(BUILT_IN_RULES, 0, rules, 0, BUILT_IN_RULES.length);
+        for (int i = 0; i < extraCount; i++) {
+            rules[BUILT_IN_RULES.length + i] = extraRules.get(i);
+        }
+        ruleNames = new String[rules.length];
+        for (int i = 0; i < rules.length; i++) {
+            ruleNames[i] = rules[i].getName();
+        }
+    }
+
+    /**
+     * Stable identity of a record: its explicit id when that is a positive integer, otherwise
+     * the negated record number. Ids derived from positions are never positive, so they cannot
+     * collide with explicit ids when a catalog mixes records with and without one. Explicit ids
+     * are expected to be unique; the catalog is not checked for repeats.
+     * @param rawId Value of the record's "id" field, null when there is none
+     * @param number 1-based record number
+     * @return Movie id
+     */
+    static long movieId(Object rawId, int number) {
+        long id = explicitId(rawId);
+        return id != NO_EXPLICIT_ID ? id : -(long) number;
+    }
+
+    /**
+     * Read an explicit id with org.json's number coercion: numbers and numeric strings,
+     * decimals truncated
+     * @param rawId Value of the record's "id" field, may be null
+     * @return The id when it is a positive integer, otherwise NO_EXPLICIT_ID
+     */
+    static long explicitId(Object rawId) {
+        long id;
+        if (rawId instanceof Number) {
+            id = ((Number) rawId).longValue();
+        } else if (rawId instanceof String) {
+            try {
+                id = (long) Double.parseDouble(((String) rawId).trim());
+            } catch (NumberFormatException e) {
+                return NO_EXPLICIT_ID;
+            }
+        } else {
+            return NO_EXPLICIT_ID;
+        }
+        return id > 0 ? id : NO_EXPLICIT_ID;
+    }
+
+    /**
+     * Create an empty report for this engine's rules
+     * @return New report
+     */
+    public ValidationReport newReport() {
+        return new ValidationReport(ruleNames);
+    }
+
+    /**
+     * Build a movie from a record, running each rule once
+     * @param record JSON record
+     * @param number 1-based record number in the catalog, gives the id when the record has none
+     * @param report Receives the outcome when the movie is built, may be null
+     * @param diagnostics Receives the failed rules when the movie is built, may be null
+     * @return Movie object
+     * @throws JSONException The record cannot be used; nothing is added to the report
+     */
+    Movie validate(JSONObject record, int number, ValidationReport report, LoadDiagnostics diagnostics)
+            throws JSONException {
+        Movie movie = new Movie();
+        long failures = 0;
+        for (int i = 0; i < rules.length; i++) {
+            if (!rules[i].validate(record, movie)) {
+                failures |= 1L << i;
+            }
+        }
+
+        movie.setId(movieId(record.opt("id"), number));
+
+        if (report != null) {
+            report.add(failures);
+        }
+        if (diagnostics != null) {
+            while (failures != 0) {
+                int rule = Long.numberOfTrailingZeros(failures);
+                failures &= failures - 1;
+                int kind = rule < BUILT_IN_RULES.length
+                        ? LoadDiagnostics.KIND_TITLE + rule : LoadDiagnostics.KIND_OTHER_RULE;
+                diagnostics.add(kind, number, diagnostics.isSampling(kind) ? describeFailure(rule, movie) : null);
+            }
+        }
+        return movie;
+    }
+
+    /**
+     * Message of a failed rule, built only for sampled records
+     */
+    private String describeFailure(int rule, Movie movie) {
+        switch (rule) {
+            case 0:
+                return movie.getTitle() == null ? "Title is null or missing" : "Title is an empty string";
+            case 1:
+                return movie.getYearErrorMsg();
+            case 2:
+                return "Genre is missing";
+            case 3:
+                return movie.getPosterResource() == null
+                        ? "Poster resource is missing or null" : "Poster resource is an empty string";
+            default:
+                return "Failed rule " + ruleNames[rule];
+        }
+    }
+
+    /**
+     * Title must be present and not blank
+     */
+    private static class TitleRule implements ValidationRule {
+        @Override
+        public String getName() {
+            return RULE_TITLE;
+        }
+
+        @Override
+        public boolean validate(JSONObject record, Movie movie) throws JSONException {
+            String title = null;
+            boolean titleError = false;
+
+            if (record.has("title") && !record.isNull("title")) {
+                title = record.getString("title");
+                // Validate title is not empty
+                if (title.trim().isEmpty()) {
+                    titleError = true;
+                }
+            } else {
+                // Title is null or missing, record error
+                titleError = true;
+            }
+
+            movie.setTitle(title);
+            movie.setHasTitleError(titleError);
+            return !titleError;
+        }
+    }
+
+    /**
+     * Year must be a positive integer; detect but don't automatically fix errors
+     */
+    private static class YearRule implements ValidationRule {
+        @Override
+        public String getName() {
+            return RULE_YEAR;
+        }
+
+        @Override
+        public boolean validate(JSONObject record, Movie movie) {
+            // One lookup and one inspection of the value; a bad year costs no exception,
+            // and its message is only built if someone reads it
+            Object value = record.opt("year");
+            long result = FieldCoercion.toInt(value);
+            int code = FieldCoercion.code(result);
+            int year = FieldCoercion.hasValue(result) ? FieldCoercion.value(result) : MovieStore.NO_YEAR;
+            int errorKind;
+            Object errorDetail = null;
+            switch (code) {
+                case FieldCoercion.OK:
+                case FieldCoercion.STRING_NUMBER:
+                    // Zero is reported like a negative year
+                    errorKind = year > 0 ? MovieStore.YEAR_MSG_NONE : MovieStore.YEAR_MSG_NEGATIVE;
+                    break;
+                case FieldCoercion.NEGATIVE:
+                    errorKind = MovieStore.YEAR_MSG_NEGATIVE;
+                    break;
+                case FieldCoercion.DECIMAL:
+                    // Still save integer part for display
+                    errorKind = MovieStore.YEAR_MSG_DECIMAL;
+                    errorDetail = value;
+                    break;
+                case FieldCoercion.MISSING:
+                    errorKind = MovieStore.YEAR_MSG_MISSING;
+                    break;
+                default:
+                    errorKind = MovieStore.YEAR_MSG_NOT_A_NUMBER;
+                    errorDetail = value;
+                    break;
+            }
+            movie.setYear(year, errorKind, errorDetail);
+            return errorKind == MovieStore.YEAR_MSG_NONE;
+        }
+    }
+
+    /**
+     * Genre must be present; missing genres show as "Unknown Genre"
+     */
+    private static class GenreRule implements ValidationRule {
+        @Override
+        public String getName() {
+            return RULE_GENRE;
+        }
+
+        @Override
+        public boolean validate(JSONObject record, Movie movie) throws JSONException {
+            if (record.has("genre") && !record.isNull("genre")) {
+                movie.setGenre(record.getString("genre"));
+                return true;
+            }
+            movie.setGenre(null);
+            return false;
+        }
+    }
+
+    /**
+     * Poster must be present and not blank
+     */
+    private static class PosterRule implements ValidationRule {
+        @Override
+        public String getName() {
+            return RULE_POSTER;
+        }
+
+        @Override
+        public boolean validate(JSONObject record, Movie movie) throws JSONException {
+            String posterResource = null;
+            boolean posterError = false;
+
+            if (record.has("poster") && !record.isNull("poster")) {
+                posterResource = record.getString("poster");
+                // Check if poster is empty string
+                if (posterResource.trim().isEmpty()) {
+                    posterError = true;
+                }
+            } else {
+                posterError = true;
+            }
+
+            movie.setPosterResource(posterResource);
+            movie.setHasPosterError(posterError);
+            return !posterError;
+        }
+    }
+}
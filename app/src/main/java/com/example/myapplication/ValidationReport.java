@@ -0,0 +1,124 @@
+package com.example.myapplication;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Per-rule failure counts and failing record indexes for one catalog load, filled in
+ * while records are validated. Indexes are positions in the loaded movie list.
+ * Not thread-safe; parallel loads fill one report per chunk and append them in order.
+ */
+public class ValidationReport {
+    private final String[] ruleNames;
+    private final int[][] failingIndexes;
+    private final int[] failureCounts;
+    private int recordCount;
+
+    /**
+     * Constructor
+     * @param ruleNames Rule names, in the bit order used by add()
+     */
+    ValidationReport(String[] ruleNames) {
+        this.ruleNames = ruleNames;
+        this.failingIndexes = new int[ruleNames.length][];
+        this.failureCounts = new int[ruleNames.length];
+        for (int i = 0; i < ruleNames.length; i++) {
+            failingIndexes[i] = new int[8];
+        }
+    }
+
+    /**
+     * Record the outcome for the next movie
+     * @param failures Bit i set when rule i failed
+     */
+    void add(long failures) {
+        int index = recordCount++;
+        while (failures != 0) {
+            int rule = Long.numberOfTrailingZeros(failures);
+            failures &= failures - 1;
+            addFailure(rule, index);
+        }
+    }
+
+    /**
+     * Append the records of a report for the movies that follow this report's movies
+     * @param other Report from the same engine
+     */
+    void append(ValidationReport other) {
+        int offset = recordCount;
+        for (int rule = 0; rule < ruleNames.length; rule++) {
+            for (int i = 0; i < other.failureCounts[rule]; i++) {
+                addFailure(rule, other.failingIndexes[rule][i] + offset);
+            }
+        }
+        recordCount += other.recordCount;
+    }
+
+    private void addFailure(int rule, int index) {
+        int count = failureCounts[rule];
+        if (count == failingIndexes[rule].length) {
+            failingIndexes[rule] = Arrays.copyOf(failingIndexes[rule], count + (count >> 1) + 8);
+        }
+        failingIndexes[rule][count] = index;
+        failureCounts[rule] = count + 1;
+    }
+
+    /**
+     * @return Number of movies validated
+     */
+    public int getRecordCount() {
+        return recordCount;
+    }
+
+    public List<String> getRuleNames() {
+        return Collections.unmodifiableList(Arrays.asList(ruleNames));
+    }
+
+    /**
+     * @param ruleName Rule name
+     * @return Number of movies failing the rule, 0 for unknown rules
+     */
+    public int getFailureCount(String ruleName) {
+        int rule = indexOf(ruleName);
+        return rule >= 0 ? failureCounts[rule] : 0;
+    }
+
+    /**
+     * @param ruleName Rule name
+     * @return Ascending indexes of the movies failing the rule, empty for unknown rules
+     */
+    public int[] getFailingIndexes(String ruleName) {
+        int rule = indexOf(ruleName);
+        return rule >= 0 ? Arrays.copyOf(failingIndexes[rule], failureCounts[rule]) : new int[0];
+    }
+
+    /**
+     * @return Sum of the failure counts of all rules
+     */
+    public int getTotalFailureCount() {
+        int total = 0;
+        for (int count : failureCounts) {
+            total += count;
+        }
+        return total;
+    }
+
+    private int indexOf(String ruleName) {
+        for (int i = 0; i < ruleNames.length; i++) {
+            if (ruleNames[i].equals(ruleName)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder("ValidationReport{records=").append(recordCount);
+        for (int i = 0; i < ruleNames.length; i++) {
+            text.append(", ").append(ruleNames[i]).append('=').append(failureCounts[i]);
+        }
+        return text.append('}').toString();
+    }
+}
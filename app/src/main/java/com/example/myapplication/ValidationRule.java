@@ -0,0 +1,25 @@
+package com.example.myapplication;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * A check applied to every catalog record while it is parsed. Rules run in order on the
+ * same record and may read the fields earlier rules wrote to the movie. They are called
+ * from several parser threads at once, so they must not keep unsynchronized state.
+ */
+public interface ValidationRule {
+    /**
+     * @return Name the rule's failures are reported under
+     */
+    String getName();
+
+    /**
+     * Check one record
+     * @param record Raw JSON record
+     * @param movie Movie being built from the record
+     * @return true if the record passes
+     * @throws JSONException The record cannot be used at all and is skipped
+     */
+    boolean validate(JSONObject record, Movie movie) throws JSONException;
+}
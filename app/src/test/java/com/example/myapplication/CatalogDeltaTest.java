@@ -0,0 +1,114 @@
+package com.example.myapplication;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for applying delta documents to a loaded catalog
+ */
+public class CatalogDeltaTest {
+    private MovieStore store;
+    private MovieSearchIndex searchIndex;
+    private MovieSorter sorter;
+
+    private static Movie movie(long id, String title, Integer year, String genre) {
+        Movie movie = new Movie(title, year, genre, title != null ? title.toLowerCase() : null);
+        movie.setId(id);
+        return movie;
+    }
+
+    @Before
+    public void setUp() {
+        store = new MovieStore();
+        searchIndex = new MovieSearchIndex();
+        sorter = new MovieSorter();
+        add(movie(1, "Alien", 1979, "Horror"));
+        add(movie(2, "Heat", 1995, "Crime"));
+        Movie broken = movie(3, "Gattaca", null, "Sci-Fi");
+        broken.setYearErrorMsg("Year is not a valid number: soon");
+        add(broken);
+        add(movie(4, "Jaws", 1975, "Thriller"));
+        Movie late = movie(5, "Zodiac", null, "Crime");
+        late.setYearErrorMsg("Year is not a valid number: later");
+        add(late);
+    }
+
+    private void add(Movie movie) {
+        String genre = movie.hasGenreError() ? null : movie.getGenre();
+        searchIndex.add(store.size(), movie.getTitle(), genre);
+        sorter.add(movie.getTitle(), movie.hasTitleError(), movie.getYearValue(), movie.hasYearError(), genre);
+        store.add(movie);
+    }
+
+    private long[] ids() {
+        long[] ids = new long[store.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = store.get(i).getId();
+        }
+        return ids;
+    }
+
+    @Test
+    public void delta_updatesInPlace_removes_andAppendsUnknownIds() {
+        CatalogDelta delta = new CatalogDelta(Arrays.asList(
+                movie(4, "Jaws 2", 1978, "Thriller"),
+                movie(10, "Memento", 2000, "Mystery")),
+                new long[]{2, 99}, null);
+
+        CatalogDelta.Result result = delta.applyTo(store, searchIndex, sorter);
+
+        assertArrayEquals(new long[]{1, 3, 4, 5, 10}, ids());
+        assertArrayEquals(new int[]{1}, result.getRemovedRows());
+        // Jaws was at 3 before Heat was removed
+        assertArrayEquals(new int[]{2}, result.getChangedRows());
+        assertEquals(4, result.getInsertedStart());
+        assertEquals(1, result.getInsertedCount());
+        assertEquals("Jaws 2", store.get(2).getTitle());
+        assertEquals(1978, store.get(2).getYearValue());
+    }
+
+    @Test
+    public void delta_keepsYearErrorDetailsWithTheirMovies() {
+        new CatalogDelta(Arrays.<Movie>asList(), new long[]{1}, null).applyTo(store, searchIndex, sorter);
+
+        assertEquals("Year is not a valid number: soon", store.get(1).getYearErrorMsg());
+        assertEquals("Year is not a valid number: later", store.get(3).getYearErrorMsg());
+        assertEquals("", store.get(2).getYearErrorMsg());
+    }
+
+    @Test
+    public void delta_reindexesSearchWithoutReload() {
+        new CatalogDelta(Arrays.asList(movie(4, "Jurassic Park", 1993, "Adventure")),
+                new long[]{1}, null).applyTo(store, searchIndex, sorter);
+
+        assertEquals(0, searchIndex.search("jaws").length);
+        assertArrayEquals(new int[]{2}, searchIndex.search("jurassic"));
+        // Rows after the removed one moved down
+        assertArrayEquals(new int[]{0}, searchIndex.search("heat"));
+        assertArrayEquals(new int[]{3}, searchIndex.search("zodiac"));
+        assertArrayEquals(new int[]{2}, searchIndex.searchGenre("adventure"));
+        assertEquals(0, searchIndex.searchGenre("horror").length);
+        assertEquals(4, searchIndex.size());
+    }
+
+    @Test
+    public void delta_resortsFromUpdatedKeys() {
+        MovieSorter.Sections before = sorter.sort(MovieSorter.ORDER_TITLE);
+        assertEquals(5, before.size());
+
+        new CatalogDelta(Arrays.asList(movie(5, "Aliens", 1986, "Action"), movie(6, "Blade Runner", 1982, "Sci-Fi")),
+                new long[]{3}, null).applyTo(store, searchIndex, sorter);
+        MovieSorter.Sections sections = sorter.sort(MovieSorter.ORDER_TITLE);
+
+        // Alien, Aliens, Blade Runner, Heat, Jaws
+        int[] rows = new int[sections.size()];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = sections.getRow(i);
+        }
+        assertArrayEquals(new int[]{0, 3, 4, 1, 2}, rows);
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.myapplication;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for handing the catalog and its load over between activity instances
+ */
+public class CatalogHolderTest {
+    private CatalogHolder holder;
+    private RecordingCallback activity;
+
+    @Before
+    public void setUp() {
+        holder = new CatalogHolder();
+        activity = new RecordingCallback(holder.getMovies());
+        holder.attach(activity);
+    }
+
+    @Test
+    public void batches_whileNoActivityIsAttached_areKeptForTheNextOne() {
+        holder.onMoviesLoaded(Collections.singletonList(new Movie("Alien", 1979, "Horror", null)));
+        holder.detach();
+        holder.onMoviesLoaded(Collections.singletonList(new Movie("Heat", 1995, "Crime", null)));
+
+        RecordingCallback recreated = new RecordingCallback(holder.getMovies());
+        holder.attach(recreated);
+        holder.onMoviesLoaded(Collections.singletonList(new Movie("Casino", 1995, "Crime", null)));
+
+        assertEquals(3, holder.getMovies().size());
+        assertEquals("Heat", holder.getMovies().get(1).getTitle());
+        assertEquals(1, activity.batches);
+        assertEquals(1, recreated.batches);
+        // Both activities show the one catalog, each batch was added to it once
+        assertSame(holder.getMovies(), recreated.movies);
+        assertSame(holder.getMovies(), activity.movies);
+    }
+
+    @Test
+    public void outcome_reachedWhileDetached_isDeliveredOnce() {
+        holder.detach();
+        MovieLoader.Summary summary = new MovieLoader.Summary(new JsonUtils.LoadStats(1, 1, 0),
+                ValidationEngine.getDefault().newReport(), new LoadDiagnostics());
+        holder.onLoadComplete(summary);
+        assertNull(activity.summary);
+        assertFalse(holder.isLoading());
+
+        RecordingCallback recreated = new RecordingCallback(holder.getMovies());
+        holder.attach(recreated);
+        assertSame(summary, recreated.summary);
+
+        // Delivered already, a later instance does not show it again
+        RecordingCallback later = new RecordingCallback(holder.getMovies());
+        holder.attach(later);
+        assertNull(later.summary);
+    }
+
+    @Test
+    public void retainedState_outlivesTheActivity() {
+        MovieSorter sorter = new MovieSorter();
+        sorter.add("Heat", false, 1995, false, "Crime");
+        MovieSorter.Sections order = sorter.sort(MovieSorter.ORDER_TITLE);
+        holder.setSortOrder(MovieSorter.ORDER_TITLE);
+        holder.retain(order, null);
+        holder.detach();
+
+        assertEquals(MovieSorter.ORDER_TITLE, holder.getSortOrder());
+        assertSame(order, holder.getSortedOrder());
+        assertNull(holder.getDisplayModels());
+    }
+
+    /**
+     * Stands in for the activity, showing the holder's catalog like its adapter
+     */
+    private static class RecordingCallback implements MovieLoader.Callback {
+        private final List<Movie> movies;
+        int batches;
+        MovieLoader.Summary summary;
+
+        RecordingCallback(List<Movie> movies) {
+            this.movies = movies;
+        }
+
+        @Override
+        public void onMoviesLoaded(List<Movie> batch) {
+            batches++;
+        }
+
+        @Override
+        public void onPagedCatalogReady(PagedMovieList movies) {
+        }
+
+        @Override
+        public void onLoadComplete(MovieLoader.Summary summary) {
+            this.summary = summary;
+        }
+
+        @Override
+        public void onLoadFailed(RuntimeException e) {
+        }
+
+        @Override
+        public void onIndexReady() {
+        }
+
+        @Override
+        public void onDeltaReady(CatalogDelta delta) {
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.myapplication;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for applying deltas to a compiled catalog through its overlay
+ */
+public class CatalogOverlayTest {
+    private File directory;
+    private CatalogOverlay overlay;
+
+    private static Movie movie(long id, String title, Integer year, String genre) {
+        Movie movie = new Movie(title, year, genre, title.toLowerCase());
+        movie.setId(id);
+        return movie;
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("overlay").toFile();
+        BinaryCatalog.Writer writer = new BinaryCatalog.Writer();
+        writer.add(movie(1, "Alien", 1979, "Horror"));
+        writer.add(movie(2, "Heat", 1995, "Crime"));
+        writer.add(movie(3, "Gattaca", 1997, "Sci-Fi"));
+        writer.add(movie(4, "Jaws", 1975, "Thriller"));
+        writer.add(movie(5, "Zodiac", 2007, "Crime"));
+        assertTrue(CatalogSnapshot.write(directory, 1, writer, new JsonUtils.LoadStats(5, 5, 0)));
+        overlay = new CatalogOverlay(CatalogSnapshot.open(directory, 1));
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    private long[] ids() {
+        long[] ids = new long[overlay.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = overlay.getId(i);
+            assertEquals(ids[i], overlay.get(i).getId());
+        }
+        // Bulk reads from any row, across removed and added rows, agree with single ones
+        for (int start = 0; start < ids.length; start++) {
+            long[] bulk = new long[ids.length - start];
+            overlay.getIds(start, ids.length, bulk);
+            assertArrayEquals(Arrays.copyOfRange(ids, start, ids.length), bulk);
+        }
+        return ids;
+    }
+
+    @Test
+    public void delta_changesTheMappedRowsLikeAStore() {
+        CatalogDelta delta = new CatalogDelta(Arrays.asList(
+                movie(4, "Jaws 2", 1978, "Thriller"),
+                movie(10, "Memento", 2000, "Mystery")),
+                new long[]{2, 99}, null);
+
+        MovieSearchIndex searchIndex = new MovieSearchIndex();
+        MovieSorter sorter = new MovieSorter();
+        overlay.index(0, overlay.size(), searchIndex, sorter);
+
+        CatalogDelta.Result result = delta.applyTo(overlay, searchIndex, sorter);
+
+        assertArrayEquals(new long[]{1, 3, 4, 5, 10}, ids());
+        assertArrayEquals(new int[]{1}, result.getRemovedRows());
+        assertArrayEquals(new int[]{2}, result.getChangedRows());
+        assertEquals(4, result.getInsertedStart());
+        assertEquals("Jaws 2", overlay.get(2).getTitle());
+        assertEquals("Zodiac", overlay.get(3).getTitle());
+        assertEquals("Memento", overlay.get(4).getTitle());
+        // Read while its page was loading, after a delta shrank the catalog
+        assertNull(overlay.get(5));
+        assertArrayEquals(new int[]{2}, searchIndex.search("jaws"));
+        assertArrayEquals(new int[]{4}, searchIndex.search("memento"));
+        assertEquals(0, searchIndex.search("heat").length);
+    }
+
+    @Test
+    public void laterDeltas_changeRowsOfEarlierOnes() {
+        new CatalogDelta(Arrays.asList(movie(10, "Memento", 2000, "Mystery"), movie(11, "Se7en", 1995, "Crime")),
+                new long[]{2, 4}, null).applyTo(overlay, null, null);
+        new CatalogDelta(Arrays.asList(movie(11, "Seven", 1995, "Crime"), movie(3, "Gattaca", 1998, "Sci-Fi")),
+                new long[]{1, 10, 5}, null).applyTo(overlay, null, null);
+
+        assertArrayEquals(new long[]{3, 11}, ids());
+        assertEquals(1998, overlay.get(0).getYearValue());
+        assertEquals("Seven", overlay.get(1).getTitle());
+    }
+
+    @Test
+    public void index_readsTheChangedRows() {
+        new CatalogDelta(Arrays.asList(movie(4, "Jurassic Park", 1993, "Adventure"), movie(10, "Memento", 2000,
+                "Mystery")), new long[]{1}, null).applyTo(overlay, null, null);
+        MovieSearchIndex searchIndex = new MovieSearchIndex();
+        MovieSorter sorter = new MovieSorter();
+
+        overlay.index(0, 2, searchIndex, sorter);
+        overlay.index(2, overlay.size(), searchIndex, sorter);
+
+        assertEquals(5, searchIndex.size());
+        assertEquals(0, searchIndex.search("jaws").length);
+        assertArrayEquals(new int[]{2}, searchIndex.search("jurassic"));
+        assertArrayEquals(new int[]{4}, searchIndex.search("memento"));
+        assertArrayEquals(new int[]{0, 3}, searchIndex.searchGenre("crime"));
+        assertEquals(5, sorter.size());
+    }
+}
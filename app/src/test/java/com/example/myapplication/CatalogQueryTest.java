@@ -0,0 +1,46 @@
+package com.example.myapplication;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for catalog database query building
+ */
+public class CatalogQueryTest {
+
+    @Test
+    public void emptyQuery_matchesEverything() {
+        CatalogQuery query = new CatalogQuery();
+
+        assertNull(query.getSelection());
+        assertEquals(0, query.getSelectionArgs().length);
+    }
+
+    @Test
+    public void genreYearsWithoutErrors_usesIndexedColumnsInOrder() {
+        CatalogQuery query = new CatalogQuery().genre("Sci-Fi").yearBetween(1990, 2010).withoutErrors();
+
+        assertEquals("genre = ? AND flags IN (0) AND year BETWEEN ? AND ?", query.getSelection());
+        assertArrayEquals(new String[]{"Sci-Fi", "1990", "2010"}, query.getSelectionArgs());
+    }
+
+    @Test
+    public void withoutFlags_listsCombinationsWithoutThoseBits() {
+        CatalogQuery query = new CatalogQuery()
+                .withoutFlags(BinaryCatalog.FLAG_YEAR_ERROR)
+                .withoutFlags(BinaryCatalog.FLAG_GENRE_ERROR);
+
+        // Title and poster errors, alone or together, are still allowed
+        assertEquals("flags IN (0, 1, 8, 9)", query.getSelection());
+        assertEquals(0, query.getSelectionArgs().length);
+    }
+
+    @Test
+    public void yearRange_aloneHasTwoArgs() {
+        CatalogQuery query = new CatalogQuery().yearBetween(1950, 1959);
+
+        assertEquals("year BETWEEN ? AND ?", query.getSelection());
+        assertArrayEquals(new String[]{"1950", "1959"}, query.getSelectionArgs());
+    }
+}
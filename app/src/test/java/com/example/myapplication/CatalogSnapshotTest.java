@@ -0,0 +1,107 @@
+package com.example.myapplication;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the parsed-catalog snapshot
+ */
+public class CatalogSnapshotTest {
+    private File directory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("snapshot").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    private static Movie[] sampleMovies() {
+        Movie valid = new Movie("Amélie", 2001, "Comedy", "amelie");
+        valid.setId(42);
+        Movie broken = new Movie(null, null, null, null);
+        broken.setId(7);
+        broken.setYearErrorMsg("Year is not a valid number: soon");
+        Movie negative = new Movie("Old", -3, "Drama", "old");
+        negative.setHasYearError(true);
+        negative.setYearErrorMsg("Year is negative: -3");
+        return new Movie[]{valid, broken, negative};
+    }
+
+    private static BinaryCatalog.Writer writerFor(Movie[] movies) {
+        BinaryCatalog.Writer writer = new BinaryCatalog.Writer();
+        for (Movie movie : movies) {
+            writer.add(movie);
+        }
+        return writer;
+    }
+
+    @Test
+    public void snapshot_roundTripsMoviesWithErrors() {
+        Movie[] movies = sampleMovies();
+        JsonUtils.LoadStats stats = new JsonUtils.LoadStats(4, 3, 1);
+        assertTrue(CatalogSnapshot.write(directory, 99, writerFor(movies), stats));
+
+        BinaryCatalog catalog = CatalogSnapshot.open(directory, 99);
+
+        assertNotNull(catalog);
+        assertEquals(3, catalog.size());
+        assertEquals(4, catalog.getStats().getTotal());
+        assertEquals(1, catalog.getStats().getSkipped());
+        for (int i = 0; i < movies.length; i++) {
+            Movie read = catalog.get(i);
+            assertEquals(movies[i].getId(), read.getId());
+            assertEquals(movies[i].getId(), catalog.getId(i));
+            assertTrue(movies[i] + " vs " + read, movies[i].hasSameContent(read));
+        }
+        assertEquals("Year is not a valid number: soon", catalog.get(1).getYearErrorMsg());
+    }
+
+    @Test
+    public void snapshot_ofAnotherSource_isIgnored() {
+        CatalogSnapshot.write(directory, 99, writerFor(sampleMovies()), new JsonUtils.LoadStats(3, 3, 0));
+
+        assertNull(CatalogSnapshot.open(directory, 100));
+        assertNull(CatalogSnapshot.open(new File(directory, "missing"), 99));
+    }
+
+    @Test
+    public void rewrite_replacesPreviousSnapshot() {
+        CatalogSnapshot.write(directory, 1, writerFor(sampleMovies()), new JsonUtils.LoadStats(3, 3, 0));
+        BinaryCatalog.Writer single = new BinaryCatalog.Writer();
+        single.add(new Movie("Only", 1999, "Drama", "only"));
+        CatalogSnapshot.write(directory, 2, single, new JsonUtils.LoadStats(1, 1, 0));
+
+        assertNull(CatalogSnapshot.open(directory, 1));
+        assertEquals(1, CatalogSnapshot.open(directory, 2).size());
+        assertFalse(new File(directory, CatalogSnapshot.FILE_NAME + ".tmp").exists());
+    }
+
+    @Test
+    public void checksum_dependsOnEveryByte() {
+        byte[] a = "[{\"title\":\"A\"}]".getBytes(StandardCharsets.UTF_8);
+        byte[] b = "[{\"title\":\"B\"}]".getBytes(StandardCharsets.UTF_8);
+
+        assertEquals(CatalogSnapshot.checksum(a), CatalogSnapshot.checksum(a.clone()));
+        assertEquals(CatalogSnapshot.checksum(a), CatalogSnapshot.checksum(ByteBuffer.wrap(a)));
+        assertNotEquals(CatalogSnapshot.checksum(a), CatalogSnapshot.checksum(b));
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.myapplication;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for classifying raw field values without exceptions
+ */
+public class FieldCoercionTest {
+
+    private static void assertResult(int code, int value, long result) {
+        assertEquals(FieldCoercion.describe(code), FieldCoercion.describe(FieldCoercion.code(result)));
+        assertEquals(value, FieldCoercion.value(result));
+    }
+
+    @Test
+    public void numbers_areClassifiedByKind() {
+        assertResult(FieldCoercion.OK, 1999, FieldCoercion.toInt(1999));
+        assertResult(FieldCoercion.NEGATIVE, -1997, FieldCoercion.toInt(-1997));
+        assertResult(FieldCoercion.DECIMAL, 1972, FieldCoercion.toInt(1972.5));
+        assertResult(FieldCoercion.OK, 2000, FieldCoercion.toInt(2000L));
+        assertResult(FieldCoercion.NON_NUMERIC, 0, FieldCoercion.toInt(30_000_000_000L));
+    }
+
+    @Test
+    public void strings_matchIntegerParseInt() {
+        assertResult(FieldCoercion.STRING_NUMBER, 2014, FieldCoercion.toInt("2014"));
+        assertResult(FieldCoercion.STRING_NUMBER, 2014, FieldCoercion.toInt("+2014"));
+        assertResult(FieldCoercion.NEGATIVE, -5, FieldCoercion.toInt("-5"));
+        assertResult(FieldCoercion.STRING_NUMBER, 0, FieldCoercion.toInt("-0"));
+        assertResult(FieldCoercion.NEGATIVE, Integer.MIN_VALUE, FieldCoercion.toInt("-2147483648"));
+        assertResult(FieldCoercion.STRING_NUMBER, Integer.MAX_VALUE, FieldCoercion.toInt("2147483647"));
+        for (String text : new String[]{"nineteen-ninety-four", "", "-", "+", "1994.5", " 1994", "2147483648"}) {
+            assertEquals(text, FieldCoercion.NON_NUMERIC, FieldCoercion.code(FieldCoercion.toInt(text)));
+        }
+    }
+
+    @Test
+    public void absentAndOtherValues_areNotNumbers() {
+        assertResult(FieldCoercion.MISSING, 0, FieldCoercion.toInt(null));
+        assertResult(FieldCoercion.NON_NUMERIC, 0, FieldCoercion.toInt(new Object()));
+        assertResult(FieldCoercion.NON_NUMERIC, 0, FieldCoercion.toInt(Boolean.TRUE));
+        assertFalse(FieldCoercion.hasValue(FieldCoercion.toInt("x")));
+        assertTrue(FieldCoercion.hasValue(FieldCoercion.toInt(-1)));
+    }
+
+    @Test
+    public void yearErrors_buildTheirMessageWhenRead() {
+        Movie word = new Movie();
+        word.setYear(MovieStore.NO_YEAR, MovieStore.YEAR_MSG_NOT_A_NUMBER, "nineteen-ninety-four");
+        Movie decimal = new Movie();
+        decimal.setYear(1972, MovieStore.YEAR_MSG_DECIMAL, 1972.5);
+        Movie negative = new Movie();
+        negative.setYear(-1997, MovieStore.YEAR_MSG_NEGATIVE, null);
+
+        assertTrue(word.hasYearError());
+        assertNull(word.getYear());
+        assertEquals("Year is not a valid number: nineteen-ninety-four", word.getYearErrorMsg());
+        assertEquals("Year is a decimal: 1972.5", decimal.getYearErrorMsg());
+        assertEquals(Integer.valueOf(1972), decimal.getYear());
+        assertEquals("Year is negative: -1997", negative.getYearErrorMsg());
+
+        // Copied into a catalog store as the kind and raw value
+        MovieStore store = new MovieStore();
+        store.add(word);
+        store.add(decimal);
+        assertEquals("Year is not a valid number: nineteen-ninety-four", store.get(0).getYearErrorMsg());
+        assertEquals("Year is a decimal: 1972.5", store.get(1).getYearErrorMsg());
+    }
+}
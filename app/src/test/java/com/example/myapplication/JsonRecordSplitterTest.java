@@ -0,0 +1,101 @@
+package com.example.myapplication;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for splitting a catalog into record-aligned chunks
+ */
+public class JsonRecordSplitterTest {
+
+    private static byte[] bytes(String json) {
+        return json.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String text(byte[] json, JsonRecordSplitter.Chunk chunk) {
+        return new String(json, chunk.start, chunk.end - chunk.start, StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void split_keepsRecordsWholeAndNumbered() {
+        byte[] json = bytes("[{\"title\":\"A\"},\n {\"title\":\"B\"},\n {\"title\":\"C\"},\n {\"title\":\"D\"}]");
+
+        List<JsonRecordSplitter.Chunk> chunks = JsonRecordSplitter.split(json, 2);
+
+        assertNotNull(chunks);
+        assertEquals(2, chunks.size());
+        assertEquals("{\"title\":\"A\"},\n {\"title\":\"B\"}", text(json, chunks.get(0)));
+        assertEquals(1, chunks.get(0).firstNumber);
+        assertEquals(2, chunks.get(0).recordCount);
+        assertEquals("{\"title\":\"C\"},\n {\"title\":\"D\"}", text(json, chunks.get(1)));
+        assertEquals(3, chunks.get(1).firstNumber);
+        assertEquals(2, chunks.get(1).recordCount);
+    }
+
+    @Test
+    public void split_ignoresStructureInsideStrings() {
+        byte[] json = bytes("[{\"title\":\"A, [the] {movie}\"},{\"title\":\"Say \\\"hi\\\", ok\"},{'title':'x,y'}]");
+
+        List<JsonRecordSplitter.Chunk> chunks = JsonRecordSplitter.split(json, 3);
+
+        assertNotNull(chunks);
+        assertEquals(3, chunks.size());
+        assertEquals("{\"title\":\"A, [the] {movie}\"}", text(json, chunks.get(0)));
+        assertEquals("{'title':'x,y'}", text(json, chunks.get(2)));
+    }
+
+    @Test
+    public void split_nestedValuesAndNonObjects() {
+        byte[] json = bytes("[{\"tags\":[1,2,{\"a\":[3]}]}, 42, null, \"text\"]");
+
+        List<JsonRecordSplitter.Chunk> chunks = JsonRecordSplitter.split(json, 100);
+
+        assertNotNull(chunks);
+        assertEquals(4, chunks.size());
+        assertEquals("{\"tags\":[1,2,{\"a\":[3]}]}", text(json, chunks.get(0)));
+        assertEquals("42", text(json, chunks.get(1)));
+        assertEquals(4, chunks.get(3).firstNumber);
+    }
+
+    @Test
+    public void split_directBufferMatchesArray() {
+        // Mapped catalogs are direct buffers without an accessible array
+        byte[] json = bytes("[{\"title\":\"A\"}, {\"title\":\"B, C\"}, {\"title\":\"D\"}]");
+        ByteBuffer direct = ByteBuffer.allocateDirect(json.length);
+        direct.put(json).flip();
+
+        List<JsonRecordSplitter.Chunk> expected = JsonRecordSplitter.split(json, 3);
+        List<JsonRecordSplitter.Chunk> chunks = JsonRecordSplitter.split(direct, 3);
+
+        assertNotNull(chunks);
+        assertEquals(expected.size(), chunks.size());
+        for (int i = 0; i < chunks.size(); i++) {
+            assertEquals(text(json, expected.get(i)), text(json, chunks.get(i)));
+            assertEquals(expected.get(i).firstNumber, chunks.get(i).firstNumber);
+        }
+        assertEquals(0, direct.position());
+    }
+
+    @Test
+    public void split_emptyArray() {
+        List<JsonRecordSplitter.Chunk> chunks = JsonRecordSplitter.split(bytes("  [ ]  "), 4);
+
+        assertNotNull(chunks);
+        assertTrue(chunks.isEmpty());
+    }
+
+    @Test
+    public void split_unsafeLayoutsAreLeftToSequentialParser() {
+        assertNull(JsonRecordSplitter.split(bytes("{\"title\":\"A\"}"), 2));
+        assertNull(JsonRecordSplitter.split(bytes("[{\"title\":\"A\"},]"), 2));
+        assertNull(JsonRecordSplitter.split(bytes("[{\"title\":\"A\"},,{}]"), 2));
+        assertNull(JsonRecordSplitter.split(bytes("[{\"title\":\"A\"} // first\n,{}]"), 2));
+        assertNull(JsonRecordSplitter.split(bytes("[{\"title\":\"A\"};{}]"), 2));
+        assertNull(JsonRecordSplitter.split(bytes("[{\"title\":\"A\"},{\"title\":\"B"), 2));
+    }
+}
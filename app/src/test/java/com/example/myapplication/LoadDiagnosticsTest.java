@@ -0,0 +1,102 @@
+package com.example.myapplication;
+
+import android.util.Log;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for counting and sampling load problems
+ */
+public class LoadDiagnosticsTest {
+
+    @Before
+    public void setUp() {
+        // Nothing is written; counting and sampling do not depend on the log
+        AppLog.setLevel(Log.ASSERT + 1);
+    }
+
+    @After
+    public void tearDown() {
+        AppLog.setLevel(Log.INFO);
+    }
+
+    @Test
+    public void add_countsEveryProblemAndSamplesTheFirstOnes() {
+        LoadDiagnostics diagnostics = new LoadDiagnostics();
+        for (int number = 1; number <= 100; number++) {
+            assertEquals(number <= LoadDiagnostics.SAMPLES_PER_KIND,
+                    diagnostics.isSampling(LoadDiagnostics.KIND_YEAR));
+            diagnostics.add(LoadDiagnostics.KIND_YEAR, number, "Year is negative: -" + number);
+        }
+        diagnostics.add(LoadDiagnostics.KIND_EMPTY_OBJECT, 7, null);
+
+        assertEquals(100, diagnostics.getCount(LoadDiagnostics.KIND_YEAR));
+        assertEquals(0, diagnostics.getCount(LoadDiagnostics.KIND_TITLE));
+        List<LoadDiagnostics.Sample> samples = diagnostics.getSamples(LoadDiagnostics.KIND_YEAR);
+        assertEquals(LoadDiagnostics.SAMPLES_PER_KIND, samples.size());
+        assertEquals(1, samples.get(0).getRecordNumber());
+        assertEquals("Year is negative: -5", samples.get(4).getMessage());
+        assertEquals("empty object", diagnostics.getSamples(LoadDiagnostics.KIND_EMPTY_OBJECT).get(0).getMessage());
+        assertTrue(diagnostics.getSamples(LoadDiagnostics.KIND_GENRE).isEmpty());
+        assertEquals(0, diagnostics.getSuppressedCount());
+    }
+
+    @Test
+    public void errorAndSkippedCounts_coverTheirKinds() {
+        LoadDiagnostics diagnostics = new LoadDiagnostics();
+        diagnostics.add(LoadDiagnostics.KIND_TITLE, 1, null);
+        diagnostics.add(LoadDiagnostics.KIND_POSTER, 1, null);
+        diagnostics.add(LoadDiagnostics.KIND_OTHER_RULE, 2, "Failed rule duplicate_title");
+        diagnostics.add(LoadDiagnostics.KIND_NOT_AN_OBJECT, 3, null);
+        diagnostics.add(LoadDiagnostics.KIND_UNREADABLE, 4, "Unterminated string");
+
+        assertEquals(3, diagnostics.getErrorCount());
+        assertEquals(2, diagnostics.getSkippedCount());
+        assertEquals("errors=3 {not_an_object=1 [#3], unreadable=1 [#4], title=1 [#1], poster=1 [#1],"
+                + " other_rule=1 [#2]}", diagnostics.toString());
+    }
+
+    @Test
+    public void append_keepsTheFirstSamplesInCatalogOrder() {
+        LoadDiagnostics first = new LoadDiagnostics();
+        for (int number = 1; number <= 3; number++) {
+            first.add(LoadDiagnostics.KIND_GENRE, number, null);
+        }
+        LoadDiagnostics second = new LoadDiagnostics();
+        for (int number = 11; number <= 14; number++) {
+            second.add(LoadDiagnostics.KIND_GENRE, number, null);
+        }
+        second.add(LoadDiagnostics.KIND_TITLE, 12, "Title is an empty string");
+
+        first.append(second);
+
+        assertEquals(7, first.getCount(LoadDiagnostics.KIND_GENRE));
+        List<LoadDiagnostics.Sample> samples = first.getSamples(LoadDiagnostics.KIND_GENRE);
+        assertEquals(LoadDiagnostics.SAMPLES_PER_KIND, samples.size());
+        assertEquals(3, samples.get(2).getRecordNumber());
+        assertEquals(12, samples.get(4).getRecordNumber());
+        assertEquals("#12 title: Title is an empty string",
+                first.getSamples(LoadDiagnostics.KIND_TITLE).get(0).toString());
+        assertTrue(first.toString().contains("genre=7 [#1, #2, #3, #11, #12, ...]"));
+    }
+
+    @Test
+    public void silentInstance_writesNothingUntilAppended() {
+        // Log is not available in local tests; a silent instance must not touch it even when WARN is enabled
+        AppLog.setLevel(Log.WARN);
+        LoadDiagnostics chunk = new LoadDiagnostics(false);
+        for (int number = 1; number <= 100; number++) {
+            chunk.add(number % 2 == 0 ? LoadDiagnostics.KIND_YEAR : LoadDiagnostics.KIND_TITLE, number, null);
+        }
+
+        assertEquals(50, chunk.getCount(LoadDiagnostics.KIND_YEAR));
+        assertEquals(LoadDiagnostics.SAMPLES_PER_KIND, chunk.getSamples(LoadDiagnostics.KIND_TITLE).size());
+        assertEquals(0, chunk.getSuppressedCount());
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.myapplication;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the hot-path metrics
+ */
+public class MetricsTest {
+
+    @Before
+    public void setUp() {
+        Metrics.reset();
+    }
+
+    @Test
+    public void counters_appearInSnapshot() {
+        Metrics.POSTER_CACHE_HITS.increment();
+        Metrics.POSTER_CACHE_HITS.add(2);
+
+        Metrics.Snapshot snapshot = Metrics.snapshot();
+        assertEquals(3, snapshot.getCounter("poster_cache_hits"));
+        assertEquals(0, snapshot.getCounter("poster_cache_misses"));
+    }
+
+    @Test
+    public void histogram_tracksCountMeanAndMax() {
+        Metrics.BIND.record(1_000);
+        Metrics.BIND.record(3_000);
+
+        Metrics.HistogramSnapshot bind = Metrics.snapshot().getHistogram("bind");
+        assertEquals(2, bind.getCount());
+        assertEquals(2_000, bind.getMeanNanos());
+        assertEquals(3_000, bind.getMaxNanos());
+    }
+
+    @Test
+    public void histogram_percentileIsBucketUpperBound() {
+        for (int i = 0; i < 99; i++) {
+            Metrics.PARSE.record(100);
+        }
+        Metrics.PARSE.record(1_000_000);
+
+        Metrics.HistogramSnapshot parse = Metrics.snapshot().getHistogram("parse");
+        // 100ns falls in [64, 128)
+        assertEquals(127, parse.getPercentileNanos(50));
+        assertEquals(127, parse.getPercentileNanos(99));
+        assertEquals(1_000_000, parse.getPercentileNanos(100));
+    }
+
+    @Test
+    public void snapshot_isNotAffectedByLaterRecording() {
+        Metrics.Snapshot before = Metrics.snapshot();
+        Metrics.POSTER_DECODE.record(500);
+        assertEquals(0, before.getHistogram("poster_decode").getCount());
+    }
+
+    @Test
+    public void toJson_containsEveryMetric() {
+        Metrics.MOVIES_PARSED.increment();
+        String json = Metrics.snapshot().toJson();
+        assertTrue(json.contains("\"movies_parsed\":1"));
+        assertTrue(json.contains("\"poster_resolve\":{\"count\":0"));
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.myapplication;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Locale;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the precomputed display text of catalog rows
+ */
+public class MovieDisplayModelsTest {
+    private static final int BLACK = 0xFF000000;
+    private static final int RED = 0xFFCC0000;
+
+    private MovieDisplayModels.Labels labels;
+    private PosterResolver posterResolver;
+
+    @Before
+    public void setUp() {
+        labels = new MovieDisplayModels.Labels(Locale.US, 0, "Unknown Title [ERROR]", "Unknown Year [ERROR]",
+                "Year data error [ERROR]", "Genre data error [ERROR]", "Year: %1$d", "Year: %1$d [FORMAT ERROR]",
+                "Genre: %1$s", BLACK, RED);
+        posterResolver = new PosterResolver(new PosterResolver.IdentifierLookup() {
+            @Override
+            public int getDrawableId(String name) {
+                return "alien".equals(name) ? 42 : PosterResolver.NOT_FOUND;
+            }
+        });
+    }
+
+    @Test
+    public void models_holdFinalText_andErrorFields() {
+        MovieStore store = new MovieStore();
+        store.add(new Movie("Alien", 1979, "Horror", "alien"));
+        Movie broken = new Movie(null, null, null, null);
+        store.add(broken);
+        Movie negative = new Movie("Titanic", -1997, "Drama", "titanic");
+        negative.setHasYearError(true);
+        negative.setYearErrorMsg("Year is negative: -1997");
+        store.add(negative);
+
+        MovieDisplayModels models = MovieDisplayModels.build(store, null, 0, store.size(), labels, posterResolver);
+
+        assertEquals(3, models.getEnd());
+        assertEquals("Alien", models.getTitle(0));
+        assertEquals("Year: 1979", models.getYear(0));
+        assertEquals("Genre: Horror", models.getGenre(0));
+        assertEquals(42, models.getPosterId(0));
+        assertEquals(0, models.getErrors(0));
+
+        assertEquals("Unknown Title [ERROR]", models.getTitle(1));
+        assertEquals("Year data error [ERROR]", models.getYear(1));
+        assertEquals("Genre data error [ERROR]", models.getGenre(1));
+        assertEquals(PosterResolver.NOT_FOUND, models.getPosterId(1));
+        assertEquals(MovieDisplayModels.ERROR_TITLE | MovieDisplayModels.ERROR_YEAR | MovieDisplayModels.ERROR_GENRE,
+                models.getErrors(1));
+
+        // A year with a format error still shows its value
+        assertEquals("Year: -1997 [FORMAT ERROR]", models.getYear(2));
+        assertEquals(MovieDisplayModels.ERROR_YEAR, models.getErrors(2));
+    }
+
+    @Test
+    public void models_serveTheirRange_onlyForTheMoviesTheyWereBuiltFrom() {
+        MovieStore store = new MovieStore();
+        store.add(new Movie("Alien", 1979, "Horror", "alien"));
+        store.add(new Movie("Heat", 1995, "Crime", null));
+        store.add(new Movie("Casino", 1995, "Crime", null));
+        store.add(new Movie("Jaws", 1975, "Thriller", null));
+        // A search showing catalog positions 0, 2 and 3
+        MovieSorter.Sections display = MovieSorter.Sections.of(new int[]{0, 2, 3});
+
+        MovieDisplayModels models = MovieDisplayModels.build(store, display, 1, 3, labels, posterResolver);
+
+        assertEquals(0, models.slot(1, 2));
+        assertEquals("Casino", models.getTitle(0));
+        assertEquals(1, models.slot(2, 3));
+        assertEquals("Jaws", models.getTitle(1));
+        // Outside the range, or a position showing another movie since
+        assertEquals(-1, models.slot(0, 0));
+        assertEquals(-1, models.slot(1, 1));
+    }
+
+    @Test
+    public void delta_patchesOnlyTheSlotsItChanged() {
+        MovieStore store = new MovieStore();
+        store.add(new Movie("Alien", 1979, "Horror", "alien"));
+        store.add(new Movie("Heat", 1995, "Crime", null));
+        store.add(new Movie("Casino", 1995, "Crime", null));
+        store.add(new Movie("Jaws", 1975, "Thriller", null));
+        store.add(new Movie("Zodiac", 2007, "Crime", null));
+        MovieDisplayModels models = MovieDisplayModels.build(store, null, 1, 5, labels, posterResolver);
+
+        // Heat removed, Jaws updated; its row is numbered after the removal
+        store.removeRows(new int[]{1});
+        store.set(2, new Movie("Jaws 2", 1978, "Thriller", null));
+        models.applyDelta(store, new CatalogDelta.Result(new int[]{1}, new int[]{2}, 4, 0), true, posterResolver);
+
+        assertEquals(1, models.getStart());
+        assertEquals("Casino", models.getTitle(models.slot(1, 1)));
+        assertEquals("Jaws 2", models.getTitle(models.slot(2, 2)));
+        assertEquals("Year: 1978", models.getYear(models.slot(2, 2)));
+        assertEquals("Zodiac", models.getTitle(models.slot(3, 3)));
+        assertEquals(-1, models.slot(4, 4));
+    }
+
+    @Test
+    public void repeatedLabels_areFormattedOnce_andShared() {
+        MovieStore store = new MovieStore();
+        store.add(new Movie("Heat", 1995, "Crime", null));
+        store.add(new Movie("Casino", 1995, "Crime", null));
+
+        MovieDisplayModels models = MovieDisplayModels.build(store, null, 0, store.size(), labels, posterResolver);
+
+        assertSame(models.getYear(0), models.getYear(1));
+        assertSame(models.getGenre(0), models.getGenre(1));
+    }
+
+    @Test
+    public void labels_followTheirLocale() {
+        MovieDisplayModels.Labels arabic = new MovieDisplayModels.Labels(new Locale("ar", "EG"), 0, "", "", "", "",
+                "%1$d", "%1$d", "%1$s", BLACK, RED);
+        MovieStore store = new MovieStore();
+        store.add(new Movie("Heat", 1995, "Crime", null));
+
+        MovieDisplayModels models = MovieDisplayModels.build(store, null, 0, 1, arabic, posterResolver);
+
+        assertEquals(String.format(new Locale("ar", "EG"), "%1$d", 1995), models.getYear(0));
+    }
+}
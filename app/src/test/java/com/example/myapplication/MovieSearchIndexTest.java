@@ -0,0 +1,77 @@
+package com.example.myapplication;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for title and genre search
+ */
+public class MovieSearchIndexTest {
+
+    private static MovieSearchIndex sampleIndex() {
+        MovieSearchIndex index = new MovieSearchIndex();
+        index.add(0, "The Matrix", "Sci-Fi");
+        index.add(1, "The Dark Knight", "Action");
+        index.add(2, "Pulp Fiction", "Crime");
+        index.add(3, "The Matrix Reloaded", "Sci-Fi");
+        index.add(4, null, "Drama");
+        index.add(6, "Inception", null);
+        return index;
+    }
+
+    @Test
+    public void shortWords_matchWordStarts() {
+        MovieSearchIndex index = sampleIndex();
+
+        assertArrayEquals(new int[]{0, 3}, index.search("m"));
+        assertArrayEquals(new int[]{0, 3}, index.search("Ma"));
+        // "ix" is inside "matrix" but does not start a word
+        assertArrayEquals(new int[0], index.search("ix"));
+    }
+
+    @Test
+    public void longerWords_matchAnywhereInWord() {
+        MovieSearchIndex index = sampleIndex();
+
+        assertArrayEquals(new int[]{0, 3}, index.search("atri"));
+        assertArrayEquals(new int[]{1}, index.search("knig"));
+        assertArrayEquals(new int[]{6}, index.search("CEPTION"));
+        // Trigrams "mat" and "rix" exist but "matrixx" does not
+        assertArrayEquals(new int[0], index.search("matrixx"));
+    }
+
+    @Test
+    public void allQueryWords_mustMatch() {
+        MovieSearchIndex index = sampleIndex();
+
+        assertArrayEquals(new int[]{0, 1, 3}, index.search("the"));
+        assertArrayEquals(new int[]{3}, index.search("the matrix rel"));
+        assertArrayEquals(new int[]{1}, index.search("dark, the!"));
+    }
+
+    @Test
+    public void genre_matchesExactlyIgnoringCase() {
+        MovieSearchIndex index = sampleIndex();
+
+        assertArrayEquals(new int[]{0, 3}, index.search("sci-fi"));
+        assertArrayEquals(new int[]{4}, index.search(" DRAMA "));
+        assertArrayEquals(new int[]{0, 3}, index.searchGenre("Sci-Fi"));
+        assertArrayEquals(new int[0], index.searchGenre("Sci"));
+    }
+
+    @Test
+    public void emptyQuery_matchesNothing() {
+        MovieSearchIndex index = sampleIndex();
+
+        assertEquals(0, index.search("").length);
+        assertEquals(0, index.search(" - ").length);
+        assertEquals(7, index.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rowsOutOfOrder_areRejected() {
+        MovieSearchIndex index = sampleIndex();
+        index.add(2, "Avatar", "Sci-Fi");
+    }
+}
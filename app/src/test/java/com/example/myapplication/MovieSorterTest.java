@@ -0,0 +1,131 @@
+package com.example.myapplication;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for sort keys and sectioned orders
+ */
+public class MovieSorterTest {
+
+    private static MovieSorter sampleSorter() {
+        MovieSorter sorter = new MovieSorter();
+        sorter.add("The Matrix", false, 1999, false, "Sci-Fi");
+        sorter.add("Alien", false, 1979, false, "Horror");
+        sorter.add(null, true, 1999, false, "Drama");
+        sorter.add("Amélie", false, -5, true, "Comedy");
+        sorter.add("Inception", false, 2010, false, "sci-fi");
+        sorter.add("12 Angry Men", false, 1957, false, null);
+        return sorter;
+    }
+
+    private static int[] rows(MovieSorter.Sections sections) {
+        int count = 0;
+        for (int i = 0; i < sections.size(); i++) {
+            if (!sections.isHeader(i)) {
+                count++;
+            }
+        }
+        int[] rows = new int[count];
+        int next = 0;
+        for (int i = 0; i < sections.size(); i++) {
+            if (!sections.isHeader(i)) {
+                rows[next++] = sections.getRow(i);
+            }
+        }
+        return rows;
+    }
+
+    @Test
+    public void titleOrder_ignoresCaseAccentsAndArticles_errorsLast() {
+        MovieSorter.Sections sections = sampleSorter().sort(MovieSorter.ORDER_TITLE);
+
+        // 12 Angry Men, Alien, Amélie, Inception, (The) Matrix, then the missing title
+        assertArrayEquals(new int[]{5, 1, 3, 4, 0, 2}, rows(sections));
+        assertEquals(6, sections.size());
+    }
+
+    @Test
+    public void yearOrder_hasHeaderPerYear_errorsInLastSection() {
+        MovieSorter.Sections sections = sampleSorter().sort(MovieSorter.ORDER_YEAR);
+
+        assertEquals(11, sections.size());
+        assertTrue(sections.isHeader(0));
+        assertEquals("1957", sections.getSectionTitle(0));
+        assertEquals(5, sections.getRow(1));
+        // Same year, ordered by title: Matrix before the missing title
+        assertEquals("1999", sections.getSectionTitle(4));
+        assertEquals(0, sections.getRow(5));
+        assertEquals(2, sections.getRow(6));
+        assertNull(sections.getSectionTitle(9));
+        assertEquals(3, sections.getRow(10));
+    }
+
+    @Test
+    public void genreOrder_mergesCase_missingGenresLast() {
+        MovieSorter.Sections sections = sampleSorter().sort(MovieSorter.ORDER_GENRE);
+
+        assertArrayEquals(new int[]{3, 2, 1, 4, 0, 5}, rows(sections));
+        assertEquals("Comedy", sections.getSectionTitle(0));
+        // "Sci-Fi" and "sci-fi" share one section
+        assertTrue(sections.isHeader(6));
+        assertFalse(sections.isHeader(8));
+        assertNull(sections.getSectionTitle(9));
+        assertEquals(11, sections.size());
+    }
+
+    @Test
+    public void filter_keepsOrderAndDropsEmptySections() {
+        MovieSorter.Sections sections = sampleSorter().sort(MovieSorter.ORDER_YEAR);
+
+        MovieSorter.Sections filtered = sections.filter(new int[]{0, 3, 4}, 4);
+
+        // Row 4 is past the limit, the 1999 and error sections remain
+        assertEquals(4, filtered.size());
+        assertEquals("1999", filtered.getSectionTitle(0));
+        assertEquals(0, filtered.getRow(1));
+        assertNull(filtered.getSectionTitle(2));
+        assertEquals(3, filtered.getRow(3));
+    }
+
+    @Test
+    public void filter_withNothingToDrop_returnsTheSameSections() {
+        MovieSorter.Sections sections = sampleSorter().sort(MovieSorter.ORDER_GENRE);
+
+        assertSame(sections, sections.filter(null, 6));
+        assertSame(sections, sections.filter(null, 100));
+        assertEquals(4, rows(sections.filter(null, 4)).length);
+    }
+
+    @Test
+    public void titleKey_comparesLikeNormalizedPrefix() {
+        assertTrue(MovieSorter.titleKey("Star Wars") < MovieSorter.titleKey("Starship Troopers"));
+        assertTrue(MovieSorter.titleKey("Star") < MovieSorter.titleKey("Star Wars"));
+        assertEquals(MovieSorter.titleKey("ÉCOLE"), MovieSorter.titleKey("ecole"));
+        assertEquals(MovieSorter.titleKey("A Beautiful Mind"), MovieSorter.titleKey("beautiful mind"));
+        // A title that is only an article keeps it
+        assertEquals(MovieSorter.titleKey("A"), MovieSorter.titleKey("a"));
+        assertTrue(MovieSorter.titleKey("zzzzzzzzzzzzzzzz") < MovieSorter.NO_TITLE_KEY);
+    }
+
+    @Test
+    public void sortRows_isStableAndMatchesComparison() {
+        Random random = new Random(7);
+        long[] keys = new long[5000];
+        for (int i = 0; i < keys.length; i++) {
+            // Few distinct values so stability is exercised, spread over all 64-bit digits
+            keys[i] = (random.nextInt(50) * 0x0123456789ABL) & Long.MAX_VALUE;
+        }
+
+        int[] rows = MovieSorter.sortRows(keys, null, keys.length);
+
+        for (int i = 1; i < rows.length; i++) {
+            long previous = keys[rows[i - 1]];
+            long current = keys[rows[i]];
+            assertTrue(previous < current || (previous == current && rows[i - 1] < rows[i]));
+        }
+    }
+}
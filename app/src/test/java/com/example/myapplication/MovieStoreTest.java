@@ -0,0 +1,168 @@
+package com.example.myapplication;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the column-oriented movie store
+ */
+public class MovieStoreTest {
+
+    private static Movie movie(String title, Integer year, String genre, String poster) {
+        Movie movie = new Movie(title, year, genre, poster);
+        movie.setId(title != null ? title.hashCode() : 0);
+        return movie;
+    }
+
+    @Test
+    public void add_copiesAllFields() {
+        Movie source = movie("The Matrix", 1999, "Sci-Fi", "matrix_poster");
+        MovieStore store = new MovieStore();
+        store.add(source);
+
+        Movie stored = store.get(0);
+        assertEquals(1, store.size());
+        assertTrue(stored.hasSameContent(source));
+        assertEquals(source.getId(), stored.getId());
+        assertEquals(Integer.valueOf(1999), stored.getYear());
+        assertEquals("Sci-Fi", stored.getGenre());
+    }
+
+    @Test
+    public void missingValues_keepErrorFlagsAndDefaults() {
+        MovieStore store = new MovieStore();
+        store.add(new Movie(null, null, null, null));
+
+        Movie stored = store.get(0);
+        assertNull(stored.getTitle());
+        assertNull(stored.getYear());
+        assertEquals(MovieStore.NO_YEAR, stored.getYearValue());
+        assertEquals("Unknown Genre", stored.getGenre());
+        assertTrue(stored.hasTitleError());
+        assertTrue(stored.hasYearError());
+        assertTrue(stored.hasGenreError());
+        assertTrue(stored.hasPosterError());
+        assertEquals("", stored.getYearErrorMsg());
+    }
+
+    @Test
+    public void yearErrorMessages_roundTrip() {
+        String[] messages = {
+                "",
+                "Year field is missing",
+                "Year is negative: -1997",
+                "Year is a decimal: 1972.5",
+                "Year is not a valid number: nineteen-ninety-four",
+                "Error parsing year: something else"
+        };
+        Integer[] years = {1999, null, -1997, 1972, null, null};
+
+        MovieStore store = new MovieStore(4);
+        for (int i = 0; i < messages.length; i++) {
+            Movie movie = movie("Movie " + i, years[i], "Drama", "poster");
+            movie.setHasYearError(!messages[i].isEmpty());
+            movie.setYearErrorMsg(messages[i]);
+            store.add(movie);
+        }
+
+        for (int i = 0; i < messages.length; i++) {
+            assertEquals(messages[i], store.get(i).getYearErrorMsg());
+        }
+    }
+
+    @Test
+    public void setters_writeThroughViews() {
+        MovieStore store = new MovieStore();
+        store.add(movie("Titanic", -1997, "Drama", "titanic_poster"));
+        Movie view = store.get(0);
+        view.setYearErrorMsg("Year is negative: -1997");
+
+        view.setYear(1997);
+        view.setGenre(null);
+
+        Movie reread = store.get(0);
+        assertEquals(Integer.valueOf(1997), reread.getYear());
+        assertEquals("Unknown Genre", reread.getGenre());
+        assertTrue(reread.hasGenreError());
+        // Message text is kept even though it was derived from the old year
+        assertEquals("Year is negative: -1997", reread.getYearErrorMsg());
+    }
+
+    @Test
+    public void standaloneMovie_keepsValuesLikeARow() {
+        Movie standalone = movie("Titanic", -1997, "Drama", "titanic_poster");
+        standalone.setYearErrorMsg("Year is negative: -1997");
+        standalone.setYear(1997);
+        standalone.setGenre(null);
+
+        assertEquals(Integer.valueOf(1997), standalone.getYear());
+        assertEquals("Unknown Genre", standalone.getGenre());
+        assertTrue(standalone.hasGenreError());
+        assertEquals("Year is negative: -1997", standalone.getYearErrorMsg());
+
+        MovieStore store = new MovieStore();
+        store.add(standalone);
+        assertTrue(store.get(0).hasSameContent(standalone));
+        assertTrue(store.get(0).detachedCopy().hasSameContent(standalone));
+    }
+
+    @Test
+    public void snapshot_isUnaffectedByLaterChanges() {
+        MovieStore store = new MovieStore();
+        store.add(movie("Alien", 1979, "Horror", "alien_poster"));
+        Movie decimal = movie("Heat", null, "Crime", "heat_poster");
+        decimal.setYearErrorMsg("Year is a decimal: 1995.5");
+        store.add(decimal);
+
+        MovieStore snapshot = store.snapshot();
+        store.removeRows(new int[]{0});
+        store.get(0).setGenre("Drama");
+        store.add(movie("Aliens", 1986, "Sci-Fi", "aliens_poster"));
+
+        assertEquals(2, snapshot.size());
+        assertEquals("Alien", snapshot.get(0).getTitle());
+        assertEquals("Crime", snapshot.get(1).getGenre());
+        assertEquals("Year is a decimal: 1995.5", snapshot.get(1).getYearErrorMsg());
+    }
+
+    @Test
+    public void snapshot_sharesRowsUntilOneOfThemChanges() {
+        MovieStore store = new MovieStore(4);
+        store.add(movie("Alien", 1979, "Horror", "alien_poster"));
+        store.add(movie("Heat", 1995, "Crime", "heat_poster"));
+
+        MovieStore snapshot = store.snapshot();
+        store.add(movie("Aliens", 1986, "Sci-Fi", "aliens_poster"));
+        assertEquals(2, snapshot.size());
+
+        // Released: rows change in place instead of being copied out first
+        snapshot.release();
+        store.get(1).setGenre("Drama");
+        assertEquals("Drama", snapshot.get(1).getGenre());
+
+        MovieStore held = store.snapshot();
+        store.get(1).setGenre("Thriller");
+        assertEquals("Drama", held.get(1).getGenre());
+        assertEquals("Thriller", store.get(1).getGenre());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void snapshot_isReadOnly() {
+        MovieStore store = new MovieStore();
+        store.add(movie("Alien", 1979, "Horror", "alien_poster"));
+
+        store.snapshot().add(movie("Aliens", 1986, "Sci-Fi", "aliens_poster"));
+    }
+
+    @Test
+    public void set_replacesRowAndReturnsPreviousValues() {
+        MovieStore store = new MovieStore();
+        store.add(movie("Avatar", 2009, "Sci-Fi", "avatar_poster"));
+
+        Movie previous = store.set(0, movie("Avatar 2", 2022, "Sci-Fi", "avatar_poster"));
+
+        assertEquals("Avatar", previous.getTitle());
+        assertEquals("Avatar 2", store.get(0).getTitle());
+    }
+}
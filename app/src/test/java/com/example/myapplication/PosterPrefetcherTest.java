@@ -0,0 +1,41 @@
+package com.example.myapplication;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for how far ahead posters are prefetched
+ */
+public class PosterPrefetcherTest {
+    private static final long FAST_DECODE = 5_000_000L;
+    private static final long SLOW_DECODE = 60_000_000L;
+
+    @Test
+    public void idleList_looksAheadTheMinimum() {
+        assertEquals(PosterPrefetcher.MIN_DEPTH, PosterPrefetcher.prefetchDepth(0, SLOW_DECODE, 2));
+    }
+
+    @Test
+    public void depth_growsWithScrollSpeed() {
+        int slow = PosterPrefetcher.prefetchDepth(2, SLOW_DECODE, 2);
+        int fast = PosterPrefetcher.prefetchDepth(20, SLOW_DECODE, 2);
+        assertTrue(slow >= PosterPrefetcher.MIN_DEPTH);
+        assertTrue(fast > slow);
+    }
+
+    @Test
+    public void depth_growsWithDecodeTime() {
+        assertTrue(PosterPrefetcher.prefetchDepth(10, SLOW_DECODE, 2)
+                > PosterPrefetcher.prefetchDepth(10, FAST_DECODE, 2));
+        // More decoders keep up with the same speed using a shallower queue
+        assertTrue(PosterPrefetcher.prefetchDepth(10, SLOW_DECODE, 2)
+                < PosterPrefetcher.prefetchDepth(10, SLOW_DECODE, 1));
+    }
+
+    @Test
+    public void decodersFallingBehind_capTheDepth() {
+        assertEquals(PosterPrefetcher.MAX_DEPTH, PosterPrefetcher.prefetchDepth(100, SLOW_DECODE, 2));
+        assertEquals(PosterPrefetcher.MAX_DEPTH, PosterPrefetcher.prefetchDepth(1000, FAST_DECODE, 1));
+    }
+}
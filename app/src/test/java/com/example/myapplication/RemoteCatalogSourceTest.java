@@ -0,0 +1,182 @@
+package com.example.myapplication;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the remote catalog, served by an in-process HTTP server
+ */
+public class RemoteCatalogSourceTest {
+    private static final String ETAG = "\"v1\"";
+    private static final String LAST_MODIFIED = "Sat, 17 Oct 2026 08:00:00 GMT";
+    private static final byte[] CATALOG = ("[{\"id\":1,\"title\":\"Alien\",\"year\":1979,\"genre\":\"Horror\"}]\n")
+            .getBytes(StandardCharsets.UTF_8);
+
+    private File directory;
+    private HttpServer server;
+    private URL url;
+    // Request headers seen by the server, one entry per request
+    private final List<String> ifNoneMatch = new ArrayList<>();
+    private volatile boolean failing;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("remote").toFile();
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/movies.json", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                String validator = exchange.getRequestHeaders().getFirst("If-None-Match");
+                ifNoneMatch.add(validator);
+                if (failing) {
+                    exchange.sendResponseHeaders(503, -1);
+                } else if (ETAG.equals(validator)) {
+                    exchange.sendResponseHeaders(304, -1);
+                } else {
+                    boolean gzip = "gzip".equals(exchange.getRequestHeaders().getFirst("Accept-Encoding"));
+                    byte[] body = gzip ? gzip(CATALOG) : CATALOG;
+                    exchange.getResponseHeaders().set("ETag", ETAG);
+                    exchange.getResponseHeaders().set("Last-Modified", LAST_MODIFIED);
+                    if (gzip) {
+                        exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+                    }
+                    exchange.sendResponseHeaders(200, body.length);
+                    try (OutputStream output = exchange.getResponseBody()) {
+                        output.write(body);
+                    }
+                }
+                exchange.close();
+            }
+        });
+        server.start();
+        url = new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/movies.json");
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    private static byte[] gzip(byte[] bytes) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(output)) {
+            gzip.write(bytes);
+        }
+        return output.toByteArray();
+    }
+
+    private static byte[] readAll(InputStream input) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        byte[] buffer = new byte[256];
+        int read;
+        while ((read = input.read(buffer)) != -1) {
+            output.write(buffer, 0, read);
+        }
+        return output.toByteArray();
+    }
+
+    /**
+     * Download the catalog once and keep it, reading only part of the body like the parser
+     */
+    private void download(RemoteCatalogSource source) throws IOException {
+        try (RemoteCatalogSource.Response response = source.open()) {
+            assertEquals(RemoteCatalogSource.SOURCE_NETWORK, response.getSource());
+            assertEquals('[', response.getBody().read());
+            response.commit();
+            assertEquals(CatalogSnapshot.checksum(CATALOG), response.getChecksum());
+        }
+    }
+
+    @Test
+    public void firstRequest_isUnconditional_andGzipBodyIsDecompressedAndCached() throws IOException {
+        RemoteCatalogSource source = new RemoteCatalogSource(url, directory);
+
+        try (RemoteCatalogSource.Response response = source.open()) {
+            assertEquals(RemoteCatalogSource.SOURCE_NETWORK, response.getSource());
+            assertArrayEquals(CATALOG, readAll(response.getBody()));
+            response.commit();
+        }
+
+        assertNull(ifNoneMatch.get(0));
+        assertArrayEquals(CATALOG, source.readCached());
+    }
+
+    @Test
+    public void unchangedCatalog_costsA304_andIsReadFromTheCopy() throws IOException {
+        RemoteCatalogSource source = new RemoteCatalogSource(url, directory);
+        download(source);
+
+        try (RemoteCatalogSource.Response response = source.open()) {
+            assertEquals(RemoteCatalogSource.SOURCE_NOT_MODIFIED, response.getSource());
+            assertEquals(CatalogSnapshot.checksum(CATALOG), response.getChecksum());
+            assertArrayEquals(CATALOG, readAll(response.getBody()));
+        }
+        assertEquals(ETAG, ifNoneMatch.get(1));
+    }
+
+    @Test
+    public void unreachableServer_usesTheCopy_orFailsWithoutOne() throws IOException {
+        RemoteCatalogSource source = new RemoteCatalogSource(url, directory);
+        failing = true;
+        try {
+            source.open().close();
+            fail("Expected the server error without a cached copy");
+        } catch (IOException expected) {
+            // The caller falls back to the bundled catalog
+        }
+
+        failing = false;
+        download(source);
+        server.stop(0);
+
+        try (RemoteCatalogSource.Response response = source.open()) {
+            assertEquals(RemoteCatalogSource.SOURCE_OFFLINE, response.getSource());
+            assertNotNull(response.getFailure());
+            assertArrayEquals(CATALOG, readAll(response.getBody()));
+        }
+    }
+
+    @Test
+    public void bodyThatFailedToParse_isNotKept() throws IOException {
+        RemoteCatalogSource source = new RemoteCatalogSource(url, directory);
+
+        try (RemoteCatalogSource.Response response = source.open()) {
+            response.getBody().read();
+            // Closed without commit, as after a parse error
+        }
+
+        assertFalse(new File(directory, RemoteCatalogSource.CACHE_FILE).exists());
+        assertFalse(new File(directory, RemoteCatalogSource.CACHE_FILE + ".tmp").exists());
+        // Nothing cached, so the next request is unconditional again
+        source.open().close();
+        assertNull(ifNoneMatch.get(1));
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.myapplication;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for movie ids of catalog records
+ */
+public class ValidationEngineTest {
+
+    @Test
+    public void movieId_usesPositiveExplicitIds() {
+        assertEquals(42, ValidationEngine.movieId(42, 1));
+        assertEquals(42, ValidationEngine.movieId(42L, 1));
+        assertEquals(42, ValidationEngine.movieId("42", 1));
+        assertEquals(42, ValidationEngine.movieId(" 42.9 ", 1));
+    }
+
+    @Test
+    public void movieId_fallsBackToNegatedRecordNumber() {
+        assertEquals(-3, ValidationEngine.movieId(null, 3));
+        assertEquals(-3, ValidationEngine.movieId("abc", 3));
+        assertEquals(-3, ValidationEngine.movieId(0, 3));
+        assertEquals(-3, ValidationEngine.movieId(-8, 3));
+        assertEquals(-3, ValidationEngine.movieId(Boolean.TRUE, 3));
+    }
+
+    @Test
+    public void explicitId_rejectsIdsNoCatalogMovieCanHave() {
+        // Values CatalogDelta reads for removed ids: a Long, or the text of other numbers and strings
+        assertEquals(7, ValidationEngine.explicitId(7L));
+        assertEquals(2, ValidationEngine.explicitId("2.5"));
+        assertEquals(1000, ValidationEngine.explicitId("1e3"));
+        assertEquals(ValidationEngine.NO_EXPLICIT_ID, ValidationEngine.explicitId(0L));
+        assertEquals(ValidationEngine.NO_EXPLICIT_ID, ValidationEngine.explicitId(-5L));
+        assertEquals(ValidationEngine.NO_EXPLICIT_ID, ValidationEngine.explicitId("-0.5"));
+        assertEquals(ValidationEngine.NO_EXPLICIT_ID, ValidationEngine.explicitId(null));
+    }
+
+    @Test
+    public void movieId_mixedCatalogHasNoCollisions() {
+        // Records 1 to 6; odd ones carry the ids their even neighbours would get from their position
+        Object[] rawIds = {2, null, 4, null, 6, null};
+        Set<Long> ids = new HashSet<>();
+        for (int i = 0; i < rawIds.length; i++) {
+            assertTrue(ids.add(ValidationEngine.movieId(rawIds[i], i + 1)));
+        }
+        assertTrue(ids.contains(-2L));
+        assertTrue(ids.contains(2L));
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.myapplication;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for validation result accumulation
+ */
+public class ValidationReportTest {
+
+    private static ValidationReport newReport() {
+        return new ValidationReport(new String[]{"title", "year", "genre", "poster", "duplicate_title"});
+    }
+
+    @Test
+    public void add_countsFailuresPerRuleWithIndexes() {
+        ValidationReport report = newReport();
+        report.add(0);
+        report.add(0b00011);
+        report.add(0b10000);
+        report.add(0b00010);
+
+        assertEquals(4, report.getRecordCount());
+        assertEquals(1, report.getFailureCount("title"));
+        assertEquals(2, report.getFailureCount("year"));
+        assertEquals(0, report.getFailureCount("genre"));
+        assertEquals(1, report.getFailureCount("duplicate_title"));
+        assertEquals(4, report.getTotalFailureCount());
+        assertArrayEquals(new int[]{1, 3}, report.getFailingIndexes("year"));
+        assertArrayEquals(new int[]{2}, report.getFailingIndexes("duplicate_title"));
+    }
+
+    @Test
+    public void append_offsetsIndexesByPrecedingRecords() {
+        ValidationReport first = newReport();
+        first.add(0b0001);
+        first.add(0);
+        ValidationReport second = newReport();
+        second.add(0);
+        second.add(0b0101);
+
+        first.append(second);
+
+        assertEquals(4, first.getRecordCount());
+        assertArrayEquals(new int[]{0, 3}, first.getFailingIndexes("title"));
+        assertArrayEquals(new int[]{3}, first.getFailingIndexes("genre"));
+    }
+
+    @Test
+    public void manyFailures_growIndexStorage() {
+        ValidationReport report = newReport();
+        for (int i = 0; i < 1000; i++) {
+            report.add(i % 2 == 0 ? 0b1000 : 0);
+        }
+
+        int[] indexes = report.getFailingIndexes("poster");
+        assertEquals(500, indexes.length);
+        assertEquals(998, indexes[499]);
+    }
+
+    @Test
+    public void unknownRule_hasNoFailures() {
+        ValidationReport report = newReport();
+        report.add(0b1111);
+
+        assertEquals(0, report.getFailureCount("rating"));
+        assertEquals(0, report.getFailingIndexes("rating").length);
+    }
+}
@@ -0,0 +1,60 @@
+// JVM benchmarks for catalog parsing, model construction and poster resolution.
+// Run headless with ./gradlew :benchmark:jmh, results are written as JSON to
+// benchmark/build/results/jmh/results.json for comparison across commits.
+plugins {
+    java
+    alias(libs.plugins.jmh)
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+// Platform-independent app classes, compiled against small JVM stand-ins for the Android APIs they use
+val benchmarkedAppSources = listOf(
+    "com/example/myapplication/AppLog.java",
+    "com/example/myapplication/BinaryCatalog.java",
+    "com/example/myapplication/CatalogDelta.java",
+    "com/example/myapplication/CatalogSnapshot.java",
+    "com/example/myapplication/FieldCoercion.java",
+    "com/example/myapplication/JsonRecordSplitter.java",
+    "com/example/myapplication/JsonUtils.java",
+    "com/example/myapplication/LoadDiagnostics.java",
+    "com/example/myapplication/Metrics.java",
+    "com/example/myapplication/Movie.java",
+    "com/example/myapplication/MovieSearchIndex.java",
+    "com/example/myapplication/MovieSorter.java",
+    "com/example/myapplication/MovieStore.java",
+    "com/example/myapplication/PosterResolver.java",
+    "com/example/myapplication/RemoteCatalogSource.java",
+    "com/example/myapplication/ValidationEngine.java",
+    "com/example/myapplication/ValidationReport.java",
+    "com/example/myapplication/ValidationRule.java"
+)
+
+sourceSets {
+    main {
+        java {
+            setSrcDirs(listOf("src/shim/java", "../app/src/main/java"))
+            include("android/**")
+            include(benchmarkedAppSources)
+        }
+    }
+}
+
+dependencies {
+    implementation(libs.gson)
+    implementation(libs.json)
+}
+
+jmh {
+    jmhVersion.set(libs.versions.jmhCore)
+    resultFormat.set("JSON")
+    resultsFile.set(layout.buildDirectory.file("results/jmh/results.json"))
+    profilers.add("gc")
+    fork.set(1)
+    warmupIterations.set(3)
+    iterations.set(5)
+    jvmArgs.add("-Xmx4g")
+}
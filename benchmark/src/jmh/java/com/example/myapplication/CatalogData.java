@@ -0,0 +1,56 @@
+package com.example.myapplication;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * Generates synthetic movies.json catalogs for the benchmarks
+ */
+final class CatalogData {
+    static final String[] GENRES = {"Sci-Fi", "Action", "Crime", "Drama", "Adventure", "Comedy", "Horror", "Romance"};
+    static final String[] POSTERS = {
+            "matrix_poster", "inception_poster", "interstellar_poster", "dark_knight_poster",
+            "pulp_fiction_poster", "avatar_poster", "titanic_poster", "godfather_poster"};
+
+    // The kinds of dirty record found in the bundled movies.json
+    private static final String[] MALFORMED = {
+            "{\"title\":null,\"year\":2008,\"genre\":\"Action\",\"poster\":\"dark_knight_poster\"}",
+            "{\"title\":\"Interstellar %d\",\"year\":\"2014\",\"genre\":\"Sci-Fi\",\"poster\":\"interstellar_poster\"}",
+            "{\"title\":\"Pulp Fiction %d\",\"year\":\"nineteen-ninety-four\",\"genre\":\"Crime\",\"poster\":\"pulp_fiction_poster\"}",
+            "{\"title\":\"Avatar %d\",\"year\":2009,\"poster\":\"avatar_poster\"}",
+            "{\"title\":\"Titanic %d\",\"year\":-1997,\"genre\":\"Drama\",\"poster\":\"titanic_poster\"}",
+            "{\"title\":\"Jurassic Park %d\",\"year\":1993,\"genre\":\"Adventure\",\"poster\":null}",
+            "{}",
+            "{\"title\":\"The Shawshank Redemption %d\"}",
+            "{\"title\":\"The Godfather %d\",\"year\":1972.5,\"genre\":\"Crime\",\"poster\":\"godfather_poster\"}"
+    };
+
+    private CatalogData() {
+    }
+
+    /**
+     * Build a catalog as UTF-8 JSON
+     * @param records Number of records
+     * @param malformedRatio Share of records taken from the malformed patterns, 0 to 1
+     * @return JSON array bytes
+     */
+    static byte[] generate(int records, double malformedRatio) {
+        Random random = new Random(42);
+        StringBuilder json = new StringBuilder(records * 96).append('[');
+        for (int i = 0; i < records; i++) {
+            if (i > 0) {
+                json.append(",\n");
+            }
+            if (random.nextDouble() < malformedRatio) {
+                json.append(String.format(MALFORMED[random.nextInt(MALFORMED.length)], i));
+            } else {
+                json.append("{\"title\":\"Movie ").append(i)
+                        .append("\",\"year\":").append(1920 + random.nextInt(105))
+                        .append(",\"genre\":\"").append(GENRES[random.nextInt(GENRES.length)])
+                        .append("\",\"poster\":\"").append(POSTERS[random.nextInt(POSTERS.length)])
+                        .append("\"}");
+            }
+        }
+        return json.append(']').toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
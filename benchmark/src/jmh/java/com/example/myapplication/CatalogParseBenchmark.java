@@ -0,0 +1,106 @@
+package com.example.myapplication;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Whole-catalog loading through JsonUtils.streamMovies, sequential and parallel,
+ * at several catalog sizes with clean and malformed-heavy record mixes
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CatalogParseBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int records;
+
+    @Param({"0.0", "0.5"})
+    public double malformedRatio;
+
+    private byte[] catalog;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        catalog = CatalogData.generate(records, malformedRatio);
+    }
+
+    @Benchmark
+    public JsonUtils.LoadStats streamMovies(final Blackhole blackhole) throws IOException {
+        return JsonUtils.streamMovies(new ByteArrayInputStream(catalog), new JsonUtils.MovieConsumer() {
+            @Override
+            public void accept(Movie movie) {
+                blackhole.consume(movie);
+            }
+        });
+    }
+
+    @Benchmark
+    public JsonUtils.LoadStats streamMoviesParallel(final Blackhole blackhole) throws IOException {
+        return JsonUtils.streamMoviesParallel(catalog, new JsonUtils.MovieConsumer() {
+            @Override
+            public void accept(Movie movie) {
+                blackhole.consume(movie);
+            }
+        }, Runtime.getRuntime().availableProcessors(), ValidationEngine.getDefault());
+    }
+
+    /**
+     * parseMovieFromJson on its own, without tokenizing
+     */
+    @State(Scope.Thread)
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public static class SingleRecord {
+        @Param({"clean", "string_year", "word_year", "decimal_year", "missing_fields"})
+        public String kind;
+
+        private JSONObject record;
+
+        @Setup(Level.Trial)
+        public void setUp() throws JSONException {
+            record = new JSONObject();
+            record.put("title", "The Matrix");
+            record.put("year", 1999);
+            record.put("genre", "Sci-Fi");
+            record.put("poster", "matrix_poster");
+            switch (kind) {
+                case "string_year":
+                    record.put("year", "1999");
+                    break;
+                case "word_year":
+                    record.put("year", "nineteen-ninety-nine");
+                    break;
+                case "decimal_year":
+                    record.put("year", 1999.5);
+                    break;
+                case "missing_fields":
+                    record.remove("year");
+                    record.remove("genre");
+                    record.put("poster", JSONObject.NULL);
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        @Benchmark
+        public Movie parseMovieFromJson() throws JSONException {
+            return JsonUtils.parseMovieFromJson(record, 1);
+        }
+    }
+}
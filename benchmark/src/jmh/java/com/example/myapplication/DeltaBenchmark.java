@@ -0,0 +1,85 @@
+package com.example.myapplication;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of applying a small delta document to a large loaded catalog, parsing and
+ * validation of the delta included. Half the changes update movies in place, a
+ * quarter remove movies and a quarter add new ones, so the catalog keeps its size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class DeltaBenchmark {
+    @Param({"1000000"})
+    public int records;
+
+    @Param({"100"})
+    public int changes;
+
+    private final Random random = new Random(42);
+    private MovieStore store;
+    private MovieSearchIndex searchIndex;
+    private MovieSorter sorter;
+    private long nextId;
+    private byte[] delta;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        store = new MovieStore(records);
+        searchIndex = new MovieSearchIndex();
+        sorter = new MovieSorter();
+        for (int i = 0; i < records; i++) {
+            String genre = CatalogData.GENRES[random.nextInt(CatalogData.GENRES.length)];
+            Movie movie = new Movie("Movie " + i, 1920 + random.nextInt(105), genre,
+                    CatalogData.POSTERS[random.nextInt(CatalogData.POSTERS.length)]);
+            movie.setId(i + 1);
+            searchIndex.add(i, movie.getTitle(), genre);
+            sorter.add(movie.getTitle(), false, movie.getYearValue(), false, genre);
+            store.add(movie);
+        }
+        nextId = records + 1;
+    }
+
+    @Setup(Level.Invocation)
+    public void nextDelta() {
+        StringBuilder json = new StringBuilder("{\"upsert\":[");
+        int removals = changes / 4;
+        int additions = changes / 4;
+        for (int i = 0; i < changes - removals; i++) {
+            // Updates of existing movies, then brand new ones
+            long id = i < changes - removals - additions
+                    ? store.get(random.nextInt(store.size())).getId() : nextId++;
+            json.append(i > 0 ? "," : "").append("{\"id\":").append(id)
+                    .append(",\"title\":\"Changed ").append(id)
+                    .append("\",\"year\":").append(1920 + random.nextInt(105))
+                    .append(",\"genre\":\"").append(CatalogData.GENRES[random.nextInt(CatalogData.GENRES.length)])
+                    .append("\",\"poster\":\"matrix_poster\"}");
+        }
+        json.append("],\"remove\":[");
+        for (int i = 0; i < removals; i++) {
+            json.append(i > 0 ? "," : "").append(store.get(random.nextInt(store.size())).getId());
+        }
+        delta = json.append("]}").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public CatalogDelta.Result applyDelta() throws IOException {
+        CatalogDelta parsed = CatalogDelta.parse(new ByteArrayInputStream(delta), ValidationEngine.getDefault());
+        return parsed.applyTo(store, searchIndex, sorter);
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.myapplication;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Year field validation on catalogs where a share of the years are dirty: words,
+ * decimals, negative numbers, numeric strings and missing fields. Compares
+ * FieldCoercion against the exception-driven Integer.parseInt classification it
+ * replaced, and measures the whole record rules on the same values.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class FieldCoercionBenchmark {
+    private static final int VALUES = 4096;
+    private static final Object[] DIRTY = {
+            "nineteen-ninety-four", "1994", 1972.5, -1997, null, "", "2014.0", "-5"};
+
+    @Param({"0.0", "0.5", "0.9"})
+    public double malformedRatio;
+
+    // Raw year values as JsonUtils.readObject produces them, null for a missing field
+    private final Object[] values = new Object[VALUES];
+    private final JSONObject[] records = new JSONObject[VALUES];
+
+    @Setup(Level.Trial)
+    public void setUp() throws JSONException {
+        Random random = new Random(42);
+        for (int i = 0; i < VALUES; i++) {
+            values[i] = random.nextDouble() < malformedRatio
+                    ? DIRTY[random.nextInt(DIRTY.length)] : (Object) (1920 + random.nextInt(105));
+            JSONObject record = new JSONObject();
+            record.put("title", "Movie " + i);
+            if (values[i] != null) {
+                record.put("year", values[i]);
+            }
+            record.put("genre", CatalogData.GENRES[i % CatalogData.GENRES.length]);
+            record.put("poster", CatalogData.POSTERS[i % CatalogData.POSTERS.length]);
+            records[i] = record;
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(VALUES)
+    public void coerce(Blackhole blackhole) {
+        for (Object value : values) {
+            blackhole.consume(FieldCoercion.toInt(value));
+        }
+    }
+
+    /**
+     * The year logic before FieldCoercion: parseInt and its exception decide, and every
+     * error message is built up front
+     */
+    @Benchmark
+    @OperationsPerInvocation(VALUES)
+    public void parseIntWithExceptions(Blackhole blackhole) {
+        for (Object value : values) {
+            String message = "";
+            int year = 0;
+            try {
+                if (value == null) {
+                    message = "Year field is missing";
+                } else if (value instanceof String) {
+                    try {
+                        year = Integer.parseInt((String) value);
+                        if (year <= 0) {
+                            message = "Year is negative: " + year;
+                        }
+                    } catch (NumberFormatException e) {
+                        message = "Year is not a valid number: " + value;
+                    }
+                } else if (value instanceof Double) {
+                    message = "Year is a decimal: " + value;
+                    year = ((Double) value).intValue();
+                } else {
+                    year = ((Number) value).intValue();
+                    if (year <= 0) {
+                        message = "Year is negative: " + year;
+                    }
+                }
+            } catch (RuntimeException e) {
+                message = "Error parsing year: " + e.getMessage();
+            }
+            blackhole.consume(year);
+            blackhole.consume(message);
+        }
+    }
+
+    /**
+     * Every built-in rule on each record, as the catalog loader runs them
+     */
+    @Benchmark
+    @OperationsPerInvocation(VALUES)
+    public void validateRecords(Blackhole blackhole) throws JSONException {
+        for (int i = 0; i < VALUES; i++) {
+            blackhole.consume(JsonUtils.parseMovieFromJson(records[i], i + 1));
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.myapplication;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Movie construction cost; run with the gc profiler (enabled in build.gradle.kts)
+ * to get the allocation rate per operation
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class MovieBenchmark {
+    private int year = 1999;
+
+    @Benchmark
+    public Movie construct() {
+        return new Movie("The Matrix", year, "Sci-Fi", "matrix_poster");
+    }
+
+    @Benchmark
+    public Movie constructWithErrorFlags() {
+        Movie movie = new Movie(null, year, null, "matrix_poster");
+        movie.setId(year);
+        movie.setHasTitleError(true);
+        movie.setHasYearError(true);
+        movie.setYearErrorMsg("Year is a decimal: 1999.5");
+        movie.setHasGenreError(true);
+        movie.setHasPosterError(false);
+        return movie;
+    }
+}
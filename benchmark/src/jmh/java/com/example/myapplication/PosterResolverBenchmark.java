@@ -0,0 +1,69 @@
+package com.example.myapplication;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Poster name resolution: cold (every name resolved through the rules) and warm (cache hits)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class PosterResolverBenchmark {
+    // Drawables present in the app, ids are arbitrary
+    private static final Map<String, Integer> DRAWABLES = new HashMap<>();
+
+    static {
+        String[] names = {"avatar", "dark_knight", "interstellar_poster", "jurassicpark", "pulpfiction",
+                "thegodfather", "thematrix", "theshawshankredemption", "titanic", "placeholder_poster"};
+        for (int i = 0; i < names.length; i++) {
+            DRAWABLES.put(names[i], 0x7f080000 + i);
+        }
+    }
+
+    private static final PosterResolver.IdentifierLookup LOOKUP = new PosterResolver.IdentifierLookup() {
+        @Override
+        public int getDrawableId(String name) {
+            Integer id = DRAWABLES.get(name);
+            return id != null ? id : PosterResolver.NOT_FOUND;
+        }
+    };
+
+    private PosterResolver warmResolver;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        warmResolver = new PosterResolver(LOOKUP);
+        for (String poster : CatalogData.POSTERS) {
+            warmResolver.resolve(poster);
+        }
+    }
+
+    @Benchmark
+    public int resolveCold() {
+        // A fresh resolver pays the full rule chain, including misses like inception_poster
+        PosterResolver resolver = new PosterResolver(LOOKUP);
+        int sum = 0;
+        for (String poster : CatalogData.POSTERS) {
+            sum += resolver.resolve(poster);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int resolveWarm() {
+        next = (next + 1) & 7;
+        return warmResolver.resolve(CatalogData.POSTERS[next]);
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.myapplication;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Search-as-you-type latency against an index over a large synthetic catalog
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SearchIndexBenchmark {
+    private static final String[] WORDS = {
+            "the", "dark", "knight", "matrix", "return", "king", "star", "wars", "empire", "godfather",
+            "part", "love", "night", "city", "blue", "lost", "world", "story", "house", "last",
+            "shadow", "river", "fire", "ice", "song", "dream", "interstellar", "inception", "pulp", "fiction"};
+
+    @Param({"1000000"})
+    public int records;
+
+    // Prefixes typed one character at a time, an exact genre, and multi-word queries
+    @Param({"m", "mat", "matrix", "sci-fi", "dark kni", "godfather part 12"})
+    public String query;
+
+    private MovieSearchIndex index;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        index = new MovieSearchIndex();
+        StringBuilder title = new StringBuilder();
+        for (int i = 0; i < records; i++) {
+            title.setLength(0);
+            int words = 1 + random.nextInt(4);
+            for (int w = 0; w < words; w++) {
+                title.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+            }
+            title.append(i % 1000);
+            index.add(i, title.toString(), CatalogData.GENRES[random.nextInt(CatalogData.GENRES.length)]);
+        }
+    }
+
+    @Benchmark
+    public int[] search() {
+        return index.search(query);
+    }
+}
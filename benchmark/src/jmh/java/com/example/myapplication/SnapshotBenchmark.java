@@ -0,0 +1,70 @@
+package com.example.myapplication;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Warm start from a catalog snapshot: checksum the source, map the snapshot and read
+ * the first row. Compare with CatalogParseBenchmark.streamMoviesParallel, the cost of
+ * starting without one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SnapshotBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int records;
+
+    @Param({"0.0", "0.5"})
+    public double malformedRatio;
+
+    private byte[] catalog;
+    private File directory;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        catalog = CatalogData.generate(records, malformedRatio);
+        directory = Files.createTempDirectory("snapshot").toFile();
+        final BinaryCatalog.Writer writer = new BinaryCatalog.Writer();
+        JsonUtils.LoadStats stats = JsonUtils.streamMoviesParallel(catalog, new JsonUtils.MovieConsumer() {
+            @Override
+            public void accept(Movie movie) {
+                writer.add(movie);
+            }
+        }, ValidationEngine.getDefault());
+        if (!CatalogSnapshot.write(directory, CatalogSnapshot.checksum(catalog), writer, stats)) {
+            throw new IOException("Cannot write snapshot");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        new File(directory, CatalogSnapshot.FILE_NAME).delete();
+        directory.delete();
+    }
+
+    @Benchmark
+    public Movie snapshotToFirstRow() {
+        BinaryCatalog snapshot = CatalogSnapshot.open(directory, CatalogSnapshot.checksum(catalog));
+        return snapshot.get(0);
+    }
+
+    @Benchmark
+    public long checksum() {
+        return CatalogSnapshot.checksum(catalog);
+    }
+}
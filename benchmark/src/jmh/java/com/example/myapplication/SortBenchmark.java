@@ -0,0 +1,71 @@
+package com.example.myapplication;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of switching the sort order of a large synthetic catalog, from precomputed keys
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SortBenchmark {
+    private static final String[] WORDS = {
+            "the", "dark", "knight", "matrix", "return", "king", "star", "wars", "empire", "godfather",
+            "part", "love", "night", "city", "blue", "lost", "world", "story", "house", "last"};
+
+    @Param({"1000000"})
+    public int records;
+
+    @Param({"1", "2", "3"})
+    public int order;
+
+    private MovieSorter sorter;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        sorter = new MovieSorter();
+        StringBuilder title = new StringBuilder();
+        for (int i = 0; i < records; i++) {
+            title.setLength(0);
+            int words = 1 + random.nextInt(4);
+            for (int w = 0; w < words; w++) {
+                title.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+            }
+            title.append(i % 1000);
+            // Roughly one record in fifty has a broken year or genre
+            boolean yearError = random.nextInt(50) == 0;
+            boolean genreError = random.nextInt(50) == 0;
+            sorter.add(title.toString(), false, 1900 + random.nextInt(125), yearError,
+                    genreError ? null : CatalogData.GENRES[random.nextInt(CatalogData.GENRES.length)]);
+        }
+    }
+
+    /**
+     * First switch to an order, title ranks included
+     */
+    @Benchmark
+    public MovieSorter.Sections sortFromKeys() {
+        sorter.invalidate();
+        return sorter.sort(order);
+    }
+
+    /**
+     * Switching back to an order that was already computed
+     */
+    @Benchmark
+    public MovieSorter.Sections switchToSortedOrder() {
+        return sorter.sort(order);
+    }
+}
@@ -0,0 +1,17 @@
+package android.content;
+
+import android.content.res.AssetManager;
+import android.content.res.Resources;
+
+/**
+ * JVM stand-in for android.content.Context, only what the benchmarked classes touch
+ */
+public abstract class Context {
+    public abstract AssetManager getAssets();
+
+    public abstract Resources getResources();
+
+    public abstract String getPackageName();
+
+    public abstract Context getApplicationContext();
+}
@@ -0,0 +1,26 @@
+package android.content.res;
+
+import java.io.Closeable;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+/**
+ * JVM stand-in for android.content.res.AssetFileDescriptor, benchmarks never open assets by descriptor
+ */
+public class AssetFileDescriptor implements Closeable {
+    public FileInputStream createInputStream() throws IOException {
+        throw new IOException("No assets on the JVM");
+    }
+
+    public long getStartOffset() {
+        return 0;
+    }
+
+    public long getLength() {
+        return 0;
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,18 @@
+package android.content.res;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * JVM stand-in for android.content.res.AssetManager, benchmarks read from streams instead
+ */
+public class AssetManager {
+    public InputStream open(String fileName) throws IOException {
+        throw new FileNotFoundException(fileName);
+    }
+
+    public AssetFileDescriptor openFd(String fileName) throws IOException {
+        throw new FileNotFoundException(fileName);
+    }
+}
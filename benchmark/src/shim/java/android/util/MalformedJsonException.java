@@ -0,0 +1,12 @@
+package android.util;
+
+import java.io.IOException;
+
+/**
+ * JVM stand-in for android.util.MalformedJsonException
+ */
+public final class MalformedJsonException extends IOException {
+    public MalformedJsonException(String message) {
+        super(message);
+    }
+}